@@ -0,0 +1,555 @@
+package com.pearcevps.json;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.pearcevps.utils.Output;
+
+/**
+ * The binding metadata of a bean class: its fields, superclass fields first,
+ * with their annotations, kinds and type arguments. It is read by reflection
+ * the first time a class is bound and kept for the life of the class, so
+ * serializing or deserializing a bean only reads and writes field values.
+ * Descriptors are immutable and safe to share between threads.
+ *
+ * <pre>
+ * for (BeanDescriptor.Property property : BeanDescriptor.forClass(bean.getClass()).getProperties()) {
+ * 	Object value = property.getAccessor().get(bean);
+ * }
+ * </pre>
+ *
+ * The names listed in a {@link Json_IgnoreFieldsInThisList} field are read
+ * from each bean, so {@link #getProperties()} still includes the fields they
+ * name.
+ *
+ * @author andrewpearce
+ *
+ */
+public class BeanDescriptor {
+
+	/**
+	 * What a field holds, as far as binding is concerned. Primitives have the
+	 * kind of their wrapper class.
+	 */
+	public enum Kind {
+		/**
+		 * Any other class, bound as a nested bean
+		 */
+		BEAN,
+		BOOLEAN,
+		CHARACTER,
+		DOUBLE,
+		FLOAT,
+		INTEGER,
+		/**
+		 * A java.util.List
+		 */
+		LIST,
+		LONG,
+		/**
+		 * A java.util.Map
+		 */
+		MAP,
+		SHORT,
+		STRING,
+		/**
+		 * A java.net.URI
+		 */
+		URI;
+
+		/**
+		 * Is a value of this kind written as a single string, number or boolean?
+		 *
+		 * @return true for all kinds except beans, lists and maps
+		 */
+		public boolean isScalar() {
+			return (this != BEAN) && (this != LIST) && (this != MAP);
+		}
+	}
+
+	/**
+	 * Creates the accessors of bound fields
+	 */
+	static private volatile FieldAccessor.Factory	accessorFactory	= FieldAccessor.METHOD_HANDLES;
+	/**
+	 * The descriptor of each class, created the first time it is asked for
+	 */
+	static private final ClassValue<BeanDescriptor>	DESCRIPTORS		= new ClassValue<BeanDescriptor>() {
+		@Override
+		protected BeanDescriptor computeValue(Class<?> type) {
+			return new BeanDescriptor(type);
+		}
+	};
+
+	/**
+	 * Get the descriptor of a bean class
+	 *
+	 * @param beanClass
+	 *           The class
+	 * @return The descriptor, which is created the first time and shared after
+	 */
+	static public BeanDescriptor forClass(Class<?> beanClass) {
+		return BeanDescriptor.DESCRIPTORS.get(beanClass);
+	}
+
+	/**
+	 * Get the factory that creates the accessors of bound fields
+	 *
+	 * @return The factory, {@link FieldAccessor#METHOD_HANDLES} unless it has
+	 *         been set
+	 */
+	static public FieldAccessor.Factory getAccessorFactory() {
+		return BeanDescriptor.accessorFactory;
+	}
+
+	/**
+	 * Set the factory that creates the accessors of bound fields. The
+	 * accessors of a class are created with its descriptor, the first time a
+	 * bean of the class is bound, so the factory should be set before any bean
+	 * is serialized or deserialized.
+	 *
+	 * @param factory
+	 *           The factory, e.g. {@link FieldAccessor#REFLECTION}, or null for
+	 *           the default
+	 */
+	static public void setAccessorFactory(FieldAccessor.Factory factory) {
+		BeanDescriptor.accessorFactory = (factory == null) ? FieldAccessor.METHOD_HANDLES : factory;
+	}
+
+	/**
+	 * Get the binding metadata of a field
+	 *
+	 * @param field
+	 *           The field
+	 * @return The metadata, from the descriptor of the class that declares the
+	 *         field
+	 */
+	static public Property getProperty(Field field) {
+		Property ret = BeanDescriptor.forClass(field.getDeclaringClass()).byField.get(field);
+		return (ret == null) ? new Property(field) : ret;
+	}
+
+	/**
+	 * Get the binding metadata of a field declared by a class
+	 *
+	 * @param declaringClass
+	 *           The class that declares the field
+	 * @param fieldName
+	 *           The name of the field, matched exactly
+	 * @return The metadata
+	 * @throws IllegalArgumentException
+	 *            Thrown if the class declares no such field
+	 */
+	static public Property getProperty(Class<?> declaringClass, String fieldName) {
+		for (Property property : BeanDescriptor.forClass(declaringClass).getFieldsNamed(fieldName)) {
+			if ((property.getField().getDeclaringClass() == declaringClass) && property.getName().equals(fieldName)) {
+				return property;
+			}
+		}
+		throw new IllegalArgumentException(
+				"Class " + declaringClass.getName() + " does not declare a field \"" + fieldName + "\"");
+	}
+
+	/**
+	 * Get the kind of a class
+	 *
+	 * @param type
+	 *           The class, or null
+	 * @return The kind, or null if the class is null
+	 */
+	static Kind kindOf(Class<?> type) {
+		if (type == null) {
+			return null;
+		} else if (type == java.lang.String.class) {
+			return Kind.STRING;
+		} else if ((type == java.lang.Long.class) || type.equals(Long.TYPE)) {
+			return Kind.LONG;
+		} else if ((type == java.lang.Integer.class) || type.equals(Integer.TYPE)) {
+			return Kind.INTEGER;
+		} else if ((type == java.lang.Short.class) || type.equals(Short.TYPE)) {
+			return Kind.SHORT;
+		} else if ((type == java.lang.Float.class) || type.equals(Float.TYPE)) {
+			return Kind.FLOAT;
+		} else if ((type == java.lang.Double.class) || type.equals(Double.TYPE)) {
+			return Kind.DOUBLE;
+		} else if ((type == java.lang.Character.class) || type.equals(Character.TYPE)) {
+			return Kind.CHARACTER;
+		} else if ((type == java.lang.Boolean.class) || type.equals(Boolean.TYPE)) {
+			return Kind.BOOLEAN;
+		} else if (type == java.net.URI.class) {
+			return Kind.URI;
+		} else if (type == java.util.List.class) {
+			return Kind.LIST;
+		} else if (type == java.util.Map.class) {
+			return Kind.MAP;
+		}
+		return Kind.BEAN;
+	}
+
+	/**
+	 * The class described
+	 */
+	private final Class<?>							beanClass;
+	/**
+	 * Each field by its reflected field
+	 */
+	private final Map<Field, Property>			byField		= new HashMap<Field, Property>();
+	/**
+	 * Each field by name in lower case, as names are matched ignoring case
+	 */
+	private final Map<String, List<Property>>	byName		= new HashMap<String, List<Property>>();
+	/**
+	 * All the fields, superclass fields first
+	 */
+	private final List<Property>					fields;
+	/**
+	 * The List fields annotated with {@link Json_IgnoreFieldsInThisList}
+	 */
+	private final List<Property>					ignoreLists;
+	/**
+	 * The fields that are serialized
+	 */
+	private final List<Property>					properties;
+
+	/**
+	 * Read the fields of a class
+	 *
+	 * @param beanClass
+	 *           The class
+	 */
+	private BeanDescriptor(Class<?> beanClass) {
+		super();
+		this.beanClass = beanClass;
+		List<Class<?>> classes = new ArrayList<Class<?>>();
+		for (Class<?> c = beanClass; c != null; c = c.getSuperclass()) {
+			classes.add(0, c);
+		}
+		List<Property> all = new ArrayList<Property>();
+		List<Property> ignoreLists = new ArrayList<Property>();
+		List<Property> properties = new ArrayList<Property>();
+		for (Class<?> c : classes) {
+			for (Field f : c.getDeclaredFields()) {
+				Property property = new Property(f);
+				all.add(property);
+				this.byField.put(f, property);
+				this.byName.computeIfAbsent(f.getName().toLowerCase(Locale.ROOT), name -> new ArrayList<Property>(1))
+						.add(property);
+				if (property.isSerialized()) {
+					properties.add(property);
+				}
+				if (property.isIgnoreList() && (property.getKind() == Kind.LIST)) {
+					ignoreLists.add(property);
+				}
+			}
+		}
+		this.byName.replaceAll((name, list) -> Collections.unmodifiableList(list));
+		this.fields = Collections.unmodifiableList(all);
+		this.ignoreLists = Collections.unmodifiableList(ignoreLists);
+		this.properties = Collections.unmodifiableList(properties);
+	}
+
+	/**
+	 * Get the class described
+	 *
+	 * @return The class
+	 */
+	public Class<?> getBeanClass() {
+		return this.beanClass;
+	}
+
+	/**
+	 * Get all the fields of the class, annotated or not, superclass fields
+	 * first
+	 *
+	 * @return The fields, which cannot be modified
+	 */
+	public List<Property> getFields() {
+		return this.fields;
+	}
+
+	/**
+	 * Get the fields with a name, ignoring case
+	 *
+	 * @param name
+	 *           The name, e.g. of a JSON pair, or null
+	 * @return The fields, superclass fields first, or an empty list
+	 */
+	public List<Property> getFieldsNamed(String name) {
+		List<Property> ret = (name == null) ? null : this.byName.get(name.toLowerCase(Locale.ROOT));
+		return (ret == null) ? Collections.<Property> emptyList() : ret;
+	}
+
+	/**
+	 * Get the List fields annotated with {@link Json_IgnoreFieldsInThisList},
+	 * which hold the names of fields that a bean leaves out
+	 *
+	 * @return The fields, which cannot be modified
+	 */
+	public List<Property> getIgnoreLists() {
+		return this.ignoreLists;
+	}
+
+	/**
+	 * Get the fields that are serialized, i.e. those annotated with
+	 * {@link Json_Property} or {@link Json_PropertyRequired}, superclass fields
+	 * first
+	 *
+	 * @return The fields, which cannot be modified
+	 */
+	public List<Property> getProperties() {
+		return this.properties;
+	}
+
+	/**
+	 * The binding metadata of one field
+	 */
+	static public class Property {
+
+		/**
+		 * Reads and writes the field
+		 */
+		private final FieldAccessor	accessor;
+		/**
+		 * Is the field annotated with {@link Json_Property} or
+		 * {@link Json_PropertyRequired}?
+		 */
+		private final boolean	annotated;
+		/**
+		 * The kind of the elements of a List, or of the values of a Map
+		 */
+		private final Kind		elementKind;
+		/**
+		 * The field
+		 */
+		private final Field		field;
+		/**
+		 * Is the field annotated with {@link Json_IgnoreFieldsInThisList}?
+		 */
+		private final boolean	ignoreList;
+		/**
+		 * The kind of the field
+		 */
+		private final Kind		kind;
+		/**
+		 * Are the values of a List field beans?
+		 */
+		private final boolean	listValuesAreBeans;
+		/**
+		 * Are the values of a Map field beans?
+		 */
+		private final boolean	mapValuesAreBeans;
+		/**
+		 * Must the field have a value?
+		 */
+		private final boolean	required;
+		/**
+		 * The classes of the type arguments of the field, e.g. String and Long
+		 * for a Map&lt;String,Long&gt;. An argument that is not a class or a
+		 * parameterized type is null.
+		 */
+		private final Class<?>[]	typeArguments;
+
+		/**
+		 * Read the annotations and type of a field
+		 *
+		 * @param field
+		 *           The field
+		 */
+		Property(Field field) {
+			super();
+			this.field = field;
+			this.kind = BeanDescriptor.kindOf(field.getType());
+			this.annotated = field.isAnnotationPresent(Json_Property.class)
+					|| field.isAnnotationPresent(Json_PropertyRequired.class);
+			this.required = field.isAnnotationPresent(Json_PropertyRequired.class);
+			this.ignoreList = field.isAnnotationPresent(Json_IgnoreFieldsInThisList.class);
+			this.listValuesAreBeans = field.isAnnotationPresent(Json_ListValuesAreBeans.class);
+			this.mapValuesAreBeans = field.isAnnotationPresent(Json_MapValuesAreBeans.class);
+			if (this.annotated || this.ignoreList) {
+				try {
+					field.setAccessible(true);
+				} catch (SecurityException e) {
+					// The field is read and written as it is, which fails with an
+					// IllegalAccessException if it is not accessible
+					if (JsonValue.debug) {
+						Output.logdebug(Output.padStr("BeanDescriptor.Property::Property: ", 60) + "Cannot make field \""
+								+ field.getName() + "\" accessible: " + e.getMessage());
+					}
+				}
+			}
+			if (this.annotated || this.ignoreList) {
+				this.accessor = BeanDescriptor.accessorFactory.create(field);
+			} else {
+				this.accessor = new ReflectionFieldAccessor(field);
+			}
+
+			//////////////////////////////
+			// Resolve the type arguments, e.g. of a List or Map, to classes
+			Type genericType = field.getGenericType();
+			if (genericType instanceof ParameterizedType) {
+				Type[] arguments = ((ParameterizedType) genericType).getActualTypeArguments();
+				this.typeArguments = new Class<?>[arguments.length];
+				for (int i = 0; i < arguments.length; i++) {
+					if (arguments[i] instanceof Class) {
+						this.typeArguments[i] = (Class<?>) arguments[i];
+					} else if (arguments[i] instanceof ParameterizedType) {
+						this.typeArguments[i] = (Class<?>) ((ParameterizedType) arguments[i]).getRawType();
+					}
+				}
+			} else {
+				this.typeArguments = new Class<?>[0];
+			}
+			if ((this.kind == Kind.LIST) && (this.typeArguments.length > 0)) {
+				this.elementKind = BeanDescriptor.kindOf(this.typeArguments[this.typeArguments.length - 1]);
+			} else if ((this.kind == Kind.MAP) && (this.typeArguments.length == 2)) {
+				this.elementKind = BeanDescriptor.kindOf(this.typeArguments[1]);
+			} else {
+				this.elementKind = null;
+			}
+		}
+
+		/**
+		 * Get the accessor that reads and writes the field
+		 *
+		 * @return The accessor, which for a bound field is created by the
+		 *         accessor factory
+		 */
+		public FieldAccessor getAccessor() {
+			return this.accessor;
+		}
+
+		/**
+		 * Get the class of the elements of a List field
+		 *
+		 * @return The class, or null if the field is not a List or its element
+		 *         type is not known
+		 */
+		public Class<?> getElementClass() {
+			if ((this.kind != Kind.LIST) || (this.typeArguments.length == 0)) {
+				return null;
+			}
+			return this.typeArguments[this.typeArguments.length - 1];
+		}
+
+		/**
+		 * Get the kind of the elements of a List field, or of the values of a Map
+		 * field
+		 *
+		 * @return The kind, or null if it is not known
+		 */
+		public Kind getElementKind() {
+			return this.elementKind;
+		}
+
+		/**
+		 * Get the field
+		 *
+		 * @return The field, which is accessible if it is annotated
+		 */
+		public Field getField() {
+			return this.field;
+		}
+
+		/**
+		 * Get the kind of the field
+		 *
+		 * @return The kind
+		 */
+		public Kind getKind() {
+			return this.kind;
+		}
+
+		/**
+		 * Get the name of the field
+		 *
+		 * @return The name
+		 */
+		public String getName() {
+			return this.field.getName();
+		}
+
+		/**
+		 * Get the classes of the type arguments of the field
+		 *
+		 * @return The classes, e.g. String and Long for a
+		 *         Map&lt;String,Long&gt;, or an empty array if the field type is
+		 *         not parameterized. An argument that is not a class or a
+		 *         parameterized type is null.
+		 */
+		public Class<?>[] getTypeArguments() {
+			return this.typeArguments.clone();
+		}
+
+		/**
+		 * Is the field annotated with {@link Json_Property} or
+		 * {@link Json_PropertyRequired}?
+		 *
+		 * @return true if the field is bound
+		 */
+		public boolean isAnnotated() {
+			return this.annotated;
+		}
+
+		/**
+		 * Is the field annotated with {@link Json_IgnoreFieldsInThisList}?
+		 *
+		 * @return true if the field holds names of fields to leave out
+		 */
+		public boolean isIgnoreList() {
+			return this.ignoreList;
+		}
+
+		/**
+		 * Are the values of a List field beans?
+		 *
+		 * @return true if annotated with {@link Json_ListValuesAreBeans}
+		 */
+		public boolean isListValuesAreBeans() {
+			return this.listValuesAreBeans;
+		}
+
+		/**
+		 * Are the values of a Map field beans?
+		 *
+		 * @return true if annotated with {@link Json_MapValuesAreBeans}
+		 */
+		public boolean isMapValuesAreBeans() {
+			return this.mapValuesAreBeans;
+		}
+
+		/**
+		 * Is the field a primitive?
+		 *
+		 * @return true for primitive fields
+		 */
+		public boolean isPrimitive() {
+			return this.field.getType().isPrimitive();
+		}
+
+		/**
+		 * Must the field have a value?
+		 *
+		 * @return true if annotated with {@link Json_PropertyRequired}
+		 */
+		public boolean isRequired() {
+			return this.required;
+		}
+
+		/**
+		 * Is the field serialized, unless a bean's ignore list names it?
+		 *
+		 * @return true if the field is annotated, and is not itself an ignore
+		 *         list
+		 */
+		public boolean isSerialized() {
+			return this.annotated && !this.ignoreList;
+		}
+	}
+}
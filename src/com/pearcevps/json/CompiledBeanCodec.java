@@ -0,0 +1,370 @@
+package com.pearcevps.json;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.pearcevps.utils.Output;
+
+/**
+ * A {@link JsonCodec} compiled from the {@link BeanDescriptor} of a class.
+ * Each field gets a reader and a writer chosen once for its kind, so binding a
+ * bean is a straight run over its fields with no further type checks. Values
+ * of an unexpected type, lists and nested beans are handed to the reflective
+ * path for that field alone.
+ *
+ * @param <T>
+ *           The bean class
+ * @author andrewpearce
+ *
+ */
+final class CompiledBeanCodec<T> implements JsonCodec<T> {
+
+	/**
+	 * Sets a field from a JSON value
+	 */
+	@FunctionalInterface
+	interface FieldReader {
+		void read(Object bean, JsonValue value) throws JsonException, IllegalArgumentException,
+				IllegalAccessException, InstantiationException, InvocationTargetException, ClassNotFoundException;
+	}
+
+	/**
+	 * Writes a field as a pair
+	 */
+	@FunctionalInterface
+	interface FieldWriter {
+		void write(Object bean, JsonWriter writer)
+				throws JsonException, IllegalArgumentException, IllegalAccessException, IOException;
+	}
+
+	/**
+	 * Compile the codec of a class
+	 *
+	 * @param beanClass
+	 *           The class
+	 * @return The codec, or null if the class has a bound Map field or an
+	 *         ignore list, which only the reflective path handles
+	 */
+	static <T> CompiledBeanCodec<T> compile(Class<T> beanClass) {
+		BeanDescriptor descriptor = BeanDescriptor.forClass(beanClass);
+		if (!descriptor.getIgnoreLists().isEmpty()) {
+			return null;
+		}
+		for (BeanDescriptor.Property property : descriptor.getFields()) {
+			if (property.isAnnotated() && (property.getKind() == BeanDescriptor.Kind.MAP)) {
+				return null;
+			}
+		}
+		return new CompiledBeanCodec<T>(beanClass, descriptor);
+	}
+
+	/**
+	 * Log a field set directly by its reader, as the reflective path logs the
+	 * fields it sets
+	 *
+	 * @param property
+	 *           The field
+	 * @param value
+	 *           The value it is set to
+	 */
+	static private void logRead(BeanDescriptor.Property property, Object value) {
+		Field field = property.getField();
+		Output.logdebug(Output.padStr("CompiledBeanCodec::readFields: ", 60) + "Deserialising field \""
+				+ field.getName() + "\" (of type " + field.getType().getSimpleName() + ") to " + value);
+	}
+
+	/**
+	 * Get the reader of a field that uses the reflective path
+	 *
+	 * @param property
+	 *           The field
+	 * @return The reader
+	 */
+	static private FieldReader reflectiveReader(BeanDescriptor.Property property) {
+		Field field = property.getField();
+		return (bean, value) -> value.deserializeJsonValueToBean(field, bean);
+	}
+
+	/**
+	 * Get the reader of a field, which sets the field directly from a value of
+	 * the type it expects and uses the reflective path otherwise
+	 *
+	 * @param property
+	 *           The field
+	 * @return The reader
+	 */
+	static private FieldReader reader(BeanDescriptor.Property property) {
+		FieldReader fallback = CompiledBeanCodec.reflectiveReader(property);
+		if (!property.isAnnotated()) {
+			return fallback;
+		}
+		FieldAccessor accessor = property.getAccessor();
+		boolean primitive = property.isPrimitive();
+		switch (property.getKind()) {
+		case BOOLEAN:
+			return (bean, value) -> {
+				if ((value instanceof JsonValueTrue) || (value instanceof JsonValueFalse)) {
+					boolean bool = value instanceof JsonValueTrue;
+					if (JsonValue.debug) {
+						CompiledBeanCodec.logRead(property, bool);
+					}
+					accessor.setBoolean(bean, bool);
+				} else {
+					fallback.read(bean, value);
+				}
+			};
+		case DOUBLE:
+			return (bean, value) -> {
+				Double number = (value instanceof JsonValueNumberDouble) ? ((JsonValueNumberDouble) value).getValue()
+						: null;
+				if (number == null) {
+					fallback.read(bean, value);
+					return;
+				}
+				if (JsonValue.debug) {
+					CompiledBeanCodec.logRead(property, number);
+				}
+				if (primitive) {
+					accessor.setDouble(bean, number.doubleValue());
+				} else {
+					accessor.set(bean, number);
+				}
+			};
+		case FLOAT:
+			return (bean, value) -> {
+				Double number = (value instanceof JsonValueNumberDouble) ? ((JsonValueNumberDouble) value).getValue()
+						: null;
+				if (number == null) {
+					fallback.read(bean, value);
+					return;
+				}
+				if (JsonValue.debug) {
+					CompiledBeanCodec.logRead(property, number.floatValue());
+				}
+				accessor.setFloat(bean, number.floatValue());
+			};
+		case INTEGER:
+			return (bean, value) -> {
+				Long number = (value instanceof JsonValueNumberLong) ? ((JsonValueNumberLong) value).getValue() : null;
+				if (number == null) {
+					fallback.read(bean, value);
+					return;
+				}
+				if (JsonValue.debug) {
+					CompiledBeanCodec.logRead(property, number.intValue());
+				}
+				accessor.setInt(bean, number.intValue());
+			};
+		case LONG:
+			return (bean, value) -> {
+				Long number = (value instanceof JsonValueNumberLong) ? ((JsonValueNumberLong) value).getValue() : null;
+				if (number == null) {
+					fallback.read(bean, value);
+					return;
+				}
+				if (JsonValue.debug) {
+					CompiledBeanCodec.logRead(property, number);
+				}
+				if (primitive) {
+					accessor.setLong(bean, number.longValue());
+				} else {
+					accessor.set(bean, number);
+				}
+			};
+		case SHORT:
+			return (bean, value) -> {
+				Long number = (value instanceof JsonValueNumberLong) ? ((JsonValueNumberLong) value).getValue() : null;
+				if (number == null) {
+					fallback.read(bean, value);
+					return;
+				}
+				if (JsonValue.debug) {
+					CompiledBeanCodec.logRead(property, number.shortValue());
+				}
+				accessor.setShort(bean, number.shortValue());
+			};
+		case STRING:
+			return (bean, value) -> {
+				String string = (value instanceof JsonValueString) ? ((JsonValueString) value).getJavaStringValue()
+						: null;
+				if ((string == null) || string.isEmpty()) {
+					fallback.read(bean, value);
+					return;
+				}
+				if (JsonValue.debug) {
+					CompiledBeanCodec.logRead(property, string);
+				}
+				accessor.set(bean, string);
+			};
+		default:
+			return fallback;
+		}
+	}
+
+	/**
+	 * Get the writer of a field
+	 *
+	 * @param property
+	 *           The field, which is serialized
+	 * @return The writer
+	 */
+	static private FieldWriter writer(BeanDescriptor.Property property) {
+		FieldAccessor accessor = property.getAccessor();
+		String name = property.getName();
+		boolean required = property.isRequired();
+
+		//////////////////////////////
+		// Primitives, read without boxing
+		if (property.isPrimitive()) {
+			switch (property.getKind()) {
+			case BOOLEAN:
+				return (bean, writer) -> writer.name(name).value(accessor.getBoolean(bean));
+			case CHARACTER:
+				return (bean, writer) -> writer.name(name).value(String.valueOf(accessor.getChar(bean)));
+			case DOUBLE:
+				return (bean, writer) -> writer.name(name).value(accessor.getDouble(bean));
+			case FLOAT:
+				return (bean, writer) -> writer.name(name).value(accessor.getFloat(bean));
+			case INTEGER:
+				return (bean, writer) -> writer.name(name).value((long) accessor.getInt(bean));
+			case LONG:
+				return (bean, writer) -> writer.name(name).value(accessor.getLong(bean));
+			case SHORT:
+				return (bean, writer) -> writer.name(name).value((long) accessor.getShort(bean));
+			default:
+				break;
+			}
+		}
+
+		//////////////////////////////
+		// Wrapper classes, strings and URIs, which may be null
+		switch (property.getKind()) {
+		case BOOLEAN:
+			return (bean, writer) -> {
+				Boolean val = (Boolean) accessor.get(bean);
+				if (val == null) {
+					JsonPair.writeNullPair(name, required, writer);
+				} else {
+					writer.name(name).value(val.booleanValue());
+				}
+			};
+		case DOUBLE:
+			return (bean, writer) -> {
+				Double val = (Double) accessor.get(bean);
+				if (val == null) {
+					JsonPair.writeNullPair(name, required, writer);
+				} else {
+					writer.name(name).value(val.doubleValue());
+				}
+			};
+		case FLOAT:
+			return (bean, writer) -> {
+				Float val = (Float) accessor.get(bean);
+				if (val == null) {
+					JsonPair.writeNullPair(name, required, writer);
+				} else {
+					writer.name(name).value(val.floatValue());
+				}
+			};
+		case INTEGER:
+		case LONG:
+		case SHORT:
+			return (bean, writer) -> {
+				Number val = (Number) accessor.get(bean);
+				if (val == null) {
+					JsonPair.writeNullPair(name, required, writer);
+				} else {
+					writer.name(name).value(val.longValue());
+				}
+			};
+		case CHARACTER:
+		case STRING:
+		case URI:
+			return (bean, writer) -> {
+				Object val = accessor.get(bean);
+				if (val == null) {
+					JsonPair.writeNullPair(name, required, writer);
+				} else {
+					writer.name(name).value(val.toString());
+				}
+			};
+		default:
+			return (bean, writer) -> JsonPair.writeField(bean, property, writer);
+		}
+	}
+
+	/**
+	 * The class bound
+	 */
+	private final Class<T>								beanClass;
+	/**
+	 * The readers of the fields with each name in lower case
+	 */
+	private final Map<String, FieldReader[]>	readers	= new HashMap<String, FieldReader[]>();
+	/**
+	 * The writers of the serialized fields, in order
+	 */
+	private final FieldWriter[]						writers;
+
+	/**
+	 * Compile the readers and writers of a class
+	 *
+	 * @param beanClass
+	 *           The class
+	 * @param descriptor
+	 *           Its descriptor
+	 */
+	private CompiledBeanCodec(Class<T> beanClass, BeanDescriptor descriptor) {
+		super();
+		this.beanClass = beanClass;
+		for (BeanDescriptor.Property property : descriptor.getFields()) {
+			String key = property.getName().toLowerCase(Locale.ROOT);
+			if (this.readers.containsKey(key)) {
+				continue;
+			}
+			List<BeanDescriptor.Property> named = descriptor.getFieldsNamed(key);
+			FieldReader[] fieldReaders = new FieldReader[named.size()];
+			for (int i = 0; i < fieldReaders.length; i++) {
+				fieldReaders[i] = CompiledBeanCodec.reader(named.get(i));
+			}
+			this.readers.put(key, fieldReaders);
+		}
+		List<FieldWriter> writers = new ArrayList<FieldWriter>();
+		for (BeanDescriptor.Property property : descriptor.getProperties()) {
+			writers.add(CompiledBeanCodec.writer(property));
+		}
+		this.writers = writers.toArray(new FieldWriter[writers.size()]);
+	}
+
+	@Override
+	public Class<T> getBeanClass() {
+		return this.beanClass;
+	}
+
+	@Override
+	public void readFields(T bean, List<JsonPair> pairs) throws JsonException, IllegalArgumentException,
+			IllegalAccessException, InstantiationException, InvocationTargetException, ClassNotFoundException {
+		for (JsonPair pair : pairs) {
+			FieldReader[] named = this.readers.get(pair.getName().getJavaString().toLowerCase(Locale.ROOT));
+			if (named != null) {
+				for (FieldReader reader : named) {
+					reader.read(bean, pair.getValue());
+				}
+			}
+		}
+	}
+
+	@Override
+	public void writeFields(T bean, JsonWriter writer)
+			throws JsonException, IllegalArgumentException, IllegalAccessException, IOException {
+		for (FieldWriter fieldWriter : this.writers) {
+			fieldWriter.write(bean, writer);
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package com.pearcevps.json;
+
+import java.lang.reflect.Field;
+
+/**
+ * Reads and writes one field of a bean. Binding goes through an accessor
+ * rather than {@link Field#get(Object)} and {@link Field#set(Object, Object)},
+ * so that a primitive field can be read and written without boxing its value,
+ * and so that access is checked once, when the accessor is created, rather
+ * than on every call.
+ * <p>
+ * The accessor of each bound field is created once, with the descriptor of
+ * its class. By default it is built from method handles; another factory can
+ * be set with {@link BeanDescriptor#setAccessorFactory(Factory)}.
+ * <p>
+ * The primitive methods may only be used with a field of that primitive type,
+ * or of its wrapper class. The default implementations box the value and call
+ * {@link #get(Object)} or {@link #set(Object, Object)}.
+ *
+ * @author andrewpearce
+ *
+ */
+public interface FieldAccessor {
+
+	/**
+	 * Creates the accessor of a field
+	 */
+	@FunctionalInterface
+	public interface Factory {
+
+		/**
+		 * Create the accessor of a field
+		 *
+		 * @param field
+		 *           The field, which has already been made accessible if it is
+		 *           bound and not public
+		 * @return The accessor
+		 */
+		FieldAccessor create(Field field);
+	}
+
+	/**
+	 * The factory of accessors built from method handles, which is the default.
+	 * A field whose handles cannot be created, e.g. a static field, gets a
+	 * {@link #REFLECTION} accessor instead.
+	 */
+	static public final Factory	METHOD_HANDLES	= MethodHandleFieldAccessor::create;
+	/**
+	 * The factory of accessors that use the reflected field directly
+	 */
+	static public final Factory	REFLECTION		= ReflectionFieldAccessor::new;
+
+	/**
+	 * Get the value of the field
+	 *
+	 * @param bean
+	 *           The bean
+	 * @return The value, boxed if the field is a primitive
+	 * @throws IllegalAccessException
+	 *            Thrown if the field cannot be read
+	 */
+	Object get(Object bean) throws IllegalAccessException;
+
+	/**
+	 * Set the value of the field
+	 *
+	 * @param bean
+	 *           The bean
+	 * @param value
+	 *           The value, boxed if the field is a primitive
+	 * @throws IllegalAccessException
+	 *            Thrown if the field cannot be written
+	 * @throws IllegalArgumentException
+	 *            Thrown if the value is not of the type of the field
+	 */
+	void set(Object bean, Object value) throws IllegalAccessException;
+
+	default boolean getBoolean(Object bean) throws IllegalAccessException {
+		return ((Boolean) this.get(bean)).booleanValue();
+	}
+
+	default char getChar(Object bean) throws IllegalAccessException {
+		return ((Character) this.get(bean)).charValue();
+	}
+
+	default double getDouble(Object bean) throws IllegalAccessException {
+		return ((Number) this.get(bean)).doubleValue();
+	}
+
+	default float getFloat(Object bean) throws IllegalAccessException {
+		return ((Number) this.get(bean)).floatValue();
+	}
+
+	default int getInt(Object bean) throws IllegalAccessException {
+		return ((Number) this.get(bean)).intValue();
+	}
+
+	default long getLong(Object bean) throws IllegalAccessException {
+		return ((Number) this.get(bean)).longValue();
+	}
+
+	default short getShort(Object bean) throws IllegalAccessException {
+		return ((Number) this.get(bean)).shortValue();
+	}
+
+	default void setBoolean(Object bean, boolean value) throws IllegalAccessException {
+		this.set(bean, Boolean.valueOf(value));
+	}
+
+	default void setChar(Object bean, char value) throws IllegalAccessException {
+		this.set(bean, Character.valueOf(value));
+	}
+
+	default void setDouble(Object bean, double value) throws IllegalAccessException {
+		this.set(bean, Double.valueOf(value));
+	}
+
+	default void setFloat(Object bean, float value) throws IllegalAccessException {
+		this.set(bean, Float.valueOf(value));
+	}
+
+	default void setInt(Object bean, int value) throws IllegalAccessException {
+		this.set(bean, Integer.valueOf(value));
+	}
+
+	default void setLong(Object bean, long value) throws IllegalAccessException {
+		this.set(bean, Long.valueOf(value));
+	}
+
+	default void setShort(Object bean, short value) throws IllegalAccessException {
+		this.set(bean, Short.valueOf(value));
+	}
+}
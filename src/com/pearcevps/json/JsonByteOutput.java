@@ -0,0 +1,381 @@
+package com.pearcevps.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * An output for a {@link JsonWriter} that encodes JSON text as UTF-8 straight
+ * into byte arrays, so nothing goes through an intermediate String. The bytes
+ * are held in fixed size chunks borrowed from a small per thread pool, and
+ * given back to the pool when the output is closed, so a thread that
+ * serializes one response after another keeps reusing the same chunks.
+ *
+ * <pre>
+ * try (JsonByteOutput out = new JsonByteOutput()) {
+ * 	JsonValueObject.serializeBean(bean, new JsonWriter(out));
+ * 	out.writeTo(socketStream);
+ * }
+ * </pre>
+ *
+ * The output is not thread safe. Close the output itself, not the JsonWriter
+ * over it; closing a writer leaves this output open.
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonByteOutput implements Appendable, AutoCloseable {
+
+	/**
+	 * The size of each chunk of bytes
+	 */
+	static public final int									CHUNK_SIZE			= 8192;
+	/**
+	 * The most free chunks kept in each thread's pool
+	 */
+	static private final int								MAX_POOLED_CHUNKS	= 16;
+	/**
+	 * The free chunks of each thread
+	 */
+	static private final ThreadLocal<ArrayDeque<byte[]>>	POOL					= ThreadLocal
+			.withInitial(() -> new ArrayDeque<byte[]>());
+
+	/**
+	 * Take a chunk from this thread's pool, or create one if the pool is empty
+	 *
+	 * @return The chunk
+	 */
+	static private byte[] borrow() {
+		byte[] ret = JsonByteOutput.POOL.get().pollFirst();
+		return (ret == null) ? new byte[JsonByteOutput.CHUNK_SIZE] : ret;
+	}
+
+	/**
+	 * Give a chunk back to this thread's pool, unless the pool is full
+	 *
+	 * @param chunk
+	 *           The chunk
+	 */
+	static private void release(byte[] chunk) {
+		ArrayDeque<byte[]> pool = JsonByteOutput.POOL.get();
+		if (pool.size() < JsonByteOutput.MAX_POOLED_CHUNKS) {
+			pool.addFirst(chunk);
+		}
+	}
+
+	/**
+	 * The chunk being written, or null if none has been borrowed
+	 */
+	private byte[]		chunk				= null;
+	/**
+	 * The chunks already filled, in order
+	 */
+	private byte[][]	full				= new byte[4][];
+	/**
+	 * The number of chunks already filled
+	 */
+	private int			fullCount		= 0;
+	/**
+	 * A high surrogate waiting for the low surrogate that completes it, or 0
+	 */
+	private char		highSurrogate	= 0;
+	/**
+	 * The number of bytes written to the current chunk
+	 */
+	private int			position			= 0;
+
+	/**
+	 * Create an empty output. No chunk is borrowed until something is written.
+	 */
+	public JsonByteOutput() {
+		super();
+	}
+
+	@Override
+	public JsonByteOutput append(char c) {
+		this.ensureChunk();
+		this.encode(c);
+		return this;
+	}
+
+	@Override
+	public JsonByteOutput append(CharSequence csq) {
+		if (csq == null) {
+			return this.append("null", 0, 4);
+		}
+		return this.append(csq, 0, csq.length());
+	}
+
+	@Override
+	public JsonByteOutput append(CharSequence csq, int start, int end) {
+		if (csq == null) {
+			return this.append("null", start, end);
+		}
+		this.ensureChunk();
+		int i = start;
+		while (i < end) {
+			if (this.highSurrogate == 0) {
+				//////////////////////////////
+				// Copy a run of ASCII characters into the current chunk
+				byte[] buffer = this.chunk;
+				int pos = this.position;
+				int stop = i + Math.min(end - i, buffer.length - pos);
+				char c;
+				while ((i < stop) && ((c = csq.charAt(i)) < 0x80)) {
+					buffer[pos++] = (byte) c;
+					i++;
+				}
+				this.position = pos;
+				if (i == end) {
+					break;
+				}
+				if (pos == buffer.length) {
+					this.nextChunk();
+					continue;
+				}
+			}
+			this.encode(csq.charAt(i++));
+		}
+		return this;
+	}
+
+	/**
+	 * Give the chunks back to this thread's pool and empty the output. The
+	 * output can still be written to afterwards.
+	 */
+	@Override
+	public void close() {
+		for (int i = 0; i < this.fullCount; i++) {
+			JsonByteOutput.release(this.full[i]);
+			this.full[i] = null;
+		}
+		if (this.chunk != null) {
+			JsonByteOutput.release(this.chunk);
+		}
+		this.chunk = null;
+		this.fullCount = 0;
+		this.position = 0;
+		this.highSurrogate = 0;
+	}
+
+	/**
+	 * Empty the output, keeping one chunk to write into
+	 */
+	public void reset() {
+		if (this.fullCount > 0) {
+			byte[] first = this.full[0];
+			if (this.chunk != null) {
+				JsonByteOutput.release(this.chunk);
+			}
+			for (int i = 1; i < this.fullCount; i++) {
+				JsonByteOutput.release(this.full[i]);
+			}
+			Arrays.fill(this.full, 0, this.fullCount, null);
+			this.chunk = first;
+			this.fullCount = 0;
+		}
+		this.position = 0;
+		this.highSurrogate = 0;
+	}
+
+	/**
+	 * Get the number of bytes written
+	 *
+	 * @return The size in bytes
+	 */
+	public int size() {
+		return (this.fullCount * JsonByteOutput.CHUNK_SIZE) + this.position + ((this.highSurrogate == 0) ? 0 : 1);
+	}
+
+	/**
+	 * Copy the bytes written into a new array
+	 *
+	 * @return The UTF-8 encoded JSON text
+	 */
+	public byte[] toByteArray() {
+		this.finishSurrogate();
+		byte[] ret = new byte[this.size()];
+		int offset = 0;
+		for (int i = 0; i < this.fullCount; i++) {
+			System.arraycopy(this.full[i], 0, ret, offset, JsonByteOutput.CHUNK_SIZE);
+			offset += JsonByteOutput.CHUNK_SIZE;
+		}
+		if (this.chunk != null) {
+			System.arraycopy(this.chunk, 0, ret, offset, this.position);
+		}
+		return ret;
+	}
+
+	@Override
+	public String toString() {
+		return new String(this.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Write the bytes written to a stream, chunk by chunk
+	 *
+	 * @param out
+	 *           The stream. It is neither flushed nor closed.
+	 * @throws IOException
+	 *            Thrown by the stream
+	 */
+	public void writeTo(OutputStream out) throws IOException {
+		this.finishSurrogate();
+		for (int i = 0; i < this.fullCount; i++) {
+			out.write(this.full[i], 0, JsonByteOutput.CHUNK_SIZE);
+		}
+		if (this.position > 0) {
+			out.write(this.chunk, 0, this.position);
+		}
+	}
+
+	/**
+	 * Append ASCII characters, without creating a String
+	 *
+	 * @param chars
+	 *           The characters, which must all be ASCII
+	 * @param length
+	 *           The number of characters, from the start of the array
+	 */
+	void appendAscii(char[] chars, int length) {
+		this.ensureChunk();
+		this.finishSurrogate();
+		if ((this.position + length) > this.chunk.length) {
+			for (int i = 0; i < length; i++) {
+				this.putByte(chars[i]);
+			}
+			return;
+		}
+		for (int i = 0; i < length; i++) {
+			this.chunk[this.position++] = (byte) chars[i];
+		}
+	}
+
+	/**
+	 * Append the decimal digits of a long, without creating a String
+	 *
+	 * @param value
+	 *           The value
+	 */
+	void appendLong(long value) {
+		if (value == Long.MIN_VALUE) {
+			this.append("-9223372036854775808");
+			return;
+		}
+		this.ensureChunk();
+		this.finishSurrogate();
+		if (value < 0) {
+			this.putByte('-');
+			value = -value;
+		}
+		//////////////////////////////
+		// Write the digits backwards into the chunk when they fit, otherwise a
+		// digit at a time
+		int digits = 1;
+		for (long rest = value / 10; rest != 0; rest /= 10) {
+			digits++;
+		}
+		if ((this.position + digits) <= this.chunk.length) {
+			int pos = this.position + digits;
+			this.position = pos;
+			do {
+				this.chunk[--pos] = (byte) ('0' + (value % 10));
+				value /= 10;
+			} while (value != 0);
+			return;
+		}
+		long divisor = 1;
+		for (int i = 1; i < digits; i++) {
+			divisor *= 10;
+		}
+		for (; divisor != 0; divisor /= 10) {
+			this.putByte((int) ('0' + ((value / divisor) % 10)));
+		}
+	}
+
+	/**
+	 * Encode one character, pairing surrogates. A surrogate without its pair
+	 * is written as '?', as {@link String#getBytes(java.nio.charset.Charset)}
+	 * does.
+	 *
+	 * @param c
+	 *           The character
+	 */
+	private void encode(char c) {
+		if (this.highSurrogate != 0) {
+			char high = this.highSurrogate;
+			this.highSurrogate = 0;
+			if (Character.isLowSurrogate(c)) {
+				int codePoint = Character.toCodePoint(high, c);
+				this.putByte(0xF0 | (codePoint >> 18));
+				this.putByte(0x80 | ((codePoint >> 12) & 0x3F));
+				this.putByte(0x80 | ((codePoint >> 6) & 0x3F));
+				this.putByte(0x80 | (codePoint & 0x3F));
+				return;
+			}
+			this.putByte('?');
+		}
+		if (c < 0x80) {
+			this.putByte(c);
+		} else if (c < 0x800) {
+			this.putByte(0xC0 | (c >> 6));
+			this.putByte(0x80 | (c & 0x3F));
+		} else if (Character.isHighSurrogate(c)) {
+			this.highSurrogate = c;
+		} else if (Character.isLowSurrogate(c)) {
+			this.putByte('?');
+		} else {
+			this.putByte(0xE0 | (c >> 12));
+			this.putByte(0x80 | ((c >> 6) & 0x3F));
+			this.putByte(0x80 | (c & 0x3F));
+		}
+	}
+
+	/**
+	 * Borrow a chunk to write into, if none has been yet
+	 */
+	private void ensureChunk() {
+		if (this.chunk == null) {
+			this.chunk = JsonByteOutput.borrow();
+			this.position = 0;
+		}
+	}
+
+	/**
+	 * Write a high surrogate still waiting for its pair as '?'
+	 */
+	private void finishSurrogate() {
+		if (this.highSurrogate != 0) {
+			this.highSurrogate = 0;
+			this.ensureChunk();
+			this.putByte('?');
+		}
+	}
+
+	/**
+	 * Move on to a new chunk when the current one is full
+	 */
+	private void nextChunk() {
+		if (this.fullCount == this.full.length) {
+			this.full = Arrays.copyOf(this.full, this.fullCount * 2);
+		}
+		this.full[this.fullCount++] = this.chunk;
+		this.chunk = JsonByteOutput.borrow();
+		this.position = 0;
+	}
+
+	/**
+	 * Write one byte
+	 *
+	 * @param b
+	 *           The byte, in the low 8 bits
+	 */
+	private void putByte(int b) {
+		if (this.position == this.chunk.length) {
+			this.nextChunk();
+		}
+		this.chunk[this.position++] = (byte) b;
+	}
+}
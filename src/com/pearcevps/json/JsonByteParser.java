@@ -0,0 +1,519 @@
+package com.pearcevps.json;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A single pass JSON parser that works directly on UTF-8 encoded bytes. The
+ * structure of the document is scanned in the byte domain (all JSON structural
+ * characters are ASCII), and only the contents of strings and names are
+ * decoded into Java strings. This avoids decoding a whole payload to a String
+ * before parsing it. Both heap and direct buffers are supported. As with
+ * {@link JsonParser}, the events of the parse are pushed to a
+ * {@link JsonHandler}, and nesting is tracked on an explicit stack rather than
+ * by recursion.
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonByteParser {
+
+	/**
+	 * Parse a JSON value from a range of UTF-8 bytes. The range must contain
+	 * exactly one JSON value, optionally surrounded by white space.
+	 *
+	 * @param bytes
+	 *           The UTF-8 encoded JSON
+	 * @param offset
+	 *           The index of the first byte to parse
+	 * @param length
+	 *           The number of bytes to parse
+	 * @return The parsed JSON value
+	 * @throws JsonException
+	 *            Thrown if the bytes are not valid JSON
+	 */
+	static public JsonValue parse(byte[] bytes, int offset, int length) throws JsonException {
+		JsonTreeBuilder builder = new JsonTreeBuilder();
+		JsonByteParser.parse(bytes, offset, length, builder);
+		return builder.getResult();
+	}
+
+	/**
+	 * Parse a JSON value from a range of UTF-8 bytes, pushing its events to a
+	 * handler rather than building a tree. The range must contain exactly one
+	 * JSON value, optionally surrounded by white space.
+	 *
+	 * @param bytes
+	 *           The UTF-8 encoded JSON
+	 * @param offset
+	 *           The index of the first byte to parse
+	 * @param length
+	 *           The number of bytes to parse
+	 * @param handler
+	 *           The handler that receives the parse events
+	 * @throws JsonException
+	 *            Thrown if the bytes are not valid JSON, or by the handler
+	 */
+	static public void parse(byte[] bytes, int offset, int length, JsonHandler handler) throws JsonException {
+		if (bytes == null) {
+			throw new JsonException("Cannot parse a null JSON byte array");
+		}
+		if ((offset < 0) || (length < 0) || (offset > (bytes.length - length))) {
+			throw new JsonException("JSON byte range " + offset + "+" + length + " is outside an array of length "
+					+ bytes.length);
+		}
+		JsonByteParser.parse(ByteBuffer.wrap(bytes), offset, offset + length, handler, new ParseContext());
+	}
+
+	/**
+	 * Parse a JSON value from the remaining bytes in a buffer, i.e. from its
+	 * position to its limit. The position of the buffer is not changed.
+	 *
+	 * @param buffer
+	 *           The buffer containing UTF-8 encoded JSON. May be a direct
+	 *           buffer.
+	 * @return The parsed JSON value
+	 * @throws JsonException
+	 *            Thrown if the bytes are not valid JSON
+	 */
+	static public JsonValue parse(ByteBuffer buffer) throws JsonException {
+		JsonTreeBuilder builder = new JsonTreeBuilder();
+		JsonByteParser.parse(buffer, builder);
+		return builder.getResult();
+	}
+
+	/**
+	 * Parse a JSON value from the remaining bytes in a buffer, pushing its
+	 * events to a handler rather than building a tree. The position of the
+	 * buffer is not changed.
+	 *
+	 * @param buffer
+	 *           The buffer containing UTF-8 encoded JSON. May be a direct
+	 *           buffer.
+	 * @param handler
+	 *           The handler that receives the parse events
+	 * @throws JsonException
+	 *            Thrown if the bytes are not valid JSON, or by the handler
+	 */
+	static public void parse(ByteBuffer buffer, JsonHandler handler) throws JsonException {
+		JsonByteParser.parse(buffer, handler, new ParseContext());
+	}
+
+	/**
+	 * Parse a JSON value from the remaining bytes in a buffer, pushing its
+	 * events to a handler, with the limits of a parse context. The position of
+	 * the buffer is not changed.
+	 *
+	 * @param buffer
+	 *           The buffer containing UTF-8 encoded JSON. May be a direct
+	 *           buffer.
+	 * @param handler
+	 *           The handler that receives the parse events
+	 * @param context
+	 *           The context of this parse, e.g. holding its maximum depth
+	 * @throws JsonException
+	 *            Thrown if the bytes are not valid JSON, exceed the limits of
+	 *            the context, or by the handler
+	 */
+	static public void parse(ByteBuffer buffer, JsonHandler handler, ParseContext context) throws JsonException {
+		if (buffer == null) {
+			throw new JsonException("Cannot parse a null JSON byte buffer");
+		}
+		JsonByteParser.parse(buffer, buffer.position(), buffer.limit(), handler, context);
+	}
+
+	/**
+	 * Parse a single JSON value from a range of a buffer
+	 *
+	 * @param buffer
+	 *           The buffer
+	 * @param start
+	 *           The absolute index of the first byte to parse
+	 * @param end
+	 *           The absolute index one past the last byte to parse
+	 * @param handler
+	 *           The handler that receives the parse events
+	 * @param context
+	 *           The context of the parse
+	 * @throws JsonException
+	 */
+	static private void parse(ByteBuffer buffer, int start, int end, JsonHandler handler, ParseContext context)
+			throws JsonException {
+		if (handler == null) {
+			throw new JsonException("Cannot parse JSON to a null handler");
+		}
+		if (context == null) {
+			throw new JsonException("Cannot parse JSON with a null context");
+		}
+		JsonByteParser parser = new JsonByteParser(buffer, start, end, handler, context);
+		parser.skipByteOrderMark();
+		parser.parseValue();
+		parser.expectEnd();
+	}
+
+	/**
+	 * The backing array of a heap buffer, or null for a direct buffer
+	 */
+	private final byte[]			array;
+	/**
+	 * The offset of the buffer's index 0 within the backing array
+	 */
+	private final int				arrayOffset;
+	/**
+	 * The buffer being parsed. Only absolute gets are used, so the buffer's
+	 * position and limit are never changed.
+	 */
+	private final ByteBuffer	buffer;
+	/**
+	 * The absolute index one past the last byte that can be parsed
+	 */
+	private final int				end;
+	/**
+	 * The stack of objects and arrays the cursor is inside; true for an object
+	 */
+	private boolean[]				containers	= new boolean[16];
+	/**
+	 * The context of this parse, tracking its depth
+	 */
+	private final ParseContext	context;
+	/**
+	 * The handler that receives the parse events
+	 */
+	private final JsonHandler	handler;
+	/**
+	 * The buffer viewed as characters, for scanning literals
+	 */
+	private final Latin1Chars	literals;
+	/**
+	 * The scanner that reads numbers, reused for every number in the input
+	 */
+	private final JsonNumberScanner	numbers	= new JsonNumberScanner();
+	/**
+	 * The cursor; the absolute index of the next byte to be read
+	 */
+	private int						pos;
+	/**
+	 * Scratch space used to copy strings out of direct buffers
+	 */
+	private byte[]					scratch	= null;
+
+	/**
+	 * Create a parser over a range of a buffer
+	 *
+	 * @param buffer
+	 *           The buffer containing UTF-8 encoded JSON
+	 * @param start
+	 *           The absolute index of the first byte to parse
+	 * @param end
+	 *           The absolute index one past the last byte to parse
+	 * @param handler
+	 *           The handler that receives the parse events
+	 * @param context
+	 *           The context of the parse
+	 */
+	JsonByteParser(ByteBuffer buffer, int start, int end, JsonHandler handler, ParseContext context) {
+		super();
+		this.buffer = buffer;
+		if (buffer.hasArray()) {
+			this.array = buffer.array();
+			this.arrayOffset = buffer.arrayOffset();
+		} else {
+			this.array = null;
+			this.arrayOffset = 0;
+		}
+		this.pos = start;
+		this.end = end;
+		this.handler = handler;
+		this.context = context;
+		this.literals = new Latin1Chars(buffer);
+	}
+
+	/**
+	 * Get the absolute index of the next byte to be read
+	 *
+	 * @return The cursor position
+	 */
+	int getPosition() {
+		return this.pos;
+	}
+
+	/**
+	 * Parse the next JSON value from the cursor position, pushing its events to
+	 * the handler
+	 *
+	 * @throws JsonException
+	 *            Thrown if the input at the cursor is not a valid JSON value
+	 */
+	void parseValue() throws JsonException {
+		int depth = 0;
+		try {
+			value: while (true) {
+				//////////////////////////////
+				// A value: open an object or array, or read a scalar
+				this.skipWhitespace();
+				if (this.pos >= this.end) {
+					throw this.error("Unexpected end of JSON input");
+				}
+				byte b = this.buffer.get(this.pos);
+				if ((b == '{') || (b == '[')) {
+					boolean object = b == '{';
+					this.context.enter(this.pos);
+					if (depth == this.containers.length) {
+						this.containers = Arrays.copyOf(this.containers, depth * 2);
+					}
+					this.containers[depth++] = object;
+					if (object) {
+						this.handler.startObject();
+					} else {
+						this.handler.startArray();
+					}
+					this.pos++;
+					this.skipWhitespace();
+					if (this.peek() != (object ? '}' : ']')) {
+						if (object) {
+							this.parseName();
+						}
+						continue;
+					}
+					// An empty object or array is closed below
+				} else if (b == '"') {
+					this.handler.value(this.parseString());
+				} else {
+					this.parseLiteral();
+				}
+
+				//////////////////////////////
+				// After a value: move on to the next member, or close the
+				// objects and arrays that the value ends
+				while (depth > 0) {
+					boolean object = this.containers[depth - 1];
+					this.skipWhitespace();
+					b = this.peek();
+					this.pos++;
+					if (b == ',') {
+						if (object) {
+							this.parseName();
+						}
+						continue value;
+					}
+					if (b == (object ? '}' : ']')) {
+						if (object) {
+							this.handler.endObject();
+						} else {
+							this.handler.endArray();
+						}
+						this.context.exit();
+						depth--;
+						continue;
+					}
+					this.pos--;
+					throw this.error(object ? "Expected ',' or '}' in JSON object" : "Expected ',' or ']' in JSON array");
+				}
+				return;
+			}
+		} finally {
+			//////////////////////////////
+			// Leave the context as it was if the parse failed part way
+			for (; depth > 0; depth--) {
+				this.context.exit();
+			}
+		}
+	}
+
+	/**
+	 * Create an exception describing a parse failure at the cursor position
+	 *
+	 * @param message
+	 *           The reason for the failure
+	 * @return The exception to throw
+	 */
+	JsonException error(String message) {
+		return new JsonException(message + " at byte " + this.pos);
+	}
+
+	/**
+	 * Check that nothing but white space follows the cursor
+	 *
+	 * @throws JsonException
+	 *            Thrown if there is trailing content
+	 */
+	void expectEnd() throws JsonException {
+		this.skipWhitespace();
+		if (this.pos < this.end) {
+			throw this.error("Unexpected trailing content after JSON value");
+		}
+	}
+
+	/**
+	 * Get the byte at the cursor position without consuming it
+	 *
+	 * @return The byte, or 0 if the cursor is at the end of the input
+	 */
+	byte peek() {
+		if (this.pos >= this.end) {
+			return 0;
+		}
+		return this.buffer.get(this.pos);
+	}
+
+	/**
+	 * Move the cursor past any white space
+	 */
+	void skipWhitespace() {
+		while (this.pos < this.end) {
+			byte b = this.buffer.get(this.pos);
+			if (!JsonParser.isWhitespace(b)) {
+				return;
+			}
+			this.pos++;
+		}
+	}
+
+	/**
+	 * Decode a range of UTF-8 bytes to a string
+	 *
+	 * @param start
+	 *           The absolute index of the first byte
+	 * @param length
+	 *           The number of bytes
+	 * @param ascii
+	 *           true if all the bytes are known to be ASCII
+	 * @return The decoded string
+	 */
+	private String decode(int start, int length, boolean ascii) {
+		if (this.array != null) {
+			return new String(this.array, this.arrayOffset + start, length,
+					ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+		}
+		if ((this.scratch == null) || (this.scratch.length < length)) {
+			this.scratch = new byte[Math.max(length, 64)];
+		}
+		for (int i = 0; i < length; i++) {
+			this.scratch[i] = this.buffer.get(start + i);
+		}
+		return new String(this.scratch, 0, length, ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Parse a bare JSON literal at the cursor: a number, true, false or null.
+	 *
+	 * @throws JsonException
+	 *            Thrown if the literal is not recognised
+	 */
+	private void parseLiteral() throws JsonException {
+		int start = this.pos;
+		while (this.pos < this.end) {
+			byte b = this.buffer.get(this.pos);
+			if ((b == ',') || (b == '}') || (b == ']') || (b == ':') || JsonParser.isWhitespace(b)) {
+				break;
+			}
+			this.pos++;
+		}
+		if (start == this.pos) {
+			throw this.error("Expected a JSON value");
+		}
+		if (!JsonParser.emitLiteral(this.literals, start, this.pos, this.numbers, this.handler)) {
+			String token = this.decode(start, this.pos - start, true);
+			this.pos = start;
+			throw this.error("Invalid JSON value '" + token + "'");
+		}
+	}
+
+	/**
+	 * Parse the name of an object member and the ':' that follows it, pushing
+	 * the name to the handler
+	 *
+	 * @throws JsonException
+	 *            Thrown if the cursor is not on a valid name
+	 */
+	private void parseName() throws JsonException {
+		this.skipWhitespace();
+		if (this.peek() != '"') {
+			throw this.error("JsonValueObject - object name doesn't start with \"");
+		}
+		String name = this.parseString();
+		this.skipWhitespace();
+		if (this.peek() != ':') {
+			throw this.error("Expected ':' after JSON object name \"" + name + "\"");
+		}
+		this.pos++;
+		this.handler.name(name);
+	}
+
+	/**
+	 * Parse a JSON string at the cursor, i.e. the cursor must be on a '"'. Only
+	 * the bytes between the quotes are decoded. The cursor is left after the
+	 * closing '"'.
+	 *
+	 * @return The Java string
+	 * @throws JsonException
+	 *            Thrown if the string is not terminated
+	 */
+	private String parseString() throws JsonException {
+		int start = ++this.pos;
+		boolean ascii = true;
+		while (this.pos < this.end) {
+			byte b = this.buffer.get(this.pos);
+			if (b == '"') {
+				String raw = this.decode(start, this.pos++ - start, ascii);
+				return JsonString.getJavaStringFromJsonString(raw);
+			}
+			if (b == '\\') {
+				this.pos++;
+			} else if (b < 0) {
+				ascii = false;
+			}
+			this.pos++;
+		}
+		this.pos = start - 1;
+		throw this.error("Unterminated JSON string");
+	}
+
+	/**
+	 * Move the cursor past a UTF-8 byte order mark, if there is one
+	 */
+	private void skipByteOrderMark() {
+		if (((this.pos + 2) < this.end) && (this.buffer.get(this.pos) == (byte) 0xEF)
+				&& (this.buffer.get(this.pos + 1) == (byte) 0xBB) && (this.buffer.get(this.pos + 2) == (byte) 0xBF)) {
+			this.pos += 3;
+		}
+	}
+
+	/**
+	 * A view of a buffer as characters, one per byte, so that literals can be
+	 * scanned without decoding them to a String. Every byte of a valid literal
+	 * is ASCII, so nothing that is not ASCII can be mistaken for one.
+	 */
+	static private class Latin1Chars implements CharSequence {
+
+		/**
+		 * The buffer being viewed
+		 */
+		private final ByteBuffer	buffer;
+
+		Latin1Chars(ByteBuffer buffer) {
+			super();
+			this.buffer = buffer;
+		}
+
+		@Override
+		public char charAt(int index) {
+			return (char) (this.buffer.get(index) & 0xFF);
+		}
+
+		@Override
+		public int length() {
+			return this.buffer.limit();
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			char[] chars = new char[end - start];
+			for (int i = 0; i < chars.length; i++) {
+				chars[i] = this.charAt(start + i);
+			}
+			return new String(chars);
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package com.pearcevps.json;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+
+/**
+ * Serializes and deserializes the fields of one bean class. When the
+ * {@link JsonCodecRegistry} has a codec for a class, beans of the class are
+ * bound through it instead of through the reflective walk of their fields,
+ * both at the top level and when nested in other beans.
+ * <p>
+ * A codec must produce the same JSON as the reflective path, honouring the
+ * same annotations.
+ *
+ * @param <T>
+ *           The bean class
+ * @author andrewpearce
+ *
+ */
+public interface JsonCodec<T> {
+
+	/**
+	 * Get the class this codec binds
+	 *
+	 * @return The bean class
+	 */
+	Class<T> getBeanClass();
+
+	/**
+	 * Set the fields of a bean from the pairs of a JSON object. Pair names are
+	 * matched to field names ignoring case, and pairs that match no field are
+	 * left out.
+	 *
+	 * @param bean
+	 *           The bean
+	 * @param pairs
+	 *           The pairs of the JSON object
+	 * @throws JsonException
+	 * @throws IllegalArgumentException
+	 * @throws IllegalAccessException
+	 * @throws InstantiationException
+	 * @throws InvocationTargetException
+	 * @throws ClassNotFoundException
+	 */
+	void readFields(T bean, List<JsonPair> pairs) throws JsonException, IllegalArgumentException,
+			IllegalAccessException, InstantiationException, InvocationTargetException, ClassNotFoundException;
+
+	/**
+	 * Write the fields of a bean as the members of the object the writer is in
+	 *
+	 * @param bean
+	 *           The bean
+	 * @param writer
+	 *           The writer, positioned inside an object. Its context holds the
+	 *           options of this serialization.
+	 * @throws JsonException
+	 *            Thrown if a required field has no value
+	 * @throws IllegalArgumentException
+	 * @throws IllegalAccessException
+	 * @throws IOException
+	 *            Thrown by the writer's output
+	 */
+	void writeFields(T bean, JsonWriter writer)
+			throws JsonException, IllegalArgumentException, IllegalAccessException, IOException;
+}
@@ -0,0 +1,655 @@
+package com.pearcevps.json;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * An annotation processor that generates a {@link JsonCodec} at compile time
+ * for each class declaring fields annotated with {@link Json_Property} or
+ * {@link Json_PropertyRequired}. The codec is written to the package of the
+ * bean, named as {@link JsonCodecRegistry#getGeneratedCodecName(String)}
+ * gives, e.g. OrderJsonCodec for Order, and the {@link JsonCodecRegistry}
+ * finds and uses it at runtime with no registration and no reflective walk of
+ * the bean's fields.
+ * <p>
+ * The generated code reads and writes String, number, boolean, character and
+ * URI fields itself, directly if the field is visible from the bean's package
+ * and through the field's {@link FieldAccessor} otherwise. Lists, nested
+ * beans and values of an unexpected type are handed to the reflective path
+ * for that field alone. No codec is generated for abstract, generic, private
+ * or non-static inner classes, for classes with a bound Map field or a
+ * {@link Json_IgnoreFieldsInThisList} list, or for classes with two bound
+ * fields whose names differ only in case, as a JSON name would set both.
+ * <p>
+ * The processor is registered as a service, so javac runs it whenever this
+ * library is on the class path or processor path of a build.
+ *
+ * @author andrewpearce
+ *
+ */
+@SupportedAnnotationTypes({ "com.pearcevps.json.Json_Property", "com.pearcevps.json.Json_PropertyRequired" })
+public class JsonCodecProcessor extends AbstractProcessor {
+
+	/**
+	 * A bound field of a bean, as the generated code sees it
+	 */
+	static private class BeanField {
+		/**
+		 * The name of the constant holding the field's {@link BeanDescriptor.Property}
+		 */
+		String				constant;
+		/**
+		 * The class that declares the field
+		 */
+		TypeElement			declaringType;
+		/**
+		 * The kind of the field
+		 */
+		BeanDescriptor.Kind	kind;
+		/**
+		 * The name of the field
+		 */
+		String				name;
+		/**
+		 * Is the field a primitive?
+		 */
+		boolean				primitive;
+		/**
+		 * Must the field have a value?
+		 */
+		boolean				required;
+		/**
+		 * The expression that reads and writes the field directly, or null if it
+		 * is read and written through its accessor
+		 */
+		String				target;
+	}
+
+	/**
+	 * The name of the accessor method of each primitive kind, e.g. Int for
+	 * getInt and setInt
+	 */
+	static private final Map<BeanDescriptor.Kind, String>	PRIMITIVE_METHODS	= new LinkedHashMap<BeanDescriptor.Kind, String>();
+	/**
+	 * The wrapper or value class of each scalar kind
+	 */
+	static private final Map<BeanDescriptor.Kind, String>	SCALAR_CLASSES		= new LinkedHashMap<BeanDescriptor.Kind, String>();
+
+	static {
+		JsonCodecProcessor.PRIMITIVE_METHODS.put(BeanDescriptor.Kind.BOOLEAN, "Boolean");
+		JsonCodecProcessor.PRIMITIVE_METHODS.put(BeanDescriptor.Kind.CHARACTER, "Char");
+		JsonCodecProcessor.PRIMITIVE_METHODS.put(BeanDescriptor.Kind.DOUBLE, "Double");
+		JsonCodecProcessor.PRIMITIVE_METHODS.put(BeanDescriptor.Kind.FLOAT, "Float");
+		JsonCodecProcessor.PRIMITIVE_METHODS.put(BeanDescriptor.Kind.INTEGER, "Int");
+		JsonCodecProcessor.PRIMITIVE_METHODS.put(BeanDescriptor.Kind.LONG, "Long");
+		JsonCodecProcessor.PRIMITIVE_METHODS.put(BeanDescriptor.Kind.SHORT, "Short");
+		JsonCodecProcessor.SCALAR_CLASSES.put(BeanDescriptor.Kind.BOOLEAN, "java.lang.Boolean");
+		JsonCodecProcessor.SCALAR_CLASSES.put(BeanDescriptor.Kind.CHARACTER, "java.lang.Character");
+		JsonCodecProcessor.SCALAR_CLASSES.put(BeanDescriptor.Kind.DOUBLE, "java.lang.Double");
+		JsonCodecProcessor.SCALAR_CLASSES.put(BeanDescriptor.Kind.FLOAT, "java.lang.Float");
+		JsonCodecProcessor.SCALAR_CLASSES.put(BeanDescriptor.Kind.INTEGER, "java.lang.Integer");
+		JsonCodecProcessor.SCALAR_CLASSES.put(BeanDescriptor.Kind.LONG, "java.lang.Long");
+		JsonCodecProcessor.SCALAR_CLASSES.put(BeanDescriptor.Kind.SHORT, "java.lang.Short");
+		JsonCodecProcessor.SCALAR_CLASSES.put(BeanDescriptor.Kind.STRING, "java.lang.String");
+		JsonCodecProcessor.SCALAR_CLASSES.put(BeanDescriptor.Kind.URI, "java.net.URI");
+	}
+
+	/**
+	 * Write a string as a Java string literal
+	 *
+	 * @param value
+	 *           The string
+	 * @return The literal, with quotes, and with anything but printable ASCII
+	 *         escaped
+	 */
+	static private String literal(String value) {
+		StringBuilder ret = new StringBuilder("\"");
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if ((c == '"') || (c == '\\')) {
+				ret.append('\\').append(c);
+			} else if ((c < 0x20) || (c > 0x7e)) {
+				ret.append(String.format("\\u%04x", (int) c));
+			} else {
+				ret.append(c);
+			}
+		}
+		return ret.append('"').toString();
+	}
+
+	/**
+	 * Add a line of source
+	 *
+	 * @param out
+	 *           The source
+	 * @param depth
+	 *           How many tabs to indent the line
+	 * @param text
+	 *           The line
+	 */
+	static private void line(StringBuilder out, int depth, String text) {
+		for (int i = 0; i < depth; i++) {
+			out.append('\t');
+		}
+		out.append(text).append('\n');
+	}
+
+	/**
+	 * The binary names of the beans whose codecs have been generated, as a bean
+	 * may be seen in more than one round
+	 */
+	private final Set<String>	generated	= new HashSet<String>();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		Set<TypeElement> beans = new LinkedHashSet<TypeElement>();
+		for (TypeElement annotation : annotations) {
+			for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+				if ((element.getKind() == ElementKind.FIELD) && (element.getEnclosingElement() instanceof TypeElement)) {
+					beans.add((TypeElement) element.getEnclosingElement());
+				}
+			}
+		}
+		for (TypeElement bean : beans) {
+			String binaryName = this.processingEnv.getElementUtils().getBinaryName(bean).toString();
+			if (this.generated.add(binaryName)) {
+				this.generate(bean, binaryName);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Find two bound fields whose names differ only in case, which the
+	 * generated reader cannot tell apart
+	 *
+	 * @param fields
+	 *           The bound fields of a bean
+	 * @return The two names, e.g. "name and Name", or null if there are none.
+	 *         Fields of the same name in a class and its superclass are not a
+	 *         collision
+	 */
+	static private String getCaseCollision(List<BeanField> fields) {
+		Map<String, String> names = new LinkedHashMap<String, String>();
+		for (BeanField field : fields) {
+			String other = names.putIfAbsent(field.name.toLowerCase(Locale.ROOT), field.name);
+			if ((other != null) && !other.equals(field.name)) {
+				return other + " and " + field.name;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Get the bound fields of a bean, superclass fields first
+	 *
+	 * @param bean
+	 *           The bean
+	 * @return The fields, or null if the bean has an ignore list or a bound Map
+	 *         field, which only the reflective path handles
+	 */
+	private List<BeanField> getFields(TypeElement bean) {
+		List<TypeElement> classes = new ArrayList<TypeElement>();
+		for (TypeElement c = bean; c != null;) {
+			classes.add(0, c);
+			TypeMirror superclass = c.getSuperclass();
+			c = (superclass.getKind() == TypeKind.DECLARED) ? (TypeElement) ((DeclaredType) superclass).asElement()
+					: null;
+		}
+		String beanPackage = this.getPackage(bean);
+		Map<String, Integer> constants = new LinkedHashMap<String, Integer>();
+		List<BeanField> ret = new ArrayList<BeanField>();
+		for (TypeElement c : classes) {
+			for (Element element : c.getEnclosedElements()) {
+				if (element.getKind() != ElementKind.FIELD) {
+					continue;
+				}
+				if (element.getAnnotation(Json_IgnoreFieldsInThisList.class) != null) {
+					return null;
+				}
+				boolean required = element.getAnnotation(Json_PropertyRequired.class) != null;
+				if (!required && (element.getAnnotation(Json_Property.class) == null)) {
+					continue;
+				}
+				BeanField field = new BeanField();
+				field.name = element.getSimpleName().toString();
+				field.declaringType = c;
+				field.kind = JsonCodecProcessor.kindOf(element.asType());
+				field.primitive = element.asType().getKind().isPrimitive();
+				field.required = required;
+				if (field.kind == BeanDescriptor.Kind.MAP) {
+					return null;
+				}
+				Integer count = constants.get(field.name);
+				constants.put(field.name, (count == null) ? 1 : (count + 1));
+				field.constant = "P_" + field.name + ((count == null) ? "" : ("_" + count));
+				Set<Modifier> modifiers = element.getModifiers();
+				if (!modifiers.contains(Modifier.PRIVATE) && !modifiers.contains(Modifier.STATIC)
+						&& !modifiers.contains(Modifier.FINAL) && this.getPackage(c).equals(beanPackage)) {
+					field.target = ((c == bean) ? "bean" : ("((" + c.getQualifiedName() + ") bean)")) + "."
+							+ field.name;
+				}
+				ret.add(field);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Get the kind of a field type, as {@link BeanDescriptor#kindOf(Class)}
+	 * gives for the class
+	 *
+	 * @param type
+	 *           The field type
+	 * @return The kind
+	 */
+	static private BeanDescriptor.Kind kindOf(TypeMirror type) {
+		switch (type.getKind()) {
+		case BOOLEAN:
+			return BeanDescriptor.Kind.BOOLEAN;
+		case CHAR:
+			return BeanDescriptor.Kind.CHARACTER;
+		case DOUBLE:
+			return BeanDescriptor.Kind.DOUBLE;
+		case FLOAT:
+			return BeanDescriptor.Kind.FLOAT;
+		case INT:
+			return BeanDescriptor.Kind.INTEGER;
+		case LONG:
+			return BeanDescriptor.Kind.LONG;
+		case SHORT:
+			return BeanDescriptor.Kind.SHORT;
+		case DECLARED:
+			String name = ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+			for (Map.Entry<BeanDescriptor.Kind, String> entry : JsonCodecProcessor.SCALAR_CLASSES.entrySet()) {
+				if (entry.getValue().equals(name)) {
+					return entry.getKey();
+				}
+			}
+			if (name.equals("java.util.List")) {
+				return BeanDescriptor.Kind.LIST;
+			} else if (name.equals("java.util.Map")) {
+				return BeanDescriptor.Kind.MAP;
+			}
+			return BeanDescriptor.Kind.BEAN;
+		default:
+			return BeanDescriptor.Kind.BEAN;
+		}
+	}
+
+	/**
+	 * Generate the codec of a bean, or note why it cannot be generated
+	 *
+	 * @param bean
+	 *           The bean
+	 * @param binaryName
+	 *           The binary name of the bean
+	 */
+	private void generate(TypeElement bean, String binaryName) {
+		String reason = null;
+		List<BeanField> fields = null;
+		if ((bean.getKind() != ElementKind.CLASS) || bean.getModifiers().contains(Modifier.ABSTRACT)) {
+			reason = "it is not a concrete class";
+		} else if (!bean.getTypeParameters().isEmpty()) {
+			reason = "it is generic";
+		} else if (!this.isVisibleInPackage(bean)) {
+			reason = "it is not visible in its package";
+		} else if ((bean.getNestingKind() == NestingKind.MEMBER) && !bean.getModifiers().contains(Modifier.STATIC)) {
+			reason = "it is a non-static inner class, which cannot be created without an enclosing instance";
+		} else if ((fields = this.getFields(bean)) == null) {
+			reason = "it has a Map field or an ignore list, which only the reflective path binds";
+		} else if ((reason = JsonCodecProcessor.getCaseCollision(fields)) != null) {
+			reason = "its fields " + reason + " differ only in case, which only the reflective path binds";
+		}
+		if (reason != null) {
+			this.processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+					"No JSON codec generated for " + bean.getQualifiedName() + " as " + reason, bean);
+			return;
+		}
+
+		String codecName = JsonCodecRegistry.getGeneratedCodecName(binaryName);
+		String beanPackage = this.getPackage(bean);
+		String simpleName = beanPackage.isEmpty() ? codecName : codecName.substring(beanPackage.length() + 1);
+		try {
+			JavaFileObject file = this.processingEnv.getFiler().createSourceFile(codecName, bean);
+			try (Writer writer = file.openWriter()) {
+				writer.write(JsonCodecProcessor.source(bean, beanPackage, simpleName, fields));
+			}
+		} catch (IOException e) {
+			this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+					"Cannot write JSON codec " + codecName + ": " + e.getMessage(), bean);
+		}
+	}
+
+	/**
+	 * Get the package of a class
+	 *
+	 * @param type
+	 *           The class
+	 * @return The qualified name of its package, empty for the unnamed package
+	 */
+	private String getPackage(TypeElement type) {
+		PackageElement ret = this.processingEnv.getElementUtils().getPackageOf(type);
+		return ret.isUnnamed() ? "" : ret.getQualifiedName().toString();
+	}
+
+	/**
+	 * Can a class be named by another class in its package?
+	 *
+	 * @param type
+	 *           The class
+	 * @return true if neither it nor any class enclosing it is private, local
+	 *         or anonymous
+	 */
+	private boolean isVisibleInPackage(TypeElement type) {
+		for (Element e = type; e instanceof TypeElement; e = e.getEnclosingElement()) {
+			TypeElement t = (TypeElement) e;
+			if (t.getModifiers().contains(Modifier.PRIVATE)
+					|| ((t.getNestingKind() != NestingKind.TOP_LEVEL) && (t.getNestingKind() != NestingKind.MEMBER))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Write the source of a codec
+	 *
+	 * @param bean
+	 *           The bean
+	 * @param beanPackage
+	 *           The package of the bean and the codec
+	 * @param simpleName
+	 *           The simple name of the codec
+	 * @param fields
+	 *           The bound fields of the bean
+	 * @return The source
+	 */
+	static private String source(TypeElement bean, String beanPackage, String simpleName, List<BeanField> fields) {
+		String beanType = bean.getQualifiedName().toString();
+		StringBuilder out = new StringBuilder();
+		if (!beanPackage.isEmpty()) {
+			JsonCodecProcessor.line(out, 0, "package " + beanPackage + ";");
+			JsonCodecProcessor.line(out, 0, "");
+		}
+		JsonCodecProcessor.line(out, 0, "/**");
+		JsonCodecProcessor.line(out, 0, " * The JSON codec of {@link " + beanType + "}, generated by");
+		JsonCodecProcessor.line(out, 0, " * {@link com.pearcevps.json.JsonCodecProcessor}. Do not edit.");
+		JsonCodecProcessor.line(out, 0, " */");
+		JsonCodecProcessor.line(out, 0,
+				"public final class " + simpleName + " implements com.pearcevps.json.JsonCodec<" + beanType + "> {");
+		JsonCodecProcessor.line(out, 0, "");
+		for (BeanField field : fields) {
+			JsonCodecProcessor.line(out, 1,
+					"static private final com.pearcevps.json.BeanDescriptor.Property " + field.constant
+							+ " = com.pearcevps.json.BeanDescriptor.getProperty(" + field.declaringType.getQualifiedName()
+							+ ".class, " + JsonCodecProcessor.literal(field.name) + ");");
+		}
+		if (!fields.isEmpty()) {
+			JsonCodecProcessor.line(out, 0, "");
+		}
+
+		//////////////////////////////
+		// getBeanClass
+		JsonCodecProcessor.line(out, 1, "@Override");
+		JsonCodecProcessor.line(out, 1, "public java.lang.Class<" + beanType + "> getBeanClass() {");
+		JsonCodecProcessor.line(out, 2, "return " + beanType + ".class;");
+		JsonCodecProcessor.line(out, 1, "}");
+		JsonCodecProcessor.line(out, 0, "");
+
+		//////////////////////////////
+		// readFields, with a case for the fields of each name
+		Map<String, List<BeanField>> byName = new LinkedHashMap<String, List<BeanField>>();
+		for (BeanField field : fields) {
+			byName.computeIfAbsent(field.name.toLowerCase(Locale.ROOT), name -> new ArrayList<BeanField>())
+					.add(field);
+		}
+		JsonCodecProcessor.line(out, 1, "@Override");
+		JsonCodecProcessor.line(out, 1, "public void readFields(" + beanType
+				+ " bean, java.util.List<com.pearcevps.json.JsonPair> pairs) throws com.pearcevps.json.JsonException,");
+		JsonCodecProcessor.line(out, 3,
+				"java.lang.IllegalArgumentException, java.lang.IllegalAccessException, java.lang.InstantiationException,");
+		JsonCodecProcessor.line(out, 3, "java.lang.reflect.InvocationTargetException, java.lang.ClassNotFoundException {");
+		if (!byName.isEmpty()) {
+			JsonCodecProcessor.line(out, 2, "for (com.pearcevps.json.JsonPair pair : pairs) {");
+			JsonCodecProcessor.line(out, 3, "java.lang.String name = pair.getName().getJavaString();");
+			JsonCodecProcessor.line(out, 3, "if (name == null) {");
+			JsonCodecProcessor.line(out, 4, "continue;");
+			JsonCodecProcessor.line(out, 3, "}");
+			JsonCodecProcessor.line(out, 3, "com.pearcevps.json.JsonValue value = pair.getValue();");
+			JsonCodecProcessor.line(out, 3, "switch (name.toLowerCase(java.util.Locale.ROOT)) {");
+			for (Map.Entry<String, List<BeanField>> entry : byName.entrySet()) {
+				JsonCodecProcessor.line(out, 3, "case " + JsonCodecProcessor.literal(entry.getKey()) + ":");
+				for (BeanField field : entry.getValue()) {
+					JsonCodecProcessor.readField(out, 4, field);
+				}
+				JsonCodecProcessor.line(out, 4, "break;");
+			}
+			JsonCodecProcessor.line(out, 3, "default:");
+			JsonCodecProcessor.line(out, 4, "break;");
+			JsonCodecProcessor.line(out, 3, "}");
+			JsonCodecProcessor.line(out, 2, "}");
+		}
+		JsonCodecProcessor.line(out, 1, "}");
+		JsonCodecProcessor.line(out, 0, "");
+
+		//////////////////////////////
+		// writeFields, a statement for each field in order
+		JsonCodecProcessor.line(out, 1, "@Override");
+		JsonCodecProcessor.line(out, 1, "public void writeFields(" + beanType
+				+ " bean, com.pearcevps.json.JsonWriter writer) throws com.pearcevps.json.JsonException,");
+		JsonCodecProcessor.line(out, 3, "java.lang.IllegalArgumentException, java.lang.IllegalAccessException, java.io.IOException {");
+		for (BeanField field : fields) {
+			JsonCodecProcessor.writeField(out, 2, field);
+		}
+		JsonCodecProcessor.line(out, 1, "}");
+		JsonCodecProcessor.line(out, 0, "}");
+		return out.toString();
+	}
+
+	/**
+	 * Write the statement that sets a field from a value
+	 *
+	 * @param field
+	 *           The field
+	 * @param primitive
+	 *           The value as a primitive
+	 * @param boxed
+	 *           The value boxed, for a wrapper class field that is set directly
+	 * @return The statement
+	 */
+	static private String set(BeanField field, String primitive, String boxed) {
+		if (field.target != null) {
+			return field.target + " = " + (field.primitive ? primitive : boxed) + ";";
+		}
+		return field.constant + ".getAccessor().set" + JsonCodecProcessor.PRIMITIVE_METHODS.get(field.kind)
+				+ "(bean, " + primitive + ");";
+	}
+
+	/**
+	 * Write the code that sets a field from the value of a pair
+	 *
+	 * @param out
+	 *           The source
+	 * @param depth
+	 *           The indent
+	 * @param field
+	 *           The field
+	 */
+	static private void readField(StringBuilder out, int depth, BeanField field) {
+		String fallback = "value.deserializeJsonValueToBean(" + field.constant + ".getField(), bean);";
+		String number;
+		String primitive;
+		String boxed;
+		switch (field.kind) {
+		case BOOLEAN:
+			JsonCodecProcessor.line(out, depth, "if (value instanceof com.pearcevps.json.JsonValueTrue) {");
+			JsonCodecProcessor.line(out, depth + 1, JsonCodecProcessor.set(field, "true", "java.lang.Boolean.TRUE"));
+			JsonCodecProcessor.line(out, depth, "} else if (value instanceof com.pearcevps.json.JsonValueFalse) {");
+			JsonCodecProcessor.line(out, depth + 1, JsonCodecProcessor.set(field, "false", "java.lang.Boolean.FALSE"));
+			JsonCodecProcessor.line(out, depth, "} else {");
+			JsonCodecProcessor.line(out, depth + 1, fallback);
+			JsonCodecProcessor.line(out, depth, "}");
+			return;
+		case STRING:
+			JsonCodecProcessor.line(out, depth, "{");
+			JsonCodecProcessor.line(out, depth + 1,
+					"java.lang.String string = (value instanceof com.pearcevps.json.JsonValueString)");
+			JsonCodecProcessor.line(out, depth + 3,
+					"? ((com.pearcevps.json.JsonValueString) value).getJavaStringValue() : null;");
+			JsonCodecProcessor.line(out, depth + 1, "if ((string == null) || string.isEmpty()) {");
+			JsonCodecProcessor.line(out, depth + 2, fallback);
+			JsonCodecProcessor.line(out, depth + 1, "} else {");
+			JsonCodecProcessor.line(out, depth + 2, (field.target != null) ? (field.target + " = string;")
+					: (field.constant + ".getAccessor().set(bean, string);"));
+			JsonCodecProcessor.line(out, depth + 1, "}");
+			JsonCodecProcessor.line(out, depth, "}");
+			return;
+		case DOUBLE:
+			number = "Double";
+			primitive = "number.doubleValue()";
+			boxed = "number";
+			break;
+		case FLOAT:
+			number = "Double";
+			primitive = "number.floatValue()";
+			boxed = "java.lang.Float.valueOf(number.floatValue())";
+			break;
+		case INTEGER:
+			number = "Long";
+			primitive = "number.intValue()";
+			boxed = "java.lang.Integer.valueOf(number.intValue())";
+			break;
+		case LONG:
+			number = "Long";
+			primitive = "number.longValue()";
+			boxed = "number";
+			break;
+		case SHORT:
+			number = "Long";
+			primitive = "number.shortValue()";
+			boxed = "java.lang.Short.valueOf(number.shortValue())";
+			break;
+		default:
+			JsonCodecProcessor.line(out, depth, fallback);
+			return;
+		}
+
+		//////////////////////////////
+		// Numbers, from a JsonValueNumberDouble or JsonValueNumberLong
+		String valueClass = "com.pearcevps.json.JsonValueNumber" + number;
+		JsonCodecProcessor.line(out, depth, "{");
+		JsonCodecProcessor.line(out, depth + 1,
+				"java.lang." + number + " number = (value instanceof " + valueClass + ")");
+		JsonCodecProcessor.line(out, depth + 3, "? ((" + valueClass + ") value).getValue() : null;");
+		JsonCodecProcessor.line(out, depth + 1, "if (number == null) {");
+		JsonCodecProcessor.line(out, depth + 2, fallback);
+		JsonCodecProcessor.line(out, depth + 1, "} else {");
+		JsonCodecProcessor.line(out, depth + 2, JsonCodecProcessor.set(field, primitive, boxed));
+		JsonCodecProcessor.line(out, depth + 1, "}");
+		JsonCodecProcessor.line(out, depth, "}");
+	}
+
+	/**
+	 * Write the code that writes a field as a pair
+	 *
+	 * @param out
+	 *           The source
+	 * @param depth
+	 *           The indent
+	 * @param field
+	 *           The field
+	 */
+	static private void writeField(StringBuilder out, int depth, BeanField field) {
+		String name = JsonCodecProcessor.literal(field.name);
+
+		//////////////////////////////
+		// Primitives, which are never null
+		if (field.primitive && JsonCodecProcessor.PRIMITIVE_METHODS.containsKey(field.kind)) {
+			String val = (field.target != null) ? field.target
+					: (field.constant + ".getAccessor().get" + JsonCodecProcessor.PRIMITIVE_METHODS.get(field.kind)
+							+ "(bean)");
+			if (field.kind == BeanDescriptor.Kind.CHARACTER) {
+				val = "java.lang.String.valueOf(" + val + ")";
+			} else if ((field.kind == BeanDescriptor.Kind.INTEGER) || (field.kind == BeanDescriptor.Kind.SHORT)) {
+				val = "(long) " + val;
+			}
+			JsonCodecProcessor.line(out, depth, "writer.name(" + name + ").value(" + val + ");");
+			return;
+		}
+
+		//////////////////////////////
+		// Lists and nested beans, written by the reflective path
+		String type = JsonCodecProcessor.SCALAR_CLASSES.get(field.kind);
+		if (type == null) {
+			JsonCodecProcessor.line(out, depth,
+					"com.pearcevps.json.JsonPair.writeField(bean, " + field.constant + ", writer);");
+			return;
+		}
+
+		//////////////////////////////
+		// Wrapper classes, strings and URIs, which may be null
+		String val;
+		switch (field.kind) {
+		case BOOLEAN:
+			val = "val.booleanValue()";
+			break;
+		case DOUBLE:
+			val = "val.doubleValue()";
+			break;
+		case FLOAT:
+			val = "val.floatValue()";
+			break;
+		case INTEGER:
+		case LONG:
+		case SHORT:
+			val = "val.longValue()";
+			break;
+		case STRING:
+			val = "val";
+			break;
+		default:
+			val = "val.toString()";
+			break;
+		}
+		JsonCodecProcessor.line(out, depth, "{");
+		JsonCodecProcessor.line(out, depth + 1, type + " val = " + ((field.target != null) ? field.target
+				: ("(" + type + ") " + field.constant + ".getAccessor().get(bean)")) + ";");
+		JsonCodecProcessor.line(out, depth + 1, "if (val == null) {");
+		JsonCodecProcessor.line(out, depth + 2,
+				"com.pearcevps.json.JsonPair.writeNullPair(" + name + ", " + field.required + ", writer);");
+		JsonCodecProcessor.line(out, depth + 1, "} else {");
+		JsonCodecProcessor.line(out, depth + 2, "writer.name(" + name + ").value(" + val + ");");
+		JsonCodecProcessor.line(out, depth + 1, "}");
+		JsonCodecProcessor.line(out, depth, "}");
+	}
+}
@@ -0,0 +1,186 @@
+package com.pearcevps.json;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.pearcevps.utils.Output;
+
+/**
+ * The codecs used to bind bean classes in place of the reflective walk of
+ * their fields. The codec of a class is, in order:
+ * <li>the codec registered for it with {@link #register(JsonCodec)}</li>
+ * <li>the codec generated for it at compile time by
+ * {@link JsonCodecProcessor}, which is found by name and used whenever it is
+ * on the class path</li>
+ * <li>when compiled codecs are turned on with
+ * {@link #setCompileCodecs(boolean)}, the codec compiled for it at first
+ * use</li>
+ * <p>
+ * Classes with none of these are bound by the reflective path.
+ * <p>
+ * A compiled codec is built the first time a class is bound, from its
+ * {@link BeanDescriptor}, as one reader and one writer per field. String,
+ * number, boolean, character and URI fields are read and written directly,
+ * primitives without boxing. Lists and nested beans are handled by the
+ * reflective path, field by field. Classes with a bound Map field or a
+ * {@link Json_IgnoreFieldsInThisList} list are not compiled, and are bound
+ * wholly by the reflective path.
+ *
+ * <pre>
+ * JsonCodecRegistry.setCompileCodecs(true);
+ * JsonValueObject.serializeBean(bean, writer);
+ * </pre>
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonCodecRegistry {
+
+	/**
+	 * The compiled codec of each class, or null if it cannot be compiled
+	 */
+	static private final ClassValue<JsonCodec<?>>			COMPILED			= new ClassValue<JsonCodec<?>>() {
+		@Override
+		protected JsonCodec<?> computeValue(Class<?> type) {
+			return CompiledBeanCodec.compile(type);
+		}
+	};
+	/**
+	 * The generated codec of each class, or null if none is on the class path
+	 */
+	static private final ClassValue<JsonCodec<?>>			GENERATED		= new ClassValue<JsonCodec<?>>() {
+		@Override
+		protected JsonCodec<?> computeValue(Class<?> type) {
+			return JsonCodecRegistry.loadGeneratedCodec(type);
+		}
+	};
+	/**
+	 * Are classes compiled to codecs?
+	 */
+	static private volatile boolean							compileCodecs	= false;
+	/**
+	 * The codecs registered for classes
+	 */
+	static private final Map<Class<?>, JsonCodec<?>>	REGISTERED		= new ConcurrentHashMap<Class<?>, JsonCodec<?>>();
+
+	/**
+	 * Get the codec of a bean, without checking its type
+	 *
+	 * @param bean
+	 *           The bean
+	 * @return The codec, or null if the bean is bound by the reflective path
+	 */
+	@SuppressWarnings("unchecked")
+	static JsonCodec<Object> codecOf(Object bean) {
+		return (JsonCodec<Object>) JsonCodecRegistry.getCodec(bean.getClass());
+	}
+
+	/**
+	 * Get the codec used for a class
+	 *
+	 * @param beanClass
+	 *           The class
+	 * @return The registered codec, else the generated codec, else the
+	 *         compiled codec if compiled codecs are turned on, or null if beans
+	 *         of the class are bound by the reflective path
+	 */
+	@SuppressWarnings("unchecked")
+	static public <T> JsonCodec<T> getCodec(Class<T> beanClass) {
+		JsonCodec<?> ret = JsonCodecRegistry.REGISTERED.isEmpty() ? null
+				: JsonCodecRegistry.REGISTERED.get(beanClass);
+		if (ret == null) {
+			ret = JsonCodecRegistry.GENERATED.get(beanClass);
+		}
+		if ((ret == null) && JsonCodecRegistry.compileCodecs) {
+			ret = JsonCodecRegistry.COMPILED.get(beanClass);
+		}
+		return (JsonCodec<T>) ret;
+	}
+
+	/**
+	 * Get the name of the codec class generated for a bean class, which is in
+	 * the same package as the bean and named after it, with the names of
+	 * enclosing classes joined by underscores, e.g. Order_LineJsonCodec for
+	 * the nested class Order.Line
+	 *
+	 * @param beanClassName
+	 *           The binary name of the bean class, e.g. com.example.Order$Line
+	 * @return The binary name of the codec class
+	 */
+	static public String getGeneratedCodecName(String beanClassName) {
+		int dot = beanClassName.lastIndexOf('.');
+		return beanClassName.substring(0, dot + 1) + beanClassName.substring(dot + 1).replace('$', '_') + "JsonCodec";
+	}
+
+	/**
+	 * Are classes compiled to codecs the first time they are bound?
+	 *
+	 * @return true if compiled codecs are turned on
+	 */
+	static public boolean isCompileCodecs() {
+		return JsonCodecRegistry.compileCodecs;
+	}
+
+	/**
+	 * Load the codec generated for a class
+	 *
+	 * @param beanClass
+	 *           The class
+	 * @return The codec, or null if there is no generated codec for the class
+	 */
+	static private JsonCodec<?> loadGeneratedCodec(Class<?> beanClass) {
+		String name = JsonCodecRegistry.getGeneratedCodecName(beanClass.getName());
+		try {
+			Class<?> codecClass = Class.forName(name, true, beanClass.getClassLoader());
+			if (JsonCodec.class.isAssignableFrom(codecClass)) {
+				JsonCodec<?> codec = (JsonCodec<?>) codecClass.getDeclaredConstructor().newInstance();
+				if (codec.getBeanClass() == beanClass) {
+					return codec;
+				}
+			}
+		} catch (ClassNotFoundException e) {
+			return null;
+		} catch (ReflectiveOperationException | LinkageError e) {
+			if (JsonValue.debug) {
+				Output.logdebug(Output.padStr("JsonCodecRegistry::loadGeneratedCodec: ", 60) + "Cannot use codec "
+						+ name + ": " + e);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Register the codec of a class, replacing any registered before
+	 *
+	 * @param codec
+	 *           The codec, which is used for beans of exactly its class
+	 */
+	static public <T> void register(JsonCodec<T> codec) {
+		JsonCodecRegistry.REGISTERED.put(codec.getBeanClass(), codec);
+	}
+
+	/**
+	 * Turn compiled codecs on or off. They are off by default.
+	 *
+	 * @param compileCodecs
+	 *           true if classes without a registered codec are compiled to one
+	 *           the first time they are bound
+	 */
+	static public void setCompileCodecs(boolean compileCodecs) {
+		JsonCodecRegistry.compileCodecs = compileCodecs;
+	}
+
+	/**
+	 * Remove the registered codec of a class
+	 *
+	 * @param beanClass
+	 *           The class
+	 */
+	static public void unregister(Class<?> beanClass) {
+		JsonCodecRegistry.REGISTERED.remove(beanClass);
+	}
+
+	private JsonCodecRegistry() {
+		super();
+	}
+}
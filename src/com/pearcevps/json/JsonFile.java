@@ -0,0 +1,376 @@
+package com.pearcevps.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A UTF-8 JSON file that is memory mapped rather than read onto the heap. The
+ * file is mapped in segments of at most {@link #getSegmentSize()} bytes, so
+ * files larger than 2 GB can be read. The file can either be parsed as a whole
+ * with {@link #parse()}, or, when the document is a top level array, its
+ * elements can be parsed one at a time with {@link #nextElement()}, e.g.
+ *
+ * <pre>
+ * try (JsonFile file = JsonFile.map(path)) {
+ * 	JsonValue element;
+ * 	while ((element = file.nextElement()) != null) {
+ * 		...
+ * 	}
+ * }
+ * </pre>
+ *
+ * Each element must fit within a single segment.
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonFile implements Closeable {
+
+	/**
+	 * The default maximum number of bytes mapped at once
+	 */
+	static public final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+
+	/**
+	 * Memory map a JSON file using the default segment size
+	 *
+	 * @param path
+	 *           The file to map
+	 * @return The mapped file
+	 * @throws IOException
+	 *            Thrown if the file cannot be opened
+	 */
+	static public JsonFile map(Path path) throws IOException {
+		return JsonFile.map(path, JsonFile.DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Memory map a JSON file
+	 *
+	 * @param path
+	 *           The file to map
+	 * @param segmentSize
+	 *           The maximum number of bytes to map at once. Every element
+	 *           returned by {@link #nextElement()} must fit in a segment.
+	 * @return The mapped file
+	 * @throws IOException
+	 *            Thrown if the file cannot be opened
+	 */
+	static public JsonFile map(Path path, int segmentSize) throws IOException {
+		if (segmentSize < 16) {
+			throw new IllegalArgumentException("JSON file segment size must be at least 16 bytes");
+		}
+		return new JsonFile(FileChannel.open(path, StandardOpenOption.READ), segmentSize);
+	}
+
+	/**
+	 * Has the closing ']' of the top level array been read?
+	 */
+	private boolean				arrayEnded		= false;
+	/**
+	 * Has the opening '[' of the top level array been read?
+	 */
+	private boolean				arrayStarted	= false;
+	/**
+	 * The channel the file is mapped from
+	 */
+	private final FileChannel	channel;
+	/**
+	 * The file offset of the next byte to be read by {@link #nextElement()}
+	 */
+	private long					position			= 0;
+	/**
+	 * The currently mapped segment
+	 */
+	private MappedByteBuffer	segment			= null;
+	/**
+	 * The maximum number of bytes mapped at once
+	 */
+	private final int				segmentSize;
+	/**
+	 * The file offset of the first byte of the mapped segment
+	 */
+	private long					segmentStart	= 0;
+	/**
+	 * The size of the file in bytes
+	 */
+	private final long			size;
+
+	/**
+	 * Create a mapped JSON file
+	 *
+	 * @param channel
+	 *           The channel to map the file from
+	 * @param segmentSize
+	 *           The maximum number of bytes to map at once
+	 * @throws IOException
+	 */
+	private JsonFile(FileChannel channel, int segmentSize) throws IOException {
+		super();
+		this.channel = channel;
+		this.segmentSize = segmentSize;
+		this.size = channel.size();
+	}
+
+	/**
+	 * Close the file. Mapped segments are released when they are garbage
+	 * collected.
+	 */
+	@Override
+	public void close() throws IOException {
+		this.segment = null;
+		this.channel.close();
+	}
+
+	/**
+	 * Get the maximum number of bytes mapped at once
+	 *
+	 * @return The segment size
+	 */
+	public int getSegmentSize() {
+		return this.segmentSize;
+	}
+
+	/**
+	 * Parse the next element of the top level array in the file. The first call
+	 * reads the opening '[' of the array.
+	 *
+	 * @return The next element, or null when all the elements have been read
+	 * @throws IOException
+	 *            Thrown if the file cannot be mapped
+	 * @throws JsonException
+	 *            Thrown if the file is not a valid JSON array, or an element is
+	 *            larger than the segment size
+	 */
+	public JsonValue nextElement() throws IOException, JsonException {
+		if (this.arrayEnded) {
+			return null;
+		}
+		if (!this.arrayStarted) {
+			this.position = this.skipByteOrderMark(0);
+			this.position = this.skipWhitespace(this.position);
+			if (this.byteAt(this.position) != '[') {
+				throw new JsonException("JSON file does not contain a top level array at byte " + this.position);
+			}
+			this.arrayStarted = true;
+			this.position = this.skipWhitespace(this.position + 1);
+			if (this.byteAt(this.position) == ']') {
+				return this.endArray(this.position + 1);
+			}
+		}
+
+		//////////////////////
+		// Parse the element from the mapped segment, moving the segment to start
+		// at the element if the element runs past the end of the segment
+		long elementStart = this.position;
+		JsonValue ret = null;
+		while (ret == null) {
+			this.mapSegmentContaining(elementStart);
+			int segmentEnd = this.segment.limit();
+			boolean lastSegment = (this.segmentStart + segmentEnd) >= this.size;
+			JsonTreeBuilder builder = new JsonTreeBuilder();
+			JsonByteParser parser = new JsonByteParser(this.segment, (int) (elementStart - this.segmentStart),
+					segmentEnd, builder, new ParseContext());
+			JsonException failure = null;
+			try {
+				parser.parseValue();
+				ret = builder.getResult();
+				if (!lastSegment && (parser.getPosition() >= segmentEnd) && !(ret instanceof JsonValueObject)
+						&& !(ret instanceof JsonValueArray) && !(ret instanceof JsonValueString)) {
+					// A number or literal at the end of the segment may have been cut
+					// short, whereas objects, arrays and strings end at their closing
+					// byte
+					ret = null;
+				}
+			} catch (JsonException e) {
+				failure = e;
+			}
+			if (ret == null) {
+				if (lastSegment) {
+					throw this.offsetError(failure, elementStart);
+				}
+				if (this.segmentStart == elementStart) {
+					throw new JsonException("JSON array element at byte " + elementStart
+							+ " is larger than the mapped segment size of " + this.segmentSize + " bytes");
+				}
+				this.map(elementStart);
+			} else {
+				this.position = this.segmentStart + parser.getPosition();
+			}
+		}
+
+		//////////////////////
+		// Consume the ',' or ']' that follows the element
+		this.position = this.skipWhitespace(this.position);
+		int b = this.byteAt(this.position);
+		if (b == ',') {
+			this.position++;
+		} else if (b == ']') {
+			this.endArray(this.position + 1);
+		} else {
+			throw new JsonException("Expected ',' or ']' in JSON array at byte " + this.position);
+		}
+		return ret;
+	}
+
+	/**
+	 * Parse the whole file as a tree of JsonValue objects. A file larger than
+	 * the segment size can only be parsed if it contains a top level array, in
+	 * which case it is parsed an element at a time.
+	 *
+	 * @return The JSON value in the file
+	 * @throws IOException
+	 *            Thrown if the file cannot be mapped
+	 * @throws JsonException
+	 *            Thrown if the file is not valid JSON
+	 */
+	public JsonValue parse() throws IOException, JsonException {
+		if (this.size <= this.segmentSize) {
+			this.map(0);
+			return JsonValue.getJsonValueFromBuffer(this.segment);
+		}
+		long start = this.skipWhitespace(this.skipByteOrderMark(0));
+		if (this.byteAt(start) != '[') {
+			throw new JsonException("JSON file of " + this.size + " bytes is larger than the mapped segment size of "
+					+ this.segmentSize + " bytes, and does not contain a top level array");
+		}
+		JsonValueArray ret = new JsonValueArray();
+		this.arrayStarted = false;
+		this.arrayEnded = false;
+		JsonValue element;
+		while ((element = this.nextElement()) != null) {
+			ret.addElement(element);
+		}
+		return ret;
+	}
+
+	/**
+	 * Get the size of the file
+	 *
+	 * @return The size of the file in bytes
+	 */
+	public long size() {
+		return this.size;
+	}
+
+	/**
+	 * Get a byte from the file, moving the mapped segment if necessary
+	 *
+	 * @param offset
+	 *           The file offset of the byte
+	 * @return The byte, or -1 if the offset is at or after the end of the file
+	 * @throws IOException
+	 */
+	private int byteAt(long offset) throws IOException {
+		if (offset >= this.size) {
+			return -1;
+		}
+		this.mapSegmentContaining(offset);
+		return this.segment.get((int) (offset - this.segmentStart));
+	}
+
+	/**
+	 * Mark the top level array as ended, and check nothing follows it
+	 *
+	 * @param offset
+	 *           The file offset after the closing ']'
+	 * @return null, as there are no more elements
+	 * @throws IOException
+	 * @throws JsonException
+	 *            Thrown if there is content after the array
+	 */
+	private JsonValue endArray(long offset) throws IOException, JsonException {
+		this.arrayEnded = true;
+		this.position = this.skipWhitespace(offset);
+		if (this.position < this.size) {
+			throw new JsonException("Unexpected trailing content after JSON array at byte " + this.position);
+		}
+		return null;
+	}
+
+	/**
+	 * Map a segment of the file
+	 *
+	 * @param offset
+	 *           The file offset of the first byte of the segment
+	 * @throws IOException
+	 */
+	private void map(long offset) throws IOException {
+		long length = Math.min(this.segmentSize, this.size - offset);
+		this.segment = this.channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+		this.segmentStart = offset;
+	}
+
+	/**
+	 * Make sure the mapped segment contains a file offset
+	 *
+	 * @param offset
+	 *           The file offset
+	 * @throws IOException
+	 */
+	private void mapSegmentContaining(long offset) throws IOException {
+		if ((this.segment == null) || (offset < this.segmentStart)
+				|| (offset >= (this.segmentStart + this.segment.limit()))) {
+			this.map(offset);
+		}
+	}
+
+	/**
+	 * Rewrite a parse failure, which is relative to the mapped segment, to give
+	 * the file offset of the element that failed
+	 *
+	 * @param e
+	 *           The parse failure, or null if there was none
+	 * @param elementStart
+	 *           The file offset of the element
+	 * @return The exception to throw
+	 */
+	private JsonException offsetError(JsonException e, long elementStart) {
+		if (e == null) {
+			return new JsonException("Invalid JSON array element at byte " + elementStart);
+		}
+		return new JsonException(
+				"Invalid JSON array element at byte " + elementStart + " (segment at byte " + this.segmentStart + ")",
+				e);
+	}
+
+	/**
+	 * Get the offset after a UTF-8 byte order mark, if there is one
+	 *
+	 * @param offset
+	 *           The file offset to check
+	 * @return The offset after the byte order mark, or the offset passed in
+	 * @throws IOException
+	 */
+	private long skipByteOrderMark(long offset) throws IOException {
+		if ((this.byteAt(offset) == (byte) 0xEF) && (this.byteAt(offset + 1) == (byte) 0xBB)
+				&& (this.byteAt(offset + 2) == (byte) 0xBF)) {
+			return offset + 3;
+		}
+		return offset;
+	}
+
+	/**
+	 * Get the offset of the next byte that is not white space
+	 *
+	 * @param offset
+	 *           The file offset to start from
+	 * @return The offset of the next non white space byte, or the size of the
+	 *         file
+	 * @throws IOException
+	 */
+	private long skipWhitespace(long offset) throws IOException {
+		while (offset < this.size) {
+			int b = this.byteAt(offset);
+			if (!JsonParser.isWhitespace(b)) {
+				return offset;
+			}
+			offset++;
+		}
+		return offset;
+	}
+}
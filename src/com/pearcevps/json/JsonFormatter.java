@@ -0,0 +1,339 @@
+package com.pearcevps.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Re-indents or minifies JSON text as it streams from a Reader to a Writer,
+ * without building a tree, so a document of any size is reformatted in a
+ * single pass with memory bounded by its nesting depth. Whitespace outside
+ * strings is replaced; strings and literals are copied exactly as they are.
+ * Pretty printed output has the same layout as a {@link JsonWriter} with an
+ * indent set.
+ *
+ * <pre>
+ * try (Reader in = Files.newBufferedReader(from); Writer out = Files.newBufferedWriter(to)) {
+ * 	new JsonFormatter(JsonWriter.DEFAULT_INDENT, "\n").format(in, out);
+ * }
+ * </pre>
+ *
+ * The input must hold a single JSON value. Only its nesting, its strings and
+ * the separation of its values are checked, so other errors in the input are
+ * copied to the output. As whitespace is dropped, a value that follows another
+ * without a ',' or ':' between them is an error, rather than being run into
+ * it.
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonFormatter {
+
+	/**
+	 * The number of characters read from the input at a time
+	 */
+	static private final int	BUFFER_SIZE	= 8192;
+
+	/**
+	 * Remove all whitespace outside strings from JSON text
+	 *
+	 * @param json
+	 *           The JSON text
+	 * @return The minified JSON text
+	 * @throws JsonException
+	 *            Thrown if the nesting, strings or separators are not valid
+	 */
+	static public String minify(String json) throws JsonException {
+		return new JsonFormatter(null, "\n").format(json);
+	}
+
+	/**
+	 * The indent for each level, or null to minify
+	 */
+	private final String	indent;
+	/**
+	 * The level of the outermost value, so that its members are indented by
+	 * one more than this
+	 */
+	private int				level	= 0;
+	/**
+	 * The line separator
+	 */
+	private final String	newline;
+
+	/**
+	 * Create a formatter
+	 *
+	 * @param indent
+	 *           The indent for each level, e.g. {@link JsonWriter#DEFAULT_INDENT}
+	 *           or a tab, or null (or empty) to minify
+	 * @param newline
+	 *           The line separator, e.g. "\n" or "\r\n"
+	 */
+	public JsonFormatter(String indent, String newline) {
+		super();
+		if (newline == null) {
+			throw new IllegalArgumentException("A JSON formatter needs a line separator");
+		}
+		this.indent = ((indent == null) || indent.isEmpty()) ? null : indent;
+		this.newline = newline;
+	}
+
+	/**
+	 * Reformat JSON text from a reader to a writer
+	 *
+	 * @param in
+	 *           The JSON text. It is read to the end but not closed.
+	 * @param writer
+	 *           The output. Output is buffered internally and written in
+	 *           blocks; the writer is neither flushed nor closed.
+	 * @throws IOException
+	 *            Thrown by the reader or writer
+	 * @throws JsonException
+	 *            Thrown if the nesting, strings or separators are not valid
+	 */
+	public void format(Reader in, Writer writer) throws IOException, JsonException {
+		OutputBuffer out = new OutputBuffer(writer);
+		char[] buffer = new char[JsonFormatter.BUFFER_SIZE];
+		char[] containers = new char[16];
+		int depth = 0;
+		boolean pendingOpen = false;
+		boolean inString = false;
+		boolean escaped = false;
+		// Is a literal being copied, and has a value ended with no separator
+		// after it yet?
+		boolean inLiteral = false;
+		boolean afterValue = false;
+		long position = 0;
+		int read;
+		while ((read = in.read(buffer)) > 0) {
+			int run = 0;
+			for (int i = 0; i < read; i++) {
+				char c = buffer[i];
+
+				//////////////////////////////
+				// Strings are copied in runs, up to and including the closing
+				// quote
+				if (inString) {
+					if (escaped) {
+						escaped = false;
+					} else if (c == '\\') {
+						escaped = true;
+					} else if (c == '"') {
+						inString = false;
+						afterValue = true;
+						out.write(buffer, run, (i + 1) - run);
+					}
+					continue;
+				}
+				switch (c) {
+				case ' ':
+				case '\t':
+				case '\n':
+				case '\r':
+					if (inLiteral) {
+						inLiteral = false;
+						afterValue = true;
+					}
+					break;
+				case '}':
+				case ']':
+					if ((depth == 0) || (containers[depth - 1] != ((c == '}') ? '{' : '['))) {
+						throw new JsonException("Unexpected '" + c + "' at position " + (position + i));
+					}
+					depth--;
+					inLiteral = false;
+					afterValue = true;
+					if (pendingOpen) {
+						pendingOpen = false;
+						if (this.indent != null) {
+							out.write(' ');
+						}
+					} else if (this.indent != null) {
+						this.newLine(out, depth);
+					}
+					out.write(c);
+					break;
+				default:
+					if ((c == ',') || (c == ':')) {
+						inLiteral = false;
+						afterValue = false;
+					} else if (!inLiteral || (c == '"') || (c == '{') || (c == '[')) {
+						//////////////////////////////
+						// A new value, which must not follow another directly
+						if (afterValue || inLiteral) {
+							throw new JsonException(
+									"Expected ',' or ':' before the value at position " + (position + i));
+						}
+						inLiteral = (c != '"') && (c != '{') && (c != '[');
+					}
+					if (pendingOpen) {
+						pendingOpen = false;
+						if (this.indent != null) {
+							this.newLine(out, depth);
+						}
+					}
+					if (c == ',') {
+						out.write(',');
+						if (this.indent != null) {
+							this.newLine(out, depth);
+						}
+					} else if (c == ':') {
+						out.write(':');
+						if (this.indent != null) {
+							out.write(' ');
+						}
+					} else if ((c == '{') || (c == '[')) {
+						out.write(c);
+						if (depth == containers.length) {
+							containers = Arrays.copyOf(containers, depth * 2);
+						}
+						containers[depth++] = c;
+						pendingOpen = true;
+					} else if (c == '"') {
+						inString = true;
+						run = i;
+					} else {
+						out.write(c);
+					}
+				}
+			}
+			if (inString) {
+				out.write(buffer, run, read - run);
+			}
+			position += read;
+		}
+		out.flush();
+		if (inString) {
+			throw new JsonException("Unterminated JSON string at the end of the input");
+		}
+		if (depth > 0) {
+			throw new JsonException("Unexpected end of JSON input, with " + depth + " object(s) or array(s) unclosed");
+		}
+	}
+
+	/**
+	 * Reformat JSON text
+	 *
+	 * @param json
+	 *           The JSON text
+	 * @return The reformatted JSON text
+	 * @throws JsonException
+	 *            Thrown if the nesting or strings are not valid
+	 */
+	public String format(String json) throws JsonException {
+		StringWriter ret = new StringWriter(json.length() + (json.length() >> 2));
+		try {
+			this.format(new StringReader(json), ret);
+		} catch (IOException e) {
+			// Neither a StringReader nor a StringWriter throws
+			throw new IllegalStateException(e);
+		}
+		return ret.toString();
+	}
+
+	/**
+	 * Get the level of the outermost value
+	 *
+	 * @return The level, normally 0
+	 */
+	public int getLevel() {
+		return this.level;
+	}
+
+	/**
+	 * Set the level of the outermost value, to reformat a value that will be
+	 * embedded in other indented text
+	 *
+	 * @param level
+	 *           The level, so members of the outermost value are indented by
+	 *           one more than this
+	 */
+	public void setLevel(int level) {
+		if (level < 0) {
+			throw new IllegalArgumentException("JSON indent level cannot be negative");
+		}
+		this.level = level;
+	}
+
+	/**
+	 * Start a new line, indented to a depth
+	 *
+	 * @param out
+	 *           The buffered output
+	 * @param depth
+	 *           The number of open objects and arrays
+	 * @throws IOException
+	 */
+	private void newLine(OutputBuffer out, int depth) throws IOException {
+		out.write(this.newline);
+		for (int i = this.level + depth; i > 0; i--) {
+			out.write(this.indent);
+		}
+	}
+
+	/**
+	 * Collects output characters into a buffer, so the writer is called once
+	 * per buffer rather than once per character
+	 */
+	static private class OutputBuffer {
+
+		/**
+		 * The characters not yet written
+		 */
+		private final char[]	buffer	= new char[JsonFormatter.BUFFER_SIZE];
+		/**
+		 * The number of characters in the buffer
+		 */
+		private int				count		= 0;
+		/**
+		 * The writer
+		 */
+		private final Writer	writer;
+
+		OutputBuffer(Writer writer) {
+			super();
+			this.writer = writer;
+		}
+
+		void flush() throws IOException {
+			this.writer.write(this.buffer, 0, this.count);
+			this.count = 0;
+		}
+
+		void write(char c) throws IOException {
+			if (this.count == this.buffer.length) {
+				this.flush();
+			}
+			this.buffer[this.count++] = c;
+		}
+
+		void write(char[] chars, int offset, int length) throws IOException {
+			if (length > (this.buffer.length - this.count)) {
+				this.flush();
+				if (length > this.buffer.length) {
+					this.writer.write(chars, offset, length);
+					return;
+				}
+			}
+			System.arraycopy(chars, offset, this.buffer, this.count, length);
+			this.count += length;
+		}
+
+		void write(String s) throws IOException {
+			int length = s.length();
+			if (length > (this.buffer.length - this.count)) {
+				this.flush();
+				if (length > this.buffer.length) {
+					this.writer.write(s);
+					return;
+				}
+			}
+			s.getChars(0, length, this.buffer, this.count);
+			this.count += length;
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package com.pearcevps.json;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Receives the events of a JSON document as it is parsed, without a tree of
+ * {@link JsonValue} objects being built. Pass a handler to
+ * {@link JsonParser#parse(String, JsonHandler)} or
+ * {@link JsonByteParser#parse(byte[], int, int, JsonHandler)}. The events for
+ * <code>{ "a": [ 1, true ] }</code> are:
+ *
+ * <pre>
+ * startObject()
+ * name("a")
+ * startArray()
+ * value(1L)
+ * value(true)
+ * endArray()
+ * endObject()
+ * </pre>
+ *
+ * Any method may throw a {@link JsonException} to stop the parse.
+ * {@link JsonTreeBuilder} is the handler that builds the usual tree.
+ *
+ * @author andrewpearce
+ *
+ */
+public interface JsonHandler {
+
+	/**
+	 * The end of a JSON array
+	 *
+	 * @throws JsonException
+	 */
+	void endArray() throws JsonException;
+
+	/**
+	 * The end of a JSON object
+	 *
+	 * @throws JsonException
+	 */
+	void endObject() throws JsonException;
+
+	/**
+	 * The name of the next pair in the current object. The value of the pair
+	 * follows as a value, or as the start of an array or object.
+	 *
+	 * @param name
+	 *           The name, with its JSON escapes decoded
+	 * @throws JsonException
+	 */
+	void name(String name) throws JsonException;
+
+	/**
+	 * A JSON null value
+	 *
+	 * @throws JsonException
+	 */
+	void nullValue() throws JsonException;
+
+	/**
+	 * The start of a JSON array
+	 *
+	 * @throws JsonException
+	 */
+	void startArray() throws JsonException;
+
+	/**
+	 * The start of a JSON object
+	 *
+	 * @throws JsonException
+	 */
+	void startObject() throws JsonException;
+
+	/**
+	 * A JSON number value outside the range of a double. By default it is
+	 * passed on as the nearest double, which may be infinite or zero.
+	 *
+	 * @param value
+	 *           The value
+	 * @throws JsonException
+	 */
+	default void value(BigDecimal value) throws JsonException {
+		this.value(value.doubleValue());
+	}
+
+	/**
+	 * A JSON integer number value too large for a long. By default it is passed
+	 * on as the nearest double.
+	 *
+	 * @param value
+	 *           The value
+	 * @throws JsonException
+	 */
+	default void value(BigInteger value) throws JsonException {
+		this.value(value.doubleValue());
+	}
+
+	/**
+	 * A JSON true or false value
+	 *
+	 * @param value
+	 *           The value
+	 * @throws JsonException
+	 */
+	void value(boolean value) throws JsonException;
+
+	/**
+	 * A JSON number value with a fraction or exponent, within the range of a
+	 * double
+	 *
+	 * @param value
+	 *           The value
+	 * @throws JsonException
+	 */
+	void value(double value) throws JsonException;
+
+	/**
+	 * A JSON integer number value that fits in a long
+	 *
+	 * @param value
+	 *           The value
+	 * @throws JsonException
+	 */
+	void value(long value) throws JsonException;
+
+	/**
+	 * A JSON string value
+	 *
+	 * @param value
+	 *           The value, with its JSON escapes decoded
+	 * @throws JsonException
+	 */
+	void value(String value) throws JsonException;
+}
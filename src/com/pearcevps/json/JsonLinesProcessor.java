@@ -0,0 +1,314 @@
+package com.pearcevps.json;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.pearcevps.utils.Output;
+
+/**
+ * Parses the records of a {@link JsonLinesReader} on a worker pool. The calling
+ * thread reads lines and hands them to the pool, and the workers parse them
+ * (and bind them to beans) while the next lines are being read, so I/O and
+ * parsing overlap. At most {@link #getQueueSize()} lines are in flight at
+ * once, which bounds the memory used however far the reader gets ahead of the
+ * workers.
+ * <p>
+ * Parsed records are passed to a {@link Sink} on the calling thread, so the
+ * sink does not need to be thread safe. In ordered mode records reach the sink
+ * in the order of the lines; otherwise they reach it as soon as they are
+ * parsed.
+ *
+ * <pre>
+ * JsonLinesProcessor&lt;Event&gt; processor = new JsonLinesProcessor&lt;Event&gt;(
+ * 		JsonLinesProcessor.beans(Event.class), executor, 1024, true);
+ * try (JsonLinesReader reader = JsonLinesReader.open(path)) {
+ * 	processor.process(reader, (event, line) -&gt; store(event));
+ * }
+ * </pre>
+ *
+ * @author andrewpearce
+ *
+ * @param <T>
+ *           The type of the parsed records
+ */
+public class JsonLinesProcessor<T> {
+
+	/**
+	 * Turns one line into a record. Called on a worker thread.
+	 *
+	 * @param <T>
+	 *           The type of the record
+	 */
+	public interface Binder<T> {
+
+		/**
+		 * Parse a line
+		 *
+		 * @param line
+		 *           The line, which is not blank
+		 * @param lineNumber
+		 *           The line number, starting at 1
+		 * @return The record
+		 * @throws Exception
+		 *            Thrown if the line cannot be parsed
+		 */
+		T bind(String line, long lineNumber) throws Exception;
+	}
+
+	/**
+	 * Receives the parsed records. Called on the thread that called
+	 * {@link JsonLinesProcessor#process(JsonLinesReader, Sink)}.
+	 *
+	 * @param <T>
+	 *           The type of the record
+	 */
+	public interface Sink<T> {
+
+		/**
+		 * Accept a record
+		 *
+		 * @param record
+		 *           The record
+		 * @param lineNumber
+		 *           The line number of the record
+		 * @throws Exception
+		 *            Thrown to stop processing
+		 */
+		void accept(T record, long lineNumber) throws Exception;
+	}
+
+	/**
+	 * Get a binder that deserializes each line into a new bean
+	 *
+	 * @param beanClass
+	 *           The class of the bean, which must have a default constructor
+	 * @return The binder
+	 */
+	static public <B> Binder<B> beans(final Class<B> beanClass) {
+		return (line, lineNumber) -> JsonLinesReader.bind(line, beanClass, lineNumber);
+	}
+
+	/**
+	 * Get a binder that parses each line into a tree of JsonValue objects
+	 *
+	 * @return The binder
+	 */
+	static public Binder<JsonValue> values() {
+		return (line, lineNumber) -> JsonLinesReader.parse(line, lineNumber);
+	}
+
+	/**
+	 * Turns each line into a record
+	 */
+	private final Binder<T>			binder;
+	/**
+	 * The pool the lines are parsed on
+	 */
+	private final ExecutorService	executor;
+	/**
+	 * Are records passed to the sink in the order of the lines?
+	 */
+	private final boolean			ordered;
+	/**
+	 * The most lines that can be in flight at once
+	 */
+	private final int					queueSize;
+
+	/**
+	 * Create a processor
+	 *
+	 * @param binder
+	 *           Turns each line into a record
+	 * @param executor
+	 *           The pool the lines are parsed on. The processor does not shut
+	 *           it down.
+	 * @param queueSize
+	 *           The most lines that can be in flight at once
+	 * @param ordered
+	 *           true if records must be passed to the sink in the order of the
+	 *           lines
+	 */
+	public JsonLinesProcessor(Binder<T> binder, ExecutorService executor, int queueSize, boolean ordered) {
+		super();
+		if ((binder == null) || (executor == null)) {
+			throw new IllegalArgumentException("A JSON Lines processor needs a binder and an executor");
+		}
+		if (queueSize < 1) {
+			throw new IllegalArgumentException("JSON Lines queue size must be at least 1");
+		}
+		this.binder = binder;
+		this.executor = executor;
+		this.queueSize = queueSize;
+		this.ordered = ordered;
+	}
+
+	/**
+	 * Get the most lines that can be in flight at once
+	 *
+	 * @return The queue size
+	 */
+	public int getQueueSize() {
+		return this.queueSize;
+	}
+
+	/**
+	 * Are records passed to the sink in the order of the lines?
+	 *
+	 * @return true if the processor is ordered
+	 */
+	public boolean isOrdered() {
+		return this.ordered;
+	}
+
+	/**
+	 * Parse every remaining record of a reader, passing each to a sink. If a
+	 * line cannot be parsed, or the sink throws, the lines still in flight are
+	 * cancelled and the failure is thrown.
+	 *
+	 * @param reader
+	 *           The reader to take lines from. It is not closed.
+	 * @param sink
+	 *           The sink to pass records to
+	 * @return The number of records processed
+	 * @throws IOException
+	 *            Thrown if the reader fails
+	 * @throws JsonException
+	 *            Thrown if a line cannot be parsed, or by the sink
+	 * @throws InterruptedException
+	 *            Thrown if the calling thread is interrupted while waiting for a
+	 *            worker
+	 */
+	public long process(JsonLinesReader reader, Sink<? super T> sink)
+			throws IOException, JsonException, InterruptedException {
+		Deque<Record<T>> inFlight = new ArrayDeque<Record<T>>();
+		CompletionService<Record<T>> completed = new ExecutorCompletionService<Record<T>>(this.executor);
+		long count = 0;
+		try {
+			String line;
+			while ((line = reader.nextLine()) != null) {
+				Record<T> record = new Record<T>(line, reader.getLineNumber());
+				if (inFlight.size() == this.queueSize) {
+					count += this.deliver(inFlight, completed, sink, true);
+				}
+				Callable<Record<T>> task = () -> {
+					record.value = this.binder.bind(record.line, record.lineNumber);
+					return record;
+				};
+				record.future = this.ordered ? this.executor.submit(task) : completed.submit(task);
+				inFlight.addLast(record);
+				count += this.deliver(inFlight, completed, sink, false);
+			}
+			while (!inFlight.isEmpty()) {
+				count += this.deliver(inFlight, completed, sink, true);
+			}
+		} finally {
+			for (Record<T> record : inFlight) {
+				record.future.cancel(true);
+			}
+		}
+		if (JsonValue.debug) {
+			Output.logdebug(Output.padStr("JsonLinesProcessor::process: ", 60) + "Processed " + count
+					+ " JSON Lines records");
+		}
+		return count;
+	}
+
+	/**
+	 * Pass the records that have been parsed to the sink
+	 *
+	 * @param inFlight
+	 *           The records in flight, in line order
+	 * @param completed
+	 *           The records in the order they were parsed, when unordered
+	 * @param sink
+	 *           The sink
+	 * @param wait
+	 *           true to wait for at least one record to be passed to the sink
+	 * @return The number of records passed to the sink
+	 * @throws JsonException
+	 * @throws InterruptedException
+	 */
+	private int deliver(Deque<Record<T>> inFlight, CompletionService<Record<T>> completed, Sink<? super T> sink,
+			boolean wait) throws JsonException, InterruptedException {
+		int ret = 0;
+		while (!inFlight.isEmpty()) {
+			Future<Record<T>> future;
+			if (this.ordered) {
+				future = inFlight.peekFirst().future;
+				if (!wait && !future.isDone()) {
+					break;
+				}
+			} else {
+				future = wait ? completed.take() : completed.poll();
+				if (future == null) {
+					break;
+				}
+			}
+			Record<T> record;
+			try {
+				record = future.get();
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof JsonException) {
+					throw (JsonException) cause;
+				}
+				throw new JsonException("Failed to process JSON Lines record: " + cause.getMessage(), cause);
+			}
+			if (this.ordered) {
+				inFlight.removeFirst();
+			} else {
+				inFlight.remove(record);
+			}
+			try {
+				sink.accept(record.value, record.lineNumber);
+			} catch (JsonException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new JsonException(
+						"JSON Lines sink failed on line " + record.lineNumber + ": " + e.getMessage(), e);
+			}
+			ret++;
+			wait = false;
+		}
+		return ret;
+	}
+
+	/**
+	 * A line in flight
+	 *
+	 * @param <T>
+	 *           The type of the parsed record
+	 */
+	static private class Record<T> {
+
+		/**
+		 * The worker parsing the line
+		 */
+		Future<Record<T>>	future;
+		/**
+		 * The line
+		 */
+		final String		line;
+		/**
+		 * The line number
+		 */
+		final long			lineNumber;
+		/**
+		 * The parsed record, once the worker has finished
+		 */
+		T						value;
+
+		Record(String line, long lineNumber) {
+			super();
+			this.line = line;
+			this.lineNumber = lineNumber;
+		}
+	}
+}
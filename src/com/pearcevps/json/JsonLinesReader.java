@@ -0,0 +1,211 @@
+package com.pearcevps.json;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads newline delimited JSON (JSON Lines / NDJSON), i.e. a stream holding
+ * one JSON value per line. Records are read one at a time, so a file of any
+ * size can be streamed. Blank lines are skipped. Records can be read as
+ * {@link JsonValue} trees, bound to beans, or as raw lines to be parsed
+ * elsewhere, e.g. on a worker pool by a {@link JsonLinesProcessor}.
+ *
+ * <pre>
+ * try (JsonLinesReader reader = JsonLinesReader.open(path)) {
+ * 	JsonValue record;
+ * 	while ((record = reader.next()) != null) {
+ * 		...
+ * 	}
+ * }
+ * </pre>
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonLinesReader implements Closeable {
+
+	/**
+	 * Open a JSON Lines file for reading
+	 *
+	 * @param path
+	 *           The UTF-8 encoded file to read
+	 * @return The reader
+	 * @throws IOException
+	 *            Thrown if the file cannot be opened
+	 */
+	static public JsonLinesReader open(Path path) throws IOException {
+		return new JsonLinesReader(Files.newBufferedReader(path, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * The line number of the last line read, starting at 1
+	 */
+	private long						lineNumber	= 0;
+	/**
+	 * The stream the lines are read from
+	 */
+	private final BufferedReader	reader;
+
+	/**
+	 * Create a reader over a UTF-8 encoded stream
+	 *
+	 * @param in
+	 *           The stream to read
+	 */
+	public JsonLinesReader(InputStream in) {
+		this(new InputStreamReader(in, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Create a reader over a character stream
+	 *
+	 * @param in
+	 *           The stream to read
+	 */
+	public JsonLinesReader(Reader in) {
+		super();
+		if (in instanceof BufferedReader) {
+			this.reader = (BufferedReader) in;
+		} else {
+			this.reader = new BufferedReader(in);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.reader.close();
+	}
+
+	/**
+	 * Get the line number of the last line read
+	 *
+	 * @return The line number, starting at 1, or 0 if nothing has been read
+	 */
+	public long getLineNumber() {
+		return this.lineNumber;
+	}
+
+	/**
+	 * Read the next record as a tree of JsonValue objects
+	 *
+	 * @return The record, or null at the end of the stream
+	 * @throws IOException
+	 *            Thrown if the stream cannot be read
+	 * @throws JsonException
+	 *            Thrown if the line is not valid JSON
+	 */
+	public JsonValue next() throws IOException, JsonException {
+		String line = this.nextLine();
+		if (line == null) {
+			return null;
+		}
+		return JsonLinesReader.parse(line, this.lineNumber);
+	}
+
+	/**
+	 * Read the next record into a new bean. The record must be a JSON object.
+	 *
+	 * @param beanClass
+	 *           The class of the bean, which must have a default constructor
+	 * @return The bean, or null at the end of the stream
+	 * @throws IOException
+	 *            Thrown if the stream cannot be read
+	 * @throws JsonException
+	 *            Thrown if the line is not a valid JSON object
+	 * @throws InstantiationException
+	 * @throws IllegalAccessException
+	 * @throws InvocationTargetException
+	 * @throws ClassNotFoundException
+	 */
+	public <T> T nextBean(Class<T> beanClass) throws IOException, JsonException, InstantiationException,
+			IllegalAccessException, InvocationTargetException, ClassNotFoundException {
+		String line = this.nextLine();
+		if (line == null) {
+			return null;
+		}
+		return JsonLinesReader.bind(line, beanClass, this.lineNumber);
+	}
+
+	/**
+	 * Read the next non blank line, without parsing it
+	 *
+	 * @return The line, or null at the end of the stream
+	 * @throws IOException
+	 *            Thrown if the stream cannot be read
+	 */
+	public String nextLine() throws IOException {
+		String line;
+		do {
+			line = this.reader.readLine();
+			if (line == null) {
+				return null;
+			}
+			this.lineNumber++;
+		} while (line.trim().isEmpty());
+		return line;
+	}
+
+	/**
+	 * Parse a line into a tree of JsonValue objects
+	 *
+	 * @param line
+	 *           The line, holding a JSON value
+	 * @param lineNumber
+	 *           The line number, for error messages
+	 * @return The JSON value
+	 * @throws JsonException
+	 *            Thrown if the line is not valid JSON
+	 */
+	static JsonValue parse(String line, long lineNumber) throws JsonException {
+		try {
+			return JsonValue.getJsonValueFromString(line);
+		} catch (JsonException e) {
+			throw new JsonException("Invalid JSON on line " + lineNumber + ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Deserialize a line into a new bean
+	 *
+	 * @param line
+	 *           The line, holding a JSON object
+	 * @param beanClass
+	 *           The class of the bean, which must have a default constructor
+	 * @param lineNumber
+	 *           The line number, for error messages
+	 * @return The bean
+	 * @throws JsonException
+	 *            Thrown if the line is not a valid JSON object, or the bean
+	 *            cannot be created
+	 * @throws InstantiationException
+	 * @throws IllegalAccessException
+	 * @throws InvocationTargetException
+	 * @throws ClassNotFoundException
+	 */
+	static <T> T bind(String line, Class<T> beanClass, long lineNumber) throws JsonException, InstantiationException,
+			IllegalAccessException, InvocationTargetException, ClassNotFoundException {
+		if (!JsonValueObject.isJsonObject(line)) {
+			throw new JsonException("Line " + lineNumber + " is not a JSON object");
+		}
+		T bean;
+		try {
+			bean = beanClass.getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new JsonException("Cannot create a \"" + beanClass.getName() + "\" for line " + lineNumber + ": "
+					+ e, e);
+		}
+		try {
+			return beanClass.cast(JsonValueObject.deserializeJsonStringToAnObject(line, bean));
+		} catch (JsonException e) {
+			throw new JsonException("Invalid JSON on line " + lineNumber + ": " + e.getMessage(), e);
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package com.pearcevps.json;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes newline delimited JSON (JSON Lines / NDJSON), i.e. one JSON value per
+ * line. The compact form of a JsonValue never contains a raw line break, as
+ * line breaks within strings are always escaped.
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonLinesWriter implements Closeable, Flushable {
+
+	/**
+	 * Open a JSON Lines file for appending, creating it if it does not exist
+	 *
+	 * @param path
+	 *           The file to append to. Records are written as UTF-8.
+	 * @return The writer
+	 * @throws IOException
+	 *            Thrown if the file cannot be opened
+	 */
+	static public JsonLinesWriter append(Path path) throws IOException {
+		return new JsonLinesWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+				StandardOpenOption.APPEND, StandardOpenOption.WRITE));
+	}
+
+	/**
+	 * The number of records written
+	 */
+	private long				count	= 0;
+	/**
+	 * The stream the records are written to
+	 */
+	private final Writer		writer;
+
+	/**
+	 * Create a writer over a stream. Records are written as UTF-8.
+	 *
+	 * @param out
+	 *           The stream to write to
+	 */
+	public JsonLinesWriter(OutputStream out) {
+		this(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * Create a writer over a character stream
+	 *
+	 * @param out
+	 *           The stream to write to
+	 */
+	public JsonLinesWriter(Writer out) {
+		super();
+		this.writer = out;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.writer.close();
+	}
+
+	@Override
+	public void flush() throws IOException {
+		this.writer.flush();
+	}
+
+	/**
+	 * Get the number of records written
+	 *
+	 * @return The number of records
+	 */
+	public long getCount() {
+		return this.count;
+	}
+
+	/**
+	 * Append a record
+	 *
+	 * @param value
+	 *           The record
+	 * @throws IOException
+	 *            Thrown if the stream cannot be written
+	 * @throws JsonException
+	 *            Thrown if the record is null
+	 */
+	public void write(JsonValue value) throws IOException, JsonException {
+		if (value == null) {
+			throw new JsonException("Cannot write a null JSON Lines record");
+		}
+		value.writeTo(new JsonWriter(this.writer));
+		this.writer.write('\n');
+		this.count++;
+	}
+
+	/**
+	 * Append a bean as a record
+	 *
+	 * @param bean
+	 *           The bean to serialize
+	 * @throws IOException
+	 *            Thrown if the stream cannot be written
+	 * @throws JsonException
+	 *            Thrown if the bean cannot be serialized
+	 * @throws IllegalAccessException
+	 */
+	public void writeBean(Object bean) throws IOException, JsonException, IllegalAccessException {
+		if (bean == null) {
+			throw new JsonException("Cannot write a null JSON Lines record");
+		}
+		JsonValueObject.serializeBean(bean, new JsonWriter(this.writer));
+		this.writer.write('\n');
+		this.count++;
+	}
+
+	/**
+	 * Append a line that already holds a single JSON value
+	 *
+	 * @param json
+	 *           The JSON value. It must not contain a line break.
+	 * @throws IOException
+	 *            Thrown if the stream cannot be written
+	 * @throws JsonException
+	 *            Thrown if the line contains a line break
+	 */
+	public void writeLine(String json) throws IOException, JsonException {
+		if ((json.indexOf('\n') >= 0) || (json.indexOf('\r') >= 0)) {
+			throw new JsonException("A JSON Lines record cannot contain a line break");
+		}
+		this.writer.write(json);
+		this.writer.write('\n');
+		this.count++;
+	}
+}
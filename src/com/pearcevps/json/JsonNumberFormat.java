@@ -0,0 +1,442 @@
+package com.pearcevps.json;
+
+import java.math.BigInteger;
+
+/**
+ * Formats doubles and floats as the shortest decimal that reads back as
+ * exactly the same value, using Raffaello Giulietti's Schubfach algorithm. A
+ * float is formatted at its own precision, so 0.1f is written as 0.1 rather
+ * than as the 0.10000000149011612 of the double it widens to.
+ *
+ * The layout is that of {@link Double#toString(double)}: plain for
+ * magnitudes from 10<sup>-3</sup> up to 10<sup>7</sup>, e.g. 2.5 and 100.0,
+ * and otherwise scientific, e.g. 1.0E10 and 2.5E-5. NaN and the infinities
+ * are written as Double.toString writes them.
+ *
+ * The format methods write into a caller's char array and allocate nothing.
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonNumberFormat {
+
+	/**
+	 * The most characters written for one number, e.g.
+	 * -2.2250738585072014E-308
+	 */
+	static public final int		MAX_LENGTH	= 24;
+
+	//////////////////////////////
+	// The binary layout of a double
+	static private final long	C_MIN			= 1L << 52;
+	static private final int	C_TINY		= 3;
+	static private final int	Q_MIN			= -1074;
+
+	//////////////////////////////
+	// The binary layout of a float
+	static private final int	F_C_MIN		= 1 << 23;
+	static private final int	F_C_TINY		= 8;
+	static private final int	F_Q_MIN		= -149;
+
+	//////////////////////////////
+	// The range of decimal exponents in the table of powers of ten
+	static private final int	K_MAX			= 292;
+	static private final int	K_MIN			= -324;
+
+	static private final long	MASK_32		= 0xFFFFFFFFL;
+	static private final long	MASK_63		= 0x7FFFFFFFFFFFFFFFL;
+
+	/**
+	 * For each k from K_MIN to K_MAX, the two 63 bit halves of g, where
+	 * g - 1 &lt;= 10<sup>-k</sup> 2<sup>r</sup> &lt; g and 2<sup>125</sup>
+	 * &lt;= g &lt; 2<sup>126</sup>
+	 */
+	static private final long[]	G				= new long[2 * ((JsonNumberFormat.K_MAX - JsonNumberFormat.K_MIN) + 1)];
+
+	static {
+		for (int k = JsonNumberFormat.K_MIN; k <= JsonNumberFormat.K_MAX; k++) {
+			int shift = 125 - JsonNumberFormat.flog2pow10(-k);
+			BigInteger g;
+			if (k > 0) {
+				g = BigInteger.ONE.shiftLeft(shift).divide(BigInteger.TEN.pow(k));
+			} else if (shift >= 0) {
+				g = BigInteger.TEN.pow(-k).shiftLeft(shift);
+			} else {
+				g = BigInteger.TEN.pow(-k).shiftRight(-shift);
+			}
+			g = g.add(BigInteger.ONE);
+			int i = 2 * (k - JsonNumberFormat.K_MIN);
+			JsonNumberFormat.G[i] = g.shiftRight(63).longValue();
+			JsonNumberFormat.G[i + 1] = g.longValue() & JsonNumberFormat.MASK_63;
+		}
+	}
+
+	/**
+	 * Write the shortest decimal for a double
+	 *
+	 * @param value
+	 *           The value
+	 * @param buffer
+	 *           The array to write to, with room for {@link #MAX_LENGTH}
+	 *           characters from the offset
+	 * @param offset
+	 *           The index to write the first character at
+	 * @return The index after the last character written
+	 */
+	static public int format(double value, char[] buffer, int offset) {
+		long bits = Double.doubleToRawLongBits(value);
+		long t = bits & (JsonNumberFormat.C_MIN - 1);
+		int bq = (int) (bits >>> 52) & 0x7FF;
+		if (bq == 0x7FF) {
+			return JsonNumberFormat.special(t != 0, bits < 0, buffer, offset);
+		}
+		int pos = offset;
+		if (bits < 0) {
+			buffer[pos++] = '-';
+		}
+		if (bq != 0) {
+			//////////////////////////////
+			// A normal value. Small integers are written as they are.
+			int mq = (-JsonNumberFormat.Q_MIN + 1) - bq;
+			long c = JsonNumberFormat.C_MIN | t;
+			if ((0 < mq) && (mq < 53)) {
+				long f = c >> mq;
+				if ((f << mq) == c) {
+					return JsonNumberFormat.toChars(f, 0, buffer, pos);
+				}
+			}
+			return JsonNumberFormat.toDecimal(-mq, c, 0, buffer, pos);
+		}
+		if (t != 0) {
+			//////////////////////////////
+			// A subnormal value. The tiniest need an extra digit of precision.
+			return (t < JsonNumberFormat.C_TINY)
+					? JsonNumberFormat.toDecimal(JsonNumberFormat.Q_MIN, 10 * t, -1, buffer, pos)
+					: JsonNumberFormat.toDecimal(JsonNumberFormat.Q_MIN, t, 0, buffer, pos);
+		}
+		return JsonNumberFormat.zero(buffer, pos);
+	}
+
+	/**
+	 * Write the shortest decimal for a float
+	 *
+	 * @param value
+	 *           The value
+	 * @param buffer
+	 *           The array to write to, with room for {@link #MAX_LENGTH}
+	 *           characters from the offset
+	 * @param offset
+	 *           The index to write the first character at
+	 * @return The index after the last character written
+	 */
+	static public int format(float value, char[] buffer, int offset) {
+		int bits = Float.floatToRawIntBits(value);
+		int t = bits & (JsonNumberFormat.F_C_MIN - 1);
+		int bq = (bits >>> 23) & 0xFF;
+		if (bq == 0xFF) {
+			return JsonNumberFormat.special(t != 0, bits < 0, buffer, offset);
+		}
+		int pos = offset;
+		if (bits < 0) {
+			buffer[pos++] = '-';
+		}
+		if (bq != 0) {
+			int mq = (-JsonNumberFormat.F_Q_MIN + 1) - bq;
+			int c = JsonNumberFormat.F_C_MIN | t;
+			if ((0 < mq) && (mq < 24)) {
+				int f = c >> mq;
+				if ((f << mq) == c) {
+					return JsonNumberFormat.toChars(f, 0, buffer, pos);
+				}
+			}
+			return JsonNumberFormat.toDecimalFloat(-mq, c, 0, buffer, pos);
+		}
+		if (t != 0) {
+			return (t < JsonNumberFormat.F_C_TINY)
+					? JsonNumberFormat.toDecimalFloat(JsonNumberFormat.F_Q_MIN, 10 * t, -1, buffer, pos)
+					: JsonNumberFormat.toDecimalFloat(JsonNumberFormat.F_Q_MIN, t, 0, buffer, pos);
+		}
+		return JsonNumberFormat.zero(buffer, pos);
+	}
+
+	/**
+	 * Get the shortest decimal for a double
+	 *
+	 * @param value
+	 *           The value
+	 * @return The decimal
+	 */
+	static public String toString(double value) {
+		char[] buffer = new char[JsonNumberFormat.MAX_LENGTH];
+		return new String(buffer, 0, JsonNumberFormat.format(value, buffer, 0));
+	}
+
+	/**
+	 * Get the shortest decimal for a float
+	 *
+	 * @param value
+	 *           The value
+	 * @return The decimal
+	 */
+	static public String toString(float value) {
+		char[] buffer = new char[JsonNumberFormat.MAX_LENGTH];
+		return new String(buffer, 0, JsonNumberFormat.format(value, buffer, 0));
+	}
+
+	/**
+	 * floor(e log<sub>10</sub>(2)), for |e| &lt;= 5456721
+	 */
+	static private int flog10pow2(int e) {
+		return (int) ((e * 661_971_961_083L) >> 41);
+	}
+
+	/**
+	 * floor(e log<sub>10</sub>(2) + log<sub>10</sub>(3/4)), for |e| &lt;=
+	 * 1838394
+	 */
+	static private int flog10threeQuartersPow2(int e) {
+		return (int) (((e * 661_971_961_083L) - 274_743_187_321L) >> 41);
+	}
+
+	/**
+	 * floor(e log<sub>2</sub>(10)), for |e| &lt;= 1233
+	 */
+	static private int flog2pow10(int e) {
+		return (int) ((e * 913_124_641_741L) >> 38);
+	}
+
+	/**
+	 * The high 64 bits of the 128 bit product of two non-negative longs
+	 */
+	static private long multiplyHigh(long x, long y) {
+		long x1 = x >>> 32;
+		long x0 = x & JsonNumberFormat.MASK_32;
+		long y1 = y >>> 32;
+		long y0 = y & JsonNumberFormat.MASK_32;
+		long p01 = x0 * y1;
+		long p10 = x1 * y0;
+		long mid = ((x0 * y0) >>> 32) + (p01 & JsonNumberFormat.MASK_32) + (p10 & JsonNumberFormat.MASK_32);
+		return (x1 * y1) + (p01 >>> 32) + (p10 >>> 32) + (mid >>> 32);
+	}
+
+	/**
+	 * Round to odd the product of g and cp, scaled down by 2<sup>127</sup>
+	 */
+	static private long rop(long g1, long g0, long cp) {
+		long x1 = JsonNumberFormat.multiplyHigh(g0, cp);
+		long y0 = g1 * cp;
+		long y1 = JsonNumberFormat.multiplyHigh(g1, cp);
+		long z = (y0 >>> 1) + x1;
+		long vbp = y1 + (z >>> 63);
+		return vbp | (((z & JsonNumberFormat.MASK_63) + JsonNumberFormat.MASK_63) >>> 63);
+	}
+
+	/**
+	 * Round to odd the product of g and cp, scaled down by 2<sup>95</sup>
+	 */
+	static private int ropFloat(long g, long cp) {
+		long x1 = JsonNumberFormat.multiplyHigh(g, cp);
+		long vbp = x1 >>> 31;
+		return (int) (vbp | (((x1 & JsonNumberFormat.MASK_32) + JsonNumberFormat.MASK_32) >>> 32));
+	}
+
+	/**
+	 * Write NaN or an infinity
+	 */
+	static private int special(boolean nan, boolean negative, char[] buffer, int pos) {
+		String s = nan ? "NaN" : (negative ? "-Infinity" : "Infinity");
+		s.getChars(0, s.length(), buffer, pos);
+		return pos + s.length();
+	}
+
+	/**
+	 * Write the decimal f 10<sup>e</sup>, laid out as Double.toString does
+	 *
+	 * @param f
+	 *           The significand, which is positive
+	 * @param e
+	 *           The exponent
+	 * @param buffer
+	 *           The array to write to
+	 * @param pos
+	 *           The index to write the first character at
+	 * @return The index after the last character written
+	 */
+	static private int toChars(long f, int e, char[] buffer, int pos) {
+		while ((f % 10) == 0) {
+			f /= 10;
+			e++;
+		}
+		int digits = 1;
+		for (long rest = f / 10; rest != 0; rest /= 10) {
+			digits++;
+		}
+		//////////////////////////////
+		// The value is 0.ddd 10^exponent
+		int exponent = e + digits;
+		if ((-3 < exponent) && (exponent <= 0)) {
+			buffer[pos++] = '0';
+			buffer[pos++] = '.';
+			for (int i = exponent; i < 0; i++) {
+				buffer[pos++] = '0';
+			}
+			return JsonNumberFormat.writeDigits(f, digits, buffer, pos);
+		}
+		int end = JsonNumberFormat.writeDigits(f, digits, buffer, pos);
+		if ((0 < exponent) && (exponent <= 7)) {
+			if (digits <= exponent) {
+				for (int i = digits; i < exponent; i++) {
+					buffer[end++] = '0';
+				}
+				buffer[end++] = '.';
+				buffer[end++] = '0';
+				return end;
+			}
+			System.arraycopy(buffer, pos + exponent, buffer, pos + exponent + 1, digits - exponent);
+			buffer[pos + exponent] = '.';
+			return end + 1;
+		}
+		if (digits == 1) {
+			buffer[end++] = '.';
+			buffer[end++] = '0';
+		} else {
+			System.arraycopy(buffer, pos + 1, buffer, pos + 2, digits - 1);
+			buffer[pos + 1] = '.';
+			end++;
+		}
+		buffer[end++] = 'E';
+		int scale = exponent - 1;
+		if (scale < 0) {
+			buffer[end++] = '-';
+			scale = -scale;
+		}
+		int scaleDigits = (scale >= 100) ? 3 : ((scale >= 10) ? 2 : 1);
+		return JsonNumberFormat.writeDigits(scale, scaleDigits, buffer, end);
+	}
+
+	/**
+	 * Find the shortest decimal in the rounding interval of the double c
+	 * 2<sup>q</sup>, and the closest to it if there are two
+	 */
+	static private int toDecimal(int q, long c, int dk, char[] buffer, int pos) {
+		int out = (int) c & 0x1;
+		long cb = c << 2;
+		long cbr = cb + 2;
+		long cbl;
+		int k;
+		//////////////////////////////
+		// The interval is asymmetric when c is a power of two
+		if ((c != JsonNumberFormat.C_MIN) || (q == JsonNumberFormat.Q_MIN)) {
+			cbl = cb - 2;
+			k = JsonNumberFormat.flog10pow2(q);
+		} else {
+			cbl = cb - 1;
+			k = JsonNumberFormat.flog10threeQuartersPow2(q);
+		}
+		int h = q + JsonNumberFormat.flog2pow10(-k) + 2;
+		int i = 2 * (k - JsonNumberFormat.K_MIN);
+		long g1 = JsonNumberFormat.G[i];
+		long g0 = JsonNumberFormat.G[i + 1];
+		long vb = JsonNumberFormat.rop(g1, g0, cb << h);
+		long vbl = JsonNumberFormat.rop(g1, g0, cbl << h);
+		long vbr = JsonNumberFormat.rop(g1, g0, cbr << h);
+		long s = vb >> 2;
+		if (s >= 100) {
+			//////////////////////////////
+			// Try one digit fewer first
+			long sp10 = 10 * (s / 10);
+			long tp10 = sp10 + 10;
+			boolean upin = (vbl + out) <= (sp10 << 2);
+			boolean wpin = ((tp10 << 2) + out) <= vbr;
+			if (upin != wpin) {
+				return JsonNumberFormat.toChars(upin ? sp10 : tp10, k, buffer, pos);
+			}
+		}
+		long t = s + 1;
+		boolean uin = (vbl + out) <= (s << 2);
+		boolean win = ((t << 2) + out) <= vbr;
+		if (uin != win) {
+			return JsonNumberFormat.toChars(uin ? s : t, k + dk, buffer, pos);
+		}
+		long cmp = vb - ((s + t) << 1);
+		return JsonNumberFormat.toChars(((cmp < 0) || ((cmp == 0) && ((s & 0x1) == 0))) ? s : t, k + dk, buffer, pos);
+	}
+
+	/**
+	 * Find the shortest decimal in the rounding interval of the float c
+	 * 2<sup>q</sup>, and the closest to it if there are two
+	 */
+	static private int toDecimalFloat(int q, int c, int dk, char[] buffer, int pos) {
+		int out = c & 0x1;
+		long cb = (long) c << 2;
+		long cbr = cb + 2;
+		long cbl;
+		int k;
+		if ((c != JsonNumberFormat.F_C_MIN) || (q == JsonNumberFormat.F_Q_MIN)) {
+			cbl = cb - 2;
+			k = JsonNumberFormat.flog10pow2(q);
+		} else {
+			cbl = cb - 1;
+			k = JsonNumberFormat.flog10threeQuartersPow2(q);
+		}
+		int h = q + JsonNumberFormat.flog2pow10(-k) + 33;
+		long g = JsonNumberFormat.G[2 * (k - JsonNumberFormat.K_MIN)] + 1;
+		int vb = JsonNumberFormat.ropFloat(g, cb << h);
+		int vbl = JsonNumberFormat.ropFloat(g, cbl << h);
+		int vbr = JsonNumberFormat.ropFloat(g, cbr << h);
+		int s = vb >> 2;
+		if (s >= 100) {
+			int sp10 = 10 * (s / 10);
+			int tp10 = sp10 + 10;
+			boolean upin = (vbl + out) <= (sp10 << 2);
+			boolean wpin = ((tp10 << 2) + out) <= vbr;
+			if (upin != wpin) {
+				return JsonNumberFormat.toChars(upin ? sp10 : tp10, k, buffer, pos);
+			}
+		}
+		int t = s + 1;
+		boolean uin = (vbl + out) <= (s << 2);
+		boolean win = ((t << 2) + out) <= vbr;
+		if (uin != win) {
+			return JsonNumberFormat.toChars(uin ? s : t, k + dk, buffer, pos);
+		}
+		int cmp = vb - ((s + t) << 1);
+		return JsonNumberFormat.toChars(((cmp < 0) || ((cmp == 0) && ((s & 0x1) == 0))) ? s : t, k + dk, buffer, pos);
+	}
+
+	/**
+	 * Write the decimal digits of a non-negative number
+	 *
+	 * @param value
+	 *           The number
+	 * @param digits
+	 *           The number of digits it has
+	 * @param buffer
+	 *           The array to write to
+	 * @param pos
+	 *           The index to write the first digit at
+	 * @return The index after the last digit
+	 */
+	static private int writeDigits(long value, int digits, char[] buffer, int pos) {
+		int end = pos + digits;
+		for (int i = end - 1; i >= pos; i--) {
+			buffer[i] = (char) ('0' + (value % 10));
+			value /= 10;
+		}
+		return end;
+	}
+
+	/**
+	 * Write zero
+	 */
+	static private int zero(char[] buffer, int pos) {
+		buffer[pos++] = '0';
+		buffer[pos++] = '.';
+		buffer[pos++] = '0';
+		return pos;
+	}
+
+	private JsonNumberFormat() {
+		super();
+	}
+}
@@ -0,0 +1,343 @@
+package com.pearcevps.json;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * A hand written scanner for JSON numbers. A scanner is reused for every
+ * number in a document, and scanning an integer that fits in a long, or a
+ * double, allocates nothing. Integers are accumulated directly into a long, and
+ * most decimals are converted to the nearest double exactly by a single
+ * multiplication or division by a power of ten (Clinger's fast path). Other
+ * decimals fall back to {@link Double#parseDouble(String)}.
+ * <p>
+ * Integers too large for a long are scanned as a {@link BigInteger}, and
+ * decimals outside the range of a double (that would otherwise become infinite
+ * or zero) as a {@link BigDecimal}, so no value loses its magnitude.
+ * <p>
+ * The grammar is that of RFC 8259, except that, for compatibility with earlier
+ * versions of this library, integers with no fraction or exponent may have
+ * leading zeros.
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonNumberScanner {
+
+	/**
+	 * The kinds of number that can be scanned
+	 */
+	public enum Kind {
+		BIG_DECIMAL, BIG_INTEGER, DOUBLE, INVALID, LONG
+	}
+
+	/**
+	 * The most significant digits accumulated into a long; 18 digits cannot
+	 * overflow
+	 */
+	static private final int		MAX_DIGITS		= 18;
+	/**
+	 * The largest mantissa that is exactly representable as a double, 2^53
+	 */
+	static private final long		MAX_EXACT		= 1L << 53;
+	/**
+	 * The powers of ten that are exactly representable as doubles
+	 */
+	static private final double[]	POWERS_OF_TEN	= { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	/**
+	 * Is a whole string a number that this scanner accepts?
+	 *
+	 * @param value
+	 *           The string to check
+	 * @return true if the string is a number
+	 */
+	static public boolean isNumber(String value) {
+		return (value != null) && (new JsonNumberScanner().scan(value, 0, value.length()) != Kind.INVALID);
+	}
+
+	/**
+	 * The value of the last number scanned, if it was a BigDecimal
+	 */
+	private BigDecimal	bigDecimalValue	= null;
+	/**
+	 * The value of the last number scanned, if it was a BigInteger
+	 */
+	private BigInteger	bigIntegerValue	= null;
+	/**
+	 * The value of the last number scanned, if it was a double
+	 */
+	private double			doubleValue			= 0;
+	/**
+	 * The kind of the last number scanned
+	 */
+	private Kind			kind					= Kind.INVALID;
+	/**
+	 * The value of the last number scanned, if it was a long
+	 */
+	private long			longValue			= 0;
+
+	/**
+	 * Push the last number scanned to a handler
+	 *
+	 * @param handler
+	 *           The handler
+	 * @throws JsonException
+	 *            Thrown if the last scan was not a valid number, or by the
+	 *            handler
+	 */
+	public void emit(JsonHandler handler) throws JsonException {
+		switch (this.kind) {
+		case LONG:
+			handler.value(this.longValue);
+			break;
+		case DOUBLE:
+			handler.value(this.doubleValue);
+			break;
+		case BIG_INTEGER:
+			handler.value(this.bigIntegerValue);
+			break;
+		case BIG_DECIMAL:
+			handler.value(this.bigDecimalValue);
+			break;
+		default:
+			throw new JsonException("No valid JSON number has been scanned");
+		}
+	}
+
+	/**
+	 * Get the value of the last number scanned as a BigDecimal
+	 *
+	 * @return The value
+	 */
+	public BigDecimal getBigDecimal() {
+		switch (this.kind) {
+		case LONG:
+			return BigDecimal.valueOf(this.longValue);
+		case DOUBLE:
+			return new BigDecimal(this.doubleValue);
+		case BIG_INTEGER:
+			return new BigDecimal(this.bigIntegerValue);
+		default:
+			return this.bigDecimalValue;
+		}
+	}
+
+	/**
+	 * Get the value of the last number scanned as a BigInteger
+	 *
+	 * @return The value, truncated if it has a fraction
+	 */
+	public BigInteger getBigInteger() {
+		switch (this.kind) {
+		case LONG:
+			return BigInteger.valueOf(this.longValue);
+		case BIG_INTEGER:
+			return this.bigIntegerValue;
+		default:
+			BigDecimal value = this.getBigDecimal();
+			return (value == null) ? null : value.toBigInteger();
+		}
+	}
+
+	/**
+	 * Get the value of the last number scanned as a double
+	 *
+	 * @return The value, which may be infinite or zero for a BigDecimal
+	 */
+	public double getDouble() {
+		switch (this.kind) {
+		case LONG:
+			return this.longValue;
+		case DOUBLE:
+			return this.doubleValue;
+		case BIG_INTEGER:
+			return this.bigIntegerValue.doubleValue();
+		case BIG_DECIMAL:
+			return this.bigDecimalValue.doubleValue();
+		default:
+			return Double.NaN;
+		}
+	}
+
+	/**
+	 * Get the kind of the last number scanned
+	 *
+	 * @return The kind, or {@link Kind#INVALID} if the last scan failed
+	 */
+	public Kind getKind() {
+		return this.kind;
+	}
+
+	/**
+	 * Get the value of the last number scanned as a long
+	 *
+	 * @return The value, truncated if it has a fraction
+	 */
+	public long getLong() {
+		switch (this.kind) {
+		case LONG:
+			return this.longValue;
+		case DOUBLE:
+			return (long) this.doubleValue;
+		case BIG_INTEGER:
+			return this.bigIntegerValue.longValue();
+		case BIG_DECIMAL:
+			return this.bigDecimalValue.longValue();
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * Scan a number from a range of characters. The range must hold the number
+	 * and nothing else.
+	 *
+	 * @param s
+	 *           The characters
+	 * @param start
+	 *           The index of the first character of the number
+	 * @param end
+	 *           One past the index of the last character of the number
+	 * @return The kind of number scanned, or {@link Kind#INVALID}
+	 */
+	public Kind scan(CharSequence s, int start, int end) {
+		this.kind = Kind.INVALID;
+		this.bigDecimalValue = null;
+		this.bigIntegerValue = null;
+		int i = start;
+		if (i >= end) {
+			return this.kind;
+		}
+		boolean negative = false;
+		boolean strictInteger = true;
+		char c = s.charAt(i);
+		if (c == '-') {
+			negative = true;
+			i++;
+		}
+
+		//////////////////////////////
+		// The integer part: accumulate up to MAX_DIGITS significant digits,
+		// counting the rest in the decimal exponent
+		long mantissa = 0;
+		int significant = 0;
+		int exponent = 0;
+		boolean truncated = false;
+		int digitsStart = i;
+		while ((i < end) && ((c = s.charAt(i)) >= '0') && (c <= '9')) {
+			if (significant < JsonNumberScanner.MAX_DIGITS) {
+				mantissa = (mantissa * 10) + (c - '0');
+				if (mantissa != 0) {
+					significant++;
+				}
+			} else {
+				exponent++;
+				truncated |= c != '0';
+			}
+			i++;
+		}
+		int digits = i - digitsStart;
+		if (digits == 0) {
+			return this.kind;
+		}
+		boolean leadingZero = (digits > 1) && (s.charAt(digitsStart) == '0');
+
+		//////////////////////////////
+		// The fraction
+		if ((i < end) && (s.charAt(i) == '.')) {
+			strictInteger = false;
+			i++;
+			int fractionStart = i;
+			while ((i < end) && ((c = s.charAt(i)) >= '0') && (c <= '9')) {
+				if (significant < JsonNumberScanner.MAX_DIGITS) {
+					mantissa = (mantissa * 10) + (c - '0');
+					exponent--;
+					if (mantissa != 0) {
+						significant++;
+					}
+				} else {
+					truncated |= c != '0';
+				}
+				i++;
+			}
+			if (i == fractionStart) {
+				return this.kind;
+			}
+			digits += i - fractionStart;
+		}
+
+		//////////////////////////////
+		// The exponent, saturated well outside the range of a double
+		if ((i < end) && (((c = s.charAt(i)) == 'e') || (c == 'E'))) {
+			strictInteger = false;
+			i++;
+			boolean negativeExponent = false;
+			if ((i < end) && (((c = s.charAt(i)) == '+') || (c == '-'))) {
+				negativeExponent = c == '-';
+				i++;
+			}
+			int exponentStart = i;
+			int explicit = 0;
+			while ((i < end) && ((c = s.charAt(i)) >= '0') && (c <= '9')) {
+				if (explicit < 100000) {
+					explicit = (explicit * 10) + (c - '0');
+				}
+				i++;
+			}
+			if (i == exponentStart) {
+				return this.kind;
+			}
+			exponent += negativeExponent ? -explicit : explicit;
+		}
+		if ((i != end) || (leadingZero && !strictInteger)) {
+			return this.kind;
+		}
+
+		//////////////////////////////
+		// Integers
+		if (strictInteger) {
+			if (digits <= JsonNumberScanner.MAX_DIGITS) {
+				this.longValue = negative ? -mantissa : mantissa;
+				return this.kind = Kind.LONG;
+			}
+			String token = s.subSequence(start, end).toString();
+			BigInteger big = new BigInteger(token);
+			if (big.bitLength() < 64) {
+				this.longValue = big.longValue();
+				return this.kind = Kind.LONG;
+			}
+			this.bigIntegerValue = big;
+			return this.kind = Kind.BIG_INTEGER;
+		}
+
+		//////////////////////////////
+		// Decimals: exact when the mantissa and power of ten are both exact
+		if (!truncated && (mantissa <= JsonNumberScanner.MAX_EXACT)
+				&& (exponent >= -(JsonNumberScanner.POWERS_OF_TEN.length - 1))
+				&& (exponent <= (JsonNumberScanner.POWERS_OF_TEN.length - 1))) {
+			double value = mantissa;
+			if (exponent < 0) {
+				value /= JsonNumberScanner.POWERS_OF_TEN[-exponent];
+			} else {
+				value *= JsonNumberScanner.POWERS_OF_TEN[exponent];
+			}
+			this.doubleValue = negative ? -value : value;
+			return this.kind = Kind.DOUBLE;
+		}
+		String token = s.subSequence(start, end).toString();
+		double value = Double.parseDouble(token);
+		if (Double.isInfinite(value) || ((value == 0) && (mantissa != 0))) {
+			try {
+				this.bigDecimalValue = new BigDecimal(token);
+			} catch (NumberFormatException e) {
+				// An exponent too large even for a BigDecimal
+				return this.kind;
+			}
+			return this.kind = Kind.BIG_DECIMAL;
+		}
+		this.doubleValue = value;
+		return this.kind = Kind.DOUBLE;
+	}
+}
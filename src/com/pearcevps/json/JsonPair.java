@@ -1,21 +1,29 @@
 package com.pearcevps.json;
 
-import java.lang.annotation.Annotation;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Field;
-import java.lang.reflect.Member;
-import java.lang.reflect.Modifier;
 import java.net.URI;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
 public class JsonPair {
 
-	private JsonString		name;
-	private boolean			printNullLocal	= JsonPair.printNull;
-	private JsonValue			value;
-	static public boolean	printNull		= true;
+	private JsonString					name;
+	private boolean						printNullLocal	= JsonPair.printNull;
+	/**
+	 * The objects whose cached JSON text holds this pair, or null
+	 */
+	volatile JsonValue[]					textOwners		= null;
+	private JsonValue						value;
+	/**
+	 * Whether pairs with a null value are printed by default, i.e. by contexts
+	 * created without an explicit setting
+	 */
+	static public volatile boolean	printNull		= true;
 
 	public JsonPair(JsonString name, JsonValue value) {
 		super();
@@ -44,7 +52,14 @@ public class JsonPair {
 	}
 
 	public void setName(JsonString name) {
+		JsonValue[] owners = this.textOwners;
+		if ((owners != null) && (this.name != null)) {
+			for (JsonValue owner : owners) {
+				this.name.removeTextOwner(owner);
+			}
+		}
 		this.name = name;
+		JsonValue.textChanged(owners);
 	}
 
 	public void setPrintNullLocal(boolean printNullLocal) {
@@ -52,36 +67,110 @@ public class JsonPair {
 	}
 
 	public void setValue(JsonValue value) {
+		JsonValue[] owners = this.textOwners;
+		if ((owners != null) && (this.value != null)) {
+			for (JsonValue owner : owners) {
+				this.value.removeTextOwner(owner);
+			}
+		}
 		this.value = value;
+		JsonValue.textChanged(owners);
 	}
 
-	@Override
-	public String toString() {
-		this.printNullLocal = JsonPair.printNull;
-		if ((this.name == null) && !this.printNullLocal) {
-			return "";
+	/**
+	 * Add an object whose cached JSON text holds this pair, and link the name
+	 * and value of the pair to it
+	 *
+	 * @param owner
+	 *           The object
+	 */
+	void addTextOwner(JsonValue owner) {
+		if (!JsonValue.hasOwner(this.textOwners, owner)) {
+			synchronized (this) {
+				this.textOwners = JsonValue.addOwner(this.textOwners, owner);
+			}
+		}
+		if (this.name != null) {
+			this.name.addTextOwner(owner);
 		}
-		if ((this.name == null) && this.printNullLocal) {
-			return "\"\": \"\"";
+		if (this.value != null) {
+			this.value.addTextOwner(owner);
 		}
+	}
 
-		if (!this.printNullLocal) {
-			if (this.value == null) {
-				return "";
-			}
-			if (this.value.isNull()) {
-				return "";
+	/**
+	 * Remove an object that no longer holds this pair, and unlink the name and
+	 * value of the pair from it
+	 *
+	 * @param owner
+	 *           The object
+	 */
+	void removeTextOwner(JsonValue owner) {
+		if (JsonValue.hasOwner(this.textOwners, owner)) {
+			synchronized (this) {
+				this.textOwners = JsonValue.removeOwner(this.textOwners, owner);
 			}
 		}
-		if (this.printNullLocal) {
-			if (this.value == null) {
-				return this.name.toString() + ": " + new JsonValueNull().toString();
+		if (this.name != null) {
+			this.name.removeTextOwner(owner);
+		}
+		if (this.value != null) {
+			this.value.removeTextOwner(owner);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return this.toString(new WriteContext());
+	}
+
+	/**
+	 * Print this pair
+	 *
+	 * @param context
+	 *           The options for printing, including whether null values are
+	 *           printed
+	 * @return The pair, or an empty string if it is not printed
+	 */
+	public String toString(WriteContext context) {
+		StringBuilder ret = new StringBuilder();
+		try {
+			this.writeTo(new JsonWriter(ret, context));
+		} catch (IOException e) {
+			// A StringBuilder never throws
+			throw new UncheckedIOException(e);
+		}
+		return ret.toString();
+	}
+
+	/**
+	 * Write this pair, as the next member of an object, to a writer. Nothing is
+	 * written if the pair is not printed.
+	 *
+	 * @param writer
+	 *           The writer, which also holds the options for writing, including
+	 *           whether null values are printed
+	 * @throws IOException
+	 *            Thrown by the writer's output
+	 */
+	public void writeTo(JsonWriter writer) throws IOException {
+		boolean printNull = writer.getContext().isPrintNull();
+		if (this.name == null) {
+			if (printNull) {
+				writer.escapedName(null);
+				writer.escapedValue(null);
 			}
-			if (this.value.isNull()) {
-				return this.name.toString() + ": " + new JsonValueNull().toString();
+			return;
+		}
+		if ((this.value == null) || this.value.isNull()) {
+			if (printNull) {
+				writer.escapedName(this.name.getJsonStr());
+				writer.nullValue();
 			}
+			return;
 		}
-		return this.name.toString() + ": " + this.value.toString();
+		writer.escapedName(this.name.getJsonStr());
+		this.value.writeTo(writer);
 	}
 
 	/**
@@ -117,390 +206,801 @@ public class JsonPair {
 	 */
 	static public List<JsonPair> createStringPairsFromBean(Object beanObj)
 			throws JsonException, IllegalArgumentException, IllegalAccessException {
+		return JsonPair.createStringPairsFromBean(beanObj, new WriteContext());
+	}
+
+	/**
+	 * Read a Java POJO's fields into a list of Json Pairs, as
+	 * {@link #createStringPairsFromBean(Object)}, tracking the nesting of beans
+	 * in a context
+	 *
+	 * @param beanObj
+	 *           The POJO that is to be read to create the list of JsonPair
+	 *           objects
+	 * @param context
+	 *           The context of this serialization, holding its depth and field
+	 *           recursion limits
+	 * @return The list of JsonPair objects parsed from the POJO
+	 * @throws JsonException
+	 * @throws IllegalArgumentException
+	 * @throws IllegalAccessException
+	 */
+	static public List<JsonPair> createStringPairsFromBean(Object beanObj, WriteContext context)
+			throws JsonException, IllegalArgumentException, IllegalAccessException {
 		List<JsonPair> ret = new LinkedList<JsonPair>();
-		List<Field> fields = new LinkedList<Field>();
-		List<String> ignoredFields = new LinkedList<String>();
-		Class<? extends Object> thisclass = beanObj.getClass();
-		fields.addAll(Arrays.asList(thisclass.getDeclaredFields()));
-		while (thisclass.getSuperclass() != null) {
-			thisclass = thisclass.getSuperclass();
-			fields.addAll(0, Arrays.asList(thisclass.getDeclaredFields()));
-		}
-
-		for (Member mbr : fields.toArray(new Field[0])) {
-			if (mbr instanceof Field) {
-				Field f = (Field) mbr;
-				Annotation[] annotations = f.getAnnotations();
-				for (int count = 0; count < annotations.length; count++) {
-					if (annotations[count].toString().contains(Json_IgnoreFieldsInThisList.class.getCanonicalName())) {
-						if (!Modifier.isPublic(f.getModifiers())) {
-							f.setAccessible(true);
+		for (BeanDescriptor.Property property : JsonPair.getBeanFields(beanObj)) {
+			Field f = property.getField();
+			FieldAccessor accessor = property.getAccessor();
+			boolean mapValuesAreBeans = property.isMapValuesAreBeans();
+			boolean listValuesAreBeans = property.isListValuesAreBeans();
+			boolean required = property.isRequired();
+			JsonPair pair = null;
+			// String
+			if (f.getType() == java.lang.String.class) {
+				String val = (String) accessor.get(beanObj);
+				pair = createPairString(f.getName(), val);
+			}
+			// LONG primitive
+			else if (f.getType().equals(Long.TYPE)) {
+				pair = createPairLong(f.getName(), accessor.getLong(beanObj));
+			}
+			// LONG class
+			else if (f.getType() == java.lang.Long.class) {
+				Long val = (Long) accessor.get(beanObj);
+				if (val != null) {
+					pair = createPairLong(f.getName(), val.longValue());
+				} else {
+					pair = createPairString(f.getName(), null);
+				}
+			}
+			// Integer class
+			else if (f.getType() == java.lang.Integer.class) {
+				Integer val = (Integer) accessor.get(beanObj);
+				if (val != null) {
+					pair = createPairLong(f.getName(), val.longValue());
+				} else {
+					pair = createPairString(f.getName(), null);
+				}
+			}
+			// Integer primitive
+			else if (f.getType().equals(Integer.TYPE)) {
+				pair = createPairLong(f.getName(), accessor.getInt(beanObj));
+			}
+			// Short class
+			else if (f.getType() == java.lang.Short.class) {
+				Short val = (Short) accessor.get(beanObj);
+				if (val != null) {
+					pair = createPairLong(f.getName(), val.longValue());
+				} else {
+					pair = createPairString(f.getName(), null);
+				}
+			}
+			// Short primitive
+			else if (f.getType().equals(Short.TYPE)) {
+				pair = createPairLong(f.getName(), accessor.getShort(beanObj));
+			}
+			// Float class
+			else if (f.getType() == java.lang.Float.class) {
+				Float val = (Float) accessor.get(beanObj);
+				if (val != null) {
+					pair = createPairFloat(f.getName(), val.floatValue());
+				} else {
+					pair = createPairString(f.getName(), null);
+				}
+			}
+			// Float primitive
+			else if (f.getType().equals(Float.TYPE)) {
+				pair = createPairFloat(f.getName(), accessor.getFloat(beanObj));
+			}
+			// Double class
+			else if (f.getType() == java.lang.Double.class) {
+				Double val = (Double) accessor.get(beanObj);
+				if (val != null) {
+					pair = createPairFloat(f.getName(), val.doubleValue());
+				} else {
+					pair = createPairString(f.getName(), null);
+				}
+			}
+			// Double primitive
+			else if (f.getType().equals(Double.TYPE)) {
+				pair = createPairFloat(f.getName(), accessor.getDouble(beanObj));
+			}
+			// Character class
+			else if (f.getType() == java.lang.Character.class) {
+				Character val = (Character) accessor.get(beanObj);
+				if (val != null) {
+					pair = createPairString(f.getName(), val.toString());
+				} else {
+					pair = createPairString(f.getName(), null);
+				}
+			}
+			// Character primitive
+			else if (f.getType().equals(Character.TYPE)) {
+				pair = createPairString(f.getName(), String.valueOf(accessor.getChar(beanObj)));
+			}
+			// Boolean class
+			else if (f.getType() == java.lang.Boolean.class) {
+				Boolean val = (Boolean) accessor.get(beanObj);
+				if (val != null) {
+					pair = createPairBoolean(f.getName(), val.booleanValue());
+				} else {
+					pair = createPairString(f.getName(), null);
+				}
+			}
+			// Boolean primitive
+			else if (f.getType().equals(Boolean.TYPE)) {
+				pair = createPairBoolean(f.getName(), accessor.getBoolean(beanObj));
+			}
+			////////////////////////
+			// URI class
+			else if (f.getType() == java.net.URI.class) {
+				java.net.URI val = (java.net.URI) accessor.get(beanObj);
+				if (val != null) {
+					pair = createPairURI(f.getName(), val);
+				} else {
+					pair = createPairString(f.getName(), null);
+				}
+			}
+			////////////////////////
+			// List class
+			else if (f.getType() == java.util.List.class) {
+				JsonValueArray array = new JsonValueArray();
+				List<?> val;
+				val = (List<?>) accessor.get(beanObj);
+				if (val != null) {
+					String listtype = JsonValueArray.getListTypeName(f, beanObj);
+					// Add all the String objects to the array
+					for (Object arrayObj : val.toArray()) {
+						if (arrayObj != null) {
+							if (listValuesAreBeans) {
+								JsonValueObject element = JsonPair.createObjectFromBeanField(f.getName(),
+										arrayObj, context);
+								if (element != null) {
+									array.addElement(element);
+								}
+							} else if (listtype.equalsIgnoreCase(Integer.class.getName())) {
+								array.addElement(new JsonValueNumberLong(Integer.valueOf(arrayObj.toString())));
+							} else if (listtype.equalsIgnoreCase(Long.class.getName())) {
+								array.addElement(new JsonValueNumberLong(Long.valueOf(arrayObj.toString())));
+							} else if (listtype.equalsIgnoreCase(Short.class.getName())) {
+								array.addElement(new JsonValueNumberLong(new Short(arrayObj.toString())));
+							} else if (listtype.equalsIgnoreCase(Double.class.getName())) {
+								array.addElement(new JsonValueNumberDouble(Double.valueOf(arrayObj.toString())));
+							} else if (listtype.equalsIgnoreCase(Float.class.getName())) {
+								array.addElement(new JsonValueNumberDouble(new Float(arrayObj.toString()), true));
+							} else if (listtype.equalsIgnoreCase(Character.class.getName())) {
+								array.addElement(new JsonValueString(arrayObj.toString()));
+							} else if (listtype.equalsIgnoreCase(Boolean.class.getName())) {
+								Boolean b = Boolean.valueOf(arrayObj.toString());
+								if (b.booleanValue()) {
+									array.addElement(new JsonValueTrue());
+								} else {
+									array.addElement(new JsonValueFalse());
+								}
+							} else {
+								array.addElement(new JsonValueString(arrayObj.toString()));
+							}
 						}
-						if (f.getType() == java.util.List.class) {
-							List<?> val;
-							val = (List<?>) ((Field) mbr).get(beanObj);
-							if (val != null) {
-								// Add all the String objects to the array
-								for (Object arrayObj : val.toArray()) {
-									if (arrayObj != null) {
-										ignoredFields.add(arrayObj.toString());
+					}
+				}
+				JsonPair arrayPair = new JsonPair(JsonString.createJsonString(f.getName()), array);
+				pair = arrayPair;
+			}
+			////////////////////////////
+			// Map class
+			else if (f.getType() == java.util.Map.class) {
+				// get the Map this is this member
+				Map<?, ?> val = (Map<?, ?>) accessor.get(beanObj);
+				// if the map is not nulll
+				if (val != null) {
+					///////////////////////////
+					// Iterate through the keys of this map
+					for (Object keyObj : val.keySet().toArray()) {
+						///////////////////////////////////
+						// Provided the map key is a string, we need to create a
+						/////////////////////////////////// JSON pair with this
+						// map key as the pair name
+						if (keyObj instanceof java.lang.String) {
+							/////////////////////////////
+							// Get the value of the map
+							Object valObj = val.get(keyObj);
+							/////////////////////////////
+							// The value of the map is a List
+							if (mapValuesAreBeans && (valObj != null) && (valObj instanceof List)) {
+								List<?> mapList = (List<?>) valObj;
+								JsonValueArray array = new JsonValueArray();
+								if (mapList != null) {
+									// Loop across each object in the List
+									for (Object arrayObj : mapList.toArray()) {
+										JsonValueObject element = (arrayObj == null) ? null
+												: JsonPair.createObjectFromBeanField(f.getName(), arrayObj, context);
+										if (element != null) {
+											array.addElement(element);
+										}
 									}
 								}
+								ret.add(new JsonPair(JsonString.createJsonString(keyObj.toString()), array));
+							}
+							///////////////////////////////
+							// The value of the map is not a List, but should be
+							/////////////////////////////// treated as a bean
+							else if (mapValuesAreBeans && (valObj != null)) {
+								JsonValueObject valBean = JsonPair.createObjectFromBeanField(f.getName(), valObj,
+										context);
+								if (valBean != null) {
+									pair = createPairObject(keyObj.toString(), valBean);
+									ret.add(pair);
+								}
+							}
+							////////////////////////////////
+							// The value in an integer
+							else if ((valObj != null) && (valObj instanceof Integer)) {
+								Integer valObjCast = (Integer) valObj;
+								pair = createPairLong(keyObj.toString(), valObjCast.longValue());
+								ret.add(pair);
+							}
+							////////////////////////////////
+							// The value in an long
+							else if ((valObj != null) && (valObj instanceof Long)) {
+								Long valObjCast = (Long) valObj;
+								pair = createPairLong(keyObj.toString(), valObjCast.longValue());
+								ret.add(pair);
+							}
+							////////////////////////////////
+							// The value in an short
+							else if ((valObj != null) && (valObj instanceof Short)) {
+								Short valObjCast = (Short) valObj;
+								pair = createPairLong(keyObj.toString(), valObjCast.longValue());
+								ret.add(pair);
+							}
+							////////////////////////////////
+							// The value in an float
+							else if ((valObj != null) && (valObj instanceof Float)) {
+								Float valObjCast = (Float) valObj;
+								pair = createPairFloat(keyObj.toString(), valObjCast.floatValue());
+								ret.add(pair);
+							}
+							////////////////////////////////
+							// The value in an double
+							else if ((valObj != null) && (valObj instanceof Double)) {
+								Double valObjCast = (Double) valObj;
+								pair = createPairFloat(keyObj.toString(), valObjCast.doubleValue());
+								ret.add(pair);
+							}
+							////////////////////////////////
+							// The value in a boolean
+							else if ((valObj != null) && (valObj instanceof Boolean)) {
+								Boolean valObjCast = (Boolean) valObj;
+								pair = createPairBoolean(keyObj.toString(), valObjCast.booleanValue());
+								ret.add(pair);
+							}
+							////////////////////////////////
+							// The value should be a string. The value vould be a
+							//////////////////////////////// String, Chat, URI,
+							// etc.
+							else if (valObj != null) {
+								pair = createPairString(keyObj.toString(), valObj.toString());
+								ret.add(pair);
+							}
+							////////////////////////////////
+							// There is no value in the map
+							else if (valObj == null) {
+								if (required) {
+									throw new JsonException("Map " + keyObj + " must not have a null value");
+								}
+								pair = createPairString(keyObj.toString(), null);
+								ret.add(pair);
 							}
 						}
+						pair = null;
 					}
 				}
 			}
-		}
-
-		for (Member mbr : fields.toArray(new Field[0])) {
-			// For the all bean fields
-			if (mbr instanceof Field) {
-				Field f = (Field) mbr;
-				boolean processField = false;
-				boolean mapValuesAreBeans = false;
-				boolean listValuesAreBeans = false;
-				boolean required = false;
-				Annotation[] annotations = f.getAnnotations();
-				for (int count = 0; count < annotations.length; count++) {
-					if (annotations[count].toString().contains(Json_MapValuesAreBeans.class.getCanonicalName())) {
-						mapValuesAreBeans = true;
-					}
-					if (annotations[count].toString().contains(Json_ListValuesAreBeans.class.getCanonicalName())) {
-						listValuesAreBeans = true;
+			/////////////////////
+			// A POJO
+			else {
+				Object basicObj = new Object();
+				if (basicObj.getClass().isInstance(accessor.get(beanObj))) {
+					basicObj = accessor.get(beanObj);
+					JsonValueObject val = JsonPair.createObjectFromBeanField(f.getName(), basicObj, context);
+					if (val != null) {
+						pair = createPairObject(f.getName(), val);
 					}
-					if (annotations[count].toString().contains(Json_Property.class.getCanonicalName())) {
-						processField = true;
-						if (!Modifier.isPublic(f.getModifiers())) {
-							f.setAccessible(true);
-						}
+				}
+			}
+			if (pair != null) {
+				if (required) {
+					if (pair.getValue().isNull()) {
+						throw new JsonException("Json Pair " + pair.getName() + " must not have a null value");
 					}
-					if (annotations[count].toString().contains(Json_PropertyRequired.class.getCanonicalName())) {
-						processField = true;
-						required = true;
-						if (!Modifier.isPublic(f.getModifiers())) {
-							f.setAccessible(true);
-						}
+				}
+				ret.add(pair);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Write the fields of a Java POJO straight to a writer, as the members of
+	 * the object the writer is in. The fields and annotations are handled
+	 * exactly as {@link #createStringPairsFromBean(Object, WriteContext)}, and
+	 * the output is the same as printing the pairs it returns, but no JsonPair
+	 * or JsonValue objects are created.
+	 *
+	 * @param beanObj
+	 *           The POJO to write
+	 * @param writer
+	 *           The writer, positioned inside an object. Its context holds the
+	 *           depth and field recursion limits of this serialization.
+	 * @throws JsonException
+	 * @throws IllegalArgumentException
+	 * @throws IllegalAccessException
+	 * @throws IOException
+	 *            Thrown by the writer's output
+	 */
+	static void writePairsFromBean(Object beanObj, JsonWriter writer)
+			throws JsonException, IllegalArgumentException, IllegalAccessException, IOException {
+		JsonPair.writePairsFromBean(beanObj, JsonPair.getBeanFields(beanObj), writer);
+	}
+
+	/**
+	 * Get the fields of a Java POJO that are serialized, i.e. those annotated
+	 * with {@link Json_Property} or {@link Json_PropertyRequired} and not named
+	 * in a {@link Json_IgnoreFieldsInThisList} list, superclass fields first
+	 *
+	 * @param beanObj
+	 *           The POJO
+	 * @return The fields to serialize, which must not be modified
+	 * @throws IllegalArgumentException
+	 * @throws IllegalAccessException
+	 */
+	static private List<BeanDescriptor.Property> getBeanFields(Object beanObj)
+			throws IllegalArgumentException, IllegalAccessException {
+		BeanDescriptor descriptor = BeanDescriptor.forClass(beanObj.getClass());
+		if (descriptor.getIgnoreLists().isEmpty()) {
+			return descriptor.getProperties();
+		}
+
+		//////////////////////////////
+		// The names to leave out are read from the bean itself
+		List<String> ignoredFields = new LinkedList<String>();
+		for (BeanDescriptor.Property ignoreList : descriptor.getIgnoreLists()) {
+			List<?> val = (List<?>) ignoreList.getAccessor().get(beanObj);
+			if (val != null) {
+				for (Object arrayObj : val.toArray()) {
+					if (arrayObj != null) {
+						ignoredFields.add(arrayObj.toString());
 					}
-					if (annotations[count].toString().contains(Json_IgnoreFieldsInThisList.class.getCanonicalName())) {
-						processField = false;
-						if (!Modifier.isPublic(f.getModifiers())) {
-							f.setAccessible(true);
+				}
+			}
+		}
+		if (ignoredFields.isEmpty()) {
+			return descriptor.getProperties();
+		}
+		List<BeanDescriptor.Property> ret = new ArrayList<BeanDescriptor.Property>(descriptor.getProperties());
+		ret.removeIf(property -> ignoredFields.contains(property.getName()));
+		return ret;
+	}
+
+	/**
+	 * Would a Java POJO's fields produce any pairs? A bean that produces none
+	 * is an empty (null) object, which is either printed as null or left out.
+	 *
+	 * @param beanObj
+	 *           The POJO
+	 * @param fields
+	 *           The fields of the POJO to serialize
+	 * @param context
+	 *           The context of this serialization
+	 * @return true if at least one pair would be produced
+	 * @throws IllegalArgumentException
+	 * @throws IllegalAccessException
+	 */
+	static private boolean hasPairsFromBean(Object beanObj, List<BeanDescriptor.Property> fields, WriteContext context)
+			throws IllegalArgumentException, IllegalAccessException {
+		for (BeanDescriptor.Property property : fields) {
+			Field f = property.getField();
+			BeanDescriptor.Kind kind = property.getKind();
+			if (kind == BeanDescriptor.Kind.MAP) {
+				Map<?, ?> val = (Map<?, ?>) property.getAccessor().get(beanObj);
+				if (val != null) {
+					for (Object keyObj : val.keySet().toArray()) {
+						if (keyObj instanceof java.lang.String) {
+							Object valObj = val.get(keyObj);
+							if (!property.isMapValuesAreBeans() || (valObj == null) || (valObj instanceof List)
+									|| context.canEnterField(f.getName())) {
+								return true;
+							}
 						}
 					}
 				}
+			} else if ((kind == BeanDescriptor.Kind.LIST) || kind.isScalar()) {
+				return true;
+			} else if ((property.getAccessor().get(beanObj) != null) && context.canEnterField(f.getName())) {
+				return true;
+			}
+		}
+		return false;
+	}
 
-				if (ignoredFields.contains(f.getName())) {
-					processField = false;
+	/**
+	 * Write a bean held in a field of another bean, as the value of a pair,
+	 * unless the field has reached its recursion limit in the context
+	 *
+	 * @param pairName
+	 *           The name of the pair
+	 * @param fieldName
+	 *           The name of the field holding the bean
+	 * @param bean
+	 *           The bean
+	 * @param required
+	 *           true if the bean must not be an empty object
+	 * @param writer
+	 *           The writer
+	 * @throws JsonException
+	 * @throws IllegalArgumentException
+	 * @throws IllegalAccessException
+	 * @throws IOException
+	 */
+	static private void writeBeanPair(String pairName, String fieldName, Object bean, boolean required,
+			JsonWriter writer) throws JsonException, IllegalArgumentException, IllegalAccessException, IOException {
+		WriteContext context = writer.getContext();
+		if (!context.enterField(fieldName)) {
+			return;
+		}
+		try {
+			context.enter(bean);
+			try {
+				List<BeanDescriptor.Property> fields = JsonPair.getBeanFields(bean);
+				if (JsonPair.hasPairsFromBean(bean, fields, context)) {
+					writer.name(pairName);
+					writer.beginObject();
+					JsonPair.writePairsFromBean(bean, fields, writer);
+					writer.endObject();
+				} else if (required) {
+					throw new JsonException(
+							"Json Pair \"" + JsonString.escape(pairName) + "\" must not have a null value");
+				} else if (context.isPrintNull()) {
+					writer.name(pairName);
+					writer.nullValue();
 				}
+			} finally {
+				context.exit();
+			}
+		} finally {
+			context.exitField(fieldName);
+		}
+	}
 
-				if (processField) {
-					JsonPair pair = null;
-					// String
-					if (f.getType() == java.lang.String.class) {
-						String val = (String) ((Field) mbr).get(beanObj);
-						pair = createPairString(mbr.getName(), val);
-					}
-					// LONG primitive
-					else if (f.getType().equals(Long.TYPE)) {
-						Long val = (Long) ((Field) mbr).get(beanObj);
-						pair = createPairLong(mbr.getName(), val);
-					}
-					// LONG class
-					else if (f.getType() == java.lang.Long.class) {
-						Long val = (Long) ((Field) mbr).get(beanObj);
-						if (val != null) {
-							pair = createPairLong(mbr.getName(), val.longValue());
-						} else {
-							pair = createPairString(mbr.getName(), null);
-						}
-					}
-					// Integer class
-					else if (f.getType() == java.lang.Integer.class) {
-						Integer val = (Integer) ((Field) mbr).get(beanObj);
-						if (val != null) {
-							pair = createPairLong(mbr.getName(), val.longValue());
-						} else {
-							pair = createPairString(mbr.getName(), null);
-						}
-					}
-					// Integer primitive
-					else if (f.getType().equals(Integer.TYPE)) {
-						Integer val = (Integer) f.get(beanObj);
-						if (val != null) {
-							pair = createPairLong(mbr.getName(), val.longValue());
-						} else {
-							pair = createPairString(mbr.getName(), null);
-						}
-					}
-					// Short class
-					else if (f.getType() == java.lang.Short.class) {
-						Short val = (Short) ((Field) mbr).get(beanObj);
-						if (val != null) {
-							pair = createPairLong(mbr.getName(), val.longValue());
-						} else {
-							pair = createPairString(mbr.getName(), null);
-						}
-					}
-					// Short primitive
-					else if (f.getType().equals(Short.TYPE)) {
-						Short val = (Short) ((Field) mbr).get(beanObj);
-						if (val != null) {
-							pair = createPairLong(mbr.getName(), val.longValue());
-						} else {
-							pair = createPairString(mbr.getName(), null);
-						}
-					}
-					// Float class
-					else if (f.getType() == java.lang.Float.class) {
-						Float val = (Float) ((Field) mbr).get(beanObj);
-						if (val != null) {
-							pair = createPairFloat(mbr.getName(), val.doubleValue());
-						} else {
-							pair = createPairString(mbr.getName(), null);
-						}
-					}
-					// Float primitive
-					else if (f.getType().equals(Float.TYPE)) {
-						Float val = (Float) ((Field) mbr).get(beanObj);
-						if (val != null) {
-							pair = createPairFloat(mbr.getName(), val.doubleValue());
-						} else {
-							pair = createPairString(mbr.getName(), null);
-						}
-					}
-					// Double class
-					else if (f.getType() == java.lang.Double.class) {
-						Double val = (Double) ((Field) mbr).get(beanObj);
-						if (val != null) {
-							pair = createPairFloat(mbr.getName(), val.doubleValue());
-						} else {
-							pair = createPairString(mbr.getName(), null);
-						}
-					}
-					// Double primitive
-					else if (f.getType().equals(Double.TYPE)) {
-						Double val = (Double) ((Field) mbr).get(beanObj);
-						if (val != null) {
-							pair = createPairFloat(mbr.getName(), val.doubleValue());
-						} else {
-							pair = createPairString(mbr.getName(), null);
-						}
-					}
-					// Character class
-					else if (f.getType() == java.lang.Character.class) {
-						Character val = (Character) ((Field) mbr).get(beanObj);
-						if (val != null) {
-							pair = createPairString(mbr.getName(), val.toString());
-						} else {
-							pair = createPairString(mbr.getName(), null);
-						}
-					}
-					// Character primitive
-					else if (f.getType().equals(Character.TYPE)) {
-						Character val = (Character) ((Field) mbr).get(beanObj);
-						if (val != null) {
-							pair = createPairString(mbr.getName(), val.toString());
-						} else {
-							pair = createPairString(mbr.getName(), null);
-						}
-					}
-					// Boolean class
-					else if (f.getType() == java.lang.Boolean.class) {
-						Boolean val = (Boolean) ((Field) mbr).get(beanObj);
-						if (val != null) {
-							pair = createPairBoolean(mbr.getName(), val.booleanValue());
-						} else {
-							pair = createPairString(mbr.getName(), null);
-						}
-					}
-					// Boolean primitive
-					else if (f.getType().equals(Boolean.TYPE)) {
-						Boolean val = (Boolean) ((Field) mbr).get(beanObj);
-						if (val != null) {
-							pair = createPairBoolean(mbr.getName(), val.booleanValue());
-						} else {
-							pair = createPairString(mbr.getName(), null);
-						}
-					}
-					////////////////////////
-					// URI class
-					else if (f.getType() == java.net.URI.class) {
-						java.net.URI val = (java.net.URI) ((Field) mbr).get(beanObj);
-						if (val != null) {
-							pair = createPairURI(mbr.getName(), val);
-						} else {
-							pair = createPairString(mbr.getName(), null);
-						}
-					}
-					////////////////////////
-					// List class
-					else if (f.getType() == java.util.List.class) {
-						JsonValueArray array = new JsonValueArray();
-						List<?> val;
-						val = (List<?>) ((Field) mbr).get(beanObj);
-						if (val != null) {
-							String listtype = JsonValueArray.getListTypeName(f, beanObj);
-							// Add all the String objects to the array
-							for (Object arrayObj : val.toArray()) {
-								if (arrayObj != null) {
-									if (listValuesAreBeans) {
-										array.addElement(JsonValueObject.createObjectFromBeanInternal(arrayObj));
-									} else if (listtype.equalsIgnoreCase(Integer.class.getName())) {
-										array.addElement(new JsonValueNumberLong(new Integer(arrayObj.toString())));
-									} else if (listtype.equalsIgnoreCase(Long.class.getName())) {
-										array.addElement(new JsonValueNumberLong(new Long(arrayObj.toString())));
-									} else if (listtype.equalsIgnoreCase(Short.class.getName())) {
-										array.addElement(new JsonValueNumberLong(new Short(arrayObj.toString())));
-									} else if (listtype.equalsIgnoreCase(Double.class.getName())) {
-										array.addElement(new JsonValueNumberDouble(new Double(arrayObj.toString())));
-									} else if (listtype.equalsIgnoreCase(Float.class.getName())) {
-										array.addElement(new JsonValueNumberDouble(new Float(arrayObj.toString())));
-									} else if (listtype.equalsIgnoreCase(Character.class.getName())) {
-										array.addElement(new JsonValueString(arrayObj.toString()));
-									} else if (listtype.equalsIgnoreCase(Boolean.class.getName())) {
-										Boolean b = new Boolean(arrayObj.toString());
-										if (b.booleanValue()) {
-											array.addElement(new JsonValueTrue());
-										} else {
-											array.addElement(new JsonValueFalse());
-										}
-									} else {
-										array.addElement(new JsonValueString(arrayObj.toString()));
-									}
-								}
-							}
-						}
-						JsonPair arrayPair = new JsonPair(JsonString.createJsonString(mbr.getName()), array);
-						pair = arrayPair;
+	/**
+	 * Write a list of beans as the value of a pair. The list is an empty (null)
+	 * array if it holds no beans, or the field has reached its recursion limit.
+	 *
+	 * @param pairName
+	 *           The name of the pair
+	 * @param fieldName
+	 *           The name of the field holding the list
+	 * @param list
+	 *           The beans, which may include nulls that are left out
+	 * @param required
+	 *           true if the list must not be an empty array
+	 * @param writer
+	 *           The writer
+	 * @throws JsonException
+	 * @throws IllegalArgumentException
+	 * @throws IllegalAccessException
+	 * @throws IOException
+	 */
+	static private void writeBeanListPair(String pairName, String fieldName, Object[] list, boolean required,
+			JsonWriter writer) throws JsonException, IllegalArgumentException, IllegalAccessException, IOException {
+		WriteContext context = writer.getContext();
+		boolean empty = true;
+		if (context.canEnterField(fieldName)) {
+			for (Object arrayObj : list) {
+				if (arrayObj != null) {
+					empty = false;
+					break;
+				}
+			}
+		}
+		if (empty) {
+			JsonPair.writeNullPair(pairName, required, writer);
+			return;
+		}
+		writer.name(pairName);
+		writer.beginArray();
+		for (Object arrayObj : list) {
+			if ((arrayObj != null) && context.enterField(fieldName)) {
+				try {
+					context.enter(arrayObj);
+					try {
+						writer.beginObject();
+						JsonPair.writePairsFromBean(arrayObj, writer);
+						writer.endObject();
+					} finally {
+						context.exit();
 					}
-					////////////////////////////
-					// Map class
-					else if (f.getType() == java.util.Map.class) {
-						// get the Map this is this member
-						Map<?, ?> val = (Map<?, ?>) ((Field) mbr).get(beanObj);
-						// if the map is not nulll
-						if (val != null) {
-							///////////////////////////
-							// Iterate through the keys of this map
-							for (Object keyObj : val.keySet().toArray()) {
-								///////////////////////////////////
-								// Provided the map key is a string, we need to create a
-								/////////////////////////////////// JSON pair with this
-								// map key as the pair name
-								if (keyObj instanceof java.lang.String) {
-									/////////////////////////////
-									// Get the value of the map
-									Object valObj = val.get(keyObj);
-									/////////////////////////////
-									// The value of the map is a List
-									if (mapValuesAreBeans && (valObj != null) && (valObj instanceof List)) {
-										List<?> mapList = (List<?>) valObj;
-										JsonValueArray array = new JsonValueArray();
-										if (mapList != null) {
-											// Loop across each object in the List
-											for (Object arrayObj : mapList.toArray()) {
-												if (arrayObj != null) {
-													array.addElement(JsonValueObject.createObjectFromBeanInternal(arrayObj));
-												}
-											}
-										}
-										ret.add(new JsonPair(JsonString.createJsonString(keyObj.toString()), array));
-									}
-									///////////////////////////////
-									// The value of the map is not a List, but should be
-									/////////////////////////////// treated as a bean
-									else if (mapValuesAreBeans && (valObj != null)) {
-										JsonValueObject valBean = JsonValueObject.createObjectFromBeanInternal(valObj);
-										pair = createPairObject(keyObj.toString(), valBean);
-										ret.add(pair);
-									}
-									////////////////////////////////
-									// The value in an integer
-									else if ((valObj != null) && (valObj instanceof Integer)) {
-										Integer valObjCast = (Integer) valObj;
-										pair = createPairLong(keyObj.toString(), valObjCast.longValue());
-										ret.add(pair);
-									}
-									////////////////////////////////
-									// The value in an long
-									else if ((valObj != null) && (valObj instanceof Long)) {
-										Long valObjCast = (Long) valObj;
-										pair = createPairLong(keyObj.toString(), valObjCast.longValue());
-										ret.add(pair);
-									}
-									////////////////////////////////
-									// The value in an short
-									else if ((valObj != null) && (valObj instanceof Short)) {
-										Short valObjCast = (Short) valObj;
-										pair = createPairLong(keyObj.toString(), valObjCast.longValue());
-										ret.add(pair);
-									}
-									////////////////////////////////
-									// The value in an float
-									else if ((valObj != null) && (valObj instanceof Float)) {
-										Float valObjCast = (Float) valObj;
-										pair = createPairFloat(keyObj.toString(), valObjCast.floatValue());
-										ret.add(pair);
-									}
-									////////////////////////////////
-									// The value in an double
-									else if ((valObj != null) && (valObj instanceof Double)) {
-										Double valObjCast = (Double) valObj;
-										pair = createPairFloat(keyObj.toString(), valObjCast.doubleValue());
-										ret.add(pair);
-									}
-									////////////////////////////////
-									// The value in a boolean
-									else if ((valObj != null) && (valObj instanceof Boolean)) {
-										Boolean valObjCast = (Boolean) valObj;
-										pair = createPairBoolean(keyObj.toString(), valObjCast.booleanValue());
-										ret.add(pair);
-									}
-									////////////////////////////////
-									// The value should be a string. The value vould be a
-									//////////////////////////////// String, Chat, URI,
-									// etc.
-									else if (valObj != null) {
-										pair = createPairString(keyObj.toString(), valObj.toString());
-										ret.add(pair);
-									}
-									////////////////////////////////
-									// There is no value in the map
-									else if (valObj == null) {
-										if (required) {
-											throw new JsonException("Map " + keyObj + " must not have a null value");
-										}
-										pair = createPairString(keyObj.toString(), null);
-										ret.add(pair);
-									}
-								}
-								pair = null;
-							}
+				} finally {
+					context.exitField(fieldName);
+				}
+			}
+		}
+		writer.endArray();
+	}
+
+	/**
+	 * Write a pair with a null value, if null values are printed
+	 *
+	 * @param pairName
+	 *           The name of the pair
+	 * @param required
+	 *           true if the value must not be null
+	 * @param writer
+	 *           The writer
+	 * @throws JsonException
+	 *            Thrown if the value is required
+	 * @throws IOException
+	 */
+	static public void writeNullPair(String pairName, boolean required, JsonWriter writer)
+			throws JsonException, IOException {
+		if (required) {
+			throw new JsonException("Json Pair \"" + JsonString.escape(pairName) + "\" must not have a null value");
+		}
+		if (writer.getContext().isPrintNull()) {
+			writer.name(pairName);
+			writer.nullValue();
+		}
+	}
+
+	/**
+	 * Write the fields of a Java POJO straight to a writer, through the codec
+	 * of its class if the {@link JsonCodecRegistry} has one
+	 *
+	 * @param beanObj
+	 *           The POJO to write
+	 * @param fields
+	 *           The fields of the POJO to serialize
+	 * @param writer
+	 *           The writer, positioned inside an object
+	 * @throws JsonException
+	 * @throws IllegalArgumentException
+	 * @throws IllegalAccessException
+	 * @throws IOException
+	 */
+	static private void writePairsFromBean(Object beanObj, List<BeanDescriptor.Property> fields, JsonWriter writer)
+			throws JsonException, IllegalArgumentException, IllegalAccessException, IOException {
+		JsonCodec<Object> codec = JsonCodecRegistry.codecOf(beanObj);
+		if (codec != null) {
+			codec.writeFields(beanObj, writer);
+		} else {
+			JsonPair.writeBeanFields(beanObj, fields, writer);
+		}
+	}
+
+	/**
+	 * Write one field of a Java POJO straight to a writer, by reflection,
+	 * exactly as it is written when the whole POJO is serialized. This is for
+	 * a {@link JsonCodec} to hand over a field it does not write itself, e.g.
+	 * a List or a nested bean.
+	 *
+	 * @param beanObj
+	 *           The POJO
+	 * @param property
+	 *           The field, which is serialized
+	 * @param writer
+	 *           The writer, positioned inside an object
+	 * @throws JsonException
+	 * @throws IllegalArgumentException
+	 * @throws IllegalAccessException
+	 * @throws IOException
+	 */
+	static public void writeField(Object beanObj, BeanDescriptor.Property property, JsonWriter writer)
+			throws JsonException, IllegalArgumentException, IllegalAccessException, IOException {
+		JsonPair.writeBeanFields(beanObj, Collections.singletonList(property), writer);
+	}
+
+	/**
+	 * Write fields of a Java POJO straight to a writer, by reflection
+	 *
+	 * @param beanObj
+	 *           The POJO to write
+	 * @param fields
+	 *           The fields of the POJO to write
+	 * @param writer
+	 *           The writer, positioned inside an object
+	 * @throws JsonException
+	 * @throws IllegalArgumentException
+	 * @throws IllegalAccessException
+	 * @throws IOException
+	 */
+	static void writeBeanFields(Object beanObj, List<BeanDescriptor.Property> fields, JsonWriter writer)
+			throws JsonException, IllegalArgumentException, IllegalAccessException, IOException {
+		boolean printNull = writer.getContext().isPrintNull();
+		for (BeanDescriptor.Property property : fields) {
+			Field f = property.getField();
+			FieldAccessor accessor = property.getAccessor();
+			BeanDescriptor.Kind kind = property.getKind();
+			String name = f.getName();
+			////////////////////////
+			// Primitive fields, read without boxing
+			if (property.isPrimitive()) {
+				writer.name(name);
+				JsonPair.writePrimitive(kind, accessor, beanObj, writer);
+			}
+			////////////////////////
+			// String, number, boolean, character and URI fields
+			else if (kind.isScalar()) {
+				Object val = accessor.get(beanObj);
+				if (val == null) {
+					JsonPair.writeNullPair(name, property.isRequired(), writer);
+				} else {
+					writer.name(name);
+					JsonPair.writeScalar(val, writer);
+				}
+			}
+			////////////////////////
+			// List class
+			else if (kind == BeanDescriptor.Kind.LIST) {
+				List<?> val = (List<?>) accessor.get(beanObj);
+				Object[] elements = (val == null) ? new Object[0] : val.toArray();
+				if (property.isListValuesAreBeans()) {
+					JsonPair.writeBeanListPair(name, name, elements, property.isRequired(), writer);
+					continue;
+				}
+				String listtype = (val == null) ? null : JsonValueArray.getListTypeName(f, beanObj);
+				boolean empty = true;
+				for (Object arrayObj : elements) {
+					if (arrayObj != null) {
+						if (empty) {
+							writer.name(name);
+							writer.beginArray();
+							empty = false;
 						}
+						JsonPair.writeListElement(listtype, arrayObj.toString(), writer);
 					}
-					/////////////////////
-					// A POJO
-					else {
-						Object basicObj = new Object();
-						if (basicObj.getClass().isInstance(f.get(beanObj))) {
-							basicObj = ((Field) mbr).get(beanObj);
-							JsonValueObject val = JsonValueObject.createObjectFromBeanInternal(basicObj);
-							pair = createPairObject(mbr.getName(), val);
-						}
+				}
+				if (empty) {
+					JsonPair.writeNullPair(name, property.isRequired(), writer);
+				} else {
+					writer.endArray();
+				}
+			}
+			////////////////////////////
+			// Map class, whose entries are written as pairs of this object
+			else if (kind == BeanDescriptor.Kind.MAP) {
+				Map<?, ?> val = (Map<?, ?>) accessor.get(beanObj);
+				if (val == null) {
+					continue;
+				}
+				for (Object keyObj : val.keySet().toArray()) {
+					if (!(keyObj instanceof java.lang.String)) {
+						continue;
 					}
-					if (pair != null) {
-						if (required) {
-							if (pair.getValue().isNull()) {
-								throw new JsonException("Json Pair " + pair.getName() + " must not have a null value");
-							}
-						}
-						ret.add(pair);
+					String key = keyObj.toString();
+					Object valObj = val.get(keyObj);
+					if (property.isMapValuesAreBeans() && (valObj instanceof List)) {
+						JsonPair.writeBeanListPair(key, name, ((List<?>) valObj).toArray(), false, writer);
+					} else if (property.isMapValuesAreBeans() && (valObj != null)) {
+						JsonPair.writeBeanPair(key, name, valObj, false, writer);
+					} else if (valObj != null) {
+						writer.name(key);
+						JsonPair.writeScalar(valObj, writer);
+					} else if (property.isRequired()) {
+						throw new JsonException("Map " + keyObj + " must not have a null value");
+					} else if (printNull) {
+						writer.name(key);
+						writer.nullValue();
 					}
 				}
 			}
+			/////////////////////
+			// A POJO
+			else {
+				Object val = accessor.get(beanObj);
+				if (val != null) {
+					JsonPair.writeBeanPair(name, name, val, property.isRequired(), writer);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Write an element of a list that does not hold beans, converting it
+	 * according to the list's type
+	 *
+	 * @param listtype
+	 *           The name of the list's type argument
+	 * @param element
+	 *           The element, as a string
+	 * @param writer
+	 *           The writer
+	 * @throws IOException
+	 */
+	static private void writeListElement(String listtype, String element, JsonWriter writer) throws IOException {
+		if (listtype.equalsIgnoreCase(Integer.class.getName())) {
+			writer.value(Integer.valueOf(element).longValue());
+		} else if (listtype.equalsIgnoreCase(Long.class.getName())) {
+			writer.value(Long.valueOf(element).longValue());
+		} else if (listtype.equalsIgnoreCase(Short.class.getName())) {
+			writer.value(Short.valueOf(element).longValue());
+		} else if (listtype.equalsIgnoreCase(Double.class.getName())) {
+			writer.value(Double.valueOf(element).doubleValue());
+		} else if (listtype.equalsIgnoreCase(Float.class.getName())) {
+			writer.value(Float.valueOf(element).floatValue());
+		} else if (listtype.equalsIgnoreCase(Boolean.class.getName())) {
+			writer.value(Boolean.valueOf(element).booleanValue());
+		} else {
+			writer.value(element);
+		}
+	}
+
+	/**
+	 * Write the value of a primitive field
+	 *
+	 * @param kind
+	 *           The kind of the field
+	 * @param accessor
+	 *           The accessor of the field
+	 * @param bean
+	 *           The bean holding the field
+	 * @param writer
+	 *           The writer
+	 * @throws IllegalAccessException
+	 * @throws IOException
+	 */
+	static private void writePrimitive(BeanDescriptor.Kind kind, FieldAccessor accessor, Object bean,
+			JsonWriter writer) throws IllegalAccessException, IOException {
+		switch (kind) {
+		case BOOLEAN:
+			writer.value(accessor.getBoolean(bean));
+			break;
+		case CHARACTER:
+			writer.value(String.valueOf(accessor.getChar(bean)));
+			break;
+		case DOUBLE:
+			writer.value(accessor.getDouble(bean));
+			break;
+		case FLOAT:
+			writer.value(accessor.getFloat(bean));
+			break;
+		case INTEGER:
+			writer.value((long) accessor.getInt(bean));
+			break;
+		case LONG:
+			writer.value(accessor.getLong(bean));
+			break;
+		case SHORT:
+			writer.value((long) accessor.getShort(bean));
+			break;
+		default:
+			JsonPair.writeScalar(accessor.get(bean), writer);
+			break;
+		}
+	}
+
+	/**
+	 * Write a string, number or boolean value
+	 *
+	 * @param val
+	 *           The value. Integers are written as longs, floats at float
+	 *           precision, doubles as doubles, and anything else as its string
+	 *           form.
+	 * @param writer
+	 *           The writer
+	 * @throws IOException
+	 */
+	static private void writeScalar(Object val, JsonWriter writer) throws IOException {
+		if ((val instanceof Long) || (val instanceof Integer) || (val instanceof Short)) {
+			writer.value(((Number) val).longValue());
+		} else if (val instanceof Float) {
+			writer.value(((Float) val).floatValue());
+		} else if (val instanceof Double) {
+			writer.value(((Double) val).doubleValue());
+		} else if (val instanceof Boolean) {
+			writer.value(((Boolean) val).booleanValue());
+		} else {
+			writer.value(val.toString());
 		}
-		return ret;
 	}
 
 	/**
@@ -583,6 +1083,20 @@ public class JsonPair {
 		return new JsonPair(n, v);
 	}
 
+	/**
+	 * Create a JSON name value pair, where the value is a float, written with
+	 * no more digits than the float needs
+	 *
+	 * @param name
+	 * @param value
+	 * @return
+	 */
+	static public JsonPair createPairFloat(String name, float value) {
+		JsonString n = new JsonString(name);
+		JsonValueNumberDouble v = new JsonValueNumberDouble(value, true);
+		return new JsonPair(n, v);
+	}
+
 	/**
 	 * Create a JSON name value pair, where the value is a single character
 	 * represented as a JSON string
@@ -612,4 +1126,31 @@ public class JsonPair {
 		return new JsonPair(n, new JsonValueFalse());
 	}
 
+	/**
+	 * Create a JSON object from a bean held in a field of another bean, unless
+	 * the field has reached its recursion limit in the context
+	 *
+	 * @param fieldName
+	 *           The name of the field holding the bean
+	 * @param bean
+	 *           The bean
+	 * @param context
+	 *           The context of this serialization
+	 * @return The JSON object, or null if the field must be left out
+	 * @throws JsonException
+	 * @throws IllegalArgumentException
+	 * @throws IllegalAccessException
+	 */
+	static private JsonValueObject createObjectFromBeanField(String fieldName, Object bean, WriteContext context)
+			throws JsonException, IllegalArgumentException, IllegalAccessException {
+		if (!context.enterField(fieldName)) {
+			return null;
+		}
+		try {
+			return JsonValueObject.createObjectFromBeanInternal(bean, context);
+		} finally {
+			context.exitField(fieldName);
+		}
+	}
+
 }
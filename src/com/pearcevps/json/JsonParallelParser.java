@@ -0,0 +1,307 @@
+package com.pearcevps.json;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import com.pearcevps.utils.Output;
+
+/**
+ * Parses a large top level JSON array on a {@link ForkJoinPool}. A cheap
+ * sequential scan finds split points at commas between the elements of the
+ * array, i.e. commas outside strings and outside any nested object or array,
+ * roughly every {@link #getChunkSize()} characters. The chunks between the
+ * split points are then parsed in parallel, and their elements are joined, in
+ * order, into one {@link JsonValueArray}. Every chunk is fully checked by the
+ * parser, so a document is only accepted if it would be accepted by
+ * {@link JsonParser}.
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonParallelParser {
+
+	/**
+	 * The default number of characters in a chunk
+	 */
+	static public final int DEFAULT_CHUNK_SIZE = 1 << 16;
+
+	/**
+	 * Parse a JSON array on the common fork join pool
+	 *
+	 * @param json
+	 *           The string containing the JSON array to parse
+	 * @return The array
+	 * @throws JsonException
+	 *            Thrown if the string is not a valid JSON array
+	 */
+	static public JsonValueArray parseArray(String json) throws JsonException {
+		return new JsonParallelParser(ForkJoinPool.commonPool(), JsonParallelParser.DEFAULT_CHUNK_SIZE).parse(json);
+	}
+
+	/**
+	 * The number of characters, roughly, in each chunk
+	 */
+	private final int				chunkSize;
+	/**
+	 * The pool the chunks are parsed on
+	 */
+	private final ForkJoinPool	pool;
+
+	/**
+	 * Create a parallel parser
+	 *
+	 * @param pool
+	 *           The pool the chunks are parsed on
+	 * @param chunkSize
+	 *           The number of characters, roughly, in each chunk. A chunk always
+	 *           contains whole elements, so may be larger.
+	 */
+	public JsonParallelParser(ForkJoinPool pool, int chunkSize) {
+		super();
+		if (pool == null) {
+			throw new IllegalArgumentException("Cannot parse JSON on a null fork join pool");
+		}
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("JSON chunk size must be at least 1 character");
+		}
+		this.pool = pool;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Get the number of characters, roughly, in each chunk
+	 *
+	 * @return The chunk size
+	 */
+	public int getChunkSize() {
+		return this.chunkSize;
+	}
+
+	/**
+	 * Get the pool the chunks are parsed on
+	 *
+	 * @return The pool
+	 */
+	public ForkJoinPool getPool() {
+		return this.pool;
+	}
+
+	/**
+	 * Parse a JSON array, parsing chunks of its elements in parallel
+	 *
+	 * @param json
+	 *           The string containing the JSON array to parse
+	 * @return The array
+	 * @throws JsonException
+	 *            Thrown if the string is not a valid JSON array
+	 */
+	public JsonValueArray parse(String json) throws JsonException {
+		if (json == null) {
+			throw new JsonException("Cannot parse a null JSON string");
+		}
+		int[] splits = this.split(json);
+		if (splits.length == 0) {
+			return new JsonValueArray(new LinkedList<JsonValue>());
+		}
+
+		//////////////////////////////
+		// Parse the chunks between the split points, then join them in order
+		List<JsonValue>[] chunks = JsonParallelParser.newChunkArray(splits.length - 1);
+		ChunkTask task = new ChunkTask(json, splits, chunks, 0, chunks.length);
+		if (chunks.length == 1) {
+			task.parseChunk(0);
+		} else {
+			try {
+				this.pool.invoke(task);
+			} catch (RuntimeException e) {
+				// The pool may rethrow a copy of the failure, so search its causes
+				for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+					if (cause instanceof JsonException) {
+						throw (JsonException) cause;
+					}
+				}
+				throw e;
+			}
+		}
+		LinkedList<JsonValue> elements = new LinkedList<JsonValue>();
+		for (List<JsonValue> chunk : chunks) {
+			elements.addAll(chunk);
+		}
+		if (JsonValue.debug) {
+			Output.logdebug(Output.padStr("JsonParallelParser::parse: ", 60) + "Parsed " + elements.size()
+					+ " JSON array elements in " + chunks.length + " chunks");
+		}
+		return new JsonValueArray(elements);
+	}
+
+	/**
+	 * Find the split points of a JSON array
+	 *
+	 * @param json
+	 *           The JSON array
+	 * @return The position of the opening '[', the positions of the commas to
+	 *         split at, and the position of the closing ']'. Empty if the array
+	 *         has no elements.
+	 * @throws JsonException
+	 *            Thrown if the string is not a JSON array
+	 */
+	private int[] split(String json) throws JsonException {
+		int length = json.length();
+		int start = 0;
+		while ((start < length) && JsonParser.isWhitespace(json.charAt(start))) {
+			start++;
+		}
+		if ((start == length) || (json.charAt(start) != '[')) {
+			throw new JsonException("Expected a JSON array at position " + start);
+		}
+		int[] splits = new int[16];
+		int count = 0;
+		splits[count++] = start;
+		int depth = 0;
+		int last = start;
+		int end = -1;
+		for (int i = start; i < length; i++) {
+			char c = json.charAt(i);
+			if (c == '"') {
+				for (i++; (i < length) && (json.charAt(i) != '"'); i++) {
+					if (json.charAt(i) == '\\') {
+						i++;
+					}
+				}
+				if (i >= length) {
+					throw new JsonException("Unterminated JSON string in JSON array");
+				}
+			} else if ((c == '[') || (c == '{')) {
+				depth++;
+			} else if ((c == ']') || (c == '}')) {
+				if (--depth == 0) {
+					if (c != ']') {
+						throw new JsonException("Expected ',' or ']' in JSON array at position " + i);
+					}
+					end = i;
+					break;
+				}
+			} else if ((c == ',') && (depth == 1) && ((i - last) >= this.chunkSize)) {
+				if (count == splits.length) {
+					splits = Arrays.copyOf(splits, splits.length * 2);
+				}
+				splits[count++] = i;
+				last = i;
+			}
+		}
+		if (end < 0) {
+			throw new JsonException("Unexpected end of JSON input at position " + length);
+		}
+		for (int i = end + 1; i < length; i++) {
+			if (!JsonParser.isWhitespace(json.charAt(i))) {
+				throw new JsonException("Unexpected trailing content after JSON value at position " + i);
+			}
+		}
+
+		//////////////////////////////
+		// An array with no elements has no chunks
+		if (count == 1) {
+			int i = start + 1;
+			while ((i < end) && JsonParser.isWhitespace(json.charAt(i))) {
+				i++;
+			}
+			if (i == end) {
+				return new int[0];
+			}
+		}
+		if (count == splits.length) {
+			splits = Arrays.copyOf(splits, count + 1);
+		}
+		splits[count++] = end;
+		return Arrays.copyOf(splits, count);
+	}
+
+	/**
+	 * Create an array to hold the parsed chunks
+	 *
+	 * @param length
+	 *           The number of chunks
+	 * @return The array
+	 */
+	static private List<JsonValue>[] newChunkArray(int length) {
+		// Generic arrays cannot be created directly. The array never leaves this
+		// class and only holds lists of JsonValue, so the cast is safe.
+		@SuppressWarnings("unchecked")
+		List<JsonValue>[] ret = (List<JsonValue>[]) new List<?>[length];
+		return ret;
+	}
+
+	/**
+	 * Parses a range of chunks, splitting the range in two and forking until
+	 * there is a single chunk to parse
+	 */
+	static private class ChunkTask extends RecursiveAction {
+
+		private static final long			serialVersionUID	= 1L;
+		/**
+		 * The parsed elements of each chunk
+		 */
+		private final List<JsonValue>[]	chunks;
+		/**
+		 * One past the last chunk to parse
+		 */
+		private final int						hi;
+		/**
+		 * The JSON array
+		 */
+		private final String					json;
+		/**
+		 * The first chunk to parse
+		 */
+		private final int						lo;
+		/**
+		 * The split points of the array
+		 */
+		private final int[]					splits;
+
+		ChunkTask(String json, int[] splits, List<JsonValue>[] chunks, int lo, int hi) {
+			super();
+			this.json = json;
+			this.splits = splits;
+			this.chunks = chunks;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		@Override
+		protected void compute() {
+			if ((this.hi - this.lo) == 1) {
+				try {
+					this.parseChunk(this.lo);
+				} catch (JsonException e) {
+					throw new RuntimeException(e);
+				}
+				return;
+			}
+			int mid = (this.lo + this.hi) >>> 1;
+			ForkJoinTask.invokeAll(new ChunkTask(this.json, this.splits, this.chunks, this.lo, mid),
+					new ChunkTask(this.json, this.splits, this.chunks, mid, this.hi));
+		}
+
+		/**
+		 * Parse the elements of a chunk
+		 *
+		 * @param chunk
+		 *           The index of the chunk
+		 * @throws JsonException
+		 *            Thrown if the chunk is not a valid sequence of elements
+		 */
+		void parseChunk(int chunk) throws JsonException {
+			JsonTreeBuilder builder = new JsonTreeBuilder();
+			JsonParser parser = new JsonParser(this.json, this.splits[chunk] + 1, this.splits[chunk + 1], builder);
+			builder.startArray();
+			parser.parseElements();
+			builder.endArray();
+			this.chunks[chunk] = ((JsonValueArray) builder.getResult()).getElements();
+		}
+	}
+}
@@ -0,0 +1,788 @@
+package com.pearcevps.json;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A single pass JSON parser. The parser walks its input once, using a cursor
+ * into the string, and pushes the events of the document to a
+ * {@link JsonHandler}. No substrings are created for the objects and arrays
+ * being parsed, so the cost of a parse is linear in the length of the input,
+ * irrespective of how deeply the document is nested. Nesting is tracked on
+ * an explicit stack rather than by recursion, so the depth of a document is
+ * only limited by its {@link ParseContext}, never by the Java stack. The tree of
+ * {@link JsonValue} objects that the rest of the library works with is built
+ * by the {@link JsonTreeBuilder} handler.
+ * <p>
+ * {@link #parseLazy(String)} is an alternative that only indexes the objects
+ * and arrays in the input: each member is scanned to find where its name and
+ * value start and end, and its value is parsed the first time it is asked for.
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonParser {
+
+	/**
+	 * Parse a JSON value from a string. The string must contain exactly one
+	 * JSON value, optionally surrounded by white space.
+	 *
+	 * @param json
+	 *           The string from which the JSON value is parsed.
+	 * @return The parsed JSON value
+	 * @throws JsonException
+	 *            Thrown if the string is not valid JSON
+	 */
+	static public JsonValue parse(String json) throws JsonException {
+		JsonTreeBuilder builder = new JsonTreeBuilder();
+		JsonParser.parse(json, builder);
+		return builder.getResult();
+	}
+
+	/**
+	 * Parse a JSON value from a string, pushing its events to a handler rather
+	 * than building a tree. The string must contain exactly one JSON value,
+	 * optionally surrounded by white space.
+	 *
+	 * @param json
+	 *           The string from which the JSON value is parsed.
+	 * @param handler
+	 *           The handler that receives the parse events
+	 * @throws JsonException
+	 *            Thrown if the string is not valid JSON, or by the handler
+	 */
+	static public void parse(String json, JsonHandler handler) throws JsonException {
+		JsonParser.parse(json, handler, new ParseContext());
+	}
+
+	/**
+	 * Parse a JSON value from a string, pushing its events to a handler, with
+	 * the limits of a parse context
+	 *
+	 * @param json
+	 *           The string from which the JSON value is parsed.
+	 * @param handler
+	 *           The handler that receives the parse events
+	 * @param context
+	 *           The context of this parse, e.g. holding its maximum depth
+	 * @throws JsonException
+	 *            Thrown if the string is not valid JSON, exceeds the limits of
+	 *            the context, or by the handler
+	 */
+	static public void parse(String json, JsonHandler handler, ParseContext context) throws JsonException {
+		JsonParser parser = new JsonParser(json, handler, context);
+		parser.parseValue();
+		parser.expectEnd();
+	}
+
+	/**
+	 * Parse a JSON value from a string with the limits of a parse context
+	 *
+	 * @param json
+	 *           The string from which the JSON value is parsed.
+	 * @param context
+	 *           The context of this parse, e.g. holding its maximum depth
+	 * @return The parsed JSON value
+	 * @throws JsonException
+	 *            Thrown if the string is not valid JSON, or exceeds the limits
+	 *            of the context
+	 */
+	static public JsonValue parse(String json, ParseContext context) throws JsonException {
+		JsonTreeBuilder builder = new JsonTreeBuilder();
+		JsonParser.parse(json, builder, context);
+		return builder.getResult();
+	}
+
+	/**
+	 * Parse a JSON array from a string, returning the values in the array
+	 *
+	 * @param json
+	 *           The string containing the JSON array to parse
+	 * @return The values in the array
+	 * @throws JsonException
+	 *            Thrown if the string is not a valid JSON array
+	 */
+	static public List<JsonValue> parseArray(String json) throws JsonException {
+		JsonTreeBuilder builder = new JsonTreeBuilder();
+		JsonParser parser = new JsonParser(json, builder);
+		parser.skipWhitespace();
+		if (parser.peek() != '[') {
+			throw parser.error("Expected a JSON array");
+		}
+		parser.parseValue();
+		parser.expectEnd();
+		return ((JsonValueArray) builder.getResult()).getElements();
+	}
+
+	/**
+	 * Parse a JSON object from a string, adding the pairs of the object into an
+	 * existing JsonValueObject.
+	 *
+	 * @param json
+	 *           The string containing the JSON object to parse
+	 * @param target
+	 *           The JSON object to which the parsed pairs are added
+	 * @throws JsonException
+	 *            Thrown if the string is not a valid JSON object
+	 */
+	static public void parseObject(String json, JsonValueObject target) throws JsonException {
+		JsonParser parser = new JsonParser(json, new JsonTreeBuilder(target));
+		parser.skipWhitespace();
+		if (parser.peek() != '{') {
+			throw parser.error("Expected a JSON object");
+		}
+		parser.parseValue();
+		parser.expectEnd();
+	}
+
+	/**
+	 * Parse a JSON value from a string lazily. Objects and arrays are returned
+	 * with only the offsets of their members recorded; the value of a member is
+	 * parsed the first time it is read through {@link JsonValueObject#get(String)},
+	 * {@link JsonValueArray#get(int)}, {@link JsonValueObject#getMembers()} or
+	 * {@link JsonValueArray#getElements()}. The whole input is still checked to
+	 * be valid JSON when it is indexed, so reading a member later cannot fail.
+	 *
+	 * @param json
+	 *           The string from which the JSON value is parsed. It is held by
+	 *           the returned value until all of its members have been read.
+	 * @return The parsed JSON value
+	 * @throws JsonException
+	 *            Thrown if the string is not valid JSON
+	 */
+	static public JsonValue parseLazy(String json) throws JsonException {
+		if (json == null) {
+			throw new JsonException("Cannot parse a null JSON string");
+		}
+		return JsonParser.parseLazy(json, 0, json.length());
+	}
+
+	/**
+	 * Parse a JSON value lazily from a range of a string
+	 *
+	 * @param source
+	 *           The string containing the JSON value
+	 * @param start
+	 *           The index of the first character of the value
+	 * @param end
+	 *           One past the index of the last character of the value
+	 * @return The parsed JSON value
+	 * @throws JsonException
+	 *            Thrown if the range is not a valid JSON value
+	 */
+	static JsonValue parseLazy(String source, int start, int end) throws JsonException {
+		JsonTreeBuilder builder = new JsonTreeBuilder();
+		JsonParser parser = new JsonParser(source, start, end, builder);
+		parser.skipWhitespace();
+		JsonValue ret;
+		switch (parser.peek()) {
+		case '{':
+			ret = parser.indexObject();
+			break;
+		case '[':
+			ret = parser.indexArray();
+			break;
+		default:
+			parser.parseValue();
+			ret = builder.getResult();
+			break;
+		}
+		parser.expectEnd();
+		return ret;
+	}
+
+	/**
+	 * Push the event for a bare JSON literal to a handler: a number, true, false
+	 * or null. For compatibility with earlier versions of this library the
+	 * keywords are not case sensitive.
+	 *
+	 * @param s
+	 *           The characters holding the literal
+	 * @param start
+	 *           The index of the first character of the literal
+	 * @param end
+	 *           One past the index of the last character of the literal, with
+	 *           no surrounding white space
+	 * @param numbers
+	 *           The scanner to read numbers with
+	 * @param handler
+	 *           The handler to receive the event
+	 * @return false if the literal is not recognised, in which case no event is
+	 *         pushed
+	 * @throws JsonException
+	 *            Thrown by the handler
+	 */
+	static boolean emitLiteral(CharSequence s, int start, int end, JsonNumberScanner numbers, JsonHandler handler)
+			throws JsonException {
+		if (numbers.scan(s, start, end) != JsonNumberScanner.Kind.INVALID) {
+			numbers.emit(handler);
+			return true;
+		}
+		if (JsonParser.keywordEquals(s, start, end, "true")) {
+			handler.value(true);
+			return true;
+		}
+		if (JsonParser.keywordEquals(s, start, end, "false")) {
+			handler.value(false);
+			return true;
+		}
+		if (JsonParser.keywordEquals(s, start, end, "null")) {
+			handler.nullValue();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Is a character white space between the tokens of a document? Only the
+	 * four characters RFC 8259 allows are, so that every parser, whether it
+	 * reads characters or UTF-8 bytes, accepts the same documents.
+	 *
+	 * @param c
+	 *           The character, or byte
+	 * @return true if it is white space
+	 */
+	static boolean isWhitespace(int c) {
+		return (c == ' ') || (c == '\n') || (c == '\r') || (c == '\t');
+	}
+
+	/**
+	 * Is a range of characters a keyword, ignoring case?
+	 *
+	 * @param s
+	 *           The characters
+	 * @param start
+	 *           The index of the first character of the range
+	 * @param end
+	 *           One past the index of the last character of the range
+	 * @param keyword
+	 *           The keyword, in lower case
+	 * @return true if the range matches the keyword
+	 */
+	static boolean keywordEquals(CharSequence s, int start, int end, String keyword) {
+		if ((end - start) != keyword.length()) {
+			return false;
+		}
+		for (int i = 0; i < keyword.length(); i++) {
+			if (Character.toLowerCase(s.charAt(start + i)) != keyword.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * One past the last character in the input that can be parsed
+	 */
+	private final int				end;
+	/**
+	 * The stack of objects and arrays the cursor is inside; true for an object
+	 */
+	private boolean[]				containers	= new boolean[16];
+	/**
+	 * The context of this parse, tracking its depth
+	 */
+	private final ParseContext	context;
+	/**
+	 * The handler that receives the parse events
+	 */
+	private final JsonHandler	handler;
+	/**
+	 * The string being parsed
+	 */
+	private final String			input;
+	/**
+	 * The scanner that reads numbers, reused for every number in the input
+	 */
+	private final JsonNumberScanner	numbers	= new JsonNumberScanner();
+	/**
+	 * The cursor; the index of the next character to be read from the input
+	 */
+	private int						pos;
+
+	/**
+	 * Create a parser over the whole of a string
+	 *
+	 * @param input
+	 *           The string to parse
+	 * @param handler
+	 *           The handler that receives the parse events
+	 * @throws JsonException
+	 *            Thrown if the input or handler is null
+	 */
+	public JsonParser(String input, JsonHandler handler) throws JsonException {
+		this(input, handler, new ParseContext());
+	}
+
+	/**
+	 * Create a parser over the whole of a string, with the limits of a parse
+	 * context
+	 *
+	 * @param input
+	 *           The string to parse
+	 * @param handler
+	 *           The handler that receives the parse events
+	 * @param context
+	 *           The context of the parse, e.g. holding its maximum depth
+	 * @throws JsonException
+	 *            Thrown if the input, handler or context is null
+	 */
+	public JsonParser(String input, JsonHandler handler, ParseContext context) throws JsonException {
+		if (input == null) {
+			throw new JsonException("Cannot parse a null JSON string");
+		}
+		if (handler == null) {
+			throw new JsonException("Cannot parse JSON to a null handler");
+		}
+		if (context == null) {
+			throw new JsonException("Cannot parse JSON with a null context");
+		}
+		this.input = input;
+		this.handler = handler;
+		this.context = context;
+		this.pos = 0;
+		this.end = input.length();
+	}
+
+	/**
+	 * Create a parser over a range of a string
+	 *
+	 * @param input
+	 *           The string to parse
+	 * @param start
+	 *           The index of the first character to parse
+	 * @param end
+	 *           One past the index of the last character to parse
+	 * @param handler
+	 *           The handler that receives the parse events
+	 */
+	JsonParser(String input, int start, int end, JsonHandler handler) {
+		super();
+		this.input = input;
+		this.handler = handler;
+		this.context = new ParseContext();
+		this.pos = start;
+		this.end = end;
+	}
+
+	/**
+	 * Check that nothing but white space follows the cursor
+	 *
+	 * @throws JsonException
+	 *            Thrown if there is trailing content
+	 */
+	public void expectEnd() throws JsonException {
+		this.skipWhitespace();
+		if (this.pos < this.end) {
+			throw this.error("Unexpected trailing content after JSON value");
+		}
+	}
+
+	/**
+	 * Get the index of the next character to be read from the input
+	 *
+	 * @return The cursor position
+	 */
+	public int getPosition() {
+		return this.pos;
+	}
+
+	/**
+	 * Parse the next JSON value from the cursor position, pushing its events to
+	 * the handler
+	 *
+	 * @throws JsonException
+	 *            Thrown if the input at the cursor is not a valid JSON value
+	 */
+	public void parseValue() throws JsonException {
+		this.walk(true);
+	}
+
+	/**
+	 * Parse a sequence of comma separated JSON values up to the end of the
+	 * parser's range, i.e. the contents of an array without its brackets,
+	 * pushing the events of each value to the handler
+	 *
+	 * @throws JsonException
+	 *            Thrown if the range is not a valid sequence of values
+	 */
+	void parseElements() throws JsonException {
+		while (true) {
+			this.skipWhitespace();
+			if (this.pos >= this.end) {
+				// The range ends at the ',' or ']' after it, where a value is missing
+				throw this.error("Expected a JSON value");
+			}
+			this.parseValue();
+			this.skipWhitespace();
+			if (this.pos >= this.end) {
+				return;
+			}
+			if (this.input.charAt(this.pos) != ',') {
+				throw this.error("Expected ',' or ']' in JSON array");
+			}
+			this.pos++;
+		}
+	}
+
+	/**
+	 * Create an exception describing a parse failure at the cursor position
+	 *
+	 * @param message
+	 *           The reason for the failure
+	 * @return The exception to throw
+	 */
+	JsonException error(String message) {
+		return new JsonException(message + " at position " + this.pos);
+	}
+
+	/**
+	 * Get the character at the cursor position without consuming it
+	 *
+	 * @return The character, or 0 if the cursor is at the end of the input
+	 */
+	char peek() {
+		if (this.pos >= this.end) {
+			return 0;
+		}
+		return this.input.charAt(this.pos);
+	}
+
+	/**
+	 * Move the cursor past any white space
+	 */
+	void skipWhitespace() {
+		while ((this.pos < this.end) && JsonParser.isWhitespace(this.input.charAt(this.pos))) {
+			this.pos++;
+		}
+	}
+
+	/**
+	 * Index a JSON array at the cursor, i.e. the cursor must be on a '['. The
+	 * start and end of each element is recorded, and the elements are checked
+	 * but not parsed. The cursor is left after the closing ']'.
+	 *
+	 * @return The lazy array
+	 * @throws JsonException
+	 */
+	private JsonValueArray indexArray() throws JsonException {
+		int[] offsets = new int[16];
+		int count = 0;
+		this.pos++;
+		this.skipWhitespace();
+		if (this.peek() == ']') {
+			this.pos++;
+			return new JsonValueArray(this.input, new int[0]);
+		}
+		while (true) {
+			this.skipWhitespace();
+			if ((count + 2) > offsets.length) {
+				offsets = Arrays.copyOf(offsets, offsets.length * 2);
+			}
+			offsets[count++] = this.pos;
+			this.skipValue();
+			offsets[count++] = this.pos;
+			this.skipWhitespace();
+			char c = this.peek();
+			this.pos++;
+			if (c == ',') {
+				continue;
+			}
+			if (c == ']') {
+				break;
+			}
+			this.pos--;
+			throw this.error("Expected ',' or ']' in JSON array");
+		}
+		return new JsonValueArray(this.input, Arrays.copyOf(offsets, count));
+	}
+
+	/**
+	 * Index a JSON object at the cursor, i.e. the cursor must be on a '{'. The
+	 * start and end of the name and value of each member is recorded, and the
+	 * values are checked but not parsed. The cursor is left after the closing
+	 * '}'.
+	 *
+	 * @return The lazy object
+	 * @throws JsonException
+	 */
+	private JsonValueObject indexObject() throws JsonException {
+		int[] offsets = new int[32];
+		int count = 0;
+		this.pos++;
+		this.skipWhitespace();
+		if (this.peek() == '}') {
+			this.pos++;
+			return new JsonValueObject(this.input, new int[0]);
+		}
+		while (true) {
+			this.skipWhitespace();
+			if (this.peek() != '"') {
+				throw this.error("JsonValueObject - object name doesn't start with \"");
+			}
+			if ((count + 4) > offsets.length) {
+				offsets = Arrays.copyOf(offsets, offsets.length * 2);
+			}
+			offsets[count++] = this.pos + 1;
+			offsets[count++] = this.skipString();
+			this.skipWhitespace();
+			if (this.peek() != ':') {
+				throw this.error("Expected ':' after JSON object name");
+			}
+			this.pos++;
+			this.skipWhitespace();
+			offsets[count++] = this.pos;
+			this.skipValue();
+			offsets[count++] = this.pos;
+			this.skipWhitespace();
+			char c = this.peek();
+			this.pos++;
+			if (c == ',') {
+				continue;
+			}
+			if (c == '}') {
+				break;
+			}
+			this.pos--;
+			throw this.error("Expected ',' or '}' in JSON object");
+		}
+		return new JsonValueObject(this.input, Arrays.copyOf(offsets, count));
+	}
+
+	/**
+	 * Parse a bare JSON literal at the cursor: a number, true, false or null.
+	 *
+	 * @throws JsonException
+	 *            Thrown if the literal is not recognised
+	 */
+	private void parseLiteral() throws JsonException {
+		int start = this.pos;
+		while (this.pos < this.end) {
+			char c = this.input.charAt(this.pos);
+			if ((c == ',') || (c == '}') || (c == ']') || (c == ':') || JsonParser.isWhitespace(c)) {
+				break;
+			}
+			this.pos++;
+		}
+		if (start == this.pos) {
+			throw this.error("Expected a JSON value");
+		}
+		if (!JsonParser.emitLiteral(this.input, start, this.pos, this.numbers, this.handler)) {
+			String token = this.input.substring(start, this.pos);
+			this.pos = start;
+			throw this.error("Invalid JSON value '" + token + "'");
+		}
+	}
+
+	/**
+	 * Parse a JSON string at the cursor, i.e. the cursor must be on a '"'. The
+	 * escape sequences within the string are left in place. The cursor is left
+	 * after the closing '"'.
+	 *
+	 * @return The characters between the quotes
+	 * @throws JsonException
+	 *            Thrown if the string is not terminated
+	 */
+	private String parseRawString() throws JsonException {
+		int start = this.pos + 1;
+		return this.input.substring(start, this.skipString());
+	}
+
+	/**
+	 * Move the cursor past a bare JSON literal: a number, true, false or null.
+	 * Numbers are checked by the same scanner that parses them, so that every
+	 * literal that passes can later be parsed.
+	 *
+	 * @throws JsonException
+	 *            Thrown if the literal is not recognised
+	 */
+	private void skipLiteral() throws JsonException {
+		int start = this.pos;
+		while (this.pos < this.end) {
+			char c = this.input.charAt(this.pos);
+			if ((c == ',') || (c == '}') || (c == ']') || (c == ':') || JsonParser.isWhitespace(c)) {
+				break;
+			}
+			this.pos++;
+		}
+		int length = this.pos - start;
+		if (length == 0) {
+			throw this.error("Expected a JSON value");
+		}
+		if (JsonParser.keywordEquals(this.input, start, this.pos, "true")
+				|| JsonParser.keywordEquals(this.input, start, this.pos, "false")
+				|| JsonParser.keywordEquals(this.input, start, this.pos, "null")) {
+			return;
+		}
+		if (this.numbers.scan(this.input, start, this.pos) == JsonNumberScanner.Kind.INVALID) {
+			String token = this.input.substring(start, this.pos);
+			this.pos = start;
+			throw this.error("Invalid JSON value '" + token + "'");
+		}
+	}
+
+	/**
+	 * Move the cursor past a JSON string, i.e. the cursor must be on a '"'. The
+	 * cursor is left after the closing '"'.
+	 *
+	 * @return The index of the closing '"'
+	 * @throws JsonException
+	 *            Thrown if the string is not terminated
+	 */
+	private int skipString() throws JsonException {
+		int start = ++this.pos;
+		while (this.pos < this.end) {
+			char c = this.input.charAt(this.pos);
+			if (c == '"') {
+				return this.pos++;
+			}
+			if (c == '\\') {
+				this.pos++;
+			}
+			this.pos++;
+		}
+		this.pos = start - 1;
+		throw this.error("Unterminated JSON string");
+	}
+
+	/**
+	 * Move the cursor past the next JSON value without pushing any events. The
+	 * value is checked to be valid JSON.
+	 *
+	 * @throws JsonException
+	 *            Thrown if the input at the cursor is not a valid JSON value
+	 */
+	private void skipValue() throws JsonException {
+		this.walk(false);
+	}
+
+	/**
+	 * Walk the next JSON value from the cursor, either pushing its events to
+	 * the handler or just checking it. Nesting is tracked on an explicit stack
+	 * rather than by recursion, so documents of any depth can be walked without
+	 * exhausting the Java stack; the depth is only limited by the context. The
+	 * cursor is left after the value.
+	 *
+	 * @param emit
+	 *           true to push events to the handler, false to only check the
+	 *           value
+	 * @throws JsonException
+	 *            Thrown if the input at the cursor is not a valid JSON value, or
+	 *            nests more deeply than the context allows
+	 */
+	private void walk(boolean emit) throws JsonException {
+		int depth = 0;
+		try {
+			value: while (true) {
+				//////////////////////////////
+				// A value: open an object or array, or read a scalar
+				this.skipWhitespace();
+				if (this.pos >= this.end) {
+					throw this.error("Unexpected end of JSON input");
+				}
+				char c = this.input.charAt(this.pos);
+				if ((c == '{') || (c == '[')) {
+					boolean object = c == '{';
+					this.context.enter(this.pos);
+					if (depth == this.containers.length) {
+						this.containers = Arrays.copyOf(this.containers, depth * 2);
+					}
+					this.containers[depth++] = object;
+					if (emit) {
+						if (object) {
+							this.handler.startObject();
+						} else {
+							this.handler.startArray();
+						}
+					}
+					this.pos++;
+					this.skipWhitespace();
+					if (this.peek() != (object ? '}' : ']')) {
+						if (object) {
+							this.walkName(emit);
+						}
+						continue;
+					}
+					// An empty object or array is closed below
+				} else if (c == '"') {
+					if (emit) {
+						this.handler.value(JsonString.getJavaStringFromJsonString(this.parseRawString()));
+					} else {
+						this.skipString();
+					}
+				} else if (emit) {
+					this.parseLiteral();
+				} else {
+					this.skipLiteral();
+				}
+
+				//////////////////////////////
+				// After a value: move on to the next member, or close the
+				// objects and arrays that the value ends
+				while (depth > 0) {
+					boolean object = this.containers[depth - 1];
+					this.skipWhitespace();
+					c = this.peek();
+					this.pos++;
+					if (c == ',') {
+						if (object) {
+							this.walkName(emit);
+						}
+						continue value;
+					}
+					if (c == (object ? '}' : ']')) {
+						if (emit) {
+							if (object) {
+								this.handler.endObject();
+							} else {
+								this.handler.endArray();
+							}
+						}
+						this.context.exit();
+						depth--;
+						continue;
+					}
+					this.pos--;
+					throw this.error(object ? "Expected ',' or '}' in JSON object" : "Expected ',' or ']' in JSON array");
+				}
+				return;
+			}
+		} finally {
+			//////////////////////////////
+			// Leave the context as it was if the walk failed part way
+			for (; depth > 0; depth--) {
+				this.context.exit();
+			}
+		}
+	}
+
+	/**
+	 * Walk the name of an object member and the ':' that follows it
+	 *
+	 * @param emit
+	 *           true to push the name to the handler
+	 * @throws JsonException
+	 *            Thrown if the cursor is not on a valid name
+	 */
+	private void walkName(boolean emit) throws JsonException {
+		this.skipWhitespace();
+		if (this.peek() != '"') {
+			throw this.error("JsonValueObject - object name doesn't start with \"");
+		}
+		String name = null;
+		if (emit) {
+			name = JsonString.getJavaStringFromJsonString(this.parseRawString());
+		} else {
+			this.skipString();
+		}
+		this.skipWhitespace();
+		if (this.peek() != ':') {
+			throw this.error(emit ? "Expected ':' after JSON object name \"" + name + "\""
+					: "Expected ':' after JSON object name");
+		}
+		this.pos++;
+		if (emit) {
+			this.handler.name(name);
+		}
+	}
+}
@@ -0,0 +1,654 @@
+package com.pearcevps.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A pull parser that reads a JSON document from a stream, one token at a time.
+ * Only a fixed size buffer of characters is held in memory, plus the text of
+ * the token currently being read, so documents of any size can be read. Use
+ * {@link #peek()} to find the type of the next token and the begin, end and
+ * next methods to consume it, e.g.
+ *
+ * <pre>
+ * reader.beginObject();
+ * while (reader.hasNext()) {
+ * 	String name = reader.nextName();
+ * 	...
+ * }
+ * reader.endObject();
+ * </pre>
+ *
+ * {@link JsonValue#readTree(JsonReader)} builds the usual tree of JsonValue
+ * objects from the next value in the stream, and {@link #readValue(JsonHandler)}
+ * pushes the events of the next value to a {@link JsonHandler}.
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonReader implements Closeable {
+
+	/**
+	 * The default number of characters buffered from the underlying reader
+	 */
+	static public final int		DEFAULT_BUFFER_SIZE	= 8192;
+
+	/*
+	 * The scopes that can be on the nesting stack
+	 */
+	static private final int	DANGLING_NAME			= 1;
+	static private final int	EMPTY_ARRAY				= 2;
+	static private final int	EMPTY_DOCUMENT			= 3;
+	static private final int	EMPTY_OBJECT			= 4;
+	static private final int	NONEMPTY_ARRAY			= 5;
+	static private final int	NONEMPTY_DOCUMENT		= 6;
+	static private final int	NONEMPTY_OBJECT		= 7;
+
+	/**
+	 * Characters read from the underlying reader
+	 */
+	private final char[]			buffer;
+	/**
+	 * The number of characters consumed before the start of the buffer. Used
+	 * for error messages.
+	 */
+	private long					consumed					= 0;
+	/**
+	 * The underlying reader
+	 */
+	private final Reader			in;
+	/**
+	 * The number of valid characters in the buffer
+	 */
+	private int						limit						= 0;
+	/**
+	 * The scanner that reads numbers; holds the value of a peeked number
+	 */
+	private final JsonNumberScanner	numbers					= new JsonNumberScanner();
+	/**
+	 * The next token, if it has been peeked but not consumed; otherwise null
+	 */
+	private JsonToken				peeked					= null;
+	/**
+	 * The text of the peeked token, for names, strings, numbers and booleans
+	 */
+	private String					peekedText				= null;
+	/**
+	 * The index of the next character in the buffer
+	 */
+	private int						pos						= 0;
+	/**
+	 * The scopes of the containers being read, innermost last
+	 */
+	private int[]					stack						= new int[32];
+	/**
+	 * The number of scopes on the stack
+	 */
+	private int						stackSize				= 0;
+	/**
+	 * Scratch space for tokens that span a refill of the buffer
+	 */
+	private final StringBuilder	tokenBuilder			= new StringBuilder();
+
+	/**
+	 * Create a reader over a stream of UTF-8 encoded JSON
+	 *
+	 * @param in
+	 *           The stream to read
+	 */
+	public JsonReader(InputStream in) {
+		this(new InputStreamReader(in, StandardCharsets.UTF_8), JsonReader.DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Create a reader over a stream of characters
+	 *
+	 * @param in
+	 *           The reader to read
+	 */
+	public JsonReader(Reader in) {
+		this(in, JsonReader.DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Create a reader over a stream of characters
+	 *
+	 * @param in
+	 *           The reader to read
+	 * @param bufferSize
+	 *           The number of characters to buffer from the reader
+	 */
+	public JsonReader(Reader in, int bufferSize) {
+		super();
+		if (in == null) {
+			throw new NullPointerException("Cannot read JSON from a null reader");
+		}
+		this.in = in;
+		this.buffer = new char[Math.max(bufferSize, 16)];
+		this.stack[this.stackSize++] = JsonReader.EMPTY_DOCUMENT;
+	}
+
+	/**
+	 * Consume the start of an array
+	 *
+	 * @throws IOException
+	 * @throws JsonException
+	 *            Thrown if the next token is not {@link JsonToken#BEGIN_ARRAY}
+	 */
+	public void beginArray() throws IOException, JsonException {
+		this.expect(JsonToken.BEGIN_ARRAY);
+		this.peeked = null;
+	}
+
+	/**
+	 * Consume the start of an object
+	 *
+	 * @throws IOException
+	 * @throws JsonException
+	 *            Thrown if the next token is not {@link JsonToken#BEGIN_OBJECT}
+	 */
+	public void beginObject() throws IOException, JsonException {
+		this.expect(JsonToken.BEGIN_OBJECT);
+		this.peeked = null;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.peeked = null;
+		this.in.close();
+	}
+
+	/**
+	 * Consume the end of an array
+	 *
+	 * @throws IOException
+	 * @throws JsonException
+	 *            Thrown if the next token is not {@link JsonToken#END_ARRAY}
+	 */
+	public void endArray() throws IOException, JsonException {
+		this.expect(JsonToken.END_ARRAY);
+		this.stackSize--;
+		this.peeked = null;
+	}
+
+	/**
+	 * Consume the end of an object
+	 *
+	 * @throws IOException
+	 * @throws JsonException
+	 *            Thrown if the next token is not {@link JsonToken#END_OBJECT}
+	 */
+	public void endObject() throws IOException, JsonException {
+		this.expect(JsonToken.END_OBJECT);
+		this.stackSize--;
+		this.peeked = null;
+	}
+
+	/**
+	 * Are there more elements in the current array or object?
+	 *
+	 * @return true if the next token is not the end of an array, object or the
+	 *         document
+	 * @throws IOException
+	 * @throws JsonException
+	 */
+	public boolean hasNext() throws IOException, JsonException {
+		JsonToken token = this.peek();
+		return (token != JsonToken.END_OBJECT) && (token != JsonToken.END_ARRAY)
+				&& (token != JsonToken.END_DOCUMENT);
+	}
+
+	/**
+	 * Consume a boolean value
+	 *
+	 * @return The value
+	 * @throws IOException
+	 * @throws JsonException
+	 *            Thrown if the next token is not {@link JsonToken#BOOLEAN}
+	 */
+	public boolean nextBoolean() throws IOException, JsonException {
+		this.expect(JsonToken.BOOLEAN);
+		this.peeked = null;
+		return JsonValueTrue.isJsonBooleanTrue(this.peekedText);
+	}
+
+	/**
+	 * Consume a number value as a double
+	 *
+	 * @return The value
+	 * @throws IOException
+	 * @throws JsonException
+	 *            Thrown if the next token is not a {@link JsonToken#NUMBER}
+	 */
+	public double nextDouble() throws IOException, JsonException {
+		this.expect(JsonToken.NUMBER);
+		this.peeked = null;
+		return this.numbers.getDouble();
+	}
+
+	/**
+	 * Consume a number value as a long
+	 *
+	 * @return The value
+	 * @throws IOException
+	 * @throws JsonException
+	 *            Thrown if the next token is not a {@link JsonToken#NUMBER}, or
+	 *            is not an integer that fits in a long
+	 */
+	public long nextLong() throws IOException, JsonException {
+		this.expect(JsonToken.NUMBER);
+		if (this.numbers.getKind() != JsonNumberScanner.Kind.LONG) {
+			throw this.error("JSON number '" + this.peekedText + "' is not a long");
+		}
+		this.peeked = null;
+		return this.numbers.getLong();
+	}
+
+	/**
+	 * Consume the name of a pair in an object
+	 *
+	 * @return The name
+	 * @throws IOException
+	 * @throws JsonException
+	 *            Thrown if the next token is not a {@link JsonToken#NAME}
+	 */
+	public String nextName() throws IOException, JsonException {
+		this.expect(JsonToken.NAME);
+		this.peeked = null;
+		return this.peekedText;
+	}
+
+	/**
+	 * Consume a null value
+	 *
+	 * @throws IOException
+	 * @throws JsonException
+	 *            Thrown if the next token is not a {@link JsonToken#NULL}
+	 */
+	public void nextNull() throws IOException, JsonException {
+		this.expect(JsonToken.NULL);
+		this.peeked = null;
+	}
+
+	/**
+	 * Consume a string value. Numbers are returned as their JSON text.
+	 *
+	 * @return The value
+	 * @throws IOException
+	 * @throws JsonException
+	 *            Thrown if the next token is not a {@link JsonToken#STRING} or
+	 *            {@link JsonToken#NUMBER}
+	 */
+	public String nextString() throws IOException, JsonException {
+		JsonToken token = this.peek();
+		if ((token != JsonToken.STRING) && (token != JsonToken.NUMBER)) {
+			throw this.error("Expected " + JsonToken.STRING + " but was " + token);
+		}
+		this.peeked = null;
+		return this.peekedText;
+	}
+
+	/**
+	 * Get the type of the next token without consuming it
+	 *
+	 * @return The type of the next token
+	 * @throws IOException
+	 * @throws JsonException
+	 *            Thrown if the stream is not valid JSON
+	 */
+	public JsonToken peek() throws IOException, JsonException {
+		if (this.peeked != null) {
+			return this.peeked;
+		}
+		int c;
+		switch (this.stack[this.stackSize - 1]) {
+		case EMPTY_DOCUMENT:
+			this.stack[this.stackSize - 1] = JsonReader.NONEMPTY_DOCUMENT;
+			return this.peekValue(this.nextNonWhitespace());
+		case NONEMPTY_DOCUMENT:
+			c = this.nextNonWhitespace();
+			if (c != -1) {
+				throw this.error("Unexpected trailing content after JSON value");
+			}
+			return this.peeked = JsonToken.END_DOCUMENT;
+		case EMPTY_ARRAY:
+			this.stack[this.stackSize - 1] = JsonReader.NONEMPTY_ARRAY;
+			c = this.nextNonWhitespace();
+			if (c == ']') {
+				return this.peeked = JsonToken.END_ARRAY;
+			}
+			return this.peekValue(c);
+		case NONEMPTY_ARRAY:
+			c = this.nextNonWhitespace();
+			if (c == ']') {
+				return this.peeked = JsonToken.END_ARRAY;
+			}
+			if (c != ',') {
+				throw this.error("Expected ',' or ']' in JSON array");
+			}
+			return this.peekValue(this.nextNonWhitespace());
+		case EMPTY_OBJECT:
+		case NONEMPTY_OBJECT:
+			c = this.nextNonWhitespace();
+			if (c == '}') {
+				return this.peeked = JsonToken.END_OBJECT;
+			}
+			if (this.stack[this.stackSize - 1] == JsonReader.NONEMPTY_OBJECT) {
+				if (c != ',') {
+					throw this.error("Expected ',' or '}' in JSON object");
+				}
+				c = this.nextNonWhitespace();
+			}
+			if (c != '"') {
+				throw this.error("JsonValueObject - object name doesn't start with \"");
+			}
+			this.stack[this.stackSize - 1] = JsonReader.DANGLING_NAME;
+			this.peekedText = JsonString.getJavaStringFromJsonString(this.readRawString());
+			return this.peeked = JsonToken.NAME;
+		case DANGLING_NAME:
+			c = this.nextNonWhitespace();
+			if (c != ':') {
+				throw this.error("Expected ':' after JSON object name");
+			}
+			this.stack[this.stackSize - 1] = JsonReader.NONEMPTY_OBJECT;
+			return this.peekValue(this.nextNonWhitespace());
+		default:
+			throw new IllegalStateException("JsonReader has an unknown scope");
+		}
+	}
+
+	/**
+	 * Skip over the next value, including all of its nested values if it is an
+	 * array or object
+	 *
+	 * @throws IOException
+	 * @throws JsonException
+	 */
+	public void skipValue() throws IOException, JsonException {
+		int depth = 0;
+		do {
+			switch (this.peek()) {
+			case BEGIN_ARRAY:
+			case BEGIN_OBJECT:
+				depth++;
+				this.peeked = null;
+				break;
+			case END_ARRAY:
+			case END_OBJECT:
+				depth--;
+				this.stackSize--;
+				this.peeked = null;
+				break;
+			case END_DOCUMENT:
+				throw this.error("Unexpected end of JSON input");
+			default:
+				this.peeked = null;
+				break;
+			}
+		} while (depth > 0);
+	}
+
+	/**
+	 * Read the next value in the stream, pushing its events to a handler. The
+	 * reader is left positioned on the token that follows the value.
+	 *
+	 * @param handler
+	 *           The handler that receives the events
+	 * @throws IOException
+	 * @throws JsonException
+	 *            Thrown if the stream is not valid JSON, or by the handler
+	 */
+	public void readValue(JsonHandler handler) throws IOException, JsonException {
+		int depth = 0;
+		do {
+			JsonToken token = this.peek();
+			switch (token) {
+			case BEGIN_OBJECT:
+				this.beginObject();
+				handler.startObject();
+				depth++;
+				break;
+			case END_OBJECT:
+				if (depth == 0) {
+					throw this.error("Expected a JSON value but was " + token);
+				}
+				this.endObject();
+				handler.endObject();
+				depth--;
+				break;
+			case BEGIN_ARRAY:
+				this.beginArray();
+				handler.startArray();
+				depth++;
+				break;
+			case END_ARRAY:
+				if (depth == 0) {
+					throw this.error("Expected a JSON value but was " + token);
+				}
+				this.endArray();
+				handler.endArray();
+				depth--;
+				break;
+			case NAME:
+				handler.name(this.nextName());
+				break;
+			case STRING:
+				handler.value(this.nextString());
+				break;
+			case NUMBER:
+				this.numbers.emit(handler);
+				this.peeked = null;
+				break;
+			case BOOLEAN:
+				handler.value(this.nextBoolean());
+				break;
+			case NULL:
+				this.nextNull();
+				handler.nullValue();
+				break;
+			default:
+				throw this.error("Unexpected end of JSON input");
+			}
+		} while (depth > 0);
+	}
+
+	/**
+	 * Create an exception describing a parse failure at the current position
+	 *
+	 * @param message
+	 *           The reason for the failure
+	 * @return The exception to throw
+	 */
+	private JsonException error(String message) {
+		return new JsonException(message + " at position " + ((this.consumed + this.pos) - 1));
+	}
+
+	/**
+	 * Check the type of the next token
+	 *
+	 * @param expected
+	 *           The token type expected
+	 * @throws IOException
+	 * @throws JsonException
+	 *            Thrown if the next token is not of the expected type
+	 */
+	private void expect(JsonToken expected) throws IOException, JsonException {
+		JsonToken token = this.peek();
+		if (token != expected) {
+			throw this.error("Expected " + expected + " but was " + token);
+		}
+	}
+
+	/**
+	 * Make sure there is at least one unread character in the buffer
+	 *
+	 * @return false if the end of the stream has been reached
+	 * @throws IOException
+	 */
+	private boolean fill() throws IOException {
+		if (this.pos < this.limit) {
+			return true;
+		}
+		this.consumed += this.limit;
+		this.pos = 0;
+		this.limit = 0;
+		int read;
+		do {
+			read = this.in.read(this.buffer, 0, this.buffer.length);
+		} while (read == 0);
+		if (read < 0) {
+			return false;
+		}
+		this.limit = read;
+		return true;
+	}
+
+	/**
+	 * Read the next character that is not white space
+	 *
+	 * @return The character, or -1 at the end of the stream
+	 * @throws IOException
+	 */
+	private int nextNonWhitespace() throws IOException {
+		while (this.fill()) {
+			char c = this.buffer[this.pos++];
+			if (!JsonParser.isWhitespace(c)) {
+				return c;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Work out the type of the value that starts with a character that has just
+	 * been read
+	 *
+	 * @param c
+	 *           The first character of the value
+	 * @return The type of the value
+	 * @throws IOException
+	 * @throws JsonException
+	 */
+	private JsonToken peekValue(int c) throws IOException, JsonException {
+		switch (c) {
+		case -1:
+			throw this.error("Unexpected end of JSON input");
+		case '{':
+			this.push(JsonReader.EMPTY_OBJECT);
+			return this.peeked = JsonToken.BEGIN_OBJECT;
+		case '[':
+			this.push(JsonReader.EMPTY_ARRAY);
+			return this.peeked = JsonToken.BEGIN_ARRAY;
+		case '"':
+			this.peekedText = JsonString.getJavaStringFromJsonString(this.readRawString());
+			return this.peeked = JsonToken.STRING;
+		default:
+			this.pos--;
+			String token = this.readLiteral();
+			if (JsonValueTrue.isJsonBooleanTrue(token) || JsonValueFalse.isJsonBooleanFalse(token)) {
+				this.peekedText = token;
+				return this.peeked = JsonToken.BOOLEAN;
+			}
+			if (token.equalsIgnoreCase("null")) {
+				this.peekedText = null;
+				return this.peeked = JsonToken.NULL;
+			}
+			if (this.numbers.scan(token, 0, token.length()) != JsonNumberScanner.Kind.INVALID) {
+				this.peekedText = token;
+				return this.peeked = JsonToken.NUMBER;
+			}
+			throw this.error("Invalid JSON value '" + token + "'");
+		}
+	}
+
+	/**
+	 * Push a scope onto the nesting stack, growing it if necessary
+	 *
+	 * @param scope
+	 *           The scope to push
+	 */
+	private void push(int scope) {
+		if (this.stackSize == this.stack.length) {
+			int[] newStack = new int[this.stackSize * 2];
+			System.arraycopy(this.stack, 0, newStack, 0, this.stackSize);
+			this.stack = newStack;
+		}
+		this.stack[this.stackSize++] = scope;
+	}
+
+	/**
+	 * Read a bare literal, i.e. a number, true, false or null
+	 *
+	 * @return The text of the literal
+	 * @throws IOException
+	 * @throws JsonException
+	 */
+	private String readLiteral() throws IOException, JsonException {
+		this.tokenBuilder.setLength(0);
+		while (this.fill()) {
+			int start = this.pos;
+			while (this.pos < this.limit) {
+				char c = this.buffer[this.pos];
+				if ((c == ',') || (c == '}') || (c == ']') || (c == ':') || JsonParser.isWhitespace(c)) {
+					this.tokenBuilder.append(this.buffer, start, this.pos - start);
+					return this.tokenBuilder.toString();
+				}
+				this.pos++;
+			}
+			this.tokenBuilder.append(this.buffer, start, this.pos - start);
+		}
+		if (this.tokenBuilder.length() == 0) {
+			throw this.error("Unexpected end of JSON input");
+		}
+		return this.tokenBuilder.toString();
+	}
+
+	/**
+	 * Read a JSON string, the opening quote having already been read. The
+	 * escape sequences within the string are left in place.
+	 *
+	 * @return The characters between the quotes
+	 * @throws IOException
+	 * @throws JsonException
+	 *            Thrown if the string is not terminated
+	 */
+	private String readRawString() throws IOException, JsonException {
+		//////////////////////
+		// Fast path: the whole string is in the buffer
+		for (int i = this.pos; i < this.limit; i++) {
+			char c = this.buffer[i];
+			if (c == '"') {
+				String ret = new String(this.buffer, this.pos, i - this.pos);
+				this.pos = i + 1;
+				return ret;
+			}
+			if (c == '\\') {
+				break;
+			}
+		}
+		//////////////////////
+		// Slow path: the string has escapes or spans a refill of the buffer
+		this.tokenBuilder.setLength(0);
+		boolean escaped = false;
+		while (this.fill()) {
+			int start = this.pos;
+			while (this.pos < this.limit) {
+				char c = this.buffer[this.pos++];
+				if (escaped) {
+					escaped = false;
+				} else if (c == '\\') {
+					escaped = true;
+				} else if (c == '"') {
+					this.tokenBuilder.append(this.buffer, start, this.pos - start - 1);
+					return this.tokenBuilder.toString();
+				}
+			}
+			this.tokenBuilder.append(this.buffer, start, this.pos - start);
+		}
+		throw this.error("Unterminated JSON string");
+	}
+}
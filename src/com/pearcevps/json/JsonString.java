@@ -1,74 +1,242 @@
 package com.pearcevps.json;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.IOException;
 
+/**
+ * A JSON string, held in its escaped form without the surrounding quotes.
+ * Escaping is driven by a lookup table for the ASCII range, and is a single
+ * pass that returns the original string when nothing needs escaping. By
+ * default escapes are written as &#92;uXXXX; a writer whose
+ * {@link WriteContext#setShortEscapes(boolean)} is set uses the shorter two
+ * character escapes where JSON has them.
+ *
+ * @author andrewpearce
+ *
+ */
 public class JsonString {
 
-	private String str;
+	/**
+	 * The escape for each ASCII character in the default mode, or null if the
+	 * character is written as it is
+	 */
+	static private final String[]	ESCAPES			= new String[128];
+	/**
+	 * The escape for each ASCII character in short escape mode
+	 */
+	static private final String[]	SHORT_ESCAPES	= new String[128];
+
+	static {
+		//////////////////////////////
+		// Control characters must always be escaped
+		for (int c = 0; c < 0x20; c++) {
+			JsonString.ESCAPES[c] = String.format("\\u%04X", c);
+			JsonString.SHORT_ESCAPES[c] = JsonString.ESCAPES[c];
+		}
+		JsonString.ESCAPES['"'] = "\\u0022";
+		JsonString.ESCAPES['\\'] = "\\u005C";
+		JsonString.ESCAPES['\''] = "\\u0027";
+		JsonString.SHORT_ESCAPES['"'] = "\\\"";
+		JsonString.SHORT_ESCAPES['\\'] = "\\\\";
+		JsonString.SHORT_ESCAPES['\''] = "\\u0027";
+		JsonString.SHORT_ESCAPES['\b'] = "\\b";
+		JsonString.SHORT_ESCAPES['\f'] = "\\f";
+		JsonString.SHORT_ESCAPES['\n'] = "\\n";
+		JsonString.SHORT_ESCAPES['\r'] = "\\r";
+		JsonString.SHORT_ESCAPES['\t'] = "\\t";
+	}
+
+	/**
+	 * Escape a Java string for use as the contents of a JSON string
+	 *
+	 * @param value
+	 *           The Java string
+	 * @return The escaped string, without quotes. This is the same instance as
+	 *         the input if nothing needed escaping.
+	 */
+	static public String escape(String value) {
+		String[] escapes = JsonString.ESCAPES;
+		int length = value.length();
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			if ((c < 128) && (escapes[c] != null)) {
+				StringBuilder ret = new StringBuilder(length + 16);
+				ret.append(value, 0, i);
+				try {
+					JsonString.escape(value, i, escapes, ret);
+				} catch (IOException e) {
+					// A StringBuilder never throws
+					throw new IllegalStateException(e);
+				}
+				return ret.toString();
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Append the escaped form of a Java string to an output
+	 *
+	 * @param value
+	 *           The Java string
+	 * @param out
+	 *           The output to append to. No quotes are added.
+	 * @throws IOException
+	 *            Thrown by the output
+	 */
+	static public void escape(String value, Appendable out) throws IOException {
+		JsonString.escape(value, 0, JsonString.ESCAPES, out);
+	}
+
+	/**
+	 * Append the escaped form of a Java string to an output
+	 *
+	 * @param value
+	 *           The Java string
+	 * @param shortEscapes
+	 *           true to write short escapes such as \n, \" and \\ instead of
+	 *           &#92;u000A, &#92;u0022 and &#92;u005C
+	 * @param out
+	 *           The output to append to. No quotes are added.
+	 * @throws IOException
+	 *            Thrown by the output
+	 */
+	static public void escape(String value, boolean shortEscapes, Appendable out) throws IOException {
+		JsonString.escape(value, 0, shortEscapes ? JsonString.SHORT_ESCAPES : JsonString.ESCAPES, out);
+	}
+
+	/**
+	 * Append the escaped form of part of a Java string to an output, copying
+	 * runs of characters that need no escape in one go
+	 *
+	 * @param value
+	 *           The Java string
+	 * @param start
+	 *           The index to start from
+	 * @param escapes
+	 *           The escape table
+	 * @param out
+	 *           The output to append to
+	 * @throws IOException
+	 *            Thrown by the output
+	 */
+	static private void escape(String value, int start, String[] escapes, Appendable out) throws IOException {
+		int length = value.length();
+		int run = start;
+		for (int i = start; i < length; i++) {
+			char c = value.charAt(i);
+			if ((c < 128) && (escapes[c] != null)) {
+				out.append(value, run, i).append(escapes[c]);
+				run = i + 1;
+			}
+		}
+		out.append(value, run, length);
+	}
+
+	private String					str;
+	/**
+	 * The objects and string values whose cached JSON text holds this string,
+	 * or null
+	 */
+	volatile JsonValue[]		textOwners	= null;
 
 	public JsonString(String str) {
 		super();
-		this.str = str;
-		if (str != null) {
-			Map<Integer, String> insertionPoints = new HashMap<Integer, String>();
-			for (int i = 0; i < this.str.length(); i++) {
-				if (this.str.charAt(i) == '\"') {
-					int insertionPoint = i;
-					insertionPoints.put(insertionPoint, "\\u0022");
-				}
-				if (this.str.charAt(i) == '\\') {
-					int insertionPoint = i;
-					insertionPoints.put(insertionPoint, "\\u005C");
-				}
-				if (this.str.charAt(i) == '\'') {
-					int insertionPoint = i;
-					insertionPoints.put(insertionPoint, "\\u0027");
-				}
-				if (this.str.charAt(i) == '\n') {
-					int insertionPoint = i;
-					insertionPoints.put(insertionPoint, "\\u000A");
-				}
-				if (this.str.charAt(i) == '\r') {
-					int insertionPoint = i;
-					insertionPoints.put(insertionPoint, "\\u000D");
-				}
-				if (this.str.charAt(i) == '\f') {
-					int insertionPoint = i;
-					insertionPoints.put(insertionPoint, "\\u000C");
-				}
-				if (this.str.charAt(i) == '\b') {
-					int insertionPoint = i;
-					insertionPoints.put(insertionPoint, "\\u0008");
-				}
-				if (this.str.charAt(i) == '\t') {
-					int insertionPoint = i;
-					insertionPoints.put(insertionPoint, "\\u0009");
-				}
+		this.str = (str == null) ? null : JsonString.escape(str);
+	}
+
+	/**
+	 * Decode the escapes in the contents of a JSON string, in a single pass.
+	 * Every RFC 8259 escape is supported: \" \\ \/ \b \f \n \r \t and
+	 * &#92;uXXXX, where a surrogate pair is simply two consecutive &#92;u escapes.
+	 * An escape that is not recognised, or is cut short, is copied unchanged.
+	 *
+	 * @param jsonString
+	 *           The contents of a JSON string, without the surrounding quotes
+	 * @return The Java string, which is the same instance as the input if it
+	 *         contains no escapes
+	 */
+	static public String getJavaStringFromJsonString(String jsonString) {
+		if (jsonString == null) {
+			return null;
+		}
+		int escape = jsonString.indexOf('\\');
+		if (escape < 0) {
+			return jsonString;
+		}
+		int length = jsonString.length();
+		StringBuilder ret = new StringBuilder(length);
+		ret.append(jsonString, 0, escape);
+		int i = escape;
+		while (i < length) {
+			char c = jsonString.charAt(i);
+			if ((c != '\\') || ((i + 1) == length)) {
+				ret.append(c);
+				i++;
+				continue;
 			}
-			String ret = "";
-			for (int i = 0; i < this.str.length(); i++) {
-				if (!insertionPoints.containsKey(i)) {
-					ret += this.str.charAt(i);
+			char e = jsonString.charAt(i + 1);
+			switch (e) {
+			case '"':
+			case '\\':
+			case '/':
+				ret.append(e);
+				break;
+			case 'b':
+				ret.append('\b');
+				break;
+			case 'f':
+				ret.append('\f');
+				break;
+			case 'n':
+				ret.append('\n');
+				break;
+			case 'r':
+				ret.append('\r');
+				break;
+			case 't':
+				ret.append('\t');
+				break;
+			case 'u':
+				int code = JsonString.hexValue(jsonString, i + 2, length);
+				if (code < 0) {
+					ret.append(c).append(e);
 				} else {
-					ret += insertionPoints.get(i);
+					ret.append((char) code);
+					i += 4;
 				}
+				break;
+			default:
+				ret.append(c).append(e);
+				break;
 			}
-			this.str = ret;
+			i += 2;
 		}
+		return ret.toString();
 	}
 
-	static public String getJavaStringFromJsonString(String jsonString) {
-		String ret = jsonString;
-		ret = ret.replaceAll("\\u0022", "\"");
-		ret = ret.replaceAll("\\u0027", "\'");
-		ret = ret.replaceAll("\\u000A", "\n");
-		ret = ret.replaceAll("\\u000D", "\r");
-		ret = ret.replaceAll("\\u000C", "\f");
-		ret = ret.replaceAll("\\u0008", "\b");
-		ret = ret.replaceAll("\\u0009", "\t");
-		ret = ret.replaceAll("\\u005c", "\\\\");
-		ret = ret.replaceAll("\\u002f", "/");
+	/**
+	 * Read the four hex digits of a &#92;u escape
+	 *
+	 * @param s
+	 *           The string holding the escape
+	 * @param start
+	 *           The index of the first hex digit
+	 * @param end
+	 *           One past the index of the last character that can be read
+	 * @return The UTF-16 code unit, or -1 if there are not four hex digits
+	 */
+	static private int hexValue(String s, int start, int end) {
+		if ((start + 4) > end) {
+			return -1;
+		}
+		int ret = 0;
+		for (int i = start; i < (start + 4); i++) {
+			int digit = Character.digit(s.charAt(i), 16);
+			if (digit < 0) {
+				return -1;
+			}
+			ret = (ret << 4) | digit;
+		}
 		return ret;
 	}
 
@@ -82,6 +250,35 @@ public class JsonString {
 
 	public void setStr(String str) {
 		this.str = str;
+		JsonValue.textChanged(this.textOwners);
+	}
+
+	/**
+	 * Add an object or string value whose cached JSON text holds this string
+	 *
+	 * @param owner
+	 *           The owner
+	 */
+	void addTextOwner(JsonValue owner) {
+		if (!JsonValue.hasOwner(this.textOwners, owner)) {
+			synchronized (this) {
+				this.textOwners = JsonValue.addOwner(this.textOwners, owner);
+			}
+		}
+	}
+
+	/**
+	 * Remove an object or string value that no longer holds this string
+	 *
+	 * @param owner
+	 *           The owner
+	 */
+	void removeTextOwner(JsonValue owner) {
+		if (JsonValue.hasOwner(this.textOwners, owner)) {
+			synchronized (this) {
+				this.textOwners = JsonValue.removeOwner(this.textOwners, owner);
+			}
+		}
 	}
 
 	@Override
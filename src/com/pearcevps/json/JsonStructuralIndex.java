@@ -0,0 +1,152 @@
+package com.pearcevps.json;
+
+import java.util.Arrays;
+
+/**
+ * Stage one of the two stage {@link JsonTape} parser. A single pass over the
+ * input records, in order, the position of:
+ * <ul>
+ * <li>every structural character outside a string: <code>{ } [ ] : ,</code>
+ * </li>
+ * <li>the opening and closing quote of every string. The closing quote of a
+ * string that contains escapes is stored as its bitwise complement, so that
+ * strings without escapes can be used without being scanned again.</li>
+ * <li>the first character of every bare literal (number, true, false or
+ * null)</li>
+ * </ul>
+ * Nothing else about the input is checked at this stage, other than that every
+ * string is terminated. Stage two, in {@link JsonTape}, checks the grammar of
+ * the document while walking the index.
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonStructuralIndex {
+
+	/**
+	 * Build the structural index of a JSON string
+	 *
+	 * @param input
+	 *           The JSON string
+	 * @return The index
+	 * @throws JsonException
+	 *            Thrown if the input is null or contains an unterminated string
+	 */
+	static public JsonStructuralIndex build(String input) throws JsonException {
+		if (input == null) {
+			throw new JsonException("Cannot index a null JSON string");
+		}
+		int length = input.length();
+		int[] positions = new int[Math.max(16, length / 4)];
+		int count = 0;
+		boolean inLiteral = false;
+		for (int i = 0; i < length; i++) {
+			char c = input.charAt(i);
+			if ((count + 2) > positions.length) {
+				positions = Arrays.copyOf(positions, positions.length * 2);
+			}
+			switch (c) {
+			case '{':
+			case '}':
+			case '[':
+			case ']':
+			case ':':
+			case ',':
+				positions[count++] = i;
+				inLiteral = false;
+				break;
+			case '"':
+				positions[count++] = i;
+				boolean escaped = false;
+				int close = -1;
+				for (int j = i + 1; j < length; j++) {
+					char s = input.charAt(j);
+					if (s == '"') {
+						close = j;
+						break;
+					}
+					if (s == '\\') {
+						escaped = true;
+						j++;
+					}
+				}
+				if (close < 0) {
+					throw new JsonException("Unterminated JSON string at position " + i);
+				}
+				positions[count++] = escaped ? ~close : close;
+				i = close;
+				inLiteral = false;
+				break;
+			default:
+				if (JsonParser.isWhitespace(c)) {
+					inLiteral = false;
+				} else if (!inLiteral) {
+					positions[count++] = i;
+					inLiteral = true;
+				}
+				break;
+			}
+		}
+		return new JsonStructuralIndex(input, positions, count);
+	}
+
+	/**
+	 * The number of positions in the index
+	 */
+	private final int			count;
+	/**
+	 * The JSON string that was indexed
+	 */
+	private final String		input;
+	/**
+	 * The positions, in the order they occur in the input
+	 */
+	private final int[]		positions;
+
+	/**
+	 * Create an index
+	 *
+	 * @param input
+	 *           The JSON string that was indexed
+	 * @param positions
+	 *           The positions found in the input
+	 * @param count
+	 *           The number of positions used in the array
+	 */
+	private JsonStructuralIndex(String input, int[] positions, int count) {
+		super();
+		this.input = input;
+		this.positions = positions;
+		this.count = count;
+	}
+
+	/**
+	 * Get the JSON string that was indexed
+	 *
+	 * @return The input
+	 */
+	public String getInput() {
+		return this.input;
+	}
+
+	/**
+	 * Get a position from the index. The closing quote of a string with escapes
+	 * is returned as its bitwise complement.
+	 *
+	 * @param i
+	 *           The index of the position, from 0 to {@link #size()} - 1
+	 * @return The position
+	 */
+	public int getPosition(int i) {
+		return this.positions[i];
+	}
+
+	/**
+	 * Get the number of positions in the index
+	 *
+	 * @return The number of positions
+	 */
+	public int size() {
+		return this.count;
+	}
+}
@@ -0,0 +1,475 @@
+package com.pearcevps.json;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * A JSON document parsed into a flat "tape" of tokens, rather than a tree of
+ * {@link JsonValue} objects. The tape is built in two stages: stage one builds
+ * a {@link JsonStructuralIndex} of the structural characters in the input, and
+ * stage two walks that index, checking the grammar of the document and writing
+ * one or two longs per token to the tape. The whole document is then held in a
+ * single long array plus the input string.
+ * <p>
+ * Each tape entry holds its type in its top byte. The rest of the entry is:
+ * <ul>
+ * <li>start of object or array: the number of members in bits 32 to 55, and
+ * the tape index after the matching end entry in bits 0 to 31</li>
+ * <li>end of object or array: the tape index of the matching start entry</li>
+ * <li>string or object name: the input position of the first character of the
+ * string. The next entry holds the position of the closing quote, or its
+ * bitwise complement if the string contains escapes.</li>
+ * <li>integer or double number: unused. The next entry holds the value, with
+ * doubles stored as their raw long bits.</li>
+ * <li>big integer or big decimal number: the input position of the first
+ * character of the number. The next entry holds the position one past its
+ * last character, and the number is only converted when it is read.</li>
+ * <li>true, false and null: unused</li>
+ * </ul>
+ * {@link #getRoot()} returns the document as a {@link JsonValueObject} or
+ * {@link JsonValueArray} that is a view onto the tape. Members are only turned
+ * into JsonValue objects when they are read, and nested objects and arrays are
+ * themselves views.
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonTape {
+
+	//////////////////////////////
+	// Tape entry types, held in the top byte of each entry
+	static final long	TYPE_BIG_DECIMAL		= 'D';
+	static final long	TYPE_BIG_INTEGER		= 'L';
+	static final long	TYPE_DOUBLE				= 'd';
+	static final long	TYPE_END_ARRAY			= ']';
+	static final long	TYPE_END_OBJECT		= '}';
+	static final long	TYPE_FALSE				= 'f';
+	static final long	TYPE_LONG				= 'l';
+	static final long	TYPE_NULL				= 'n';
+	static final long	TYPE_START_ARRAY		= '[';
+	static final long	TYPE_START_OBJECT		= '{';
+	static final long	TYPE_STRING				= '"';
+	static final long	TYPE_TRUE				= 't';
+
+	/**
+	 * The largest member count that can be held in a start entry
+	 */
+	static private final long	MAX_COUNT		= 0xFFFFFF;
+	/**
+	 * Mask of the payload of a tape entry, below the type byte
+	 */
+	static private final long	PAYLOAD_MASK	= (1L << 56) - 1;
+
+	//////////////////////////////
+	// Stage two states, i.e. what is expected next
+	static private final int	ARRAY_FIRST		= 0;
+	static private final int	ARRAY_NEXT		= 1;
+	static private final int	DONE				= 2;
+	static private final int	OBJECT_COLON	= 3;
+	static private final int	OBJECT_FIRST	= 4;
+	static private final int	OBJECT_NAME		= 5;
+	static private final int	OBJECT_NEXT		= 6;
+	static private final int	VALUE				= 7;
+
+	/**
+	 * Parse a JSON string onto a tape
+	 *
+	 * @param json
+	 *           The JSON string. It is held by the tape.
+	 * @return The tape
+	 * @throws JsonException
+	 *            Thrown if the string is not valid JSON
+	 */
+	static public JsonTape parse(String json) throws JsonException {
+		return JsonTape.parse(JsonStructuralIndex.build(json));
+	}
+
+	/**
+	 * Stage two: build the tape from a structural index
+	 *
+	 * @param index
+	 *           The structural index of the JSON string
+	 * @return The tape
+	 * @throws JsonException
+	 *            Thrown if the indexed string is not valid JSON
+	 */
+	static public JsonTape parse(JsonStructuralIndex index) throws JsonException {
+		String input = index.getInput();
+		long[] tape = new long[(index.size() * 2) + 1];
+		int t = 0;
+		int[] open = new int[32];
+		int depth = 0;
+		int state = JsonTape.VALUE;
+		JsonNumberScanner numbers = new JsonNumberScanner();
+		for (int i = 0; i < index.size(); i++) {
+			int pos = index.getPosition(i);
+			char c = input.charAt(pos);
+			switch (state) {
+			case OBJECT_FIRST:
+			case OBJECT_NAME:
+				if ((state == JsonTape.OBJECT_FIRST) && (c == '}')) {
+					break;
+				}
+				if (c != '"') {
+					throw new JsonException("JsonValueObject - object name doesn't start with \" at position " + pos);
+				}
+				tape[t++] = (JsonTape.TYPE_STRING << 56) | (pos + 1);
+				tape[t++] = index.getPosition(++i);
+				JsonTape.count(tape, open[depth - 1]);
+				state = JsonTape.OBJECT_COLON;
+				continue;
+			case OBJECT_COLON:
+				if (c != ':') {
+					throw new JsonException("Expected ':' after JSON object name at position " + pos);
+				}
+				state = JsonTape.VALUE;
+				continue;
+			case OBJECT_NEXT:
+				if (c == ',') {
+					state = JsonTape.OBJECT_NAME;
+					continue;
+				}
+				if (c != '}') {
+					throw new JsonException("Expected ',' or '}' in JSON object at position " + pos);
+				}
+				break;
+			case ARRAY_FIRST:
+				if (c == ']') {
+					break;
+				}
+				state = JsonTape.VALUE;
+				break;
+			case ARRAY_NEXT:
+				if (c == ',') {
+					state = JsonTape.VALUE;
+					continue;
+				}
+				if (c != ']') {
+					throw new JsonException("Expected ',' or ']' in JSON array at position " + pos);
+				}
+				break;
+			case DONE:
+				throw new JsonException("Unexpected trailing content after JSON value at position " + pos);
+			default:
+				break;
+			}
+
+			//////////////////////////////
+			// Close the innermost container
+			if ((state != JsonTape.VALUE) && ((c == '}') || (c == ']'))) {
+				int start = open[--depth];
+				tape[start] |= t + 1;
+				tape[t++] = (((c == '}') ? JsonTape.TYPE_END_OBJECT : JsonTape.TYPE_END_ARRAY) << 56) | start;
+				state = JsonTape.afterValue(tape, open, depth);
+				continue;
+			}
+
+			//////////////////////////////
+			// A value is expected
+			if ((state == JsonTape.ARRAY_FIRST) || (state == JsonTape.VALUE)) {
+				if (depth > 0) {
+					if ((tape[open[depth - 1]] >>> 56) == JsonTape.TYPE_START_ARRAY) {
+						JsonTape.count(tape, open[depth - 1]);
+					}
+				}
+				switch (c) {
+				case '{':
+				case '[':
+					if (depth == open.length) {
+						open = Arrays.copyOf(open, open.length * 2);
+					}
+					open[depth++] = t;
+					tape[t++] = ((c == '{') ? JsonTape.TYPE_START_OBJECT : JsonTape.TYPE_START_ARRAY) << 56;
+					state = (c == '{') ? JsonTape.OBJECT_FIRST : JsonTape.ARRAY_FIRST;
+					continue;
+				case '"':
+					tape[t++] = (JsonTape.TYPE_STRING << 56) | (pos + 1);
+					tape[t++] = index.getPosition(++i);
+					break;
+				case '}':
+				case ']':
+				case ':':
+				case ',':
+					throw new JsonException("Expected a JSON value at position " + pos);
+				default:
+					t = JsonTape.parseLiteral(input, pos, tape, t, numbers);
+					break;
+				}
+				state = JsonTape.afterValue(tape, open, depth);
+			}
+		}
+		if (state != JsonTape.DONE) {
+			throw new JsonException("Unexpected end of JSON input at position " + input.length());
+		}
+		return new JsonTape(input, Arrays.copyOf(tape, t));
+	}
+
+	/**
+	 * Get the stage two state after a complete value
+	 *
+	 * @param tape
+	 *           The tape being built
+	 * @param open
+	 *           The tape indexes of the open containers
+	 * @param depth
+	 *           The number of open containers
+	 * @return The state
+	 */
+	static private int afterValue(long[] tape, int[] open, int depth) {
+		if (depth == 0) {
+			return JsonTape.DONE;
+		}
+		return ((tape[open[depth - 1]] >>> 56) == JsonTape.TYPE_START_OBJECT) ? JsonTape.OBJECT_NEXT
+				: JsonTape.ARRAY_NEXT;
+	}
+
+	/**
+	 * Add one to the member count of an object or array. The count stops at
+	 * its maximum, after which {@link #getCount(int)} counts the members by
+	 * walking the tape.
+	 *
+	 * @param tape
+	 *           The tape being built
+	 * @param start
+	 *           The tape index of the start of the object or array
+	 */
+	static private void count(long[] tape, int start) {
+		if (((tape[start] >>> 32) & JsonTape.MAX_COUNT) != JsonTape.MAX_COUNT) {
+			tape[start] += 1L << 32;
+		}
+	}
+
+	/**
+	 * Parse a bare literal onto the tape: a number, true, false or null. For
+	 * compatibility with the rest of the library keywords are not case
+	 * sensitive, and numbers may have leading zeros.
+	 *
+	 * @param input
+	 *           The JSON string
+	 * @param start
+	 *           The position of the first character of the literal
+	 * @param tape
+	 *           The tape
+	 * @param t
+	 *           The next free tape index
+	 * @param numbers
+	 *           The scanner to read numbers with
+	 * @return The next free tape index after the literal has been written
+	 * @throws JsonException
+	 *            Thrown if the literal is not valid
+	 */
+	static private int parseLiteral(String input, int start, long[] tape, int t, JsonNumberScanner numbers)
+			throws JsonException {
+		int end = start;
+		while (end < input.length()) {
+			char c = input.charAt(end);
+			if ((c == ',') || (c == '}') || (c == ']') || (c == ':') || (c == '"') || JsonParser.isWhitespace(c)) {
+				break;
+			}
+			end++;
+		}
+		switch (numbers.scan(input, start, end)) {
+		case LONG:
+			tape[t++] = JsonTape.TYPE_LONG << 56;
+			tape[t++] = numbers.getLong();
+			return t;
+		case DOUBLE:
+			tape[t++] = JsonTape.TYPE_DOUBLE << 56;
+			tape[t++] = Double.doubleToRawLongBits(numbers.getDouble());
+			return t;
+		case BIG_INTEGER:
+			tape[t++] = (JsonTape.TYPE_BIG_INTEGER << 56) | start;
+			tape[t++] = end;
+			return t;
+		case BIG_DECIMAL:
+			tape[t++] = (JsonTape.TYPE_BIG_DECIMAL << 56) | start;
+			tape[t++] = end;
+			return t;
+		default:
+			break;
+		}
+		if (JsonParser.keywordEquals(input, start, end, "true")) {
+			tape[t++] = JsonTape.TYPE_TRUE << 56;
+			return t;
+		}
+		if (JsonParser.keywordEquals(input, start, end, "false")) {
+			tape[t++] = JsonTape.TYPE_FALSE << 56;
+			return t;
+		}
+		if (JsonParser.keywordEquals(input, start, end, "null")) {
+			tape[t++] = JsonTape.TYPE_NULL << 56;
+			return t;
+		}
+		throw new JsonException("Invalid JSON value '" + input.substring(start, end) + "' at position " + start);
+	}
+
+	/**
+	 * The JSON string the tape was parsed from
+	 */
+	private final String	input;
+	/**
+	 * The tape entries
+	 */
+	private final long[]	tape;
+
+	/**
+	 * Create a tape
+	 *
+	 * @param input
+	 *           The JSON string the tape was parsed from
+	 * @param tape
+	 *           The tape entries
+	 */
+	private JsonTape(String input, long[] tape) {
+		super();
+		this.input = input;
+		this.tape = tape;
+	}
+
+	/**
+	 * Get the document on the tape. An object or array is returned as a view
+	 * onto the tape.
+	 *
+	 * @return The top level JSON value
+	 */
+	public JsonValue getRoot() {
+		return this.getValue(0);
+	}
+
+	/**
+	 * Get the number of entries on the tape
+	 *
+	 * @return The length of the tape
+	 */
+	public int size() {
+		return this.tape.length;
+	}
+
+	/**
+	 * Get the number of members of an object, or elements of an array
+	 *
+	 * @param i
+	 *           The tape index of the start of the object or array
+	 * @return The number of members or elements
+	 */
+	int getCount(int i) {
+		long count = (this.tape[i] >>> 32) & JsonTape.MAX_COUNT;
+		if (count != JsonTape.MAX_COUNT) {
+			return (int) count;
+		}
+		int ret = 0;
+		boolean object = (this.tape[i] >>> 56) == JsonTape.TYPE_START_OBJECT;
+		int end = this.next(i) - 1;
+		for (int member = i + 1; member < end; member = this.next(member)) {
+			if (object) {
+				member += 2;
+			}
+			ret++;
+		}
+		return ret;
+	}
+
+	/**
+	 * Get the decoded value of a string entry
+	 *
+	 * @param i
+	 *           The tape index of the string
+	 * @return The string, with its JSON escapes decoded
+	 */
+	String getString(int i) {
+		int start = (int) (this.tape[i] & JsonTape.PAYLOAD_MASK);
+		int close = (int) this.tape[i + 1];
+		if (close < 0) {
+			return JsonString.getJavaStringFromJsonString(this.input.substring(start, ~close));
+		}
+		return this.input.substring(start, close);
+	}
+
+	/**
+	 * Get the text of a big integer or big decimal entry
+	 *
+	 * @param i
+	 *           The tape index of the number
+	 * @return The number as it appears in the input
+	 */
+	private String getNumberText(int i) {
+		int start = (int) (this.tape[i] & JsonTape.PAYLOAD_MASK);
+		return this.input.substring(start, (int) this.tape[i + 1]);
+	}
+
+	/**
+	 * Get the JSON value of a tape entry. Objects and arrays are returned as
+	 * views onto the tape, and scalars as new JsonValue objects.
+	 *
+	 * @param i
+	 *           The tape index of the value
+	 * @return The JSON value
+	 */
+	JsonValue getValue(int i) {
+		switch ((int) (this.tape[i] >>> 56)) {
+		case (int) TYPE_START_OBJECT:
+			return new JsonValueObject(this, i);
+		case (int) TYPE_START_ARRAY:
+			return new JsonValueArray(this, i);
+		case (int) TYPE_STRING:
+			return new JsonValueString(this.getString(i));
+		case (int) TYPE_LONG:
+			return new JsonValueNumberLong(this.tape[i + 1]);
+		case (int) TYPE_DOUBLE:
+			return new JsonValueNumberDouble(Double.longBitsToDouble(this.tape[i + 1]));
+		case (int) TYPE_BIG_INTEGER:
+			return new JsonValueNumberBigInteger(new BigInteger(this.getNumberText(i)));
+		case (int) TYPE_BIG_DECIMAL:
+			return new JsonValueNumberBigDecimal(new BigDecimal(this.getNumberText(i)));
+		case (int) TYPE_TRUE:
+			return new JsonValueTrue();
+		case (int) TYPE_FALSE:
+			return new JsonValueFalse();
+		default:
+			return new JsonValueNull();
+		}
+	}
+
+	/**
+	 * Does the string entry at a tape index equal a name?
+	 *
+	 * @param i
+	 *           The tape index of the string
+	 * @param name
+	 *           The name to compare with
+	 * @return true if the decoded string equals the name
+	 */
+	boolean nameEquals(int i, String name) {
+		int start = (int) (this.tape[i] & JsonTape.PAYLOAD_MASK);
+		int close = (int) this.tape[i + 1];
+		if (close < 0) {
+			return name.equals(this.getString(i));
+		}
+		int length = close - start;
+		return (length == name.length()) && this.input.regionMatches(start, name, 0, length);
+	}
+
+	/**
+	 * Get the tape index after a value, skipping the whole of an object or array
+	 *
+	 * @param i
+	 *           The tape index of the value
+	 * @return The tape index of the next entry
+	 */
+	int next(int i) {
+		switch ((int) (this.tape[i] >>> 56)) {
+		case (int) TYPE_START_OBJECT:
+		case (int) TYPE_START_ARRAY:
+			return (int) this.tape[i];
+		case (int) TYPE_STRING:
+		case (int) TYPE_LONG:
+		case (int) TYPE_DOUBLE:
+		case (int) TYPE_BIG_INTEGER:
+		case (int) TYPE_BIG_DECIMAL:
+			return i + 2;
+		default:
+			return i + 1;
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package com.pearcevps.json;
+
+/**
+ * The tokens returned by {@link JsonReader#peek()} as a JSON document is read
+ * from a stream.
+ *
+ * @author andrewpearce
+ *
+ */
+public enum JsonToken {
+
+	/**
+	 * The start of a JSON array, i.e. '['
+	 */
+	BEGIN_ARRAY,
+	/**
+	 * The start of a JSON object, i.e. '{'
+	 */
+	BEGIN_OBJECT,
+	/**
+	 * A JSON true or false value
+	 */
+	BOOLEAN,
+	/**
+	 * The end of a JSON array, i.e. ']'
+	 */
+	END_ARRAY,
+	/**
+	 * The end of the JSON document. No more tokens follow.
+	 */
+	END_DOCUMENT,
+	/**
+	 * The end of a JSON object, i.e. '}'
+	 */
+	END_OBJECT,
+	/**
+	 * The name of a JSON pair within an object
+	 */
+	NAME,
+	/**
+	 * A JSON null value
+	 */
+	NULL,
+	/**
+	 * A JSON number value
+	 */
+	NUMBER,
+	/**
+	 * A JSON string value
+	 */
+	STRING
+}
@@ -0,0 +1,180 @@
+package com.pearcevps.json;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import com.pearcevps.utils.Output;
+
+/**
+ * The {@link JsonHandler} that builds a tree of {@link JsonValue} objects from
+ * the events of a parse. After the parse, the tree is returned by
+ * {@link #getResult()}.
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonTreeBuilder implements JsonHandler {
+
+	/**
+	 * The arrays and objects being built, innermost first
+	 */
+	private final Deque<JsonValue>	containers	= new ArrayDeque<JsonValue>();
+	/**
+	 * The name of the pair whose value is expected next
+	 */
+	private String							name			= null;
+	/**
+	 * The top level value, once it has started
+	 */
+	private JsonValue						result		= null;
+	/**
+	 * An existing object to use for the top level object, or null
+	 */
+	private JsonValueObject				target		= null;
+
+	/**
+	 * Create a builder for a new tree
+	 */
+	public JsonTreeBuilder() {
+		super();
+	}
+
+	/**
+	 * Create a builder that adds the pairs of the top level object into an
+	 * existing object
+	 *
+	 * @param target
+	 *           The object to add the pairs to
+	 */
+	public JsonTreeBuilder(JsonValueObject target) {
+		super();
+		this.target = target;
+	}
+
+	@Override
+	public void endArray() throws JsonException {
+		this.containers.pop();
+	}
+
+	@Override
+	public void endObject() throws JsonException {
+		this.containers.pop();
+	}
+
+	/**
+	 * Get the tree that has been built
+	 *
+	 * @return The top level value, or null if no value has been parsed
+	 */
+	public JsonValue getResult() {
+		return this.result;
+	}
+
+	@Override
+	public void name(String name) throws JsonException {
+		this.name = name;
+	}
+
+	@Override
+	public void nullValue() throws JsonException {
+		this.add(new JsonValueNull());
+	}
+
+	/**
+	 * Clear the builder so that it can build another tree
+	 */
+	public void reset() {
+		this.containers.clear();
+		this.name = null;
+		this.result = null;
+		this.target = null;
+	}
+
+	@Override
+	public void startArray() throws JsonException {
+		JsonValueArray array = new JsonValueArray();
+		this.add(array);
+		this.containers.push(array);
+	}
+
+	@Override
+	public void startObject() throws JsonException {
+		JsonValueObject object;
+		if ((this.target != null) && (this.result == null)) {
+			object = this.target;
+		} else {
+			object = new JsonValueObject();
+		}
+		this.add(object);
+		this.containers.push(object);
+	}
+
+	@Override
+	public void value(BigDecimal value) throws JsonException {
+		this.add(new JsonValueNumberBigDecimal(value));
+	}
+
+	@Override
+	public void value(BigInteger value) throws JsonException {
+		this.add(new JsonValueNumberBigInteger(value));
+	}
+
+	@Override
+	public void value(boolean value) throws JsonException {
+		if (value) {
+			this.add(new JsonValueTrue());
+		} else {
+			this.add(new JsonValueFalse());
+		}
+	}
+
+	@Override
+	public void value(double value) throws JsonException {
+		this.add(new JsonValueNumberDouble(value));
+	}
+
+	@Override
+	public void value(long value) throws JsonException {
+		this.add(new JsonValueNumberLong(value));
+	}
+
+	@Override
+	public void value(String value) throws JsonException {
+		this.add(new JsonValueString(value));
+	}
+
+	/**
+	 * Add a value to the container being built, or make it the top level value
+	 *
+	 * @param value
+	 *           The value to add
+	 * @throws JsonException
+	 */
+	private void add(JsonValue value) throws JsonException {
+		JsonValue container = this.containers.peek();
+		if (JsonValue.debug) {
+			String pad = Output.padStr("JsonTreeBuilder::add: ", 60);
+			for (int i = 0; i < this.containers.size(); i++) {
+				pad += "  ";
+			}
+			Output.logdebug(pad + "Level " + this.containers.size() + ", JsonPair found: name=\""
+					+ ((this.name == null) ? "" : this.name) + "\" " + value.getClass().getSimpleName());
+		}
+		if (container == null) {
+			if (this.result != null) {
+				throw new JsonException("JsonTreeBuilder - more than one top level JSON value");
+			}
+			this.result = value;
+		} else if (container instanceof JsonValueObject) {
+			if (this.name == null) {
+				throw new JsonException("JsonTreeBuilder - JSON object value has no name");
+			}
+			((JsonValueObject) container).addPair(new JsonPair(new JsonString(this.name), value));
+			this.name = null;
+		} else {
+			((JsonValueArray) container).addElement(value);
+		}
+	}
+}
@@ -1,18 +1,207 @@
 package com.pearcevps.json;
 
-import java.lang.annotation.Annotation;
+import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
-import java.util.LinkedList;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.Set;
 
 import com.pearcevps.utils.Output;
 
 abstract public class JsonValue {
 
+	/**
+	 * No longer used. The depth of a parse is tracked by its own
+	 * {@link ParseContext}, so that parses on different threads do not race.
+	 */
+	@Deprecated
 	public static int				recursedDeserializedCount	= 0;
 	protected static boolean	debug								= false;
+	/**
+	 * The compact JSON text of an object or array, one copy per printNull
+	 * setting, with the count of changes it was written at. It is never changed
+	 * once made, so the text is always read with the count it belongs to.
+	 */
+	static final class CachedText {
+		/**
+		 * The text when null values are printed, or null
+		 */
+		final String	json;
+		/**
+		 * The text when null values are left out, or null
+		 */
+		final String	jsonNoNulls;
+		/**
+		 * The count of changes the text was written at
+		 */
+		final long		version;
+
+		CachedText(long version, String json, String jsonNoNulls) {
+			super();
+			this.version = version;
+			this.json = json;
+			this.jsonNoNulls = jsonNoNulls;
+		}
+
+		/**
+		 * Get the text for a printNull setting
+		 *
+		 * @param printNull
+		 *           true if null values are printed
+		 * @return The text, or null if it has not been written
+		 */
+		String get(boolean printNull) {
+			return printNull ? this.json : this.jsonNoNulls;
+		}
+
+		/**
+		 * Add the text for a printNull setting, written at the same count of
+		 * changes
+		 *
+		 * @param printNull
+		 *           true if null values are printed
+		 * @param text
+		 *           The text
+		 * @return A new holder with both texts
+		 */
+		CachedText with(boolean printNull, String text) {
+			return printNull ? new CachedText(this.version, text, this.jsonNoNulls)
+					: new CachedText(this.version, this.json, text);
+		}
+	}
+
+	/**
+	 * The objects and arrays whose cached JSON text holds this value as a
+	 * member or element, and the string values that hold it, or null if it is
+	 * part of no cached text. A change to this value is passed to these, and on
+	 * up to every object and array it is part of, and no further.
+	 */
+	volatile JsonValue[]		textOwners							= null;
+
+	/**
+	 * Add an owner to a set of owners
+	 *
+	 * @param owners
+	 *           The owners, or null
+	 * @param owner
+	 *           The owner to add
+	 * @return The owners with the owner added, the same array if it already
+	 *         held the owner
+	 */
+	static JsonValue[] addOwner(JsonValue[] owners, JsonValue owner) {
+		if (owners == null) {
+			return new JsonValue[] { owner };
+		}
+		if (JsonValue.hasOwner(owners, owner)) {
+			return owners;
+		}
+		JsonValue[] ret = Arrays.copyOf(owners, owners.length + 1);
+		ret[owners.length] = owner;
+		return ret;
+	}
+
+	/**
+	 * Is an owner in a set of owners?
+	 *
+	 * @param owners
+	 *           The owners, or null
+	 * @param owner
+	 *           The owner
+	 * @return true if the owner is held
+	 */
+	static boolean hasOwner(JsonValue[] owners, JsonValue owner) {
+		if (owners != null) {
+			for (JsonValue o : owners) {
+				if (o == owner) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Link every value, pair and name within a value to the object, array or
+	 * string value that holds it, so that changing any of them is counted by
+	 * the objects and arrays above it. The tree is walked without recursion,
+	 * so it may be nested to any depth.
+	 *
+	 * @param value
+	 *           The value whose text is cached
+	 */
+	static void linkText(JsonValue value) {
+		Deque<JsonValue> pending = new ArrayDeque<JsonValue>();
+		pending.push(value);
+		while (!pending.isEmpty()) {
+			pending.pop().linkText(pending);
+		}
+	}
+
+	/**
+	 * Remove an owner from a set of owners
+	 *
+	 * @param owners
+	 *           The owners, or null
+	 * @param owner
+	 *           The owner to remove
+	 * @return The owners without the owner, or null if there are none left
+	 */
+	static JsonValue[] removeOwner(JsonValue[] owners, JsonValue owner) {
+		if (!JsonValue.hasOwner(owners, owner)) {
+			return owners;
+		}
+		if (owners.length == 1) {
+			return null;
+		}
+		JsonValue[] ret = new JsonValue[owners.length - 1];
+		int i = 0;
+		for (JsonValue o : owners) {
+			if (o != owner) {
+				ret[i++] = o;
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Count a change in every object and array above a changed value, pair or
+	 * name, once each, however the tree is shared
+	 *
+	 * @param owners
+	 *           The owners of what changed, or null if it is part of no cached
+	 *           text
+	 */
+	static void textChanged(JsonValue[] owners) {
+		//////////////////////
+		// A tree without shared values has one owner at each level, and is
+		// followed up without allocating
+		JsonValue[] next = owners;
+		while ((next != null) && (next.length == 1)) {
+			next[0].countTextChange();
+			next = next[0].textOwners;
+		}
+		if (next == null) {
+			return;
+		}
+		Deque<JsonValue> pending = new ArrayDeque<JsonValue>(Arrays.asList(next));
+		Set<JsonValue> seen = Collections.newSetFromMap(new IdentityHashMap<JsonValue, Boolean>());
+		while (!pending.isEmpty()) {
+			JsonValue owner = pending.pop();
+			if (seen.add(owner)) {
+				owner.countTextChange();
+				JsonValue[] above = owner.textOwners;
+				if (above != null) {
+					pending.addAll(Arrays.asList(above));
+				}
+			}
+		}
+	}
 
 	/**
 	 * This function takes a JsonValue, and applies it to a bean field if it
@@ -30,19 +219,13 @@ abstract public class JsonValue {
 		///////////////////////
 		// Found a match of type string
 		if ((field.getType() == java.lang.String.class) && (valueToBePlacedToBeanField instanceof JsonValueString)) {
-			Annotation[] annotations = field.getAnnotations();
-			for (int count = 0; count < annotations.length; count++) {
-				if (annotations[count].toString().contains(Json_Property.class.getCanonicalName())) {
-					if (!field.isAccessible()) {
-						field.setAccessible(true);
-					}
-					String value = ((JsonValueString) valueToBePlacedToBeanField).getJavaStringValue();
-					field.set(fieldsBean, value);
-					if (JsonValue.debug) {
-						Output.logdebug(Output.padStr("JsonValue::deserializeJsonValueToBean: ", 60)
-								+ "Deserialising field \"" + field.getName() + "\" (of type String) to \"" + value + "\"");
-					}
-					break;
+			BeanDescriptor.Property property = BeanDescriptor.getProperty(field);
+			if (property.isAnnotated()) {
+				String value = ((JsonValueString) valueToBePlacedToBeanField).getJavaStringValue();
+				property.getAccessor().set(fieldsBean, value);
+				if (JsonValue.debug) {
+					Output.logdebug(Output.padStr("JsonValue::deserializeJsonValueToBean: ", 60)
+							+ "Deserialising field \"" + field.getName() + "\" (of type String) to \"" + value + "\"");
 				}
 			}
 		}
@@ -50,22 +233,16 @@ abstract public class JsonValue {
 		// Found a match of type boolean true
 		else if (((field.getType() == java.lang.Boolean.class) || field.getType().equals(Boolean.TYPE))
 				&& (valueToBePlacedToBeanField instanceof JsonValueTrue)) {
-			Annotation[] annotations = field.getAnnotations();
-			for (int count = 0; count < annotations.length; count++) {
-				if (annotations[count].toString().contains(Json_Property.class.getCanonicalName())) {
-					if (!field.isAccessible()) {
-						field.setAccessible(true);
-					}
-					if (field.getType().equals(Boolean.TYPE)) {
-						field.setBoolean(fieldsBean, true);
-					} else {
-						field.set(fieldsBean, true);
-					}
-					if (JsonValue.debug) {
-						Output.logdebug(Output.padStr("JsonValue::deserializeJsonValueToBean: ", 60)
-								+ "Deserialising field \"" + field.getName() + "\" (of type boolean) to \"true\"");
-					}
-					break;
+			BeanDescriptor.Property property = BeanDescriptor.getProperty(field);
+			if (property.isAnnotated()) {
+				if (field.getType().equals(Boolean.TYPE)) {
+					property.getAccessor().setBoolean(fieldsBean, true);
+				} else {
+					property.getAccessor().set(fieldsBean, true);
+				}
+				if (JsonValue.debug) {
+					Output.logdebug(Output.padStr("JsonValue::deserializeJsonValueToBean: ", 60)
+							+ "Deserialising field \"" + field.getName() + "\" (of type boolean) to \"true\"");
 				}
 			}
 		}
@@ -78,23 +255,17 @@ abstract public class JsonValue {
 						+ field.getName(), ">> ");
 			}
 
-			Annotation[] annotations = field.getAnnotations();
-			for (int count = 0; count < annotations.length; count++) {
-				if (annotations[count].toString().contains(Json_Property.class.getCanonicalName())) {
-					if (!field.isAccessible()) {
-						field.setAccessible(true);
-					}
-					Long value = ((JsonValueNumberLong) valueToBePlacedToBeanField).getValue();
-					if (field.getType().equals(Long.TYPE)) {
-						field.setLong(fieldsBean, value.longValue());
-					} else {
-						field.set(fieldsBean, value);
-					}
-					if (JsonValue.debug) {
-						Output.logdebug(Output.padStr("JsonValue::deserializeJsonValueToBean: ", 60)
-								+ "Deserialising field \"" + field.getName() + "\" (of type long) to " + value.toString());
-					}
-					break;
+			BeanDescriptor.Property property = BeanDescriptor.getProperty(field);
+			if (property.isAnnotated()) {
+				Long value = ((JsonValueNumberLong) valueToBePlacedToBeanField).getValue();
+				if (field.getType().equals(Long.TYPE)) {
+					property.getAccessor().setLong(fieldsBean, value.longValue());
+				} else {
+					property.getAccessor().set(fieldsBean, value);
+				}
+				if (JsonValue.debug) {
+					Output.logdebug(Output.padStr("JsonValue::deserializeJsonValueToBean: ", 60)
+							+ "Deserialising field \"" + field.getName() + "\" (of type long) to " + value.toString());
 				}
 			}
 		}
@@ -107,23 +278,17 @@ abstract public class JsonValue {
 						+ field.getName(), ">> ");
 			}
 
-			Annotation[] annotations = field.getAnnotations();
-			for (int count = 0; count < annotations.length; count++) {
-				if (annotations[count].toString().contains(Json_Property.class.getCanonicalName())) {
-					if (!field.isAccessible()) {
-						field.setAccessible(true);
-					}
-					Integer value = ((JsonValueNumberLong) valueToBePlacedToBeanField).getValue().intValue();
-					if (field.getType().equals(Integer.TYPE)) {
-						field.setInt(fieldsBean, value.intValue());
-					} else {
-						field.set(fieldsBean, value);
-					}
-					if (JsonValue.debug) {
-						Output.logdebug(Output.padStr("JsonValue::deserializeJsonValueToBean: ", 60)
-								+ "Deserialising field \"" + field.getName() + "\" (of type int) to " + value.toString());
-					}
-					break;
+			BeanDescriptor.Property property = BeanDescriptor.getProperty(field);
+			if (property.isAnnotated()) {
+				Integer value = ((JsonValueNumberLong) valueToBePlacedToBeanField).getValue().intValue();
+				if (field.getType().equals(Integer.TYPE)) {
+					property.getAccessor().setInt(fieldsBean, value.intValue());
+				} else {
+					property.getAccessor().set(fieldsBean, value);
+				}
+				if (JsonValue.debug) {
+					Output.logdebug(Output.padStr("JsonValue::deserializeJsonValueToBean: ", 60)
+							+ "Deserialising field \"" + field.getName() + "\" (of type int) to " + value.toString());
 				}
 			}
 		}
@@ -135,29 +300,56 @@ abstract public class JsonValue {
 				Output.logdebug(Output.padStr("JsonValue::deserializeJsonValueToBean: ", 60) + "Deserialising short - "
 						+ field.getName(), ">> ");
 			}
-			Annotation[] annotations = field.getAnnotations();
-			for (int count = 0; count < annotations.length; count++) {
-				if (annotations[count].toString().contains(Json_Property.class.getCanonicalName())) {
-					if (!field.isAccessible()) {
-						field.setAccessible(true);
-					}
-					Short value = ((JsonValueNumberLong) valueToBePlacedToBeanField).getValue().shortValue();
-					if (field.getType().equals(Short.TYPE)) {
-						field.setShort(fieldsBean, value.shortValue());
-					} else {
-						field.set(fieldsBean, value);
-					}
-					if (JsonValue.debug) {
-						Output.logdebug(Output.padStr("JsonValue::deserializeJsonValueToBean: ", 60)
-								+ "Deserialising field \"" + field.getName() + "\" (of type short) to " + value.toString());
-					}
-					break;
+			BeanDescriptor.Property property = BeanDescriptor.getProperty(field);
+			if (property.isAnnotated()) {
+				Short value = ((JsonValueNumberLong) valueToBePlacedToBeanField).getValue().shortValue();
+				if (field.getType().equals(Short.TYPE)) {
+					property.getAccessor().setShort(fieldsBean, value.shortValue());
+				} else {
+					property.getAccessor().set(fieldsBean, value);
+				}
+				if (JsonValue.debug) {
+					Output.logdebug(Output.padStr("JsonValue::deserializeJsonValueToBean: ", 60)
+							+ "Deserialising field \"" + field.getName() + "\" (of type short) to " + value.toString());
 				}
 			}
 		}
 
 	}
 
+	/**
+	 * Get a JSON value from UTF-8 encoded bytes, without first decoding them to
+	 * a string.
+	 *
+	 * @param bytes
+	 *           The UTF-8 encoded JSON
+	 * @param offset
+	 *           The index of the first byte of the JSON
+	 * @param length
+	 *           The number of bytes of JSON
+	 * @return The JSON value
+	 * @throws JsonException
+	 *            Thrown if the bytes are not valid JSON
+	 */
+	static public JsonValue getJsonValueFromBytes(byte[] bytes, int offset, int length) throws JsonException {
+		return JsonByteParser.parse(bytes, offset, length);
+	}
+
+	/**
+	 * Get a JSON value from the remaining UTF-8 encoded bytes in a buffer,
+	 * without first decoding them to a string. The buffer may be direct, and its
+	 * position is not changed.
+	 *
+	 * @param buffer
+	 *           The buffer containing the JSON
+	 * @return The JSON value
+	 * @throws JsonException
+	 *            Thrown if the bytes are not valid JSON
+	 */
+	static public JsonValue getJsonValueFromBuffer(ByteBuffer buffer) throws JsonException {
+		return JsonByteParser.parse(buffer);
+	}
+
 	/**
 	 * Get a JSON value from a string.
 	 *
@@ -186,104 +378,71 @@ abstract public class JsonValue {
 			name = "";
 		}
 
-		String pad = Output.padStr("JsonValue::getJsonValueFromString: ", 60);
-		for (int i = 1; i < JsonValue.recursedDeserializedCount; i++)
-			pad += "  ";
-
-		//////////////////////////////
-		// Do we have a string value?
-		if ((value != null) && value.startsWith("\"") && value.endsWith("\"")) {
-			value = Output.trim(value, "\"");
-			JsonValue ret = new JsonValueString(JsonString.getJavaStringFromJsonString(value));
-			if (JsonValue.debug) {
-				Output.logdebug(pad + "Level " + JsonValue.recursedDeserializedCount + ", JsonPair found: name=\"" + name
-						+ "\" " + ret.getClass().getSimpleName() + "=" + ret.toString());
-			}
-			return ret;
-		}
-		//////////////////////////////
-		// Do we have a long value?
-		else if (JsonValueNumberLong.isJsonLong(value)) {
-			JsonValue ret = new JsonValueNumberLong(new Long(value).longValue());
-			if (JsonValue.debug) {
-				Output.logdebug(pad + "Level " + JsonValue.recursedDeserializedCount + ", JsonPair found: name=\"" + name
-						+ "\" " + ret.getClass().getSimpleName() + "=" + ret.toString());
-			}
-			return ret;
-		}
-		//////////////////////////////
-		// Do we have a double value?
-		else if (JsonValueNumberDouble.isJsonDouble(value)) {
-			JsonValue ret = new JsonValueNumberDouble(new Double(value).doubleValue());
-			if (JsonValue.debug) {
-				Output.logdebug(pad + "Level " + JsonValue.recursedDeserializedCount + ", JsonPair found: name=\"" + name
-						+ "\" " + ret.getClass().getSimpleName() + "=" + ret.toString());
-			}
-			return ret;
-		}
-		//////////////////////////////
-		// Do we have a boolean true value?
-		else if (JsonValueTrue.isJsonBooleanTrue(value)) {
-			JsonValue ret = new JsonValueTrue();
-			if (JsonValue.debug) {
-				Output.logdebug(pad + "Level " + JsonValue.recursedDeserializedCount + ", JsonPair found: name=\"" + name
-						+ "\" " + ret.getClass().getSimpleName() + "=" + ret.toString());
-			}
-			return ret;
-		}
-		//////////////////////////////
-		// Do we have a boolean false value?
-		else if (JsonValueFalse.isJsonBooleanFalse(value)) {
-			JsonValue ret = new JsonValueFalse();
-			if (JsonValue.debug) {
-				Output.logdebug(pad + "Level " + JsonValue.recursedDeserializedCount + ", JsonPair found: name=\"" + name
-						+ "\" " + ret.getClass().getSimpleName() + "=" + ret.toString());
-			}
-			return ret;
-		}
-		//////////////////////////////
-		// Do we have a null?
-		else if (JsonValueNull.isJsonNull(value)) {
-			JsonValue ret = new JsonValueNull();
-			if (JsonValue.debug) {
-				Output.logdebug(pad + "Level " + JsonValue.recursedDeserializedCount + ", JsonPair found: name=\"" + name
-						+ "\" " + ret.getClass().getSimpleName() + "=" + ret.toString());
-			}
-			return ret;
-		}
-		//////////////////////////////
-		// Do we have an object?
-		else if (JsonValueObject.isJsonObject(value)) {
-			JsonValueObject ret = new JsonValueObject();
-			if (JsonValue.debug) {
-				Output.logdebug(pad + "Level " + JsonValue.recursedDeserializedCount + ", JsonPair found: name=\"" + name
-						+ "\" " + ret.getClass().getSimpleName() + "=" + ret.toString());
-			}
-			ret.getJsonPairstoDeserialize(value);
-			return ret;
-		}
-		//////////////////////////////
-		// Do we have an array?
-		else if (JsonValueArray.isJsonArray(value)) {
-			JsonValueArray ret = new JsonValueArray();
-			if (JsonValue.debug) {
-				Output.logdebug(pad + "Level " + JsonValue.recursedDeserializedCount + ", JsonPair found: name=\"" + name
-						+ "\" " + ret.getClass().getSimpleName() + "=" + ret.toString());
-			}
-			JsonValue.recursedDeserializedCount++;
-			List<JsonValue> values = new LinkedList<JsonValue>();
-			values = JsonValueArray.getValuesFromArray(value);
-			JsonValue.recursedDeserializedCount--;
-			ret.setElements(values);
-			return ret;
-		} else {
+		if (value == null) {
 			if (JsonValue.debug) {
 				Output.logdebug(Output.padStr("JsonValue::getJsonValueFromString: ", 60) + "JSON pair \"" + name
-						+ "\" has a value of '" + value + "': not have a valid JSON value. Ignoring.");
+						+ "\" has a null value: not a valid JSON value. Ignoring.");
 			}
+			return null;
 		}
 
-		return null;
+		//////////////////////////////
+		// Walk the string once with the cursor based parser
+		return JsonParser.parse(value);
+	}
+
+	/**
+	 * Get a JSON value from a string, parsing its objects and arrays lazily. The
+	 * members of an object or array are only indexed, and each is parsed the
+	 * first time it is read. This is much cheaper than
+	 * {@link #getJsonValueFromString(String)} when only a few members of a
+	 * large document are used. See {@link JsonParser#parseLazy(String)}.
+	 *
+	 * @param value
+	 *           The string from which the JSON value is parsed.
+	 * @return The JSON value
+	 * @throws JsonException
+	 *            Thrown if the string is not valid JSON
+	 */
+	static public JsonValue getLazyJsonValueFromString(String value) throws JsonException {
+		return JsonParser.parseLazy(value);
+	}
+
+	/**
+	 * Get a JSON value from a string using the two stage tape parser. Objects
+	 * and arrays are returned as views onto the tape, which is much smaller than
+	 * the usual tree for large documents. See {@link JsonTape}.
+	 *
+	 * @param value
+	 *           The string from which the JSON value is parsed.
+	 * @return The JSON value
+	 * @throws JsonException
+	 *            Thrown if the string is not valid JSON
+	 */
+	static public JsonValue getTapeJsonValueFromString(String value) throws JsonException {
+		return JsonTape.parse(value).getRoot();
+	}
+
+	/**
+	 * Read the next JSON value from a stream, building it as a tree of JsonValue
+	 * objects. Only the value itself is read; the reader is left positioned on
+	 * the token that follows it.
+	 *
+	 * @param reader
+	 *           The reader from which the JSON value is read.
+	 * @return The JSON value
+	 * @throws IOException
+	 *            Thrown if the underlying stream cannot be read
+	 * @throws JsonException
+	 *            Thrown if the stream is not valid JSON
+	 */
+	static public JsonValue readTree(JsonReader reader) throws IOException, JsonException {
+		if (reader == null) {
+			throw new JsonException("Cannot read a JSON value from a null reader");
+		}
+		JsonTreeBuilder builder = new JsonTreeBuilder();
+		reader.readValue(builder);
+		return builder.getResult();
 	}
 
 	public static boolean isDebug() {
@@ -316,4 +475,92 @@ abstract public class JsonValue {
 	@Override
 	public abstract String toString();
 
+	/**
+	 * Print this JSON value using the options of a serialization. Values that
+	 * hold no pairs print the same whatever the options.
+	 *
+	 * @param context
+	 *           The options for printing
+	 * @return The JSON text
+	 */
+	public String toString(WriteContext context) {
+		return this.toString();
+	}
+
+	/**
+	 * Add an object, array or string value whose cached JSON text holds this
+	 * value
+	 *
+	 * @param owner
+	 *           The owner
+	 */
+	void addTextOwner(JsonValue owner) {
+		if (!JsonValue.hasOwner(this.textOwners, owner)) {
+			synchronized (this) {
+				this.textOwners = JsonValue.addOwner(this.textOwners, owner);
+			}
+		}
+	}
+
+	/**
+	 * Count a change to this value or anything in it. Only objects and arrays,
+	 * whose text may be cached, keep the count.
+	 */
+	void countTextChange() {
+	}
+
+	/**
+	 * Forget any cached JSON text this value is part of, after it has changed
+	 */
+	void invalidate() {
+		this.countTextChange();
+		JsonValue.textChanged(this.textOwners);
+	}
+
+	/**
+	 * Link the values, pairs and names within this value to it, and queue the
+	 * values within it to be linked
+	 *
+	 * @param pending
+	 *           The values still to be linked
+	 */
+	void linkText(Deque<JsonValue> pending) {
+	}
+
+	/**
+	 * Remove an object, array or string value that no longer holds this value
+	 *
+	 * @param owner
+	 *           The owner
+	 */
+	void removeTextOwner(JsonValue owner) {
+		if (JsonValue.hasOwner(this.textOwners, owner)) {
+			synchronized (this) {
+				this.textOwners = JsonValue.removeOwner(this.textOwners, owner);
+			}
+		}
+	}
+
+	/**
+	 * Forget the links of a member or element that has been taken out of this
+	 * object or array
+	 *
+	 * @param child
+	 *           The pair or value taken out
+	 */
+	void unlinkText(Object child) {
+	}
+
+	/**
+	 * Write this JSON value, token by token, to a writer
+	 *
+	 * @param writer
+	 *           The writer, which also holds the options for writing
+	 * @throws IOException
+	 *            Thrown by the writer's output
+	 */
+	public void writeTo(JsonWriter writer) throws IOException {
+		writer.rawValue(this.toString());
+	}
+
 }
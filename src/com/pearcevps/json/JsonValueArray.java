@@ -1,22 +1,69 @@
 package com.pearcevps.json;
 
-import java.lang.annotation.Annotation;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.Iterator;
+import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import com.pearcevps.utils.Output;
 
 public class JsonValueArray extends JsonValue {
 
-	List<JsonValue> elements = new LinkedList<JsonValue>();
+	List<JsonValue>		elements		= new LinkedList<JsonValue>();
+	/**
+	 * Counts the changes to {@link #textVersion}
+	 */
+	static private final AtomicLongFieldUpdater<JsonValueArray>	TEXT_VERSION	= AtomicLongFieldUpdater
+			.newUpdater(JsonValueArray.class, "textVersion");
+
+	/**
+	 * The cached compact JSON text of this array, or null
+	 */
+	private volatile CachedText	cachedText	= null;
+	/**
+	 * Is the compact JSON text of this array cached?
+	 */
+	private boolean		cacheText			= false;
+	/**
+	 * Counts the changes made to this array and everything in it
+	 */
+	private volatile long	textVersion			= 0;
+	/**
+	 * For a lazily parsed array, the start and end of each element within
+	 * {@link #lazySource}, i.e. two offsets per element
+	 */
+	private int[]			lazyOffsets	= null;
+	/**
+	 * For a lazily parsed array, the string the elements are parsed from. Null
+	 * once the elements have been materialized.
+	 */
+	private String			lazySource	= null;
+	/**
+	 * For a lazily parsed array, the elements that have been parsed so far
+	 */
+	private JsonValue[]	lazyValues	= null;
+	/**
+	 * For an array that is a view onto a tape, the tape index of each element,
+	 * found the first time an element is read
+	 */
+	private int[]			tapeElements	= null;
+	/**
+	 * For an array that is a view onto a tape, the tape. Null once the elements
+	 * have been materialized.
+	 */
+	private JsonTape		tape				= null;
+	/**
+	 * For an array that is a view onto a tape, the tape index of the start of
+	 * the array
+	 */
+	private int				tapeIndex		= 0;
 
 	/**
 	 * Constructor for an array with no JsonObjects
@@ -26,6 +73,38 @@ public class JsonValueArray extends JsonValue {
 		this.elements = new LinkedList<JsonValue>();
 	}
 
+	/**
+	 * Constructor for an array that is a view onto a tape. The elements are
+	 * created from the tape when they are first read.
+	 *
+	 * @param tape
+	 *           The tape
+	 * @param index
+	 *           The tape index of the start of the array
+	 */
+	JsonValueArray(JsonTape tape, int index) {
+		super();
+		this.tape = tape;
+		this.tapeIndex = index;
+		this.lazyValues = new JsonValue[tape.getCount(index)];
+	}
+
+	/**
+	 * Constructor for a lazily parsed array. The elements are parsed from the
+	 * source string when they are first read.
+	 *
+	 * @param source
+	 *           The string containing the array
+	 * @param offsets
+	 *           The start and end of each element, i.e. two offsets per element
+	 */
+	JsonValueArray(String source, int[] offsets) {
+		super();
+		this.lazySource = source;
+		this.lazyOffsets = offsets;
+		this.lazyValues = new JsonValue[offsets.length / 2];
+	}
+
 	/**
 	 * Constructor for an array with some Json objects
 	 *
@@ -52,26 +131,12 @@ public class JsonValueArray extends JsonValue {
 	 * @throws JsonException
 	 *            Thrown if the field or bean are null
 	 */
-	@SuppressWarnings("rawtypes")
 	static public String getListTypeName(Field field, Object bean) throws JsonException {
 		if ((field == null) || (bean == null)) {
 			throw new JsonException("Can't get the type of a List with a null field and bean");
 		}
-		if (field.getType() == java.util.List.class) {
-			Class typeArgClass = null;
-
-			if (field.getGenericType() instanceof ParameterizedType) {
-				ParameterizedType ptype = (ParameterizedType) field.getGenericType();
-				Type[] typeArguments = ptype.getActualTypeArguments();
-				for (Type typeArgument : typeArguments) {
-					typeArgClass = (Class) typeArgument;
-				}
-				if (typeArgClass != null) {
-					return typeArgClass.getName();
-				}
-			}
-		}
-		return null;
+		Class<?> typeArgClass = BeanDescriptor.getProperty(field).getElementClass();
+		return (typeArgClass == null) ? null : typeArgClass.getName();
 	}
 
 	/**
@@ -86,51 +151,30 @@ public class JsonValueArray extends JsonValue {
 		if (!JsonValueArray.isJsonArray(str)) {
 			throw new JsonException("Trying to get Json array values from a non-Json Array");
 		}
-		List<JsonValue> values = new LinkedList<JsonValue>();
-		str = Output.trim(str, "[");
-		str = Output.trim(str, "]");
-		char previousChar = 'a';
-		String value = "";
-		String objectScope = "";
-		String arrayScope = "";
-		String stringScope = "";
-		for (int i = 0; i < str.length(); i++) {
-			char c = str.charAt(i);
-			if ((c == '[') && stringScope.isEmpty()) {
-				arrayScope += '[';
-			}
-			if ((c == ']') && stringScope.isEmpty() && (arrayScope.length() > 0)) {
-				arrayScope = arrayScope.substring(0, arrayScope.length() - 1);
-			}
-			if ((c == '{') && stringScope.isEmpty()) {
-				objectScope += '{';
-			}
-			if ((c == '}') && stringScope.isEmpty() && (objectScope.length() > 0)) {
-				objectScope = objectScope.substring(0, objectScope.length() - 1);
-			}
-			if ((c == '\"') && (previousChar != '\\') && stringScope.isEmpty()) {
-				stringScope += "\"";
-			}
-			if ((c == '\"') && (previousChar != '\\') && !stringScope.isEmpty()) {
-				stringScope = stringScope.substring(0, stringScope.length() - 1);
-			}
-			// We have the end of a Json Object
-			if ((c == ',') && arrayScope.isEmpty() && stringScope.isEmpty() && objectScope.isEmpty()) {
-				value = value.trim();
-				JsonValue jsonValue = JsonValue.getJsonValueFromString(value);
-				values.add(jsonValue);
-				value = "";
-			} else {
-				value = value + c;
-			}
-			previousChar = str.charAt(i);
+		if (str.trim().isEmpty()) {
+			return new LinkedList<JsonValue>();
+		}
+		return JsonParser.parseArray(str);
+	}
+
+	/**
+	 * From a string that represents a Json Array get the Json Values contained,
+	 * parsing large arrays in parallel on the common fork join pool. See
+	 * {@link JsonParallelParser}.
+	 *
+	 * @param str
+	 *           The JSON array
+	 * @return The values in the array
+	 * @throws JsonException
+	 */
+	static public List<JsonValue> getValuesFromArrayInParallel(String str) throws JsonException {
+		if (!JsonValueArray.isJsonArray(str)) {
+			throw new JsonException("Trying to get Json array values from a non-Json Array");
 		}
-		if (!value.isEmpty() && arrayScope.isEmpty() && stringScope.isEmpty() && objectScope.isEmpty()) {
-			value = value.trim();
-			JsonValue jsonValue = JsonValue.getJsonValueFromString(value);
-			values.add(jsonValue);
+		if (str.trim().isEmpty()) {
+			return new LinkedList<JsonValue>();
 		}
-		return values;
+		return JsonParallelParser.parseArray(str).getElements();
 	}
 
 	/**
@@ -155,7 +199,9 @@ public class JsonValueArray extends JsonValue {
 	}
 
 	public void addElement(JsonValue v) {
+		this.materialize();
 		this.elements.add(v);
+		this.invalidate();
 	}
 
 	/*
@@ -180,20 +226,10 @@ public class JsonValueArray extends JsonValue {
 
 		//////////////////////
 		// check annotation values
-		boolean jsonProperty = false;
-		boolean jsonArrayAreBeans = false;
-		Annotation[] annotations = field.getAnnotations();
-		for (int count = 0; count < annotations.length; count++) {
-			if (annotations[count].toString().contains(Json_Property.class.getCanonicalName())) {
-				jsonProperty = true;
-				if (!field.isAccessible()) {
-					field.setAccessible(true);
-				}
-			}
-			if (annotations[count].toString().contains(Json_ListValuesAreBeans.class.getCanonicalName())) {
-				jsonArrayAreBeans = true;
-			}
-		}
+		BeanDescriptor.Property property = BeanDescriptor.getProperty(field);
+		boolean jsonProperty = property.isAnnotated();
+		boolean jsonArrayAreBeans = property.isListValuesAreBeans();
+		FieldAccessor accessor = property.getAccessor();
 		if (!jsonProperty) {
 			if (JsonValue.debug) {
 				Output.logdebug(Output.padStr("JsonValueArray::deserializeJsonValueToBean: ", 60) + "Field \""
@@ -206,7 +242,7 @@ public class JsonValueArray extends JsonValue {
 		// We need to try and de-serialize into a POJO
 		if (jsonArrayAreBeans) {
 			List list = new LinkedList<>();
-			field.set(fieldsBean, list);
+			accessor.set(fieldsBean, list);
 			if (JsonValue.debug) {
 				Output.logdebug(Output.padStr("JsonValueArray::deserializeJsonValueToBean: ", 60) + "Field \""
 						+ field.getName() + "\" being instantiated as type of LinkedList");
@@ -247,8 +283,7 @@ public class JsonValueArray extends JsonValue {
 					} else if (innerClassDefaultConstructor != null) {
 						arrayBean = innerClassDefaultConstructor.newInstance(fieldsBean);
 					}
-					arrayBean = JsonValueObject.deserializeJsonStringToAnObject(((JsonValueObject) value).print(),
-							arrayBean);
+					arrayBean = JsonValueObject.deserializeNestedObjectToAnObject((JsonValueObject) value, arrayBean);
 					list.add(arrayBean);
 				}
 			}
@@ -258,14 +293,14 @@ public class JsonValueArray extends JsonValue {
 		////////////////////////
 		// List is of type string
 		if (listType.equals(String.class.getCanonicalName())) {
-			List<String> list = (List<String>) field.get(fieldsBean);
+			List<String> list = (List<String>) accessor.get(fieldsBean);
 			// Always create a new list...
 			if (JsonValue.debug) {
 				Output.logdebug(Output.padStr("JsonValueArray::deserializeJsonValueToBean: ", 60) + "Field \""
 						+ field.getName() + "\" being instantiated as type of LinkedList<String>");
 			}
 			list = new LinkedList<String>();
-			field.set(fieldsBean, list);
+			accessor.set(fieldsBean, list);
 			List<JsonValue> arrayValues = this.getElements();
 			for (JsonValue value : arrayValues) {
 				if (value instanceof JsonValueString) {
@@ -327,26 +362,26 @@ public class JsonValueArray extends JsonValue {
 		////////////////////////
 		// List is of type Boolean
 		else if (listType.equals(Boolean.class.getCanonicalName())) {
-			List<Boolean> list = (List<Boolean>) field.get(fieldsBean);
+			List<Boolean> list = (List<Boolean>) accessor.get(fieldsBean);
 			if (list == null) {
 				if (JsonValue.debug) {
 					Output.logdebug(Output.padStr("JsonValueArray::deserializeJsonValueToBean: ", 60) + "Field \""
 							+ field.getName() + "\" being instantiated as type of LinkedList<Boolean>");
 				}
 				list = new LinkedList<Boolean>();
-				field.set(fieldsBean, list);
+				accessor.set(fieldsBean, list);
 			}
 			List<JsonValue> arrayValues = this.getElements();
 			for (JsonValue value : arrayValues) {
 				if (value instanceof JsonValueTrue) {
-					list.add(new Boolean(true));
+					list.add(Boolean.valueOf(true));
 					if (JsonValue.debug) {
 						Output.logdebug(Output.padStr("JsonValueArray::deserializeJsonValueToBean: ", 60)
 								+ "Deserialising field \"" + field.getName()
 								+ "\" (of type JsonValueTrue) in String List to contain true");
 					}
 				} else if (value instanceof JsonValueFalse) {
-					list.add(new Boolean(false));
+					list.add(Boolean.valueOf(false));
 					if (JsonValue.debug) {
 						Output.logdebug(Output.padStr("JsonValueArray::deserializeJsonValueToBean: ", 60)
 								+ "Deserialising field \"" + field.getName()
@@ -355,14 +390,14 @@ public class JsonValueArray extends JsonValue {
 				} else if (value instanceof JsonValueNumberLong) {
 					long num = ((JsonValueNumberLong) value).getValue();
 					if (num != 0) {
-						list.add(new Boolean(true));
+						list.add(Boolean.valueOf(true));
 						if (JsonValue.debug) {
 							Output.logdebug(Output.padStr("JsonValueArray::deserializeJsonValueToBean: ", 60)
 									+ "Deserialising field \"" + field.getName()
 									+ "\" (of type JsonValueNumberLong) in String List to contain true");
 						}
 					} else {
-						list.add(new Boolean(false));
+						list.add(Boolean.valueOf(false));
 						if (JsonValue.debug) {
 							Output.logdebug(Output.padStr("JsonValueArray::deserializeJsonValueToBean: ", 60)
 									+ "Deserialising field \"" + field.getName()
@@ -372,14 +407,14 @@ public class JsonValueArray extends JsonValue {
 				} else if (value instanceof JsonValueNumberDouble) {
 					double num = ((JsonValueNumberDouble) value).getValue();
 					if (num != 0) {
-						list.add(new Boolean(true));
+						list.add(Boolean.valueOf(true));
 						if (JsonValue.debug) {
 							Output.logdebug(Output.padStr("JsonValueArray::deserializeJsonValueToBean: ", 60)
 									+ "Deserialising field \"" + field.getName()
 									+ "\" (of type JsonValueNumberDouble) in String List to contain true");
 						}
 					} else {
-						list.add(new Boolean(false));
+						list.add(Boolean.valueOf(false));
 						if (JsonValue.debug) {
 							Output.logdebug(Output.padStr("JsonValueArray::deserializeJsonValueToBean: ", 60)
 									+ "Deserialising field \"" + field.getName()
@@ -398,20 +433,20 @@ public class JsonValueArray extends JsonValue {
 		////////////////////////
 		// List is of type Long
 		else if (listType.equals(Long.class.getCanonicalName())) {
-			List<Long> list = (List<Long>) field.get(fieldsBean);
+			List<Long> list = (List<Long>) accessor.get(fieldsBean);
 			if (list == null) {
 				if (JsonValue.debug) {
 					Output.logdebug(Output.padStr("JsonValueArray::deserializeJsonValueToBean: ", 60) + "Field \""
 							+ field.getName() + "\" being instantiated as type of LinkedList<Long>");
 				}
 				list = new LinkedList<Long>();
-				field.set(fieldsBean, list);
+				accessor.set(fieldsBean, list);
 			}
 			List<JsonValue> arrayValues = this.getElements();
 			for (JsonValue value : arrayValues) {
 				if (value instanceof JsonValueNumberLong) {
 					long num = ((JsonValueNumberLong) value).getValue();
-					list.add(new Long(num));
+					list.add(Long.valueOf(num));
 					if (JsonValue.debug) {
 						Output.logdebug(Output.padStr("JsonValueArray::deserializeJsonValueToBean: ", 60)
 								+ "Deserialising field \"" + field.getName()
@@ -429,20 +464,20 @@ public class JsonValueArray extends JsonValue {
 		////////////////////////
 		// List is of type Integer
 		else if (listType.equals(Integer.class.getCanonicalName())) {
-			List<Integer> list = (List<Integer>) field.get(fieldsBean);
+			List<Integer> list = (List<Integer>) accessor.get(fieldsBean);
 			if (list == null) {
 				if (JsonValue.debug) {
 					Output.logdebug(Output.padStr("JsonValueArray::deserializeJsonValueToBean: ", 60) + "Field \""
 							+ field.getName() + "\" being instantiated as type of LinkedList<Integer>");
 				}
 				list = new LinkedList<Integer>();
-				field.set(fieldsBean, list);
+				accessor.set(fieldsBean, list);
 			}
 			List<JsonValue> arrayValues = this.getElements();
 			for (JsonValue value : arrayValues) {
 				if (value instanceof JsonValueNumberLong) {
 					int num = ((JsonValueNumberLong) value).getValue().intValue();
-					list.add(new Integer(num));
+					list.add(Integer.valueOf(num));
 					if (JsonValue.debug) {
 						Output.logdebug(Output.padStr("JsonValueArray::deserializeJsonValueToBean: ", 60)
 								+ "Deserialising field \"" + field.getName()
@@ -460,7 +495,7 @@ public class JsonValueArray extends JsonValue {
 		////////////////////////
 		// List is of type Short
 		else if (listType.equals(Short.class.getCanonicalName())) {
-			List<Short> list = (List<Short>) field.get(fieldsBean);
+			List<Short> list = (List<Short>) accessor.get(fieldsBean);
 			List<JsonValue> arrayValues = this.getElements();
 			for (JsonValue value : arrayValues) {
 				if (value instanceof JsonValueNumberLong) {
@@ -483,14 +518,14 @@ public class JsonValueArray extends JsonValue {
 		////////////////////////
 		// List is of type Float
 		else if (listType.equals(Float.class.getCanonicalName())) {
-			List<Float> list = (List<Float>) field.get(fieldsBean);
+			List<Float> list = (List<Float>) accessor.get(fieldsBean);
 			if (list == null) {
 				if (JsonValue.debug) {
 					Output.logdebug(
 							"Field \"" + field.getName() + "\" being instantiated as type of LinkedList<Float>");
 				}
 				list = new LinkedList<Float>();
-				field.set(fieldsBean, list);
+				accessor.set(fieldsBean, list);
 			}
 			List<JsonValue> arrayValues = this.getElements();
 			for (JsonValue value : arrayValues) {
@@ -514,20 +549,20 @@ public class JsonValueArray extends JsonValue {
 		////////////////////////
 		// List is of type Double
 		else if (listType.equals(Double.class.getCanonicalName())) {
-			List<Double> list = (List<Double>) field.get(fieldsBean);
+			List<Double> list = (List<Double>) accessor.get(fieldsBean);
 			if (list == null) {
 				if (JsonValue.debug) {
 					Output.logdebug(Output.padStr("JsonValueArray::deserializeJsonValueToBean: ", 60) + "Field \""
 							+ field.getName() + "\" being instantiated as type of LinkedList<Double>");
 				}
 				list = new LinkedList<Double>();
-				field.set(fieldsBean, list);
+				accessor.set(fieldsBean, list);
 			}
 			List<JsonValue> arrayValues = this.getElements();
 			for (JsonValue value : arrayValues) {
 				if (value instanceof JsonValueNumberDouble) {
 					double num = ((JsonValueNumberDouble) value).getValue().doubleValue();
-					list.add(new Double(num));
+					list.add(Double.valueOf(num));
 					if (JsonValue.debug) {
 						Output.logdebug(Output.padStr("JsonValueArray::deserializeJsonValueToBean: ", 60)
 								+ "Deserialising field \"" + field.getName()
@@ -545,14 +580,14 @@ public class JsonValueArray extends JsonValue {
 		////////////////////////
 		// List is of type URI
 		else if (listType.equals(java.net.URI.class.getCanonicalName())) {
-			List<URI> list = (List<URI>) field.get(fieldsBean);
+			List<URI> list = (List<URI>) accessor.get(fieldsBean);
 			if (list == null) {
 				if (JsonValue.debug) {
 					Output.logdebug(
 							"Field \"" + field.getName() + "\" being instantiated as type of LinkedList<URI>");
 				}
 				list = new LinkedList<URI>();
-				field.set(fieldsBean, list);
+				accessor.set(fieldsBean, list);
 			}
 			List<JsonValue> arrayValues = this.getElements();
 			for (JsonValue value : arrayValues) {
@@ -587,37 +622,284 @@ public class JsonValueArray extends JsonValue {
 		}
 	}
 
+	/**
+	 * Get an element of this array. For a lazily parsed array only that element
+	 * is parsed; the other elements are left unparsed.
+	 *
+	 * @param index
+	 *           The index of the element
+	 * @return The element
+	 * @throws IndexOutOfBoundsException
+	 *            Thrown if the index is not within the array
+	 */
+	public JsonValue get(int index) {
+		if (this.lazySource != null) {
+			if ((index < 0) || (index >= this.lazyValues.length)) {
+				throw new IndexOutOfBoundsException("Index " + index + " is outside a JSON array of size "
+						+ this.lazyValues.length);
+			}
+			return this.lazyValue(index);
+		}
+		if (this.tape != null) {
+			if ((index < 0) || (index >= this.lazyValues.length)) {
+				throw new IndexOutOfBoundsException("Index " + index + " is outside a JSON array of size "
+						+ this.lazyValues.length);
+			}
+			return this.tapeValue(index);
+		}
+		return this.elements.get(index);
+	}
+
+	/**
+	 * Get the elements of this array. The list may be changed, and changes
+	 * made through it forget any cached JSON text this array is part of.
+	 *
+	 * @return The elements
+	 */
 	public List<JsonValue> getElements() {
-		return this.elements;
+		this.materialize();
+		return (this.elements == null) ? null : new TrackedList<JsonValue>(this.elements, this);
+	}
+
+	/**
+	 * Is the compact JSON text of this array cached?
+	 *
+	 * @return true if the text is cached
+	 */
+	public boolean isCacheText() {
+		return this.cacheText;
 	}
 
 	@Override
 	public boolean isNull() {
+		if ((this.lazySource != null) || (this.tape != null)) {
+			return this.lazyValues.length == 0;
+		}
 		if ((this.elements == null) || (this.elements.size() == 0)) {
 			return true;
 		}
 		return false;
 	}
 
+	/**
+	 * Cache the compact JSON text of this array, for a long lived array that is
+	 * printed far more often than it is changed
+	 *
+	 * @param cacheText
+	 *           true to cache the text, false to forget it and stop caching
+	 * @see JsonValueObject#setCacheText(boolean)
+	 */
+	public void setCacheText(boolean cacheText) {
+		this.cacheText = cacheText;
+		this.cachedText = null;
+	}
+
 	public void setElements(List<JsonValue> elements) {
+		if (this.elements != null) {
+			for (JsonValue element : this.elements) {
+				this.unlinkText(element);
+			}
+		}
+		this.lazySource = null;
+		this.lazyOffsets = null;
+		this.lazyValues = null;
+		this.tape = null;
+		this.tapeElements = null;
 		this.elements = elements;
+		this.invalidate();
+	}
+
+	/**
+	 * Get the number of elements in this array, without parsing the elements of
+	 * a lazily parsed array
+	 *
+	 * @return The number of elements
+	 */
+	public int size() {
+		if ((this.lazySource != null) || (this.tape != null)) {
+			return this.lazyValues.length;
+		}
+		return (this.elements == null) ? 0 : this.elements.size();
 	}
 
 	@Override
 	public String toString() {
-		if ((this.elements == null) || (this.elements.size() == 0)) {
-			return "[ ]";
-		}
-		String ret = "[ ";
-		Iterator<JsonValue> it = this.elements.iterator();
-		while (it.hasNext()) {
-			JsonValue value = it.next();
-			ret += value.toString();
-			if (it.hasNext()) {
-				ret += ", ";
+		return this.toString(new WriteContext());
+	}
+
+	@Override
+	public String toString(WriteContext context) {
+		if (this.cacheText) {
+			return this.getCachedText(context);
+		}
+		return JsonWriter.toString(this, context);
+	}
+
+	/**
+	 * Write this array to a writer. The elements are written straight to the
+	 * writer, unless the array caches its text and is written compactly.
+	 */
+	@Override
+	public void writeTo(JsonWriter writer) throws IOException {
+		if (this.cacheText && (writer.getIndent() == null)) {
+			writer.rawValue(this.getCachedText(writer.getContext()));
+			return;
+		}
+		this.writeElements(writer);
+	}
+
+	@Override
+	void countTextChange() {
+		JsonValueArray.TEXT_VERSION.incrementAndGet(this);
+	}
+
+	@Override
+	void linkText(Deque<JsonValue> pending) {
+		this.materialize();
+		if (this.elements != null) {
+			for (JsonValue value : this.elements) {
+				if (value != null) {
+					value.addTextOwner(this);
+					pending.push(value);
+				}
+			}
+		}
+	}
+
+	@Override
+	void unlinkText(Object child) {
+		if (child != null) {
+			((JsonValue) child).removeTextOwner(this);
+		}
+	}
+
+	/**
+	 * Get the compact JSON text of this array from the cache, writing it if
+	 * anything that is part of it has changed since it was last written. Text
+	 * written while a change is being made is returned but not kept.
+	 *
+	 * @param context
+	 *           The options for writing
+	 * @return The JSON text
+	 */
+	private String getCachedText(WriteContext context) {
+		boolean printNull = context.isPrintNull();
+		CachedText cached = this.cachedText;
+		if ((cached != null) && (cached.version == this.textVersion)) {
+			String ret = cached.get(printNull);
+			if (ret != null) {
+				return ret;
+			}
+		}
+
+		//////////////////////
+		// Link the tree before reading the count, so that a change made while
+		// the text is written is counted
+		JsonValue.linkText(this);
+		long version = this.textVersion;
+		StringBuilder text = new StringBuilder();
+		try {
+			this.writeElements(new JsonWriter(text, context));
+		} catch (IOException e) {
+			// A StringBuilder never throws
+			throw new UncheckedIOException(e);
+		}
+		String ret = text.toString();
+		if (this.textVersion == version) {
+			cached = this.cachedText;
+			this.cachedText = ((cached != null) && (cached.version == version)) ? cached.with(printNull, ret)
+					: new CachedText(version, printNull ? ret : null, printNull ? null : ret);
+		}
+		return ret;
+	}
+
+	/**
+	 * Write this array's elements straight to a writer
+	 *
+	 * @param writer
+	 *           The writer
+	 * @throws IOException
+	 */
+	private void writeElements(JsonWriter writer) throws IOException {
+		this.materialize();
+		writer.beginArray();
+		if (this.elements != null) {
+			for (JsonValue value : this.elements) {
+				value.writeTo(writer);
+			}
+		}
+		writer.endArray();
+	}
+
+	/**
+	 * Get an element of a lazily parsed array, parsing it if this is the first
+	 * time it has been read. Objects and arrays within the element are
+	 * themselves parsed lazily.
+	 *
+	 * @param index
+	 *           The index of the element
+	 * @return The element
+	 */
+	private JsonValue lazyValue(int index) {
+		JsonValue ret = this.lazyValues[index];
+		if (ret == null) {
+			try {
+				ret = JsonParser.parseLazy(this.lazySource, this.lazyOffsets[index * 2],
+						this.lazyOffsets[(index * 2) + 1]);
+			} catch (JsonException e) {
+				// The element was checked when the array was indexed
+				throw new IllegalStateException("Lazily parsed JSON array element could not be parsed", e);
+			}
+			this.lazyValues[index] = ret;
+		}
+		return ret;
+	}
+
+	/**
+	 * Get an element of an array that is a view onto a tape, creating it if this
+	 * is the first time it has been read
+	 *
+	 * @param index
+	 *           The index of the element
+	 * @return The element
+	 */
+	private JsonValue tapeValue(int index) {
+		JsonValue ret = this.lazyValues[index];
+		if (ret == null) {
+			if (this.tapeElements == null) {
+				this.tapeElements = new int[this.lazyValues.length];
+				int i = this.tapeIndex + 1;
+				for (int element = 0; element < this.tapeElements.length; element++) {
+					this.tapeElements[element] = i;
+					i = this.tape.next(i);
+				}
+			}
+			ret = this.tape.getValue(this.tapeElements[index]);
+			this.lazyValues[index] = ret;
+		}
+		return ret;
+	}
+
+	/**
+	 * Build the element list of a lazily parsed array or tape view, so that it
+	 * can be read and changed like any other array. Does nothing if the array is
+	 * neither, or has already been materialized.
+	 */
+	private void materialize() {
+		if ((this.lazySource == null) && (this.tape == null)) {
+			return;
+		}
+		List<JsonValue> values = new LinkedList<JsonValue>();
+		if (this.lazySource != null) {
+			for (int i = 0; i < this.lazyValues.length; i++) {
+				values.add(this.lazyValue(i));
+			}
+		} else if (this.tape != null) {
+			for (int i = 0; i < this.lazyValues.length; i++) {
+				values.add(this.tapeValue(i));
 			}
 		}
-		return ret + " ]";
+		this.setElements(values);
 	}
 
 }
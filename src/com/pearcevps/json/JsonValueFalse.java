@@ -1,6 +1,6 @@
 package com.pearcevps.json;
 
-import java.lang.annotation.Annotation;
+import java.io.IOException;
 import java.lang.reflect.Field;
 import java.util.Map;
 import com.pearcevps.utils.Output;
@@ -23,24 +23,18 @@ public class JsonValueFalse extends JsonValue {
 		boolean jsonProperty = false;
 
 		if (((field.getType() == java.lang.Boolean.class) || field.getType().equals(Boolean.TYPE))) {
-			Annotation[] annotations = field.getAnnotations();
-			for (int count = 0; count < annotations.length; count++) {
-				if (annotations[count].toString().contains(Json_Property.class.getCanonicalName())) {
-					jsonProperty = true;
+			BeanDescriptor.Property property = BeanDescriptor.getProperty(field);
+			if (property.isAnnotated()) {
+				jsonProperty = true;
 
-					if (!field.isAccessible()) {
-						field.setAccessible(true);
-					}
-					if (field.getType().equals(Boolean.TYPE)) {
-						field.setBoolean(fieldsBean, false);
-					} else {
-						field.set(fieldsBean, false);
-					}
-					if (JsonValue.debug) {
-						Output.logdebug(Output.padStr("JsonValueFalse::deserializeJsonValueToBean: ", 60)
-								+ "Deserialising field \"" + field.getName() + "\" (of type boolean) to \"false\"");
-					}
-					break;
+				if (field.getType().equals(Boolean.TYPE)) {
+					property.getAccessor().setBoolean(fieldsBean, false);
+				} else {
+					property.getAccessor().set(fieldsBean, false);
+				}
+				if (JsonValue.debug) {
+					Output.logdebug(Output.padStr("JsonValueFalse::deserializeJsonValueToBean: ", 60)
+							+ "Deserialising field \"" + field.getName() + "\" (of type boolean) to \"false\"");
 				}
 			}
 		}
@@ -75,7 +69,7 @@ public class JsonValueFalse extends JsonValue {
 						+ "Deserializing \"" + name + "\" with value \"false\" into Map<String,String>");
 			}
 		} else if ((mapValueClass != null) && mapValueClass.equals(java.lang.Boolean.class)) {
-			map.put(name, new Boolean(true));
+			map.put(name, Boolean.valueOf(true));
 			if (JsonValue.debug) {
 				Output.logdebug(Output.padStr("JsonValueFalse::deserializeJsonValueToMapValue: ", 60)
 						+ "Deserializing \"" + name + "\" with value false into Map<String,Boolean>");
@@ -98,4 +92,9 @@ public class JsonValueFalse extends JsonValue {
 	public String toString() {
 		return "false";
 	}
+
+	@Override
+	public void writeTo(JsonWriter writer) throws IOException {
+		writer.value(false);
+	}
 }
@@ -1,6 +1,6 @@
 package com.pearcevps.json;
 
-import java.lang.annotation.Annotation;
+import java.io.IOException;
 import java.lang.reflect.Field;
 import java.util.Map;
 import com.pearcevps.utils.Output;
@@ -27,30 +27,24 @@ public class JsonValueNull extends JsonValue {
 
 		///////////////////////
 		// Found a match of type string
-		Annotation[] annotations = field.getAnnotations();
-		for (int count = 0; count < annotations.length; count++) {
-			if (annotations[count].toString().contains(Json_Property.class.getCanonicalName())) {
-				jsonProperty = true;
+		BeanDescriptor.Property property = BeanDescriptor.getProperty(field);
+		if (property.isAnnotated()) {
+			jsonProperty = true;
 
-				if (!field.isAccessible()) {
-					field.setAccessible(true);
+			String fieldType = field.getType().getName();
+			if (!field.getType().isPrimitive()) {
+				property.getAccessor().set(fieldsBean, null);
+				if (JsonValue.debug) {
+					Output.logdebug(Output.padStr("JsonValueNull::deserializeJsonValueToBean: ", 60)
+							+ "Deserialising field \"" + field.getName() + "\" of type \"" + fieldType
+							+ "\" to \"null\"");
 				}
-				String fieldType = field.getType().getName();
-				if (!field.getType().isPrimitive()) {
-					field.set(fieldsBean, null);
-					if (JsonValue.debug) {
-						Output.logdebug(Output.padStr("JsonValueNull::deserializeJsonValueToBean: ", 60)
-								+ "Deserialising field \"" + field.getName() + "\" of type \"" + fieldType
-								+ "\" to \"null\"");
-					}
-				} else {
-					if (JsonValue.debug) {
-						Output.logdebug(Output.padStr("JsonValueNull::deserializeJsonValueToBean: ", 60)
-								+ "Deserialising field \"" + field.getName() + "\" of type \"" + fieldType
-								+ "\" to non-initialised value");
-					}
+			} else {
+				if (JsonValue.debug) {
+					Output.logdebug(Output.padStr("JsonValueNull::deserializeJsonValueToBean: ", 60)
+							+ "Deserialising field \"" + field.getName() + "\" of type \"" + fieldType
+							+ "\" to non-initialised value");
 				}
-				break;
 			}
 		}
 		if (!jsonProperty) {
@@ -95,4 +89,8 @@ public class JsonValueNull extends JsonValue {
 		return "null";
 	}
 
+	@Override
+	public void writeTo(JsonWriter writer) throws IOException {
+		writer.nullValue();
+	}
 }
@@ -0,0 +1,141 @@
+package com.pearcevps.json;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Map;
+import com.pearcevps.utils.Output;
+
+/**
+ * A JSON number held as a {@link BigDecimal}. The parsers create it for
+ * decimals that are outside the range of a double, so that their magnitude is
+ * not lost.
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonValueNumberBigDecimal extends JsonValue {
+
+	private BigDecimal value;
+
+	public JsonValueNumberBigDecimal(BigDecimal value) {
+		super();
+		this.value = value;
+	}
+
+	@Override
+	public void deserializeJsonValueToBean(Field field, Object fieldsBean)
+			throws IllegalArgumentException, IllegalAccessException, JsonException {
+		if ((field == null) || (fieldsBean == null)) {
+			throw new JsonException("Can't deserialize into a null field or bean");
+		}
+		boolean jsonProperty = false;
+
+		if ((field.getType() == BigInteger.class) || (field.getType() == BigDecimal.class)
+				|| (field.getType() == java.lang.Double.class) || field.getType().equals(Double.TYPE)) {
+			BeanDescriptor.Property property = BeanDescriptor.getProperty(field);
+			if (property.isAnnotated()) {
+				jsonProperty = true;
+
+				if (this.value == null) {
+					if (field.getType().equals(Double.TYPE)) {
+						property.getAccessor().setDouble(fieldsBean, 0.0);
+					} else {
+						property.getAccessor().set(fieldsBean, null);
+					}
+				} else if (field.getType() == BigInteger.class) {
+					property.getAccessor().set(fieldsBean, this.value.toBigInteger());
+				} else if (field.getType() == BigDecimal.class) {
+					property.getAccessor().set(fieldsBean, this.value);
+				} else if (field.getType().equals(Double.TYPE)) {
+					property.getAccessor().setDouble(fieldsBean, this.value.doubleValue());
+				} else {
+					property.getAccessor().set(fieldsBean, Double.valueOf(this.value.doubleValue()));
+				}
+				if (JsonValue.debug) {
+					Output.logdebug(Output.padStr("JsonValueNumberBigDecimal::deserializeJsonValueToBean: ", 60)
+							+ "Deserialising field \"" + field.getName() + "\" (of type "
+							+ field.getType().getSimpleName() + ") to " + this.value);
+				}
+			}
+		}
+
+		if (!jsonProperty) {
+			if (JsonValue.debug) {
+				Output.logdebug(Output.padStr("JsonValueNumberBigDecimal::deserializeJsonValueToBean: ", 60) + "Field \""
+						+ field.getName() + "\" (of type BigDecimal) ignored becuase not a @JsonProperty");
+			}
+		}
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Override
+	public void deserializeJsonValueToMapValue(Map map, String name, Class mapValueClass) throws JsonException {
+		if ((map == null) || (name == null) || name.isEmpty() || (mapValueClass == null)) {
+			throw new JsonException(
+					"Cannot desrialize Json Value to a null map, or map without an indicated dvalue class, or to an existing map without a value name");
+		}
+
+		if (mapValueClass.equals(java.lang.String.class)) {
+			map.put(name, "" + this.getValue());
+		} else if (mapValueClass.equals(BigInteger.class)) {
+			map.put(name, (this.value == null) ? null : this.value.toBigInteger());
+		} else if (mapValueClass.equals(BigDecimal.class)) {
+			map.put(name, (this.value == null) ? null : this.value);
+		} else if (mapValueClass.equals(java.lang.Double.class)) {
+			map.put(name, (this.value == null) ? null : Double.valueOf(this.value.doubleValue()));
+		} else {
+			if (JsonValue.debug) {
+				Output.logdebug(Output.padStr("JsonValueNumberBigDecimal::deserializeJsonValueToMapValue: ", 60)
+						+ "Failed to deserialize \"" + name + "\" into a map with value type of "
+						+ mapValueClass.getName() + " - ignoring");
+			}
+			return;
+		}
+		if (JsonValue.debug) {
+			Output.logdebug(Output.padStr("JsonValueNumberBigDecimal::deserializeJsonValueToMapValue: ", 60) + "Deserializing \""
+					+ name + "\" with value " + this.getValue() + " into Map<String," + mapValueClass.getSimpleName()
+					+ ">");
+		}
+	}
+
+	/**
+	 * Get the value of this JsonValueNumberBigDecimal object
+	 *
+	 * @return The value
+	 */
+	public BigDecimal getValue() {
+		return this.value;
+	}
+
+	@Override
+	public boolean isNull() {
+		if (this.value == null) {
+			return true;
+		}
+		return false;
+	}
+
+	public void setValue(BigDecimal value) {
+		this.value = value;
+		this.invalidate();
+	}
+
+	@Override
+	public String toString() {
+		if (this.value == null) {
+			return "";
+		}
+		return this.value.toString();
+	}
+
+	@Override
+	public void writeTo(JsonWriter writer) throws IOException {
+		if (this.value == null) {
+			writer.rawValue("");
+		} else {
+			writer.value(this.value);
+		}
+	}
+}
@@ -1,25 +1,87 @@
 package com.pearcevps.json;
 
-import java.lang.annotation.Annotation;
+import java.io.IOException;
 import java.lang.reflect.Field;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import com.pearcevps.utils.Output;
 
 public class JsonValueNumberDouble extends JsonValue {
 
-	Double value;
+	/**
+	 * Is the value written at float precision, because it came from a float?
+	 */
+	private boolean	floatPrecision	= false;
+	Double			value;
 
 	public JsonValueNumberDouble(double value) {
 		super();
-		this.value = new Double(value);
+		this.value = Double.valueOf(value);
 	}
 
+	/**
+	 * Create a number value
+	 *
+	 * @param value
+	 *           The value
+	 * @param floatPrecision
+	 *           true to write the value with no more digits than a float needs,
+	 *           e.g. 0.1 rather than 0.10000000149011612 for 0.1f
+	 */
+	public JsonValueNumberDouble(double value, boolean floatPrecision) {
+		super();
+		this.value = Double.valueOf(value);
+		this.floatPrecision = floatPrecision;
+	}
+
+	/**
+	 * Is a string a JSON number with a fraction, an exponent or both?
+	 *
+	 * @param value
+	 *           The string to check
+	 * @return true if the string is a JSON number that is not an integer
+	 */
 	static public boolean isJsonDouble(String value) {
-		Pattern p = Pattern.compile("(-?)(0|[1-9]\\d*)(\\.\\d+){1}([eE]{1}[+-]?\\d+)?");
-		Matcher m = p.matcher(value);
-		return m.matches();
+		int length = value.length();
+		int i = ((length > 0) && (value.charAt(0) == '-')) ? 1 : 0;
+		//////////////////////////////
+		// The integer part, with no leading zeros
+		int start = i;
+		while ((i < length) && (value.charAt(i) >= '0') && (value.charAt(i) <= '9')) {
+			i++;
+		}
+		if ((i == start) || ((value.charAt(start) == '0') && (i > (start + 1)))) {
+			return false;
+		}
+		//////////////////////////////
+		// The fraction
+		boolean integer = true;
+		if ((i < length) && (value.charAt(i) == '.')) {
+			integer = false;
+			start = ++i;
+			while ((i < length) && (value.charAt(i) >= '0') && (value.charAt(i) <= '9')) {
+				i++;
+			}
+			if (i == start) {
+				return false;
+			}
+		}
+		//////////////////////////////
+		// The exponent
+		if ((i < length) && ((value.charAt(i) == 'e') || (value.charAt(i) == 'E'))) {
+			integer = false;
+			i++;
+			if ((i < length) && ((value.charAt(i) == '+') || (value.charAt(i) == '-'))) {
+				i++;
+			}
+			start = i;
+			while ((i < length) && (value.charAt(i) >= '0') && (value.charAt(i) <= '9')) {
+				i++;
+			}
+			if (i == start) {
+				return false;
+			}
+		}
+		return !integer && (i == length);
 	}
 
 	@Override
@@ -32,75 +94,69 @@ public class JsonValueNumberDouble extends JsonValue {
 
 		if (((field.getType() == java.lang.Float.class) || field.getType().equals(Float.TYPE)
 				|| (field.getType() == java.lang.Double.class) || field.getType().equals(Double.TYPE))) {
-			Annotation[] annotations = field.getAnnotations();
-			for (int count = 0; count < annotations.length; count++) {
-				if (annotations[count].toString().contains(Json_Property.class.getCanonicalName())) {
-					jsonProperty = true;
+			BeanDescriptor.Property property = BeanDescriptor.getProperty(field);
+			if (property.isAnnotated()) {
+				jsonProperty = true;
 
-					if (!field.isAccessible()) {
-						field.setAccessible(true);
+				// NULL values, primitives
+				if ((this.value == null) && field.getType().equals(Double.TYPE)) {
+					property.getAccessor().setDouble(fieldsBean, 0.0);
+					if (JsonValue.debug) {
+						Output.logdebug(Output.padStr("JsonValueNumberDouble::deserializeJsonValueToBean: ", 60)
+								+ "Deserialising field \"" + field.getName() + "\" (of type double) to 0");
+					}
+				} else if ((this.value == null) && field.getType().equals(Float.TYPE)) {
+					property.getAccessor().setFloat(fieldsBean, (float) 0.0);
+					if (JsonValue.debug) {
+						Output.logdebug(Output.padStr("JsonValueNumberDouble::deserializeJsonValueToBean: ", 60)
+								+ "Deserialising field \"" + field.getName() + "\" (of type float) to 0");
 					}
-					// NULL values, primitives
-					if ((this.value == null) && field.getType().equals(Double.TYPE)) {
-						field.setDouble(fieldsBean, 0.0);
-						if (JsonValue.debug) {
-							Output.logdebug(Output.padStr("JsonValueNumberDouble::deserializeJsonValueToBean: ", 60)
-									+ "Deserialising field \"" + field.getName() + "\" (of type double) to 0");
-						}
-					} else if ((this.value == null) && field.getType().equals(Float.TYPE)) {
-						field.setFloat(fieldsBean, (float) 0.0);
-						if (JsonValue.debug) {
-							Output.logdebug(Output.padStr("JsonValueNumberDouble::deserializeJsonValueToBean: ", 60)
-									+ "Deserialising field \"" + field.getName() + "\" (of type float) to 0");
-						}
+				}
+				// NULL values, classes
+				else if ((this.value == null) && (field.getType() == java.lang.Double.class)) {
+					property.getAccessor().set(fieldsBean, null);
+					if (JsonValue.debug) {
+						Output.logdebug(Output.padStr("JsonValueNumberDouble::deserializeJsonValueToBean: ", 60)
+								+ "Deserialising field \"" + field.getName() + "\" (of type Double) to null");
 					}
-					// NULL values, classes
-					else if ((this.value == null) && (field.getType() == java.lang.Double.class)) {
-						field.set(fieldsBean, null);
-						if (JsonValue.debug) {
-							Output.logdebug(Output.padStr("JsonValueNumberDouble::deserializeJsonValueToBean: ", 60)
-									+ "Deserialising field \"" + field.getName() + "\" (of type Double) to null");
-						}
-					} else if ((this.value == null) && (field.getType() == java.lang.Float.class)) {
-						field.set(fieldsBean, null);
-						if (JsonValue.debug) {
-							Output.logdebug(Output.padStr("JsonValueNumberDouble::deserializeJsonValueToBean: ", 60)
-									+ "Deserialising field \"" + field.getName() + "\" (of type Float) to null");
-						}
+				} else if ((this.value == null) && (field.getType() == java.lang.Float.class)) {
+					property.getAccessor().set(fieldsBean, null);
+					if (JsonValue.debug) {
+						Output.logdebug(Output.padStr("JsonValueNumberDouble::deserializeJsonValueToBean: ", 60)
+								+ "Deserialising field \"" + field.getName() + "\" (of type Float) to null");
 					}
-					// Non NULL values, primitives
-					else if ((this.value != null) && field.getType().equals(Double.TYPE)) {
-						field.setDouble(fieldsBean, this.value.doubleValue());
-						if (JsonValue.debug) {
-							Output.logdebug(Output.padStr("JsonValueNumberDouble::deserializeJsonValueToBean: ", 60)
-									+ "Deserialising field \"" + field.getName() + "\" (of type double) to "
-									+ this.value.doubleValue());
-						}
-					} else if ((this.value != null) && field.getType().equals(Float.TYPE)) {
-						field.setFloat(fieldsBean, this.value.floatValue());
-						if (JsonValue.debug) {
-							Output.logdebug(Output.padStr("JsonValueNumberDouble::deserializeJsonValueToBean: ", 60)
-									+ "Deserialising field \"" + field.getName() + "\" (of type float) to "
-									+ this.value.floatValue());
-						}
+				}
+				// Non NULL values, primitives
+				else if ((this.value != null) && field.getType().equals(Double.TYPE)) {
+					property.getAccessor().setDouble(fieldsBean, this.value.doubleValue());
+					if (JsonValue.debug) {
+						Output.logdebug(Output.padStr("JsonValueNumberDouble::deserializeJsonValueToBean: ", 60)
+								+ "Deserialising field \"" + field.getName() + "\" (of type double) to "
+								+ this.value.doubleValue());
 					}
-					// Non NULL values, classes
-					else if ((this.value != null) && (field.getType() == java.lang.Double.class)) {
-						field.set(fieldsBean, this.value);
-						if (JsonValue.debug) {
-							Output.logdebug(Output.padStr("JsonValueNumberDouble::deserializeJsonValueToBean: ", 60)
-									+ "Deserialising field \"" + field.getName() + "\" (of type Double) to "
-									+ this.value.doubleValue());
-						}
-					} else if ((this.value != null) && (field.getType() == java.lang.Float.class)) {
-						field.set(fieldsBean, new Float(this.value.floatValue()));
-						if (JsonValue.debug) {
-							Output.logdebug(Output.padStr("JsonValueNumberDouble::deserializeJsonValueToBean: ", 60)
-									+ "Deserialising field \"" + field.getName() + "\" (of type Float) to "
-									+ this.value.floatValue());
-						}
+				} else if ((this.value != null) && field.getType().equals(Float.TYPE)) {
+					property.getAccessor().setFloat(fieldsBean, this.value.floatValue());
+					if (JsonValue.debug) {
+						Output.logdebug(Output.padStr("JsonValueNumberDouble::deserializeJsonValueToBean: ", 60)
+								+ "Deserialising field \"" + field.getName() + "\" (of type float) to "
+								+ this.value.floatValue());
+					}
+				}
+				// Non NULL values, classes
+				else if ((this.value != null) && (field.getType() == java.lang.Double.class)) {
+					property.getAccessor().set(fieldsBean, this.value);
+					if (JsonValue.debug) {
+						Output.logdebug(Output.padStr("JsonValueNumberDouble::deserializeJsonValueToBean: ", 60)
+								+ "Deserialising field \"" + field.getName() + "\" (of type Double) to "
+								+ this.value.doubleValue());
+					}
+				} else if ((this.value != null) && (field.getType() == java.lang.Float.class)) {
+					property.getAccessor().set(fieldsBean, new Float(this.value.floatValue()));
+					if (JsonValue.debug) {
+						Output.logdebug(Output.padStr("JsonValueNumberDouble::deserializeJsonValueToBean: ", 60)
+								+ "Deserialising field \"" + field.getName() + "\" (of type Float) to "
+								+ this.value.floatValue());
 					}
-					break;
 				}
 			}
 		}
@@ -143,7 +199,7 @@ public class JsonValueNumberDouble extends JsonValue {
 						+ " into Map<String,Float>");
 			}
 		} else if ((mapValueClass != null) && mapValueClass.equals(java.lang.Double.class)) {
-			map.put(name, new Double(this.getValue()));
+			map.put(name, Double.valueOf(this.getValue()));
 			if (JsonValue.debug) {
 				Output.logdebug(Output.padStr("JsonValueNumberDouble::deserializeJsonValueToMapValue: ", 60)
 						+ "Deserializing \"" + name + "\" with value " + this.getValue().doubleValue()
@@ -162,6 +218,16 @@ public class JsonValueNumberDouble extends JsonValue {
 		return this.value;
 	}
 
+	/**
+	 * Is the value written at float precision?
+	 *
+	 * @return true if the value is written with no more digits than a float
+	 *         needs
+	 */
+	public boolean isFloatPrecision() {
+		return this.floatPrecision;
+	}
+
 	@Override
 	public boolean isNull() {
 		if (this.value == null) {
@@ -170,8 +236,16 @@ public class JsonValueNumberDouble extends JsonValue {
 		return false;
 	}
 
+	/**
+	 * Set the value, which is then written at double precision
+	 *
+	 * @param value
+	 *           The value
+	 */
 	public void setValue(double value) {
-		this.value = new Double(value);
+		this.value = Double.valueOf(value);
+		this.floatPrecision = false;
+		this.invalidate();
 	}
 
 	@Override
@@ -179,7 +253,20 @@ public class JsonValueNumberDouble extends JsonValue {
 		if (this.value == null) {
 			return "";
 		}
-		return Double.toString(this.value);
+		if (this.floatPrecision) {
+			return JsonNumberFormat.toString(this.value.floatValue());
+		}
+		return JsonNumberFormat.toString(this.value.doubleValue());
 	}
 
+	@Override
+	public void writeTo(JsonWriter writer) throws IOException {
+		if (this.value == null) {
+			writer.rawValue("");
+		} else if (this.floatPrecision) {
+			writer.value(this.value.floatValue());
+		} else {
+			writer.value(this.value.doubleValue());
+		}
+	}
 }
@@ -1,10 +1,8 @@
 package com.pearcevps.json;
 
-import java.lang.annotation.Annotation;
+import java.io.IOException;
 import java.lang.reflect.Field;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import com.pearcevps.utils.Output;
 
 public class JsonValueNumberLong extends JsonValue {
@@ -13,13 +11,25 @@ public class JsonValueNumberLong extends JsonValue {
 
 	public JsonValueNumberLong(long value) {
 		super();
-		this.value = new Long(value);
+		this.value = Long.valueOf(value);
 	}
 
+	/**
+	 * Is a string an optional '-' followed by digits?
+	 *
+	 * @param value
+	 *           The string to check
+	 * @return true if the string only holds an optional sign and digits
+	 */
 	static public boolean isJsonLong(String value) {
-		Pattern p = Pattern.compile("(-?)(\\p{Digit}*)");
-		Matcher m = p.matcher(value);
-		return m.matches();
+		int i = ((value.length() > 0) && (value.charAt(0) == '-')) ? 1 : 0;
+		for (; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if ((c < '0') || (c > '9')) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	@Override
@@ -33,102 +43,95 @@ public class JsonValueNumberLong extends JsonValue {
 		if ((field.getType() == java.lang.Long.class) || field.getType().equals(Long.TYPE)
 				|| (field.getType() == java.lang.Integer.class) || field.getType().equals(Integer.TYPE)
 				|| (field.getType() == java.lang.Short.class) || field.getType().equals(Short.TYPE)) {
-			Annotation[] annotations = field.getAnnotations();
-
-			for (int count = 0; count < annotations.length; count++) {
-				if (annotations[count].toString().contains(Json_Property.class.getCanonicalName())) {
-					jsonProperty = true;
-
-					if (!field.isAccessible()) {
-						field.setAccessible(true);
+			BeanDescriptor.Property property = BeanDescriptor.getProperty(field);
+			if (property.isAnnotated()) {
+				jsonProperty = true;
+
+				// NULL values, primitives
+				if ((this.value == null) && field.getType().equals(Long.TYPE)) {
+					property.getAccessor().setLong(fieldsBean, 0);
+					if (JsonValue.debug) {
+						Output.logdebug(Output.padStr("JsonValueNumberLong::deserializeJsonValueToBean: ", 60)
+								+ "Deserialising field \"" + field.getName() + "\" (of type long) to 0");
+					}
+				} else if ((this.value == null) && field.getType().equals(Integer.TYPE)) {
+					property.getAccessor().setInt(fieldsBean, 0);
+					if (JsonValue.debug) {
+						Output.logdebug(Output.padStr("JsonValueNumberLong::deserializeJsonValueToBean: ", 60)
+								+ "Deserialising field \"" + field.getName() + "\" (of type integer) to 0");
 					}
-					// NULL values, primitives
-					if ((this.value == null) && field.getType().equals(Long.TYPE)) {
-						field.setLong(fieldsBean, 0);
-						if (JsonValue.debug) {
-							Output.logdebug(Output.padStr("JsonValueNumberLong::deserializeJsonValueToBean: ", 60)
-									+ "Deserialising field \"" + field.getName() + "\" (of type long) to 0");
-						}
-					} else if ((this.value == null) && field.getType().equals(Integer.TYPE)) {
-						field.setInt(fieldsBean, 0);
-						if (JsonValue.debug) {
-							Output.logdebug(Output.padStr("JsonValueNumberLong::deserializeJsonValueToBean: ", 60)
-									+ "Deserialising field \"" + field.getName() + "\" (of type integer) to 0");
-						}
-					} else if ((this.value == null) && field.getType().equals(Short.TYPE)) {
-						field.setShort(fieldsBean, (short) 0);
-						if (JsonValue.debug) {
-							Output.logdebug(Output.padStr("JsonValueNumberLong::deserializeJsonValueToBean: ", 60)
-									+ "Deserialising field \"" + field.getName() + "\" (of type short) to 0");
-						}
+				} else if ((this.value == null) && field.getType().equals(Short.TYPE)) {
+					property.getAccessor().setShort(fieldsBean, (short) 0);
+					if (JsonValue.debug) {
+						Output.logdebug(Output.padStr("JsonValueNumberLong::deserializeJsonValueToBean: ", 60)
+								+ "Deserialising field \"" + field.getName() + "\" (of type short) to 0");
 					}
-					// NULL values, classes
-					else if ((this.value == null) && (field.getType() == java.lang.Long.class)) {
-						field.set(fieldsBean, null);
-						if (JsonValue.debug) {
-							Output.logdebug(Output.padStr("JsonValueNumberLong::deserializeJsonValueToBean: ", 60)
-									+ "Deserialising field \"" + field.getName() + "\" (of type Long) to null");
-						}
-					} else if ((this.value == null) && (field.getType() == java.lang.Integer.class)) {
-						field.set(fieldsBean, null);
-						if (JsonValue.debug) {
-							Output.logdebug(Output.padStr("JsonValueNumberLong::deserializeJsonValueToBean: ", 60)
-									+ "Deserialising field \"" + field.getName() + "\" (of type Integer) to null");
-						}
-					} else if ((this.value == null) && (field.getType() == java.lang.Short.class)) {
-						field.set(fieldsBean, null);
-						if (JsonValue.debug) {
-							Output.logdebug(Output.padStr("JsonValueNumberLong::deserializeJsonValueToBean: ", 60)
-									+ "Deserialising field \"" + field.getName() + "\" (of type Short) to null");
-						}
+				}
+				// NULL values, classes
+				else if ((this.value == null) && (field.getType() == java.lang.Long.class)) {
+					property.getAccessor().set(fieldsBean, null);
+					if (JsonValue.debug) {
+						Output.logdebug(Output.padStr("JsonValueNumberLong::deserializeJsonValueToBean: ", 60)
+								+ "Deserialising field \"" + field.getName() + "\" (of type Long) to null");
 					}
-					// Non NULL values, primitives
-					else if ((this.value != null) && field.getType().equals(Long.TYPE)) {
-						field.setLong(fieldsBean, this.value.longValue());
-						if (JsonValue.debug) {
-							Output.logdebug(Output.padStr("JsonValueNumberLong::deserializeJsonValueToBean: ", 60)
-									+ "Deserialising field \"" + field.getName() + "\" (of type long) to "
-									+ this.value.longValue());
-						}
-					} else if ((this.value != null) && field.getType().equals(Integer.TYPE)) {
-						field.setInt(fieldsBean, this.value.intValue());
-						if (JsonValue.debug) {
-							Output.logdebug(Output.padStr("JsonValueNumberLong::deserializeJsonValueToBean: ", 60)
-									+ "Deserialising field \"" + field.getName() + "\" (of type integer) to "
-									+ this.value.intValue());
-						}
-					} else if ((this.value != null) && field.getType().equals(Short.TYPE)) {
-						field.setShort(fieldsBean, this.value.shortValue());
-						if (JsonValue.debug) {
-							Output.logdebug(Output.padStr("JsonValueNumberLong::deserializeJsonValueToBean: ", 60)
-									+ "Deserialising field \"" + field.getName() + "\" (of type short) to "
-									+ this.value.shortValue());
-						}
+				} else if ((this.value == null) && (field.getType() == java.lang.Integer.class)) {
+					property.getAccessor().set(fieldsBean, null);
+					if (JsonValue.debug) {
+						Output.logdebug(Output.padStr("JsonValueNumberLong::deserializeJsonValueToBean: ", 60)
+								+ "Deserialising field \"" + field.getName() + "\" (of type Integer) to null");
 					}
-					// Non NULL values, classes
-					else if ((this.value != null) && (field.getType() == java.lang.Long.class)) {
-						field.set(fieldsBean, this.value);
-						if (JsonValue.debug) {
-							Output.logdebug(Output.padStr("JsonValueNumberLong::deserializeJsonValueToBean: ", 60)
-									+ "Deserialising field \"" + field.getName() + "\" (of type Long) to "
-									+ this.value.longValue());
-						}
-					} else if ((this.value != null) && (field.getType() == java.lang.Integer.class)) {
-						field.set(fieldsBean, new Integer(this.value.intValue()));
-						if (JsonValue.debug) {
-							Output.logdebug(Output.padStr("JsonValueNumberLong::deserializeJsonValueToBean: ", 60)
-									+ "Deserialising field \"" + field.getName() + "\" (of type Integer) to "
-									+ this.value.intValue());
-						}
-					} else if ((this.value != null) && (field.getType() == java.lang.Short.class)) {
-						field.set(fieldsBean, new Short(this.value.shortValue()));
-						if (JsonValue.debug) {
-							Output.logdebug(Output.padStr("JsonValueNumberLong::deserializeJsonValueToBean: ", 60)
-									+ "Deserialising field \"" + field.getName() + "\" (of type Short) to "
-									+ this.value.shortValue());
-						}
+				} else if ((this.value == null) && (field.getType() == java.lang.Short.class)) {
+					property.getAccessor().set(fieldsBean, null);
+					if (JsonValue.debug) {
+						Output.logdebug(Output.padStr("JsonValueNumberLong::deserializeJsonValueToBean: ", 60)
+								+ "Deserialising field \"" + field.getName() + "\" (of type Short) to null");
+					}
+				}
+				// Non NULL values, primitives
+				else if ((this.value != null) && field.getType().equals(Long.TYPE)) {
+					property.getAccessor().setLong(fieldsBean, this.value.longValue());
+					if (JsonValue.debug) {
+						Output.logdebug(Output.padStr("JsonValueNumberLong::deserializeJsonValueToBean: ", 60)
+								+ "Deserialising field \"" + field.getName() + "\" (of type long) to "
+								+ this.value.longValue());
+					}
+				} else if ((this.value != null) && field.getType().equals(Integer.TYPE)) {
+					property.getAccessor().setInt(fieldsBean, this.value.intValue());
+					if (JsonValue.debug) {
+						Output.logdebug(Output.padStr("JsonValueNumberLong::deserializeJsonValueToBean: ", 60)
+								+ "Deserialising field \"" + field.getName() + "\" (of type integer) to "
+								+ this.value.intValue());
+					}
+				} else if ((this.value != null) && field.getType().equals(Short.TYPE)) {
+					property.getAccessor().setShort(fieldsBean, this.value.shortValue());
+					if (JsonValue.debug) {
+						Output.logdebug(Output.padStr("JsonValueNumberLong::deserializeJsonValueToBean: ", 60)
+								+ "Deserialising field \"" + field.getName() + "\" (of type short) to "
+								+ this.value.shortValue());
+					}
+				}
+				// Non NULL values, classes
+				else if ((this.value != null) && (field.getType() == java.lang.Long.class)) {
+					property.getAccessor().set(fieldsBean, this.value);
+					if (JsonValue.debug) {
+						Output.logdebug(Output.padStr("JsonValueNumberLong::deserializeJsonValueToBean: ", 60)
+								+ "Deserialising field \"" + field.getName() + "\" (of type Long) to "
+								+ this.value.longValue());
+					}
+				} else if ((this.value != null) && (field.getType() == java.lang.Integer.class)) {
+					property.getAccessor().set(fieldsBean, Integer.valueOf(this.value.intValue()));
+					if (JsonValue.debug) {
+						Output.logdebug(Output.padStr("JsonValueNumberLong::deserializeJsonValueToBean: ", 60)
+								+ "Deserialising field \"" + field.getName() + "\" (of type Integer) to "
+								+ this.value.intValue());
+					}
+				} else if ((this.value != null) && (field.getType() == java.lang.Short.class)) {
+					property.getAccessor().set(fieldsBean, new Short(this.value.shortValue()));
+					if (JsonValue.debug) {
+						Output.logdebug(Output.padStr("JsonValueNumberLong::deserializeJsonValueToBean: ", 60)
+								+ "Deserialising field \"" + field.getName() + "\" (of type Short) to "
+								+ this.value.shortValue());
 					}
-					break;
 				}
 			}
 		}
@@ -165,14 +168,14 @@ public class JsonValueNumberLong extends JsonValue {
 						+ " into Map<String,String>");
 			}
 		} else if ((mapValueClass != null) && mapValueClass.equals(java.lang.Long.class)) {
-			map.put(name, new Long(this.getValue()));
+			map.put(name, Long.valueOf(this.getValue()));
 			if (JsonValue.debug) {
 				Output.logdebug(Output.padStr("JsonValueNumberLong::deserializeJsonValueToMapValue: ", 60)
 						+ "Deserializing \"" + name + "\" with value " + this.getValue()
 						+ " into Map<String,Long>");
 			}
 		} else if ((mapValueClass != null) && mapValueClass.equals(java.lang.Integer.class)) {
-			map.put(name, new Integer(this.getValue().intValue()));
+			map.put(name, Integer.valueOf(this.getValue().intValue()));
 			if (JsonValue.debug) {
 				Output.logdebug(Output.padStr("JsonValueNumberLong::deserializeJsonValueToMapValue: ", 60)
 						+ "Deserializing \"" + name + "\" with value " + this.getValue().intValue()
@@ -212,7 +215,8 @@ public class JsonValueNumberLong extends JsonValue {
 	}
 
 	public void setValue(long value) {
-		this.value = new Long(value);
+		this.value = Long.valueOf(value);
+		this.invalidate();
 	}
 
 	@Override
@@ -222,4 +226,13 @@ public class JsonValueNumberLong extends JsonValue {
 		}
 		return this.value.toString();
 	}
+
+	@Override
+	public void writeTo(JsonWriter writer) throws IOException {
+		if (this.value == null) {
+			writer.rawValue("");
+		} else {
+			writer.value(this.value.longValue());
+		}
+	}
 }
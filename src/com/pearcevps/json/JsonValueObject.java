@@ -1,19 +1,18 @@
 package com.pearcevps.json;
 
-import java.lang.annotation.Annotation;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
-import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 import com.pearcevps.utils.Output;
 
@@ -23,8 +22,6 @@ import com.pearcevps.utils.Output;
  */
 public class JsonValueObject extends JsonValue {
 
-	static Map<String, Integer> beanFieldRecursionValues = new HashMap<String, Integer>();
-
 	/**
 	 * Create a JsonObject from a bean
 	 *
@@ -36,14 +33,16 @@ public class JsonValueObject extends JsonValue {
 	 */
 	static public JsonValueObject createObjectFromBean(Object beanObj)
 			throws JsonException, IllegalArgumentException, IllegalAccessException {
-		beanFieldRecursionValues.clear();
-		return JsonValueObject.createObjectFromBeanInternal(beanObj);
+		return JsonValueObject.createObjectFromBeanInternal(beanObj, new WriteContext());
 	}
 
 	/**
-	 * Create a JsonObject from a bean
+	 * Create a JsonObject from a bean, limiting how many times each named bean
+	 * field may be serialized within itself
 	 *
 	 * @param beanObj
+	 * @param beanFieldRecursionLimits
+	 *           The most times each named field may be nested within itself
 	 * @return
 	 * @throws JsonException
 	 * @throws IllegalArgumentException
@@ -51,8 +50,59 @@ public class JsonValueObject extends JsonValue {
 	 */
 	static public JsonValueObject createObjectFromBean(Object beanObj, Map<String, Integer> beanFieldRecursionLimits)
 			throws JsonException, IllegalArgumentException, IllegalAccessException {
-		beanFieldRecursionValues.clear();
-		return JsonValueObject.createObjectFromBeanInternal(beanObj);
+		WriteContext context = new WriteContext();
+		context.setFieldRecursionLimits(beanFieldRecursionLimits);
+		return JsonValueObject.createObjectFromBeanInternal(beanObj, context);
+	}
+
+	/**
+	 * Create a JsonObject from a bean
+	 *
+	 * @param beanObj
+	 * @param context
+	 *           The context of this serialization, holding its depth and field
+	 *           recursion limits
+	 * @return
+	 * @throws JsonException
+	 * @throws IllegalArgumentException
+	 * @throws IllegalAccessException
+	 */
+	static public JsonValueObject createObjectFromBean(Object beanObj, WriteContext context)
+			throws JsonException, IllegalArgumentException, IllegalAccessException {
+		return JsonValueObject.createObjectFromBeanInternal(beanObj, context);
+	}
+
+	/**
+	 * Serialize a bean straight to a writer, without building a tree of
+	 * JsonValue objects. The output is the same as printing
+	 * {@link #createObjectFromBean(Object, WriteContext)} with the writer's
+	 * context, and the same annotations are honoured. The one difference is
+	 * that short escapes are written if the context asks for them, as the
+	 * strings of a tree are escaped when it is built.
+	 *
+	 * @param beanObj
+	 *           The bean to serialize
+	 * @param writer
+	 *           The writer. Its context holds the options of this serialization,
+	 *           e.g. whether null values are printed and the field recursion
+	 *           limits.
+	 * @throws JsonException
+	 * @throws IllegalArgumentException
+	 * @throws IllegalAccessException
+	 * @throws IOException
+	 *            Thrown by the writer's output
+	 */
+	static public void serializeBean(Object beanObj, JsonWriter writer)
+			throws JsonException, IllegalArgumentException, IllegalAccessException, IOException {
+		WriteContext context = writer.getContext();
+		context.enter(beanObj);
+		try {
+			writer.beginObject();
+			JsonPair.writePairsFromBean(beanObj, writer);
+			writer.endObject();
+		} finally {
+			context.exit();
+		}
 	}
 
 	/**
@@ -93,30 +143,116 @@ public class JsonValueObject extends JsonValue {
 		}
 		JsonValueObject targetObject = new JsonValueObject();
 		targetObject.getJsonPairstoDeserialize(jsonObjectString);
+		return JsonValueObject.deserializePairsToAnObject(targetObject.getMembers(), bean);
+	}
+
+	/**
+	 * Deserialize a parsed JSON object into a bean, as
+	 * {@link #deserializeJsonStringToAnObject(String, Object)} does its text,
+	 * but walking the object's pairs directly rather than printing and parsing
+	 * it again. Nested objects are bound the same way, so each level of a tree
+	 * is visited once.
+	 * <p>
+	 * The members of the object are bound as they were parsed, as the members
+	 * of the text are. Nested objects are bound as they print, with empty
+	 * objects and arrays as null and null values left out when nulls are not
+	 * printed, as they were when each level was printed and parsed again, so
+	 * the bean is the same as the one bound from the text.
+	 *
+	 * @param jsonObject
+	 *           The parsed JSON object, which is not changed
+	 * @param bean
+	 *           The bean to deserialize into
+	 * @return The bean, or null if the bean is null
+	 * @throws IllegalArgumentException
+	 * @throws IllegalAccessException
+	 * @throws JsonException
+	 * @throws InstantiationException
+	 * @throws InvocationTargetException
+	 * @throws ClassNotFoundException
+	 */
+	static public Object deserializeJsonObjectToAnObject(JsonValueObject jsonObject, Object bean)
+			throws IllegalArgumentException, IllegalAccessException, JsonException, InstantiationException,
+			InvocationTargetException, ClassNotFoundException {
+		if (bean == null) {
+			return null;
+		}
+		if (JsonValue.debug) {
+			Output.logdebug(Output.padStr("JsonValueObject::deserializeJsonObjectToAnObject: ", 60)
+					+ "Binding the parsed JSON object to bean \"" + bean.getClass().getName() + "\"...");
+		}
+		return JsonValueObject.deserializePairsToAnObject(jsonObject.getParsedMembers(), bean);
+	}
+
+	/**
+	 * Deserialize a JSON object nested in the object being bound into a bean,
+	 * taking its members as they are written when it is printed
+	 *
+	 * @param jsonObject
+	 *           The nested JSON object, which is not changed
+	 * @param bean
+	 *           The bean to deserialize into
+	 * @return The bean, or null if the bean is null
+	 * @throws IllegalArgumentException
+	 * @throws IllegalAccessException
+	 * @throws JsonException
+	 * @throws InstantiationException
+	 * @throws InvocationTargetException
+	 * @throws ClassNotFoundException
+	 */
+	static Object deserializeNestedObjectToAnObject(JsonValueObject jsonObject, Object bean)
+			throws IllegalArgumentException, IllegalAccessException, JsonException, InstantiationException,
+			InvocationTargetException, ClassNotFoundException {
+		if (bean == null) {
+			return null;
+		}
+		return JsonValueObject.deserializePairsToAnObject(jsonObject.getPrintedMembers(), bean);
+	}
+
+	/**
+	 * Assign the pairs of a JSON object to the fields of a bean with matching
+	 * names, and place the pairs that match no field into the bean's maps
+	 *
+	 * @param pairs
+	 *           The pairs of the JSON object
+	 * @param bean
+	 *           The bean, which is not null
+	 * @return The bean
+	 * @throws IllegalArgumentException
+	 * @throws IllegalAccessException
+	 * @throws JsonException
+	 * @throws InstantiationException
+	 * @throws InvocationTargetException
+	 * @throws ClassNotFoundException
+	 */
+	static private Object deserializePairsToAnObject(List<JsonPair> pairs, Object bean)
+			throws IllegalArgumentException, IllegalAccessException, JsonException, InstantiationException,
+			InvocationTargetException, ClassNotFoundException {
+		////////////////////
+		// Bind through the class's codec, if it has one
+		JsonCodec<Object> codec = JsonCodecRegistry.codecOf(bean);
+		if (codec != null) {
+			codec.readFields(bean, pairs);
+			return bean;
+		}
 
 		////////////////////
 		// Initialize bean object fields to de-serialize values into
 		if (JsonValue.debug) {
-			Output.logdebug(Output.padStr("JsonValueObject::deserializeJsonStringToAnObject: ", 60)
+			Output.logdebug(Output.padStr("JsonValueObject::deserializePairsToAnObject: ", 60)
 					+ "Getting bean fields to deserialize values into...");
 		}
 
-		List<Field> allfields = new LinkedList<Field>();
-		List<Field> usedFields = new LinkedList<Field>();
-		List<Field> unusedFields = new LinkedList<Field>();
-		Class<? extends Object> thisclass = bean.getClass();
-
-		allfields.addAll(Arrays.asList(thisclass.getDeclaredFields()));
-		while (thisclass.getSuperclass() != null) {
-			thisclass = thisclass.getSuperclass();
-			allfields.addAll(0, Arrays.asList(thisclass.getDeclaredFields()));
-		}
+		BeanDescriptor descriptor = BeanDescriptor.forClass(bean.getClass());
+		List<BeanDescriptor.Property> allfields = descriptor.getFields();
+		Set<BeanDescriptor.Property> usedFields = new HashSet<>();
+		List<BeanDescriptor.Property> unusedFields = new LinkedList<>();
 		if (JsonValue.debug) {
 			String fields = "";
-			for (Field f : allfields) {
+			for (BeanDescriptor.Property f : allfields) {
 				fields += ("[" + f.getName() + "] ");
 			}
-			Output.logdebug(Output.padStr("JsonValueObject::deserializeJsonStringToAnObject: ", 60) + " ... found "
+			Output.logdebug(Output.padStr("JsonValueObject::deserializePairsToAnObject: ", 60) + " ... found "
 					+ allfields.size() + " fields in bean \"" + bean.getClass().getName() + "\": " + fields);
 		}
 
@@ -124,33 +260,31 @@ public class JsonValueObject extends JsonValue {
 		// Loop over the pairs in this JsonValue object, assign them to fields if
 		/////////////////////// they are equal
 		Set<String> pairNamesMatched = new HashSet<>();
-		for (JsonPair pair : targetObject.getMembers()) {
-			String name = JsonString.getJavaStringFromJsonString(pair.getName().getJsonStr());
-			for (Field field : allfields) {
-				if (field.getName().equalsIgnoreCase(name)) {
-					if (debug) {
-						Output.logdebug("=======================");
-						Output.logdebug(Output.padStr("JsonValueObject::deserializeJsonStringToAnObject: ", 60)
-								+ "Trying to deserialize \"" + field.getName() + "\"");
-					}
-					pair.getValue().deserializeJsonValueToBean(field, bean);
-					pairNamesMatched.add(pair.getName().getJavaString());
-					usedFields.add(field);
+		for (JsonPair pair : pairs) {
+			String name = pair.getName().getJavaString();
+			for (BeanDescriptor.Property field : descriptor.getFieldsNamed(name)) {
+				if (debug) {
+					Output.logdebug("=======================");
+					Output.logdebug(Output.padStr("JsonValueObject::deserializePairsToAnObject: ", 60)
+							+ "Trying to deserialize \"" + field.getName() + "\"");
 				}
+				pair.getValue().deserializeJsonValueToBean(field.getField(), bean);
+				pairNamesMatched.add(name);
+				usedFields.add(field);
 			}
 		}
 
 		//////////////////////////////
 		// Get a list of pairs haven't we matched
 		List<JsonPair> unmatched = new LinkedList<>();
-		for (JsonPair pair : targetObject.getMembers()) {
+		for (JsonPair pair : pairs) {
 			if (!pairNamesMatched.contains(pair.getName().getJavaString())) {
 				unmatched.add(pair);
 			}
 		}
 		for (JsonPair pair : unmatched) {
 			if (JsonValue.debug) {
-				Output.logdebug(Output.padStr("JsonValueObject::deserializeJsonStringToAnObject: ", 60)
+				Output.logdebug(Output.padStr("JsonValueObject::deserializePairsToAnObject: ", 60)
 						+ "Found unmatched Pair \"" + pair.getName().getJavaString()
 						+ "\". Adding it to a list of pairs to add try to add to a Map in the bean.");
 			}
@@ -158,7 +292,7 @@ public class JsonValueObject extends JsonValue {
 
 		///////////////////////////////
 		// Get a list of fields that we haven't used
-		for (Field f : allfields) {
+		for (BeanDescriptor.Property f : allfields) {
 			if (!usedFields.contains(f)) {
 				unusedFields.add(f);
 			}
@@ -205,59 +339,28 @@ public class JsonValueObject extends JsonValue {
 	}
 
 	/**
-	 * Pretty print this JSON object
+	 * Pretty print a JSON object, reformatting it in a single pass
 	 *
 	 * @param input
 	 *           The JSON object to print
 	 * @param level
 	 *           What level to indent the JSON object
-	 * @return
+	 * @return The JSON object, with each member on its own line, or the input
+	 *         unchanged if its nesting or strings are not valid
+	 * @see JsonFormatter
 	 */
 	static public String jsonPrettyPrint(String input, int level) {
-		String indent = "   ";
-		Map<Integer, Integer> insertionPoints = new HashMap<Integer, Integer>();
-		boolean inQuote = false;
-		// iterate through the input
-		for (int i = 0; i < input.length(); i++) {
-			if ((input.charAt(i) == '{') && !inQuote) {
-				int insertionPoint = i + 1;
-				insertionPoints.put(insertionPoint, ++level);
-			}
-			if (input.charAt(i) == ',') {
-				int insertionPoint = i + 1;
-				insertionPoints.put(insertionPoint, level);
-			}
-			if ((input.charAt(i) == '}') && !inQuote) {
-				// int insertionPoint = i - 1;
-				int insertionPoint = i;
-				insertionPoints.put(insertionPoint, --level);
-			}
-			if (input.charAt(i) == '[') {
-				int insertionPoint = i + 1;
-				insertionPoints.put(insertionPoint, ++level);
-			}
-			if (input.charAt(i) == ']') {
-				// int insertionPoint = i - 1;
-				int insertionPoint = i;
-				insertionPoints.put(insertionPoint, --level);
-			}
-			if (input.charAt(i) == '"') {
-				inQuote = !inQuote;
-			}
-		}
-
-		String ret = "";
-		for (int i = 0; i < input.length(); i++) {
-			if (!insertionPoints.containsKey(i)) {
-				ret += input.charAt(i);
-			} else {
-				ret += JsonValueObject.getNewIndent(insertionPoints.get(i), indent);
-				ret += input.charAt(i); // Was before the new indent line
-
+		JsonFormatter formatter = new JsonFormatter(JsonWriter.DEFAULT_INDENT, "\n");
+		formatter.setLevel(level);
+		try {
+			return formatter.format(input);
+		} catch (JsonException e) {
+			if (JsonValue.debug) {
+				Output.logdebug(Output.padStr("JsonValueObject::jsonPrettyPrint: ", 60)
+						+ "Returning the input unformatted ... " + e.getMessage());
 			}
+			return input;
 		}
-
-		return ret;
 	}
 
 	/**
@@ -274,80 +377,22 @@ public class JsonValueObject extends JsonValue {
 	 * Create a JSON object from a bean (a class with simple public types)
 	 *
 	 * @param bean
+	 * @param context
+	 *           The context of this serialization
 	 * @return
 	 * @throws JsonException
 	 * @throws IllegalAccessException
 	 * @throws IllegalArgumentException
 	 */
-	static protected JsonValueObject createObjectFromBeanInternal(Object bean)
+	static protected JsonValueObject createObjectFromBeanInternal(Object bean, WriteContext context)
 			throws IllegalArgumentException, IllegalAccessException, JsonException {
 		JsonValueObject ret = new JsonValueObject();
-		List<JsonPair> fields = JsonPair.createStringPairsFromBean(bean);
-		ret.addPairs(fields);
-		return ret;
-	}
-
-	/**
-	 * Get a string from the input that represents the object
-	 *
-	 * @param str
-	 *           The input string to parse
-	 * @return
-	 */
-	static private String getJsonStringFromObjectToDeserialize(String str) {
-		String ret = "";
-		boolean inString = false;
-		boolean inArray = false;
-		char previousChar = 'a';
-		String braceScope = "";
-		String arrayScope = "";
-		for (int i = 0; i < str.length(); i++) {
-			char c = str.charAt(i);
-
-			if ((c == ']') && !inString && (arrayScope.length() > 0)) {
-				arrayScope = arrayScope.substring(0, arrayScope.length() - 1);
-				if (arrayScope.isEmpty()) {
-					inArray = false;
-				}
-			}
-			if ((c == '}') && !inString && (braceScope.length() > 0)) {
-				braceScope = braceScope.substring(0, braceScope.length() - 1);
-			}
-			if (braceScope.length() > 0) {
-				if (inString || !Character.isWhitespace(c)) {
-					ret += str.charAt(i);
-				}
-			}
-			if ((c == '{') && !inString) {
-				braceScope += "{";
-			}
-			if ((c == '[') && !inString) {
-				arrayScope += "[";
-				inArray = true;
-			}
-			if ((c == ',') && !inString && !inArray && (braceScope.length() == 1)) {
-				ret += "\n";
-			}
-			if ((str.charAt(i) == '"') && !inString) {
-				inString = true;
-			} else if ((str.charAt(i) == '"') && inString && (previousChar != '\\')) {
-				inString = false;
-			}
-
-			if ((ret.length() > 0) && (braceScope.length() == 0)) {
-				return ret.trim();
-			}
-			previousChar = str.charAt(i);
-		}
-		return ret.trim();
-	}
-
-	static private String getNewIndent(int level, String indentStr) {
-		String ret = "";
-		// if (level > 0)
-		ret += "\n";
-		for (int i = 0; i < level; i++) {
-			ret += indentStr;
+		context.enter(bean);
+		try {
+			List<JsonPair> fields = JsonPair.createStringPairsFromBean(bean, context);
+			ret.addPairs(fields);
+		} finally {
+			context.exit();
 		}
 		return ret;
 	}
@@ -377,7 +422,8 @@ public class JsonValueObject extends JsonValue {
 	 * @throws InstantiationException
 	 */
 	@SuppressWarnings({ "unused", "rawtypes" })
-	static private void placeRemainingPairsIntoMaps(Object bean, List<Field> fields, List<JsonPair> unmatchedPairs)
+	static private void placeRemainingPairsIntoMaps(Object bean, List<BeanDescriptor.Property> fields,
+			List<JsonPair> unmatchedPairs)
 			throws JsonException, IllegalArgumentException, IllegalAccessException, InstantiationException,
 			InvocationTargetException, ClassNotFoundException {
 
@@ -408,25 +454,14 @@ public class JsonValueObject extends JsonValue {
 		Class mapValueClass = null;
 
 		///////////////////////
-		// The field to apply the map to field
-		Field mapfield = null;
+		// The accessor of the field to apply the map to
+		FieldAccessor mapfield = null;
 		////////////////////////
 		// Find the map field, assign our new map to it.
-		for (Field field : fields) {
-			boolean jsonProperty = false;
-			boolean jsonMapAsBeans = false;
-			if (field.getType() == java.util.Map.class) {
-				/////////////////////////////
-				// Get the annotations for the Map field
-				Annotation[] annotations = field.getAnnotations();
-				for (int count = 0; count < annotations.length; count++) {
-					if (annotations[count].toString().contains(Json_Property.class.getCanonicalName())) {
-						jsonProperty = true;
-					}
-					if (annotations[count].toString().contains(Json_MapValuesAreBeans.class.getCanonicalName())) {
-						jsonMapAsBeans = true;
-					}
-				}
+		for (BeanDescriptor.Property property : fields) {
+			if (property.getKind() == BeanDescriptor.Kind.MAP) {
+				boolean jsonProperty = property.isAnnotated();
+				boolean jsonMapAsBeans = property.isMapValuesAreBeans();
 
 				///////////////////////////
 				// Only progress if this is is a Map field that is required to be
@@ -442,27 +477,20 @@ public class JsonValueObject extends JsonValue {
 					}
 
 					/////////////////////
-					// Get the Map parameterized types, and check that that this one
+					// Get the Map type arguments, and check that that this one
 					///////////////////// that can really be
 					// assigned a JSON pair.
-					if (field.getGenericType() instanceof ParameterizedType) {
-						String key = null;
-						ParameterizedType ptype = (ParameterizedType) field.getGenericType();
-						Type[] typeArguments = ptype.getActualTypeArguments();
-						if (typeArguments.length == 2) {
-							mapValueClass = (Class) typeArguments[1];
-							mapValueClassName = typeArguments[1].getTypeName();
-
-							if (typeArguments[0].getTypeName().equalsIgnoreCase(String.class.getName())) {
-								if (!field.isAccessible()) {
-									field.setAccessible(true);
-								}
-								mapfield = field;
-								if (jsonMapAsBeans) {
-									foundPojoMap = true;
-								} else {
-									foundJavaTypeMap = true;
-								}
+					Class<?>[] typeArguments = property.getTypeArguments();
+					if (typeArguments.length == 2) {
+						mapValueClass = typeArguments[1];
+						mapValueClassName = (mapValueClass == null) ? null : mapValueClass.getTypeName();
+
+						if (typeArguments[0] == java.lang.String.class) {
+							mapfield = property.getAccessor();
+							if (jsonMapAsBeans) {
+								foundPojoMap = true;
+							} else {
+								foundJavaTypeMap = true;
 							}
 						}
 					}
@@ -541,10 +569,54 @@ public class JsonValueObject extends JsonValue {
 
 	}
 
+	/**
+	 * Counts the changes to {@link #textVersion}
+	 */
+	static private final AtomicLongFieldUpdater<JsonValueObject>	TEXT_VERSION	= AtomicLongFieldUpdater
+			.newUpdater(JsonValueObject.class, "textVersion");
+
+	/**
+	 * The cached compact JSON text of this object, or null
+	 */
+	private volatile CachedText	cachedText	= null;
+	/**
+	 * Is the compact JSON text of this object cached?
+	 */
+	private boolean			cacheText			= false;
+	/**
+	 * Counts the changes made to this object and everything in it
+	 */
+	private volatile long	textVersion			= 0;
+	/**
+	 * For a lazily parsed object, the start and end of the raw name and of the
+	 * value of each member within {@link #lazySource}, i.e. four offsets per
+	 * member
+	 */
+	private int[]				lazyOffsets	= null;
+	/**
+	 * For a lazily parsed object, the string the members are parsed from. Null
+	 * once the members have been materialized.
+	 */
+	private String				lazySource	= null;
+	/**
+	 * For a lazily parsed object, the member values that have been parsed so
+	 * far, indexed by member
+	 */
+	private JsonValue[]		lazyValues	= null;
 	/**
 	 * The JSON pairs that form this JSON object
 	 */
-	private List<JsonPair> members = new LinkedList<JsonPair>();
+	private List<JsonPair>	members		= new LinkedList<JsonPair>();
+	/**
+	 * For an object that is a view onto a tape, the tape. Null once the members
+	 * have been materialized.
+	 */
+	private JsonTape			tape			= null;
+	/**
+	 * For an object that is a view onto a tape, the tape index of the start of
+	 * the object
+	 */
+	private int					tapeIndex	= 0;
 
 	/**
 	 * Add a JSON Pair (i.e. name and value) to this JSON object.
@@ -552,7 +624,9 @@ public class JsonValueObject extends JsonValue {
 	 * @param pair
 	 */
 	public void addPair(JsonPair pair) {
+		this.materialize();
 		this.members.add(pair);
+		this.invalidate();
 	}
 
 	/**
@@ -561,9 +635,11 @@ public class JsonValueObject extends JsonValue {
 	 * @param pairs
 	 */
 	public void addPairs(List<JsonPair> pairs) {
+		this.materialize();
 		for (JsonPair pair : pairs) {
 			this.members.add(pair);
 		}
+		this.invalidate();
 	}
 
 	/*
@@ -581,64 +657,59 @@ public class JsonValueObject extends JsonValue {
 		}
 		boolean jsonProperty = false;
 
-		Annotation[] annotations = field.getAnnotations();
-		for (int count = 0; count < annotations.length; count++) {
-			if (annotations[count].toString().contains(Json_Property.class.getCanonicalName())) {
-				jsonProperty = true;
+		BeanDescriptor.Property property = BeanDescriptor.getProperty(field);
+		if (property.isAnnotated()) {
+			jsonProperty = true;
 
-				if (!field.isAccessible()) {
-					field.setAccessible(true);
-				}
-				if (field.getType().isPrimitive()) {
-					throw new JsonException("Tried to de-serializes a JSON object into a primtive field type");
-				}
-				// Get the field constructors
-				Constructor<?>[] constructors = field.getType().getDeclaredConstructors();
-				Constructor<?> defaultConstructor = null;
-				Constructor<?> innerClassDefaultConstructor = null;
-				// Loop over each constructor
-				for (int ci = 0; ci < constructors.length; ci++) {
-					// System.err.println(constructors[ci].getName());
-					constructors[ci].setAccessible(true);
-					Class<?>[] parameters = constructors[ci].getParameterTypes();
-					// Get the default constructor, if present
-					if (parameters.length == 0) {
-						defaultConstructor = constructors[ci];
-						break;
-					}
-					// // If we have 1 parameter in the constructor, and it is the
-					// type of the bean class
-					// // then the class is an an embedded class
-					// System.err.println("FB: " + fieldsBean.getClass().getName());
-					// System.err.println("PA: " + parameters[0].getName());
-					// System.err.println(parameters[0].isAssignableFrom(fieldsBean.getClass()));
-
-					if ((parameters.length == 1) && parameters[0].isAssignableFrom(fieldsBean.getClass())) {
-
-						// if ((parameters.length == 1) &&
-						// parameters[0].equals(fieldsBean.getClass())) {
-						// We have an embedded class
-						innerClassDefaultConstructor = constructors[ci];
-						break;
-					}
-				}
-				if ((defaultConstructor == null) && (innerClassDefaultConstructor == null)) {
-					throw new JsonException("Cannot deserialize to a bean member or inner class of type \""
-							+ fieldsBean.getClass().getCanonicalName() + "\" that does not have a default constructor");
-				}
-				Object containedBean = null;
-				if (defaultConstructor != null) {
-					containedBean = defaultConstructor.newInstance();
-				} else if (innerClassDefaultConstructor != null) {
-					containedBean = innerClassDefaultConstructor.newInstance(fieldsBean);
+			if (field.getType().isPrimitive()) {
+				throw new JsonException("Tried to de-serializes a JSON object into a primtive field type");
+			}
+			// Get the field constructors
+			Constructor<?>[] constructors = field.getType().getDeclaredConstructors();
+			Constructor<?> defaultConstructor = null;
+			Constructor<?> innerClassDefaultConstructor = null;
+			// Loop over each constructor
+			for (int ci = 0; ci < constructors.length; ci++) {
+				// System.err.println(constructors[ci].getName());
+				constructors[ci].setAccessible(true);
+				Class<?>[] parameters = constructors[ci].getParameterTypes();
+				// Get the default constructor, if present
+				if (parameters.length == 0) {
+					defaultConstructor = constructors[ci];
+					break;
 				}
-				if (JsonValue.debug) {
-					Output.logdebug(Output.padStr("JsonValueObject::deserializeJsonValueToBean: ", 60)
-							+ "Deserialising field \"" + field.getName() + "\" (of type Object) ...");
+				// // If we have 1 parameter in the constructor, and it is the
+				// type of the bean class
+				// // then the class is an an embedded class
+				// System.err.println("FB: " + fieldsBean.getClass().getName());
+				// System.err.println("PA: " + parameters[0].getName());
+				// System.err.println(parameters[0].isAssignableFrom(fieldsBean.getClass()));
+
+				if ((parameters.length == 1) && parameters[0].isAssignableFrom(fieldsBean.getClass())) {
+
+					// if ((parameters.length == 1) &&
+					// parameters[0].equals(fieldsBean.getClass())) {
+					// We have an embedded class
+					innerClassDefaultConstructor = constructors[ci];
+					break;
 				}
-				containedBean = JsonValueObject.deserializeJsonStringToAnObject(this.print(), containedBean);
-				field.set(fieldsBean, containedBean);
 			}
+			if ((defaultConstructor == null) && (innerClassDefaultConstructor == null)) {
+				throw new JsonException("Cannot deserialize to a bean member or inner class of type \""
+						+ fieldsBean.getClass().getCanonicalName() + "\" that does not have a default constructor");
+			}
+			Object containedBean = null;
+			if (defaultConstructor != null) {
+				containedBean = defaultConstructor.newInstance();
+			} else if (innerClassDefaultConstructor != null) {
+				containedBean = innerClassDefaultConstructor.newInstance(fieldsBean);
+			}
+			if (JsonValue.debug) {
+				Output.logdebug(Output.padStr("JsonValueObject::deserializeJsonValueToBean: ", 60)
+						+ "Deserialising field \"" + field.getName() + "\" (of type Object) ...");
+			}
+			containedBean = JsonValueObject.deserializeNestedObjectToAnObject(this, containedBean);
+			property.getAccessor().set(fieldsBean, containedBean);
 		}
 		if (!jsonProperty) {
 			if (JsonValue.debug) {
@@ -664,7 +735,7 @@ public class JsonValueObject extends JsonValue {
 							+ name + "\" into a map value class of type " + mapValueClass.getName() + "...");
 		}
 
-		Object o = deserializeJsonStringToAnObject(this.toString(), mapValueClass.newInstance());
+		Object o = JsonValueObject.deserializeNestedObjectToAnObject(this, mapValueClass.newInstance());
 		map.put(name, o);
 		if (JsonValue.debug) {
 			Output.logdebug(Output.padStr("JsonValueObject::deserializeJsonValueToMapValue: ", 60) + "Deserializing \""
@@ -672,6 +743,46 @@ public class JsonValueObject extends JsonValue {
 		}
 	}
 
+	/**
+	 * Get the value of the first member of this object with a name. For a
+	 * lazily parsed object only that member's value is parsed; the other
+	 * members are left unparsed.
+	 *
+	 * @param name
+	 *           The name of the member
+	 * @return The value of the member, or null if there is no member with the
+	 *         name
+	 */
+	public JsonValue get(String name) {
+		if (name == null) {
+			return null;
+		}
+		if (this.lazySource != null) {
+			for (int i = 0; i < this.lazyOffsets.length; i += 4) {
+				if (this.lazyNameEquals(i, name)) {
+					return this.lazyValue(i / 4);
+				}
+			}
+			return null;
+		}
+		if (this.tape != null) {
+			int i = this.tapeIndex + 1;
+			for (int member = 0; member < this.lazyValues.length; member++) {
+				if (this.tape.nameEquals(i, name)) {
+					return this.tapeValue(member, i + 2);
+				}
+				i = this.tape.next(i + 2);
+			}
+			return null;
+		}
+		for (JsonPair pair : this.members) {
+			if ((pair.getName() != null) && name.equals(pair.getName().getJavaString())) {
+				return pair.getValue();
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * This class reads a JSON string, and populates this classes member
 	 * JsonPairs from the string
@@ -681,57 +792,102 @@ public class JsonValueObject extends JsonValue {
 	 * @throws JsonException
 	 */
 	public void getJsonPairstoDeserialize(String str) throws JsonException {
-		JsonValue.recursedDeserializedCount++;
-
-		String result = JsonValueObject.getJsonStringFromObjectToDeserialize(str);
-		Output.logdebug(Output.padStr("JsonValueObject::getJsonPairstoDeserialize: ", 60) + result.replaceAll("\n", " "));
-		String[] pairs = result.split(",\n");
-		// Loop over the pairs
-		for (int i = 0; i < pairs.length; i++) {
-			String pair = pairs[i];
-			String name = "";
-			String value = "";
-			boolean inNameString = true;
-			boolean inValueString = false;
-			char previousChar = 'a';
-			// Break the pair into a name and value
-			for (int pairIdx = 0; pairIdx < pair.length(); pairIdx++) {
-				char c = pair.charAt(pairIdx);
-				if ((pairIdx == 0) && (c != '\"')) {
-					throw new JsonException("JsonValueObject - object name doesn't start with \"");
-				}
-				if ((c == '"') && inNameString && (previousChar != '\\') && (pairIdx > 0)) {
-					inNameString = false;
-				}
-				if (inNameString && (pairIdx > 0)) {
-					name += c;
-				}
-				if (inValueString) {
-					value += c;
-				}
-				if ((c == ':') && !inNameString && !inValueString) {
-					inValueString = true;
+		JsonParser.parseObject(str, this);
+	}
+
+	/**
+	 * Get the members of this object. The list may be changed, and changes
+	 * made through it forget any cached JSON text this object is part of.
+	 *
+	 * @return The members
+	 */
+	public List<JsonPair> getMembers() {
+		this.materialize();
+		return (this.members == null) ? null : new TrackedList<JsonPair>(this.members, this);
+	}
+
+	/**
+	 * Get the members of this object as they were parsed, without forgetting
+	 * its cached JSON text. Members without a name or a value are left out.
+	 *
+	 * @return The members, which must not be changed
+	 */
+	List<JsonPair> getParsedMembers() {
+		this.materialize();
+		if (this.members == null) {
+			return new LinkedList<JsonPair>();
+		}
+		for (JsonPair pair : this.members) {
+			if ((pair.getName() == null) || (pair.getValue() == null)) {
+				List<JsonPair> ret = new LinkedList<JsonPair>();
+				for (JsonPair member : this.members) {
+					if ((member.getName() != null) && (member.getValue() != null)) {
+						ret.add(member);
+					}
 				}
-				previousChar = str.charAt(pairIdx);
-			}
-			name = JsonString.getJavaStringFromJsonString(name);
-			value = value.trim();
-			JsonValue jsonValue = JsonValue.getJsonValueFromString(value, name);
-			if ((name != null) && (jsonValue != null)) {
-				JsonPair jsonPair = new JsonPair(new JsonString(name), jsonValue);
-				this.members.add(jsonPair);
+				return ret;
 			}
 		}
-		JsonValue.recursedDeserializedCount--;
+		return this.members;
+	}
 
+	/**
+	 * Get the members of this object as they are written when it is printed,
+	 * without forgetting its cached JSON text. Members with null values, or
+	 * with empty objects or arrays, print as null when nulls are printed and
+	 * are left out otherwise.
+	 *
+	 * @return The members, which must not be changed
+	 */
+	List<JsonPair> getPrintedMembers() {
+		this.materialize();
+		if (this.members == null) {
+			return new LinkedList<JsonPair>();
+		}
+		boolean printed = true;
+		for (JsonPair pair : this.members) {
+			if ((pair.getName() == null) || (pair.getValue() == null) || pair.getValue().isNull()) {
+				printed = false;
+				break;
+			}
+		}
+		if (printed) {
+			return this.members;
+		}
+		boolean printNull = JsonPair.isPrintNull();
+		List<JsonPair> ret = new LinkedList<JsonPair>();
+		for (JsonPair pair : this.members) {
+			if (pair.getName() == null) {
+				continue;
+			}
+			if ((pair.getValue() == null) || pair.getValue().isNull()) {
+				if (printNull) {
+					ret.add(new JsonPair(pair.getName(), new JsonValueNull()));
+				}
+			} else {
+				ret.add(pair);
+			}
+		}
+		return ret;
 	}
 
-	public List<JsonPair> getMembers() {
-		return this.members;
+	/**
+	 * Is the compact JSON text of this object cached?
+	 *
+	 * @return true if the text is cached
+	 */
+	public boolean isCacheText() {
+		return this.cacheText;
 	}
 
 	@Override
 	public boolean isNull() {
+		if (this.lazySource != null) {
+			return this.lazyOffsets.length == 0;
+		}
+		if (this.tape != null) {
+			return this.lazyValues.length == 0;
+		}
 		if (this.members == null) {
 			return true;
 		}
@@ -741,40 +897,321 @@ public class JsonValueObject extends JsonValue {
 		return false;
 	}
 
+	/**
+	 * Pretty print this JSON object, with each member on its own line
+	 *
+	 * @return The JSON text
+	 */
 	public String prettyPrint() {
-		return JsonValueObject.jsonPrettyPrint(this.toString(), 0);
+		StringBuilder ret = new StringBuilder();
+		JsonWriter writer = new JsonWriter(ret);
+		writer.setIndent(JsonWriter.DEFAULT_INDENT);
+		try {
+			this.writeTo(writer);
+		} catch (IOException e) {
+			// A StringBuilder never throws
+			throw new UncheckedIOException(e);
+		}
+		return ret.toString();
 	}
 
 	public String print() {
 		return this.toString();
 	}
 
+	/**
+	 * Cache the compact JSON text of this object, for a long lived object that
+	 * is printed far more often than it is changed. The text is kept from one
+	 * print to the next, and copied as it is when this object is written
+	 * compactly, until a change is made to this object or anything in it
+	 * through its methods or the lists returned by {@link #getMembers()} and
+	 * {@link JsonValueArray#getElements()}. Lists passed to
+	 * {@link #setMembers(List)} and {@link JsonValueArray#setElements(List)}
+	 * must not be changed directly while the text is cached.
+	 *
+	 * @param cacheText
+	 *           true to cache the text, false to forget it and stop caching
+	 */
+	public void setCacheText(boolean cacheText) {
+		this.cacheText = cacheText;
+		this.cachedText = null;
+	}
+
 	public void setMembers(List<JsonPair> members) {
+		if (this.members != null) {
+			for (JsonPair pair : this.members) {
+				this.unlinkText(pair);
+			}
+		}
+		this.lazySource = null;
+		this.lazyOffsets = null;
+		this.lazyValues = null;
+		this.tape = null;
 		this.members = members;
+		this.invalidate();
+	}
+
+	/**
+	 * Get the number of members in this object, without parsing the members of
+	 * a lazily parsed object
+	 *
+	 * @return The number of members
+	 */
+	public int size() {
+		if (this.lazySource != null) {
+			return this.lazyOffsets.length / 4;
+		}
+		if (this.tape != null) {
+			return this.lazyValues.length;
+		}
+		return (this.members == null) ? 0 : this.members.size();
 	}
 
 	@Override
 	public String toString() {
-		if ((this.members == null) || (this.members.size() == 0)) {
-			return "{ }";
-		}
-		String ret = "{ ";
-		Iterator<JsonPair> it = this.members.iterator();
-		while (it.hasNext()) {
-			JsonPair pair = it.next();
-			String pairVal = pair.toString();
-			ret += pair.toString();
-			if (it.hasNext() && (pairVal != null) && !pairVal.isEmpty()) {
-				ret += ", ";
+		return this.toString(new WriteContext());
+	}
+
+	@Override
+	public String toString(WriteContext context) {
+		if (this.cacheText) {
+			return this.getCachedText(context);
+		}
+		return JsonWriter.toString(this, context);
+	}
+
+	/**
+	 * Write this object to a writer. The members are written straight to the
+	 * writer, unless the object caches its text and is written compactly.
+	 */
+	@Override
+	public void writeTo(JsonWriter writer) throws IOException {
+		if (this.cacheText && (writer.getIndent() == null)) {
+			writer.rawValue(this.getCachedText(writer.getContext()));
+			return;
+		}
+		this.writeMembers(writer);
+	}
+
+	@Override
+	void countTextChange() {
+		JsonValueObject.TEXT_VERSION.incrementAndGet(this);
+	}
+
+	@Override
+	void linkText(Deque<JsonValue> pending) {
+		this.materialize();
+		if (this.members != null) {
+			for (JsonPair pair : this.members) {
+				pair.addTextOwner(this);
+				if (pair.getValue() != null) {
+					pending.push(pair.getValue());
+				}
+			}
+		}
+	}
+
+	@Override
+	void unlinkText(Object child) {
+		if (child != null) {
+			((JsonPair) child).removeTextOwner(this);
+		}
+	}
+
+	/**
+	 * Get the compact JSON text of this object from the cache, writing it if
+	 * anything that is part of it has changed since it was last written. Text
+	 * written while a change is being made is returned but not kept.
+	 *
+	 * @param context
+	 *           The options for writing
+	 * @return The JSON text
+	 */
+	private String getCachedText(WriteContext context) {
+		boolean printNull = context.isPrintNull();
+		CachedText cached = this.cachedText;
+		if ((cached != null) && (cached.version == this.textVersion)) {
+			String ret = cached.get(printNull);
+			if (ret != null) {
+				return ret;
+			}
+		}
+
+		//////////////////////
+		// Link the tree before reading the count, so that a change made while
+		// the text is written is counted
+		JsonValue.linkText(this);
+		long version = this.textVersion;
+		StringBuilder text = new StringBuilder();
+		try {
+			this.writeMembers(new JsonWriter(text, context));
+		} catch (IOException e) {
+			// A StringBuilder never throws
+			throw new UncheckedIOException(e);
+		}
+		String ret = text.toString();
+		if (this.textVersion == version) {
+			cached = this.cachedText;
+			this.cachedText = ((cached != null) && (cached.version == version)) ? cached.with(printNull, ret)
+					: new CachedText(version, printNull ? ret : null, printNull ? null : ret);
+		}
+		return ret;
+	}
+
+	/**
+	 * Write this object's members straight to a writer
+	 *
+	 * @param writer
+	 *           The writer
+	 * @throws IOException
+	 */
+	private void writeMembers(JsonWriter writer) throws IOException {
+		this.materialize();
+		writer.beginObject();
+		if (this.members != null) {
+			for (JsonPair pair : this.members) {
+				pair.writeTo(writer);
+			}
+		}
+		writer.endObject();
+	}
+
+	/**
+	 * Does the raw name of a member of a lazily parsed object equal a name?
+	 *
+	 * @param offset
+	 *           The index of the member's offsets in {@link #lazyOffsets}
+	 * @param name
+	 *           The name to compare with
+	 * @return true if the names are equal
+	 */
+	private boolean lazyNameEquals(int offset, String name) {
+		int start = this.lazyOffsets[offset];
+		int length = this.lazyOffsets[offset + 1] - start;
+		for (int i = start; i < (start + length); i++) {
+			if (this.lazySource.charAt(i) == '\\') {
+				return name.equals(this.lazyName(offset));
+			}
+		}
+		return (length == name.length()) && this.lazySource.regionMatches(start, name, 0, length);
+	}
+
+	/**
+	 * Get the name of a member of a lazily parsed object
+	 *
+	 * @param offset
+	 *           The index of the member's offsets in {@link #lazyOffsets}
+	 * @return The name, with its JSON escapes decoded
+	 */
+	private String lazyName(int offset) {
+		return JsonString.getJavaStringFromJsonString(
+				this.lazySource.substring(this.lazyOffsets[offset], this.lazyOffsets[offset + 1]));
+	}
+
+	/**
+	 * Get the value of a member of a lazily parsed object, parsing it if this is
+	 * the first time it has been read. Objects and arrays within the value are
+	 * themselves parsed lazily.
+	 *
+	 * @param member
+	 *           The index of the member
+	 * @return The value of the member
+	 */
+	private JsonValue lazyValue(int member) {
+		JsonValue ret = this.lazyValues[member];
+		if (ret == null) {
+			try {
+				ret = JsonParser.parseLazy(this.lazySource, this.lazyOffsets[(member * 4) + 2],
+						this.lazyOffsets[(member * 4) + 3]);
+			} catch (JsonException e) {
+				// The value was checked when the object was indexed
+				throw new IllegalStateException("Lazily parsed JSON object member could not be parsed", e);
+			}
+			this.lazyValues[member] = ret;
+		}
+		return ret;
+	}
+
+	/**
+	 * Build the JSON pairs of a lazily parsed object or tape view, so that it
+	 * can be read and changed like any other object. Does nothing if the object
+	 * is neither, or has already been materialized.
+	 */
+	private void materialize() {
+		if ((this.lazySource == null) && (this.tape == null)) {
+			return;
+		}
+		List<JsonPair> pairs = new LinkedList<JsonPair>();
+		if (this.lazySource != null) {
+			for (int i = 0; i < this.lazyOffsets.length; i += 4) {
+				pairs.add(new JsonPair(new JsonString(this.lazyName(i)), this.lazyValue(i / 4)));
 			}
+		} else if (this.tape != null) {
+			int i = this.tapeIndex + 1;
+			for (int member = 0; member < this.lazyValues.length; member++) {
+				pairs.add(new JsonPair(new JsonString(this.tape.getString(i)), this.tapeValue(member, i + 2)));
+				i = this.tape.next(i + 2);
+			}
+		}
+		if (JsonValue.debug) {
+			Output.logdebug(Output.padStr("JsonValueObject::materialize: ", 60) + "Materialized " + pairs.size()
+					+ " lazily parsed JSON pairs");
 		}
-		if (ret.endsWith(", ")) {
-			ret = ret.substring(0, ret.length() - 2);
+		this.setMembers(pairs);
+	}
+
+	/**
+	 * Get the value of a member of an object that is a view onto a tape,
+	 * creating it if this is the first time it has been read
+	 *
+	 * @param member
+	 *           The index of the member
+	 * @param i
+	 *           The tape index of the member's value
+	 * @return The value of the member
+	 */
+	private JsonValue tapeValue(int member, int i) {
+		JsonValue ret = this.lazyValues[member];
+		if (ret == null) {
+			ret = this.tape.getValue(i);
+			this.lazyValues[member] = ret;
 		}
-		ret += " }";
 		return ret;
 	}
 
+	/**
+	 * Constructor for a JSON object that is a view onto a tape. The members are
+	 * created from the tape when they are first read.
+	 *
+	 * @param tape
+	 *           The tape
+	 * @param index
+	 *           The tape index of the start of the object
+	 */
+	JsonValueObject(JsonTape tape, int index) {
+		super();
+		this.tape = tape;
+		this.tapeIndex = index;
+		this.lazyValues = new JsonValue[tape.getCount(index)];
+	}
+
+	/**
+	 * Constructor for a lazily parsed JSON object. The members are parsed from
+	 * the source string when they are first read.
+	 *
+	 * @param source
+	 *           The string containing the object
+	 * @param offsets
+	 *           The start and end of the raw name and of the value of each
+	 *           member, i.e. four offsets per member
+	 */
+	JsonValueObject(String source, int[] offsets) {
+		super();
+		this.lazySource = source;
+		this.lazyOffsets = offsets;
+		this.lazyValues = new JsonValue[offsets.length / 4];
+	}
+
 	/**
 	 * Default constructor
 	 */
@@ -1,8 +1,9 @@
 package com.pearcevps.json;
 
-import java.lang.annotation.Annotation;
+import java.io.IOException;
 import java.lang.reflect.Field;
 import java.net.URISyntaxException;
+import java.util.Deque;
 import java.util.Map;
 import com.pearcevps.utils.Output;
 
@@ -30,117 +31,111 @@ public class JsonValueString extends JsonValue {
 		// Found a match of type string
 		if ((field.getType() == java.lang.String.class) || (field.getType() == java.lang.Character.class)
 				|| (field.getType() == java.net.URI.class) || field.getType().equals(Character.TYPE)) {
-			Annotation[] annotations = field.getAnnotations();
-			for (int count = 0; count < annotations.length; count++) {
-				if (annotations[count].toString().contains(Json_Property.class.getCanonicalName())) {
-					jsonProperty = true;
+			BeanDescriptor.Property property = BeanDescriptor.getProperty(field);
+			if (property.isAnnotated()) {
+				jsonProperty = true;
 
-					if (!field.isAccessible()) {
-						field.setAccessible(true);
-					}
-					String value = this.getJavaStringValue();
+				String value = this.getJavaStringValue();
 
-					// NULL values, primitives
-					if ((value == null) && field.getType().equals(Character.TYPE)) {
-						field.setChar(fieldsBean, (char) 0);
-						if (JsonValue.debug) {
-							Output.logdebug(Output.padStr("JsonValueString::deserializeJsonValueToBean: ", 60)
-									+ "Deserialising field \"" + field.getName() + "\" (of type char) to 0");
-						}
+				// NULL values, primitives
+				if ((value == null) && field.getType().equals(Character.TYPE)) {
+					property.getAccessor().setChar(fieldsBean, (char) 0);
+					if (JsonValue.debug) {
+						Output.logdebug(Output.padStr("JsonValueString::deserializeJsonValueToBean: ", 60)
+								+ "Deserialising field \"" + field.getName() + "\" (of type char) to 0");
 					}
+				}
 
-					// NULL values, classes
-					else if ((value == null) && (field.getType() == java.lang.Character.class)) {
-						field.set(fieldsBean, null);
-						if (JsonValue.debug) {
-							Output.logdebug(Output.padStr("JsonValueString::deserializeJsonValueToBean: ", 60)
-									+ "Deserialising field \"" + field.getName() + "\" (of type Character) to null");
-						}
-					} else if ((value == null) && (field.getType() == java.lang.String.class)) {
-						field.set(fieldsBean, null);
-						if (JsonValue.debug) {
-							Output.logdebug(Output.padStr("JsonValueString::deserializeJsonValueToBean: ", 60)
-									+ "Deserialising field \"" + field.getName() + "\" (of type String) to null");
-						}
-					} else if ((value == null) && (field.getType() == java.net.URI.class)) {
-						field.set(fieldsBean, null);
-						if (JsonValue.debug) {
-							Output.logdebug(Output.padStr("JsonValueString::deserializeJsonValueToBean: ", 60)
-									+ "Deserialising field \"" + field.getName() + "\" (of type URI) to null");
-						}
+				// NULL values, classes
+				else if ((value == null) && (field.getType() == java.lang.Character.class)) {
+					property.getAccessor().set(fieldsBean, null);
+					if (JsonValue.debug) {
+						Output.logdebug(Output.padStr("JsonValueString::deserializeJsonValueToBean: ", 60)
+								+ "Deserialising field \"" + field.getName() + "\" (of type Character) to null");
 					}
+				} else if ((value == null) && (field.getType() == java.lang.String.class)) {
+					property.getAccessor().set(fieldsBean, null);
+					if (JsonValue.debug) {
+						Output.logdebug(Output.padStr("JsonValueString::deserializeJsonValueToBean: ", 60)
+								+ "Deserialising field \"" + field.getName() + "\" (of type String) to null");
+					}
+				} else if ((value == null) && (field.getType() == java.net.URI.class)) {
+					property.getAccessor().set(fieldsBean, null);
+					if (JsonValue.debug) {
+						Output.logdebug(Output.padStr("JsonValueString::deserializeJsonValueToBean: ", 60)
+								+ "Deserialising field \"" + field.getName() + "\" (of type URI) to null");
+					}
+				}
 
-					// Non NULL values, empty value, primitives
-					if ((value != null) && value.isEmpty() && field.getType().equals(Character.TYPE)) {
-						field.setChar(fieldsBean, (char) 0);
-						if (JsonValue.debug) {
-							Output.logdebug(Output.padStr("JsonValueString::deserializeJsonValueToBean: ", 60)
-									+ "Deserialising field \"" + field.getName() + "\" (of type char) to 0");
-						}
+				// Non NULL values, empty value, primitives
+				if ((value != null) && value.isEmpty() && field.getType().equals(Character.TYPE)) {
+					property.getAccessor().setChar(fieldsBean, (char) 0);
+					if (JsonValue.debug) {
+						Output.logdebug(Output.padStr("JsonValueString::deserializeJsonValueToBean: ", 60)
+								+ "Deserialising field \"" + field.getName() + "\" (of type char) to 0");
 					}
-					// Non NULL values, empty value, classes
-					else if ((value != null) && value.isEmpty()
-							&& (field.getType() == java.lang.Character.class)) {
-						field.set(fieldsBean, null);
-						if (JsonValue.debug) {
-							Output.logdebug(Output.padStr("JsonValueString::deserializeJsonValueToBean: ", 60)
-									+ "Deserialising field \"" + field.getName() + "\" (of type Character) to null");
-						}
-					} else if ((value != null) && value.isEmpty() && (field.getType() == java.lang.String.class)) {
-						field.set(fieldsBean, null);
-						if (JsonValue.debug) {
-							Output.logdebug(Output.padStr("JsonValueString::deserializeJsonValueToBean: ", 60)
-									+ "Deserialising field \"" + field.getName() + "\" (of type String) to null");
-						}
-					} else if ((value != null) && value.isEmpty() && (field.getType() == java.net.URI.class)) {
-						field.set(fieldsBean, null);
-						if (JsonValue.debug) {
-							Output.logdebug(Output.padStr("JsonValueString::deserializeJsonValueToBean: ", 60)
-									+ "Deserialising field \"" + field.getName() + "\" (of type URI) to null");
-						}
+				}
+				// Non NULL values, empty value, classes
+				else if ((value != null) && value.isEmpty()
+						&& (field.getType() == java.lang.Character.class)) {
+					property.getAccessor().set(fieldsBean, null);
+					if (JsonValue.debug) {
+						Output.logdebug(Output.padStr("JsonValueString::deserializeJsonValueToBean: ", 60)
+								+ "Deserialising field \"" + field.getName() + "\" (of type Character) to null");
 					}
-					// Non NULL values, primitives
-					else if ((value != null) && field.getType().equals(Character.TYPE)) {
-						field.setChar(fieldsBean, value.charAt(0));
-						if (JsonValue.debug) {
-							Output.logdebug(Output.padStr("JsonValueString::deserializeJsonValueToBean: ", 60)
-									+ "Deserialising field \"" + field.getName() + "\" (of type char) to "
-									+ value.charAt(0));
-						}
+				} else if ((value != null) && value.isEmpty() && (field.getType() == java.lang.String.class)) {
+					property.getAccessor().set(fieldsBean, null);
+					if (JsonValue.debug) {
+						Output.logdebug(Output.padStr("JsonValueString::deserializeJsonValueToBean: ", 60)
+								+ "Deserialising field \"" + field.getName() + "\" (of type String) to null");
 					}
-					// Non NULL values, classes
-					else if ((value != null) && !value.isEmpty()
-							&& (field.getType() == java.lang.Character.class)) {
-						field.set(fieldsBean, new Character(value.charAt(0)));
-						if (JsonValue.debug) {
-							Output.logdebug(Output.padStr("JsonValueString::deserializeJsonValueToBean: ", 60)
-									+ "Deserialising field \"" + field.getName() + "\" (of type Character) to "
-									+ value.charAt(0));
-						}
-					} else if ((value != null) && !value.isEmpty()
-							&& (field.getType() == java.lang.String.class)) {
-						field.set(fieldsBean, value);
+				} else if ((value != null) && value.isEmpty() && (field.getType() == java.net.URI.class)) {
+					property.getAccessor().set(fieldsBean, null);
+					if (JsonValue.debug) {
+						Output.logdebug(Output.padStr("JsonValueString::deserializeJsonValueToBean: ", 60)
+								+ "Deserialising field \"" + field.getName() + "\" (of type URI) to null");
+					}
+				}
+				// Non NULL values, primitives
+				else if ((value != null) && field.getType().equals(Character.TYPE)) {
+					property.getAccessor().setChar(fieldsBean, value.charAt(0));
+					if (JsonValue.debug) {
+						Output.logdebug(Output.padStr("JsonValueString::deserializeJsonValueToBean: ", 60)
+								+ "Deserialising field \"" + field.getName() + "\" (of type char) to "
+								+ value.charAt(0));
+					}
+				}
+				// Non NULL values, classes
+				else if ((value != null) && !value.isEmpty()
+						&& (field.getType() == java.lang.Character.class)) {
+					property.getAccessor().set(fieldsBean, new Character(value.charAt(0)));
+					if (JsonValue.debug) {
+						Output.logdebug(Output.padStr("JsonValueString::deserializeJsonValueToBean: ", 60)
+								+ "Deserialising field \"" + field.getName() + "\" (of type Character) to "
+								+ value.charAt(0));
+					}
+				} else if ((value != null) && !value.isEmpty()
+						&& (field.getType() == java.lang.String.class)) {
+					property.getAccessor().set(fieldsBean, value);
+					if (JsonValue.debug) {
+						Output.logdebug(Output.padStr("JsonValueString::deserializeJsonValueToBean: ", 60)
+								+ "Deserialising field \"" + field.getName() + "\" (of type String) to \"" + value
+								+ "\"");
+					}
+				} else if ((value != null) && !value.isEmpty() && (field.getType() == java.net.URI.class)) {
+					java.net.URI uri;
+					try {
+						uri = new java.net.URI(value);
+						property.getAccessor().set(fieldsBean, uri);
 						if (JsonValue.debug) {
 							Output.logdebug(Output.padStr("JsonValueString::deserializeJsonValueToBean: ", 60)
-									+ "Deserialising field \"" + field.getName() + "\" (of type String) to \"" + value
-									+ "\"");
-						}
-					} else if ((value != null) && !value.isEmpty() && (field.getType() == java.net.URI.class)) {
-						java.net.URI uri;
-						try {
-							uri = new java.net.URI(value);
-							field.set(fieldsBean, uri);
-							if (JsonValue.debug) {
-								Output.logdebug(Output.padStr("JsonValueString::deserializeJsonValueToBean: ", 60)
-										+ "Deserialising field \"" + field.getName() + "\" (of type URI) to \""
-										+ uri.toString() + "\"");
-							}
-						} catch (URISyntaxException e) {
-							throw new JsonException(
-									"Trying to parse a URI field " + field.getName() + " which is not a vaid URI");
+									+ "Deserialising field \"" + field.getName() + "\" (of type URI) to \""
+									+ uri.toString() + "\"");
 						}
+					} catch (URISyntaxException e) {
+						throw new JsonException(
+								"Trying to parse a URI field " + field.getName() + " which is not a vaid URI");
 					}
-					break;
 				}
 			}
 		}
@@ -240,7 +235,11 @@ public class JsonValueString extends JsonValue {
 	 * @param jsonValue
 	 */
 	public void setJsonValue(JsonString jsonValue) {
+		if (this.jsonStringValue != null) {
+			this.jsonStringValue.removeTextOwner(this);
+		}
 		this.jsonStringValue = jsonValue;
+		this.invalidate();
 	}
 
 	/*
@@ -267,4 +266,19 @@ public class JsonValueString extends JsonValue {
 		return new JsonValueString(value);
 	}
 
+	@Override
+	void linkText(Deque<JsonValue> pending) {
+		if (this.jsonStringValue != null) {
+			this.jsonStringValue.addTextOwner(this);
+		}
+	}
+
+	@Override
+	public void writeTo(JsonWriter writer) throws IOException {
+		if (this.jsonStringValue == null) {
+			writer.rawValue("");
+		} else {
+			writer.escapedValue(this.jsonStringValue.getJsonStr());
+		}
+	}
 }
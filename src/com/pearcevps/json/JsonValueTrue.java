@@ -1,6 +1,6 @@
 package com.pearcevps.json;
 
-import java.lang.annotation.Annotation;
+import java.io.IOException;
 import java.lang.reflect.Field;
 import java.util.Map;
 import com.pearcevps.utils.Output;
@@ -22,23 +22,17 @@ public class JsonValueTrue extends JsonValue {
 		}
 		boolean jsonProperty = false;
 		if (((field.getType() == java.lang.Boolean.class) || field.getType().equals(Boolean.TYPE))) {
-			Annotation[] annotations = field.getAnnotations();
-			for (int count = 0; count < annotations.length; count++) {
-				if (annotations[count].toString().contains(Json_Property.class.getCanonicalName())) {
-					jsonProperty = true;
-					if (!field.isAccessible()) {
-						field.setAccessible(true);
-					}
-					if (field.getType().equals(Boolean.TYPE)) {
-						field.setBoolean(fieldsBean, true);
-					} else {
-						field.set(fieldsBean, true);
-					}
-					if (JsonValue.debug) {
-						Output.logdebug(Output.padStr("JsonValueNumberTrue::deserializeJsonValueToBean: ", 60)
-								+ "Deserialising field \"" + field.getName() + "\" (of type boolean) to \"true\"");
-					}
-					break;
+			BeanDescriptor.Property property = BeanDescriptor.getProperty(field);
+			if (property.isAnnotated()) {
+				jsonProperty = true;
+				if (field.getType().equals(Boolean.TYPE)) {
+					property.getAccessor().setBoolean(fieldsBean, true);
+				} else {
+					property.getAccessor().set(fieldsBean, true);
+				}
+				if (JsonValue.debug) {
+					Output.logdebug(Output.padStr("JsonValueNumberTrue::deserializeJsonValueToBean: ", 60)
+							+ "Deserialising field \"" + field.getName() + "\" (of type boolean) to \"true\"");
 				}
 			}
 		}
@@ -73,7 +67,7 @@ public class JsonValueTrue extends JsonValue {
 						+ "Deserializing \"" + name + "\" with value \"true\" into Map<String,String>");
 			}
 		} else if ((mapValueClass != null) && mapValueClass.equals(java.lang.Boolean.class)) {
-			map.put(name, new Boolean(true));
+			map.put(name, Boolean.valueOf(true));
 			if (JsonValue.debug) {
 				Output.logdebug(Output.padStr("JsonValueTrue::deserializeJsonValueToMapValue: ", 60)
 						+ "Deserializing \"" + name + "\" with value \"true\" into Map<String,Boolean>");
@@ -97,4 +91,8 @@ public class JsonValueTrue extends JsonValue {
 		return "true";
 	}
 
+	@Override
+	public void writeTo(JsonWriter writer) throws IOException {
+		writer.value(true);
+	}
 }
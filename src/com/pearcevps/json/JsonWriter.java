@@ -0,0 +1,633 @@
+package com.pearcevps.json;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes JSON a token at a time to an {@link Appendable}, such as a
+ * StringBuilder, a Writer or a {@link JsonByteOutput}, or as UTF-8 to an
+ * OutputStream. Nothing is built
+ * up in memory: each token is appended to the output as it is written, so
+ * writing an N character document costs O(N). The separators between members
+ * are tracked on a stack, and the output has the same layout as
+ * {@link JsonValue#toString()}, e.g. <code>{ "a": 1, "b": [ 2, 3 ] }</code>.
+ * <p>
+ * When an indent is set the writer pretty prints instead, putting each member
+ * on its own line, indented by its depth. Empty objects and arrays are still
+ * written as <code>{ }</code> and <code>[ ]</code>.
+ *
+ * <pre>
+ * JsonWriter writer = new JsonWriter(out);
+ * writer.beginObject();
+ * writer.name("id");
+ * writer.value(42);
+ * writer.endObject();
+ * writer.flush();
+ * </pre>
+ *
+ * Every {@link JsonValue} can write itself with
+ * {@link JsonValue#writeTo(JsonWriter)}.
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonWriter implements Closeable, Flushable {
+
+	/**
+	 * The indent used by {@link JsonValueObject#prettyPrint()}
+	 */
+	static public final String	DEFAULT_INDENT		= "   ";
+
+	//////////////////////////////
+	// The state of each open object or array
+	static private final int	EMPTY_ARRAY			= 0;
+	static private final int	EMPTY_OBJECT		= 1;
+	static private final int	NONEMPTY_ARRAY		= 2;
+	static private final int	NONEMPTY_OBJECT	= 3;
+
+	/**
+	 * Write a JSON value to a string
+	 *
+	 * @param value
+	 *           The value to write
+	 * @param context
+	 *           The options for writing
+	 * @return The JSON text
+	 */
+	static String toString(JsonValue value, WriteContext context) {
+		StringBuilder ret = new StringBuilder();
+		try {
+			value.writeTo(new JsonWriter(ret, context));
+		} catch (IOException e) {
+			// A StringBuilder never throws
+			throw new UncheckedIOException(e);
+		}
+		return ret.toString();
+	}
+
+	/**
+	 * Has a name been written that is still waiting for its value?
+	 */
+	private boolean				afterName	= false;
+	/**
+	 * The options for writing
+	 */
+	private final WriteContext	context;
+	/**
+	 * The number of open objects and arrays
+	 */
+	private int						depth			= 0;
+	/**
+	 * The indent for each level when pretty printing, or null to write compact
+	 * JSON
+	 */
+	private String					indent		= null;
+	/**
+	 * The line separator when pretty printing
+	 */
+	private String					newline		= "\n";
+	/**
+	 * The characters of the number being written, or null until one is
+	 */
+	private char[]					numbers		= null;
+	/**
+	 * The output
+	 */
+	private final Appendable	out;
+	/**
+	 * The state of each open object and array
+	 */
+	private int[]					stack			= new int[16];
+
+	/**
+	 * Create a writer to an output
+	 *
+	 * @param out
+	 *           The output, e.g. a StringBuilder or a Writer
+	 */
+	public JsonWriter(Appendable out) {
+		this(out, new WriteContext());
+	}
+
+	/**
+	 * Create a writer to an output
+	 *
+	 * @param out
+	 *           The output, e.g. a StringBuilder or a Writer
+	 * @param context
+	 *           The options for writing, e.g. whether null values are printed
+	 */
+	public JsonWriter(Appendable out, WriteContext context) {
+		super();
+		if ((out == null) || (context == null)) {
+			throw new IllegalArgumentException("A JSON writer needs an output and a context");
+		}
+		this.out = out;
+		this.context = context;
+	}
+
+	/**
+	 * Create a writer that writes UTF-8 to a stream
+	 *
+	 * @param out
+	 *           The stream. Output is buffered, so {@link #flush()} or
+	 *           {@link #close()} the writer when done.
+	 */
+	public JsonWriter(OutputStream out) {
+		this(out, new WriteContext());
+	}
+
+	/**
+	 * Create a writer that writes UTF-8 to a stream
+	 *
+	 * @param out
+	 *           The stream. Output is buffered, so {@link #flush()} or
+	 *           {@link #close()} the writer when done.
+	 * @param context
+	 *           The options for writing, e.g. whether null values are printed
+	 */
+	public JsonWriter(OutputStream out, WriteContext context) {
+		this(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)), context);
+	}
+
+	/**
+	 * Open an array
+	 *
+	 * @return This writer
+	 * @throws IOException
+	 *            Thrown by the output
+	 */
+	public JsonWriter beginArray() throws IOException {
+		this.beforeValue();
+		this.out.append('[');
+		this.push(JsonWriter.EMPTY_ARRAY);
+		return this;
+	}
+
+	/**
+	 * Open an object
+	 *
+	 * @return This writer
+	 * @throws IOException
+	 *            Thrown by the output
+	 */
+	public JsonWriter beginObject() throws IOException {
+		this.beforeValue();
+		this.out.append('{');
+		this.push(JsonWriter.EMPTY_OBJECT);
+		return this;
+	}
+
+	/**
+	 * Close the output, if it can be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		if (this.out instanceof Closeable) {
+			((Closeable) this.out).close();
+		}
+	}
+
+	/**
+	 * Close the innermost array
+	 *
+	 * @return This writer
+	 * @throws IOException
+	 *            Thrown by the output
+	 */
+	public JsonWriter endArray() throws IOException {
+		if (this.pop(JsonWriter.EMPTY_ARRAY, JsonWriter.NONEMPTY_ARRAY) && (this.indent != null)) {
+			this.newLine();
+			this.out.append(']');
+		} else {
+			this.out.append(" ]");
+		}
+		return this;
+	}
+
+	/**
+	 * Close the innermost object
+	 *
+	 * @return This writer
+	 * @throws IOException
+	 *            Thrown by the output
+	 */
+	public JsonWriter endObject() throws IOException {
+		if (this.pop(JsonWriter.EMPTY_OBJECT, JsonWriter.NONEMPTY_OBJECT) && (this.indent != null)) {
+			this.newLine();
+			this.out.append('}');
+		} else {
+			this.out.append(" }");
+		}
+		return this;
+	}
+
+	/**
+	 * Flush the output, if it can be flushed
+	 */
+	@Override
+	public void flush() throws IOException {
+		if (this.out instanceof Flushable) {
+			((Flushable) this.out).flush();
+		}
+	}
+
+	/**
+	 * Get the options for writing
+	 *
+	 * @return The context
+	 */
+	public WriteContext getContext() {
+		return this.context;
+	}
+
+	/**
+	 * Get the indent for each level when pretty printing
+	 *
+	 * @return The indent, or null if compact JSON is written
+	 */
+	public String getIndent() {
+		return this.indent;
+	}
+
+	/**
+	 * Get the line separator used when pretty printing
+	 *
+	 * @return The line separator
+	 */
+	public String getNewline() {
+		return this.newline;
+	}
+
+	/**
+	 * Write the name of the next member of an object
+	 *
+	 * @param name
+	 *           The name, which is escaped
+	 * @return This writer
+	 * @throws IOException
+	 *            Thrown by the output
+	 */
+	public JsonWriter name(String name) throws IOException {
+		this.beforeName();
+		this.out.append('"');
+		JsonString.escape(name, this.context.isShortEscapes(), this.out);
+		this.out.append("\": ");
+		return this;
+	}
+
+	/**
+	 * Pretty print, or write compact JSON. Set before anything is written.
+	 *
+	 * @param indent
+	 *           The indent for each level, e.g. {@link #DEFAULT_INDENT} or a
+	 *           tab, or null (or empty) to write compact JSON
+	 */
+	public void setIndent(String indent) {
+		this.indent = ((indent == null) || indent.isEmpty()) ? null : indent;
+	}
+
+	/**
+	 * Set the line separator used when pretty printing
+	 *
+	 * @param newline
+	 *           The line separator, e.g. "\n" (the default) or "\r\n"
+	 */
+	public void setNewline(String newline) {
+		if (newline == null) {
+			throw new IllegalArgumentException("A JSON writer needs a line separator");
+		}
+		this.newline = newline;
+	}
+
+	/**
+	 * Write a null value
+	 *
+	 * @return This writer
+	 * @throws IOException
+	 *            Thrown by the output
+	 */
+	public JsonWriter nullValue() throws IOException {
+		this.beforeValue();
+		this.out.append("null");
+		return this;
+	}
+
+	/**
+	 * Write a value that is already JSON text, without checking or escaping it
+	 *
+	 * @param json
+	 *           The JSON text
+	 * @return This writer
+	 * @throws IOException
+	 *            Thrown by the output
+	 */
+	public JsonWriter rawValue(String json) throws IOException {
+		this.beforeValue();
+		this.out.append(json);
+		return this;
+	}
+
+	/**
+	 * Write a number value
+	 *
+	 * @param value
+	 *           The value
+	 * @return This writer
+	 * @throws IOException
+	 *            Thrown by the output
+	 */
+	public JsonWriter value(BigDecimal value) throws IOException {
+		if (value == null) {
+			return this.nullValue();
+		}
+		return this.rawValue(value.toString());
+	}
+
+	/**
+	 * Write a number value
+	 *
+	 * @param value
+	 *           The value
+	 * @return This writer
+	 * @throws IOException
+	 *            Thrown by the output
+	 */
+	public JsonWriter value(BigInteger value) throws IOException {
+		if (value == null) {
+			return this.nullValue();
+		}
+		return this.rawValue(value.toString());
+	}
+
+	/**
+	 * Write a true or false value
+	 *
+	 * @param value
+	 *           The value
+	 * @return This writer
+	 * @throws IOException
+	 *            Thrown by the output
+	 */
+	public JsonWriter value(boolean value) throws IOException {
+		return this.rawValue(value ? "true" : "false");
+	}
+
+	/**
+	 * Write a number value
+	 *
+	 * @param value
+	 *           The value
+	 * @return This writer
+	 * @throws IOException
+	 *            Thrown by the output
+	 */
+	public JsonWriter value(double value) throws IOException {
+		this.beforeValue();
+		char[] buffer = this.numberBuffer();
+		this.appendChars(buffer, JsonNumberFormat.format(value, buffer, 0));
+		return this;
+	}
+
+	/**
+	 * Write a number value at float precision, so it has no more digits than
+	 * the float needs
+	 *
+	 * @param value
+	 *           The value
+	 * @return This writer
+	 * @throws IOException
+	 *            Thrown by the output
+	 */
+	public JsonWriter value(float value) throws IOException {
+		this.beforeValue();
+		char[] buffer = this.numberBuffer();
+		this.appendChars(buffer, JsonNumberFormat.format(value, buffer, 0));
+		return this;
+	}
+
+	/**
+	 * Write an integer number value
+	 *
+	 * @param value
+	 *           The value
+	 * @return This writer
+	 * @throws IOException
+	 *            Thrown by the output
+	 */
+	public JsonWriter value(long value) throws IOException {
+		this.beforeValue();
+		if (this.out instanceof StringBuilder) {
+			((StringBuilder) this.out).append(value);
+		} else if (this.out instanceof JsonByteOutput) {
+			((JsonByteOutput) this.out).appendLong(value);
+		} else {
+			this.out.append(Long.toString(value));
+		}
+		return this;
+	}
+
+	/**
+	 * Write a string value
+	 *
+	 * @param value
+	 *           The value, which is escaped, or null to write a null value
+	 * @return This writer
+	 * @throws IOException
+	 *            Thrown by the output
+	 */
+	public JsonWriter value(String value) throws IOException {
+		if (value == null) {
+			return this.nullValue();
+		}
+		this.beforeValue();
+		this.out.append('"');
+		JsonString.escape(value, this.context.isShortEscapes(), this.out);
+		this.out.append('"');
+		return this;
+	}
+
+	/**
+	 * Write the name of the next member of an object, that is already escaped
+	 *
+	 * @param name
+	 *           The escaped name, or null for an empty name
+	 * @throws IOException
+	 */
+	void escapedName(String name) throws IOException {
+		this.beforeName();
+		this.out.append('"');
+		if (name != null) {
+			this.out.append(name);
+		}
+		this.out.append("\": ");
+	}
+
+	/**
+	 * Write a string value that is already escaped
+	 *
+	 * @param value
+	 *           The escaped value, or null for an empty string
+	 * @throws IOException
+	 */
+	void escapedValue(String value) throws IOException {
+		this.beforeValue();
+		this.out.append('"');
+		if (value != null) {
+			this.out.append(value);
+		}
+		this.out.append('"');
+	}
+
+	/**
+	 * Append characters to the output, without creating a String
+	 *
+	 * @param chars
+	 *           The characters
+	 * @param length
+	 *           The number of characters, from the start of the array
+	 * @throws IOException
+	 */
+	private void appendChars(char[] chars, int length) throws IOException {
+		if (this.out instanceof StringBuilder) {
+			((StringBuilder) this.out).append(chars, 0, length);
+		} else if (this.out instanceof JsonByteOutput) {
+			((JsonByteOutput) this.out).appendAscii(chars, length);
+		} else if (this.out instanceof Writer) {
+			((Writer) this.out).write(chars, 0, length);
+		} else {
+			this.out.append(CharBuffer.wrap(chars, 0, length));
+		}
+	}
+
+	/**
+	 * Write the separator before the name of an object member. A name can also
+	 * be written outside an object, to print a single pair.
+	 *
+	 * @throws IOException
+	 */
+	private void beforeName() throws IOException {
+		if (this.afterName) {
+			throw new IllegalStateException("JSON name written where a value was expected");
+		}
+		if (this.depth > 0) {
+			int state = this.stack[this.depth - 1];
+			if (state == JsonWriter.EMPTY_OBJECT) {
+				this.separator(true);
+				this.stack[this.depth - 1] = JsonWriter.NONEMPTY_OBJECT;
+			} else if (state == JsonWriter.NONEMPTY_OBJECT) {
+				this.separator(false);
+			} else {
+				throw new IllegalStateException("JSON name written in an array");
+			}
+		}
+		this.afterName = true;
+	}
+
+	/**
+	 * Write the separator before a value
+	 *
+	 * @throws IOException
+	 */
+	private void beforeValue() throws IOException {
+		if (this.afterName) {
+			this.afterName = false;
+			return;
+		}
+		if (this.depth > 0) {
+			int state = this.stack[this.depth - 1];
+			if (state == JsonWriter.EMPTY_ARRAY) {
+				this.separator(true);
+				this.stack[this.depth - 1] = JsonWriter.NONEMPTY_ARRAY;
+			} else if (state == JsonWriter.NONEMPTY_ARRAY) {
+				this.separator(false);
+			} else {
+				throw new IllegalStateException("JSON object value written without a name");
+			}
+		}
+	}
+
+	/**
+	 * Start a new line, indented to the current depth
+	 *
+	 * @throws IOException
+	 */
+	private void newLine() throws IOException {
+		this.out.append(this.newline);
+		for (int i = 0; i < this.depth; i++) {
+			this.out.append(this.indent);
+		}
+	}
+
+	/**
+	 * Close the innermost object or array
+	 *
+	 * @param empty
+	 *           The state of the expected container when empty
+	 * @param nonEmpty
+	 *           The state of the expected container when not empty
+	 * @return true if the container had any members
+	 */
+	private boolean pop(int empty, int nonEmpty) {
+		int state = (this.depth == 0) ? -1 : this.stack[this.depth - 1];
+		if (this.afterName || ((state != empty) && (state != nonEmpty))) {
+			throw new IllegalStateException("JSON object or array closed out of order");
+		}
+		this.depth--;
+		return state == nonEmpty;
+	}
+
+	/**
+	 * Get the array numbers are formatted into, creating it the first time
+	 *
+	 * @return The array
+	 */
+	private char[] numberBuffer() {
+		if (this.numbers == null) {
+			this.numbers = new char[JsonNumberFormat.MAX_LENGTH];
+		}
+		return this.numbers;
+	}
+
+	/**
+	 * Write the separator before a member of an object or array
+	 *
+	 * @param first
+	 *           true for the first member
+	 * @throws IOException
+	 */
+	private void separator(boolean first) throws IOException {
+		if (this.indent == null) {
+			this.out.append(first ? " " : ", ");
+			return;
+		}
+		if (!first) {
+			this.out.append(',');
+		}
+		this.newLine();
+	}
+
+	/**
+	 * Open an object or array
+	 *
+	 * @param state
+	 *           The state of the new container
+	 */
+	private void push(int state) {
+		if (this.depth == this.stack.length) {
+			this.stack = Arrays.copyOf(this.stack, this.depth * 2);
+		}
+		this.stack[this.depth++] = state;
+	}
+}
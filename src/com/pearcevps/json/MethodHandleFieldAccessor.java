@@ -0,0 +1,296 @@
+package com.pearcevps.json;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * A {@link FieldAccessor} built from the getter and setter method handles of a
+ * field. The handles are adapted once to exact types, so that they can be
+ * invoked without any further checks: one pair takes and returns the value as
+ * an Object, and for a primitive field a second pair takes and returns the
+ * primitive itself, so its value is never boxed.
+ *
+ * @author andrewpearce
+ *
+ */
+final class MethodHandleFieldAccessor implements FieldAccessor {
+
+	/**
+	 * Create the accessor of a field
+	 *
+	 * @param field
+	 *           The field
+	 * @return An accessor built from method handles, or a
+	 *         {@link ReflectionFieldAccessor} for a static or final field, or
+	 *         one whose handles cannot be created
+	 */
+	static FieldAccessor create(Field field) {
+		if (Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers())) {
+			return new ReflectionFieldAccessor(field);
+		}
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			return new MethodHandleFieldAccessor(field, lookup.unreflectGetter(field), lookup.unreflectSetter(field));
+		} catch (IllegalAccessException e) {
+			return new ReflectionFieldAccessor(field);
+		}
+	}
+
+	/**
+	 * Turn what a handle threw into what {@link Field} would have thrown
+	 *
+	 * @param e
+	 *           What was thrown
+	 * @return The exception to throw
+	 */
+	static private RuntimeException rethrow(Throwable e) {
+		if (e instanceof ClassCastException) {
+			return new IllegalArgumentException(e.getMessage(), e);
+		} else if (e instanceof RuntimeException) {
+			return (RuntimeException) e;
+		} else if (e instanceof Error) {
+			throw (Error) e;
+		}
+		return new IllegalStateException(e);
+	}
+
+	/**
+	 * The field
+	 */
+	private final Field				field;
+	/**
+	 * The getter, as (Object)Object
+	 */
+	private final MethodHandle		getter;
+	/**
+	 * The getter of a primitive field, returning the primitive, or null
+	 */
+	private final MethodHandle		primitiveGetter;
+	/**
+	 * The setter of a primitive field, taking the primitive, or null
+	 */
+	private final MethodHandle		primitiveSetter;
+	/**
+	 * The setter, as (Object,Object)void
+	 */
+	private final MethodHandle		setter;
+	/**
+	 * The type of the field
+	 */
+	private final Class<?>			type;
+
+	private MethodHandleFieldAccessor(Field field, MethodHandle getter, MethodHandle setter) {
+		super();
+		this.field = field;
+		this.type = field.getType();
+		this.getter = getter.asType(MethodType.methodType(Object.class, Object.class));
+		this.setter = setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+		if (this.type.isPrimitive()) {
+			this.primitiveGetter = getter.asType(MethodType.methodType(this.type, Object.class));
+			this.primitiveSetter = setter.asType(MethodType.methodType(void.class, Object.class, this.type));
+		} else {
+			this.primitiveGetter = null;
+			this.primitiveSetter = null;
+		}
+	}
+
+	@Override
+	public Object get(Object bean) throws IllegalAccessException {
+		try {
+			return (Object) this.getter.invokeExact(bean);
+		} catch (Throwable e) {
+			throw MethodHandleFieldAccessor.rethrow(e);
+		}
+	}
+
+	@Override
+	public boolean getBoolean(Object bean) throws IllegalAccessException {
+		if (this.type != Boolean.TYPE) {
+			return FieldAccessor.super.getBoolean(bean);
+		}
+		try {
+			return (boolean) this.primitiveGetter.invokeExact(bean);
+		} catch (Throwable e) {
+			throw MethodHandleFieldAccessor.rethrow(e);
+		}
+	}
+
+	@Override
+	public char getChar(Object bean) throws IllegalAccessException {
+		if (this.type != Character.TYPE) {
+			return FieldAccessor.super.getChar(bean);
+		}
+		try {
+			return (char) this.primitiveGetter.invokeExact(bean);
+		} catch (Throwable e) {
+			throw MethodHandleFieldAccessor.rethrow(e);
+		}
+	}
+
+	@Override
+	public double getDouble(Object bean) throws IllegalAccessException {
+		if (this.type != Double.TYPE) {
+			return FieldAccessor.super.getDouble(bean);
+		}
+		try {
+			return (double) this.primitiveGetter.invokeExact(bean);
+		} catch (Throwable e) {
+			throw MethodHandleFieldAccessor.rethrow(e);
+		}
+	}
+
+	@Override
+	public float getFloat(Object bean) throws IllegalAccessException {
+		if (this.type != Float.TYPE) {
+			return FieldAccessor.super.getFloat(bean);
+		}
+		try {
+			return (float) this.primitiveGetter.invokeExact(bean);
+		} catch (Throwable e) {
+			throw MethodHandleFieldAccessor.rethrow(e);
+		}
+	}
+
+	@Override
+	public int getInt(Object bean) throws IllegalAccessException {
+		if (this.type != Integer.TYPE) {
+			return FieldAccessor.super.getInt(bean);
+		}
+		try {
+			return (int) this.primitiveGetter.invokeExact(bean);
+		} catch (Throwable e) {
+			throw MethodHandleFieldAccessor.rethrow(e);
+		}
+	}
+
+	@Override
+	public long getLong(Object bean) throws IllegalAccessException {
+		if (this.type != Long.TYPE) {
+			return FieldAccessor.super.getLong(bean);
+		}
+		try {
+			return (long) this.primitiveGetter.invokeExact(bean);
+		} catch (Throwable e) {
+			throw MethodHandleFieldAccessor.rethrow(e);
+		}
+	}
+
+	@Override
+	public short getShort(Object bean) throws IllegalAccessException {
+		if (this.type != Short.TYPE) {
+			return FieldAccessor.super.getShort(bean);
+		}
+		try {
+			return (short) this.primitiveGetter.invokeExact(bean);
+		} catch (Throwable e) {
+			throw MethodHandleFieldAccessor.rethrow(e);
+		}
+	}
+
+	@Override
+	public void set(Object bean, Object value) throws IllegalAccessException {
+		if ((value == null) && this.type.isPrimitive()) {
+			throw new IllegalArgumentException("Cannot set primitive field " + this.field.getDeclaringClass().getName()
+					+ "." + this.field.getName() + " to null");
+		}
+		try {
+			this.setter.invokeExact(bean, value);
+		} catch (Throwable e) {
+			throw MethodHandleFieldAccessor.rethrow(e);
+		}
+	}
+
+	@Override
+	public void setBoolean(Object bean, boolean value) throws IllegalAccessException {
+		if (this.type != Boolean.TYPE) {
+			FieldAccessor.super.setBoolean(bean, value);
+			return;
+		}
+		try {
+			this.primitiveSetter.invokeExact(bean, value);
+		} catch (Throwable e) {
+			throw MethodHandleFieldAccessor.rethrow(e);
+		}
+	}
+
+	@Override
+	public void setChar(Object bean, char value) throws IllegalAccessException {
+		if (this.type != Character.TYPE) {
+			FieldAccessor.super.setChar(bean, value);
+			return;
+		}
+		try {
+			this.primitiveSetter.invokeExact(bean, value);
+		} catch (Throwable e) {
+			throw MethodHandleFieldAccessor.rethrow(e);
+		}
+	}
+
+	@Override
+	public void setDouble(Object bean, double value) throws IllegalAccessException {
+		if (this.type != Double.TYPE) {
+			FieldAccessor.super.setDouble(bean, value);
+			return;
+		}
+		try {
+			this.primitiveSetter.invokeExact(bean, value);
+		} catch (Throwable e) {
+			throw MethodHandleFieldAccessor.rethrow(e);
+		}
+	}
+
+	@Override
+	public void setFloat(Object bean, float value) throws IllegalAccessException {
+		if (this.type != Float.TYPE) {
+			FieldAccessor.super.setFloat(bean, value);
+			return;
+		}
+		try {
+			this.primitiveSetter.invokeExact(bean, value);
+		} catch (Throwable e) {
+			throw MethodHandleFieldAccessor.rethrow(e);
+		}
+	}
+
+	@Override
+	public void setInt(Object bean, int value) throws IllegalAccessException {
+		if (this.type != Integer.TYPE) {
+			FieldAccessor.super.setInt(bean, value);
+			return;
+		}
+		try {
+			this.primitiveSetter.invokeExact(bean, value);
+		} catch (Throwable e) {
+			throw MethodHandleFieldAccessor.rethrow(e);
+		}
+	}
+
+	@Override
+	public void setLong(Object bean, long value) throws IllegalAccessException {
+		if (this.type != Long.TYPE) {
+			FieldAccessor.super.setLong(bean, value);
+			return;
+		}
+		try {
+			this.primitiveSetter.invokeExact(bean, value);
+		} catch (Throwable e) {
+			throw MethodHandleFieldAccessor.rethrow(e);
+		}
+	}
+
+	@Override
+	public void setShort(Object bean, short value) throws IllegalAccessException {
+		if (this.type != Short.TYPE) {
+			FieldAccessor.super.setShort(bean, value);
+			return;
+		}
+		try {
+			this.primitiveSetter.invokeExact(bean, value);
+		} catch (Throwable e) {
+			throw MethodHandleFieldAccessor.rethrow(e);
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package com.pearcevps.json;
+
+/**
+ * The state of a single parse: how deeply nested the parser currently is, and
+ * the limits that apply to it. A context is created for each parse and
+ * threaded through the parser, rather than being held in static fields, so
+ * any number of threads can parse at once without sharing mutable state. A
+ * context must not be used by two parses at the same time.
+ *
+ * @author andrewpearce
+ *
+ */
+public class ParseContext {
+
+	/**
+	 * The default maximum nesting depth, i.e. no limit
+	 */
+	static public final int	UNLIMITED	= 0;
+
+	/**
+	 * The number of objects and arrays the parser is currently inside
+	 */
+	private int					depth			= 0;
+	/**
+	 * The deepest nesting allowed, or {@link #UNLIMITED}
+	 */
+	private int					maxDepth		= ParseContext.UNLIMITED;
+
+	/**
+	 * Create a context with no limit on the nesting depth
+	 */
+	public ParseContext() {
+		super();
+	}
+
+	/**
+	 * Create a context with a limit on the nesting depth
+	 *
+	 * @param maxDepth
+	 *           The deepest nesting of objects and arrays allowed, or
+	 *           {@link #UNLIMITED}
+	 */
+	public ParseContext(int maxDepth) {
+		this();
+		this.setMaxDepth(maxDepth);
+	}
+
+	/**
+	 * Get the number of objects and arrays the parser is currently inside
+	 *
+	 * @return The depth
+	 */
+	public int getDepth() {
+		return this.depth;
+	}
+
+	/**
+	 * Get the deepest nesting of objects and arrays allowed
+	 *
+	 * @return The maximum depth, or {@link #UNLIMITED}
+	 */
+	public int getMaxDepth() {
+		return this.maxDepth;
+	}
+
+	/**
+	 * Set the deepest nesting of objects and arrays allowed. Documents nested
+	 * more deeply fail to parse with a {@link JsonException}.
+	 *
+	 * @param maxDepth
+	 *           The maximum depth, or {@link #UNLIMITED}
+	 */
+	public void setMaxDepth(int maxDepth) {
+		if (maxDepth < 0) {
+			throw new IllegalArgumentException("JSON maximum depth cannot be negative");
+		}
+		this.maxDepth = maxDepth;
+	}
+
+	/**
+	 * Record that the parser has entered an object or array
+	 *
+	 * @param position
+	 *           The position of the opening bracket, for the error message
+	 * @throws JsonException
+	 *            Thrown if the maximum depth has been exceeded
+	 */
+	void enter(long position) throws JsonException {
+		if ((this.maxDepth != ParseContext.UNLIMITED) && (this.depth >= this.maxDepth)) {
+			throw new JsonException(
+					"JSON nested more deeply than the maximum depth of " + this.maxDepth + " at position " + position);
+		}
+		this.depth++;
+	}
+
+	/**
+	 * Record that the parser has left an object or array
+	 */
+	void exit() {
+		this.depth--;
+	}
+}
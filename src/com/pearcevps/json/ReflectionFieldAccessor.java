@@ -0,0 +1,128 @@
+package com.pearcevps.json;
+
+import java.lang.reflect.Field;
+
+/**
+ * A {@link FieldAccessor} that uses the reflected field directly. Primitive
+ * values are read and written with the primitive methods of {@link Field}.
+ *
+ * @author andrewpearce
+ *
+ */
+final class ReflectionFieldAccessor implements FieldAccessor {
+
+	private final Field	field;
+
+	ReflectionFieldAccessor(Field field) {
+		super();
+		this.field = field;
+	}
+
+	@Override
+	public Object get(Object bean) throws IllegalAccessException {
+		return this.field.get(bean);
+	}
+
+	@Override
+	public boolean getBoolean(Object bean) throws IllegalAccessException {
+		return this.field.getType().isPrimitive() ? this.field.getBoolean(bean) : FieldAccessor.super.getBoolean(bean);
+	}
+
+	@Override
+	public char getChar(Object bean) throws IllegalAccessException {
+		return this.field.getType().isPrimitive() ? this.field.getChar(bean) : FieldAccessor.super.getChar(bean);
+	}
+
+	@Override
+	public double getDouble(Object bean) throws IllegalAccessException {
+		return this.field.getType().isPrimitive() ? this.field.getDouble(bean) : FieldAccessor.super.getDouble(bean);
+	}
+
+	@Override
+	public float getFloat(Object bean) throws IllegalAccessException {
+		return this.field.getType().isPrimitive() ? this.field.getFloat(bean) : FieldAccessor.super.getFloat(bean);
+	}
+
+	@Override
+	public int getInt(Object bean) throws IllegalAccessException {
+		return this.field.getType().isPrimitive() ? this.field.getInt(bean) : FieldAccessor.super.getInt(bean);
+	}
+
+	@Override
+	public long getLong(Object bean) throws IllegalAccessException {
+		return this.field.getType().isPrimitive() ? this.field.getLong(bean) : FieldAccessor.super.getLong(bean);
+	}
+
+	@Override
+	public short getShort(Object bean) throws IllegalAccessException {
+		return this.field.getType().isPrimitive() ? this.field.getShort(bean) : FieldAccessor.super.getShort(bean);
+	}
+
+	@Override
+	public void set(Object bean, Object value) throws IllegalAccessException {
+		this.field.set(bean, value);
+	}
+
+	@Override
+	public void setBoolean(Object bean, boolean value) throws IllegalAccessException {
+		if (this.field.getType().isPrimitive()) {
+			this.field.setBoolean(bean, value);
+		} else {
+			FieldAccessor.super.setBoolean(bean, value);
+		}
+	}
+
+	@Override
+	public void setChar(Object bean, char value) throws IllegalAccessException {
+		if (this.field.getType().isPrimitive()) {
+			this.field.setChar(bean, value);
+		} else {
+			FieldAccessor.super.setChar(bean, value);
+		}
+	}
+
+	@Override
+	public void setDouble(Object bean, double value) throws IllegalAccessException {
+		if (this.field.getType().isPrimitive()) {
+			this.field.setDouble(bean, value);
+		} else {
+			FieldAccessor.super.setDouble(bean, value);
+		}
+	}
+
+	@Override
+	public void setFloat(Object bean, float value) throws IllegalAccessException {
+		if (this.field.getType().isPrimitive()) {
+			this.field.setFloat(bean, value);
+		} else {
+			FieldAccessor.super.setFloat(bean, value);
+		}
+	}
+
+	@Override
+	public void setInt(Object bean, int value) throws IllegalAccessException {
+		if (this.field.getType().isPrimitive()) {
+			this.field.setInt(bean, value);
+		} else {
+			FieldAccessor.super.setInt(bean, value);
+		}
+	}
+
+	@Override
+	public void setLong(Object bean, long value) throws IllegalAccessException {
+		if (this.field.getType().isPrimitive()) {
+			this.field.setLong(bean, value);
+		} else {
+			FieldAccessor.super.setLong(bean, value);
+		}
+	}
+
+	@Override
+	public void setShort(Object bean, short value) throws IllegalAccessException {
+		if (this.field.getType().isPrimitive()) {
+			this.field.setShort(bean, value);
+		} else {
+			FieldAccessor.super.setShort(bean, value);
+		}
+	}
+}
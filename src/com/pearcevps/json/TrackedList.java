@@ -0,0 +1,162 @@
+package com.pearcevps.json;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+
+/**
+ * A view of the members of an object or the elements of an array, as returned
+ * by {@link JsonValueObject#getMembers()} and
+ * {@link JsonValueArray#getElements()}. Every change made through the view,
+ * its iterators or its sub lists is passed to the list it wraps and then
+ * forgets any cached JSON text the object or array is part of. Members or
+ * elements taken out of the list stop passing their changes to the object or
+ * array.
+ *
+ * @param <E>
+ *           The type of the members or elements
+ * @author andrewpearce
+ *
+ */
+final class TrackedList<E> extends AbstractList<E> {
+
+	/**
+	 * The list of members or elements
+	 */
+	private final List<E>		list;
+	/**
+	 * The object or array that holds the list
+	 */
+	private final JsonValue	owner;
+
+	/**
+	 * Create a view of a list
+	 *
+	 * @param list
+	 *           The list, which is changed through the view
+	 * @param owner
+	 *           The object or array that holds the list
+	 */
+	TrackedList(List<E> list, JsonValue owner) {
+		super();
+		this.list = list;
+		this.owner = owner;
+	}
+
+	@Override
+	public void add(int index, E element) {
+		this.list.add(index, element);
+		this.modCount++;
+		this.owner.invalidate();
+	}
+
+	@Override
+	public void clear() {
+		for (E element : this.list) {
+			this.owner.unlinkText(element);
+		}
+		this.list.clear();
+		this.modCount++;
+		this.owner.invalidate();
+	}
+
+	@Override
+	public E get(int index) {
+		return this.list.get(index);
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return this.listIterator(0);
+	}
+
+	@Override
+	public ListIterator<E> listIterator(int index) {
+		ListIterator<E> iterator = this.list.listIterator(index);
+		return new ListIterator<E>() {
+			/**
+			 * The member or element last returned by next or previous
+			 */
+			private E	last	= null;
+
+			@Override
+			public void add(E e) {
+				iterator.add(e);
+				TrackedList.this.modCount++;
+				TrackedList.this.owner.invalidate();
+			}
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public boolean hasPrevious() {
+				return iterator.hasPrevious();
+			}
+
+			@Override
+			public E next() {
+				this.last = iterator.next();
+				return this.last;
+			}
+
+			@Override
+			public int nextIndex() {
+				return iterator.nextIndex();
+			}
+
+			@Override
+			public E previous() {
+				this.last = iterator.previous();
+				return this.last;
+			}
+
+			@Override
+			public int previousIndex() {
+				return iterator.previousIndex();
+			}
+
+			@Override
+			public void remove() {
+				iterator.remove();
+				TrackedList.this.owner.unlinkText(this.last);
+				this.last = null;
+				TrackedList.this.modCount++;
+				TrackedList.this.owner.invalidate();
+			}
+
+			@Override
+			public void set(E e) {
+				iterator.set(e);
+				TrackedList.this.owner.unlinkText(this.last);
+				this.last = e;
+				TrackedList.this.owner.invalidate();
+			}
+		};
+	}
+
+	@Override
+	public E remove(int index) {
+		E ret = this.list.remove(index);
+		this.owner.unlinkText(ret);
+		this.modCount++;
+		this.owner.invalidate();
+		return ret;
+	}
+
+	@Override
+	public E set(int index, E element) {
+		E ret = this.list.set(index, element);
+		this.owner.unlinkText(ret);
+		this.owner.invalidate();
+		return ret;
+	}
+
+	@Override
+	public int size() {
+		return this.list.size();
+	}
+}
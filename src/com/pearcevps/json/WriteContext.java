@@ -0,0 +1,244 @@
+package com.pearcevps.json;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The options and state of a single serialization: whether pairs with null
+ * values are printed, which escapes strings are written with, how deeply
+ * nested the bean being serialized is, and how many times each bean field may
+ * be serialized within itself. A context is created for each serialization
+ * and threaded through the call chain, rather than being held in static
+ * fields, so any number of threads can serialize at once without sharing
+ * mutable state. A context must not be used by two serializations at the
+ * same time.
+ *
+ * @author andrewpearce
+ *
+ */
+public class WriteContext {
+
+	/**
+	 * The number of beans the serializer is currently inside
+	 */
+	private int									depth						= 0;
+	/**
+	 * For each bean field name with a recursion limit, the number of times the
+	 * serializer is currently inside that field
+	 */
+	private final Map<String, Integer>	fieldDepths				= new HashMap<String, Integer>();
+	/**
+	 * For each bean field name, the most times the field may be serialized
+	 * within itself
+	 */
+	private final Map<String, Integer>	fieldRecursionLimits	= new HashMap<String, Integer>();
+	/**
+	 * The deepest nesting of beans allowed, or {@link ParseContext#UNLIMITED}
+	 */
+	private int									maxDepth					= ParseContext.UNLIMITED;
+	/**
+	 * Are pairs with a null value printed?
+	 */
+	private boolean							printNull;
+	/**
+	 * Are short escapes such as \n written instead of &#92;u000A?
+	 */
+	private boolean							shortEscapes			= false;
+
+	/**
+	 * Create a context that prints null values according to
+	 * {@link JsonPair#isPrintNull()}
+	 */
+	public WriteContext() {
+		super();
+		this.printNull = JsonPair.isPrintNull();
+	}
+
+	/**
+	 * Create a context
+	 *
+	 * @param printNull
+	 *           true if pairs with a null value are printed
+	 */
+	public WriteContext(boolean printNull) {
+		super();
+		this.printNull = printNull;
+	}
+
+	/**
+	 * Get the number of beans the serializer is currently inside
+	 *
+	 * @return The depth
+	 */
+	public int getDepth() {
+		return this.depth;
+	}
+
+	/**
+	 * Get the deepest nesting of beans allowed
+	 *
+	 * @return The maximum depth, or {@link ParseContext#UNLIMITED}
+	 */
+	public int getMaxDepth() {
+		return this.maxDepth;
+	}
+
+	/**
+	 * Are pairs with a null value printed?
+	 *
+	 * @return true if null values are printed
+	 */
+	public boolean isPrintNull() {
+		return this.printNull;
+	}
+
+	/**
+	 * Are short escapes such as \n written instead of &#92;u000A?
+	 *
+	 * @return true if short escapes are written
+	 */
+	public boolean isShortEscapes() {
+		return this.shortEscapes;
+	}
+
+	/**
+	 * Limit how many times a bean field may be serialized within itself, e.g.
+	 * to cut off a self referencing tree of beans. When the limit is reached
+	 * the field is left out.
+	 *
+	 * @param fieldName
+	 *           The name of the field
+	 * @param limit
+	 *           The most times the field may be nested within itself
+	 */
+	public void setFieldRecursionLimit(String fieldName, int limit) {
+		this.fieldRecursionLimits.put(fieldName, limit);
+	}
+
+	/**
+	 * Limit how many times bean fields may be serialized within themselves
+	 *
+	 * @param limits
+	 *           The limit for each field name
+	 * @see #setFieldRecursionLimit(String, int)
+	 */
+	public void setFieldRecursionLimits(Map<String, Integer> limits) {
+		if (limits != null) {
+			this.fieldRecursionLimits.putAll(limits);
+		}
+	}
+
+	/**
+	 * Set the deepest nesting of beans allowed. Beans nested more deeply fail to
+	 * serialize with a {@link JsonException}.
+	 *
+	 * @param maxDepth
+	 *           The maximum depth, or {@link ParseContext#UNLIMITED}
+	 */
+	public void setMaxDepth(int maxDepth) {
+		if (maxDepth < 0) {
+			throw new IllegalArgumentException("JSON maximum depth cannot be negative");
+		}
+		this.maxDepth = maxDepth;
+	}
+
+	/**
+	 * Should pairs with a null value be printed?
+	 *
+	 * @param printNull
+	 *           true if null values are printed
+	 */
+	public void setPrintNull(boolean printNull) {
+		this.printNull = printNull;
+	}
+
+	/**
+	 * Write short escapes such as \n, \" and \\ instead of &#92;u000A,
+	 * &#92;u0022 and &#92;u005C, to shrink output. This applies to the strings
+	 * the writer escapes, such as bean fields; the strings of a parsed
+	 * {@link JsonValue} are already escaped and are not changed.
+	 *
+	 * @param shortEscapes
+	 *           true to write short escapes
+	 */
+	public void setShortEscapes(boolean shortEscapes) {
+		this.shortEscapes = shortEscapes;
+	}
+
+	/**
+	 * Could the serializer enter a bean field, or has the field reached its
+	 * recursion limit?
+	 *
+	 * @param fieldName
+	 *           The name of the field
+	 * @return true if {@link #enterField(String)} would succeed
+	 */
+	boolean canEnterField(String fieldName) {
+		Integer limit = this.fieldRecursionLimits.get(fieldName);
+		if (limit == null) {
+			return true;
+		}
+		Integer current = this.fieldDepths.get(fieldName);
+		return ((current == null) ? 0 : current.intValue()) < limit.intValue();
+	}
+
+	/**
+	 * Record that the serializer has entered a bean
+	 *
+	 * @param bean
+	 *           The bean, for the error message
+	 * @throws JsonException
+	 *            Thrown if the maximum depth has been exceeded
+	 */
+	void enter(Object bean) throws JsonException {
+		if ((this.maxDepth != ParseContext.UNLIMITED) && (this.depth >= this.maxDepth)) {
+			throw new JsonException("Bean " + bean.getClass().getName()
+					+ " is nested more deeply than the maximum depth of " + this.maxDepth);
+		}
+		this.depth++;
+	}
+
+	/**
+	 * Record that the serializer is about to enter a bean field, if the field's
+	 * recursion limit allows it
+	 *
+	 * @param fieldName
+	 *           The name of the field
+	 * @return false if the field has reached its recursion limit, in which case
+	 *         it must be left out and {@link #exitField(String)} not called
+	 */
+	boolean enterField(String fieldName) {
+		Integer limit = this.fieldRecursionLimits.get(fieldName);
+		if (limit == null) {
+			return true;
+		}
+		Integer current = this.fieldDepths.get(fieldName);
+		int count = (current == null) ? 0 : current.intValue();
+		if (count >= limit.intValue()) {
+			return false;
+		}
+		this.fieldDepths.put(fieldName, count + 1);
+		return true;
+	}
+
+	/**
+	 * Record that the serializer has left a bean
+	 */
+	void exit() {
+		this.depth--;
+	}
+
+	/**
+	 * Record that the serializer has left a bean field entered with
+	 * {@link #enterField(String)}
+	 *
+	 * @param fieldName
+	 *           The name of the field
+	 */
+	void exitField(String fieldName) {
+		Integer current = this.fieldDepths.get(fieldName);
+		if (current != null) {
+			this.fieldDepths.put(fieldName, current - 1);
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package com.pearcevps.json;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests of the per class binding metadata of {@link BeanDescriptor}
+ *
+ * @author andrewpearce
+ *
+ */
+public class BeanDescriptorTest {
+
+	/**
+	 * A bean with private bound fields and a list of fields to leave out
+	 */
+	static public class Private {
+		@Json_Property
+		private String			name;
+		@Json_Property
+		private long			count;
+		@Json_Property
+		private String			hidden;
+		@Json_IgnoreFieldsInThisList
+		private List<String>	ignore;
+		private String			unbound;
+	}
+
+	/**
+	 * Get the names of properties
+	 *
+	 * @param properties
+	 *           The properties
+	 * @return Their names, in order
+	 */
+	static private List<String> names(List<BeanDescriptor.Property> properties) {
+		List<String> ret = new ArrayList<String>();
+		for (BeanDescriptor.Property property : properties) {
+			ret.add(property.getName());
+		}
+		return ret;
+	}
+
+	/**
+	 * A class is read once, superclass fields first, and only annotated fields
+	 * are serialized
+	 */
+	@Test
+	public void testFields() {
+		BeanDescriptor descriptor = BeanDescriptor.forClass(JsonTestSupport.Order.class);
+		assertSame(descriptor, BeanDescriptor.forClass(JsonTestSupport.Order.class));
+		assertSame(JsonTestSupport.Order.class, descriptor.getBeanClass());
+		assertEquals(Arrays.asList("id", "name", "paid", "grade", "priority", "discount", "total", "count", "ref",
+				"gift", "link", "note", "tags", "codes", "lines", "first", "extra"),
+				BeanDescriptorTest.names(descriptor.getProperties()));
+		assertTrue(BeanDescriptorTest.names(descriptor.getFields()).contains("ignored"));
+		assertTrue(descriptor.getIgnoreLists().isEmpty());
+		try {
+			descriptor.getProperties().clear();
+			fail("Changed the properties of a descriptor");
+		} catch (UnsupportedOperationException e) {
+			// Expected
+		}
+	}
+
+	/**
+	 * Each field has the kind, element kind, type arguments and flags of its
+	 * declaration
+	 */
+	@Test
+	public void testProperties() {
+		String[] names = { "id", "name", "paid", "grade", "priority", "discount", "total", "count", "ref", "gift",
+				"link", "tags", "codes", "lines", "first", "extra" };
+		BeanDescriptor.Kind[] kinds = { BeanDescriptor.Kind.LONG, BeanDescriptor.Kind.STRING,
+				BeanDescriptor.Kind.BOOLEAN, BeanDescriptor.Kind.CHARACTER, BeanDescriptor.Kind.SHORT,
+				BeanDescriptor.Kind.FLOAT, BeanDescriptor.Kind.DOUBLE, BeanDescriptor.Kind.INTEGER,
+				BeanDescriptor.Kind.LONG, BeanDescriptor.Kind.BOOLEAN, BeanDescriptor.Kind.URI, BeanDescriptor.Kind.LIST,
+				BeanDescriptor.Kind.LIST, BeanDescriptor.Kind.LIST, BeanDescriptor.Kind.BEAN, BeanDescriptor.Kind.MAP };
+		BeanDescriptor descriptor = BeanDescriptor.forClass(JsonTestSupport.Order.class);
+		for (int i = 0; i < names.length; i++) {
+			List<BeanDescriptor.Property> named = descriptor.getFieldsNamed(names[i]);
+			assertEquals(names[i], 1, named.size());
+			assertEquals(names[i], kinds[i], named.get(0).getKind());
+			assertTrue(names[i], named.get(0).isAnnotated());
+			assertTrue(names[i], named.get(0).isSerialized());
+			assertFalse(names[i], named.get(0).isRequired());
+		}
+		BeanDescriptor.Property id = descriptor.getFieldsNamed("id").get(0);
+		assertTrue(id.isPrimitive());
+		assertSame(JsonTestSupport.Base.class, id.getField().getDeclaringClass());
+		assertEquals(id.getField(), BeanDescriptor.getProperty(id.getField()).getField());
+		assertEquals(id.getField(), BeanDescriptor.getProperty(JsonTestSupport.Base.class, "id").getField());
+		assertFalse(descriptor.getFieldsNamed("ref").get(0).isPrimitive());
+
+		BeanDescriptor.Property tags = descriptor.getFieldsNamed("tags").get(0);
+		assertEquals(BeanDescriptor.Kind.STRING, tags.getElementKind());
+		assertSame(String.class, tags.getElementClass());
+		assertEquals(BeanDescriptor.Kind.INTEGER, descriptor.getFieldsNamed("codes").get(0).getElementKind());
+		BeanDescriptor.Property lines = descriptor.getFieldsNamed("lines").get(0);
+		assertEquals(BeanDescriptor.Kind.BEAN, lines.getElementKind());
+		assertTrue(lines.isListValuesAreBeans());
+		assertFalse(lines.isMapValuesAreBeans());
+		BeanDescriptor.Property extra = descriptor.getFieldsNamed("extra").get(0);
+		assertArrayEquals(new Class<?>[] { String.class, String.class }, extra.getTypeArguments());
+		assertEquals(BeanDescriptor.Kind.STRING, extra.getElementKind());
+		assertNull(extra.getElementClass());
+		assertFalse(descriptor.getFieldsNamed("ignored").get(0).isAnnotated());
+		assertTrue(BeanDescriptor.Kind.URI.isScalar());
+		assertFalse(BeanDescriptor.Kind.BEAN.isScalar());
+	}
+
+	/**
+	 * Names are matched ignoring case, and a field is only found in the class
+	 * that declares it
+	 */
+	@Test
+	public void testNames() {
+		BeanDescriptor descriptor = BeanDescriptor.forClass(JsonTestSupport.Order.class);
+		assertEquals("name", descriptor.getFieldsNamed("NAME").get(0).getName());
+		assertEquals("id", descriptor.getFieldsNamed("Id").get(0).getName());
+		assertTrue(descriptor.getFieldsNamed("missing").isEmpty());
+		assertTrue(descriptor.getFieldsNamed(null).isEmpty());
+		try {
+			BeanDescriptor.getProperty(JsonTestSupport.Order.class, "id");
+			fail("Found a field in a subclass of the class that declares it");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+	/**
+	 * Private fields are bound, and the fields named in an ignore list are left
+	 * out of the output
+	 */
+	@Test
+	public void testPrivateFields() throws Exception {
+		BeanDescriptor descriptor = BeanDescriptor.forClass(Private.class);
+		assertEquals(Arrays.asList("name", "count", "hidden"), BeanDescriptorTest.names(descriptor.getProperties()));
+		assertEquals(Arrays.asList("ignore"), BeanDescriptorTest.names(descriptor.getIgnoreLists()));
+
+		Private bean = new Private();
+		bean.name = "n";
+		bean.count = 3;
+		bean.hidden = "h";
+		bean.unbound = "u";
+		assertEquals("{ \"name\": \"n\", \"count\": 3, \"hidden\": \"h\" }",
+				JsonValueObject.createObjectFromBean(bean).toString());
+		bean.ignore = Arrays.asList("hidden");
+		assertEquals("{ \"name\": \"n\", \"count\": 3 }", JsonValueObject.createObjectFromBean(bean).toString());
+
+		Private read = (Private) JsonValueObject
+				.deserializeJsonStringToAnObject("{\"NAME\":\"m\",\"count\":4,\"unbound\":\"x\"}", new Private());
+		assertEquals("m", read.name);
+		assertEquals(4, read.count);
+		assertNull(read.unbound);
+	}
+}
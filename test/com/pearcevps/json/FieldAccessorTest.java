@@ -0,0 +1,227 @@
+package com.pearcevps.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Field;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests of the method handle and reflection {@link FieldAccessor}s
+ *
+ * @author andrewpearce
+ *
+ */
+public class FieldAccessorTest {
+
+	/**
+	 * A bean with a field of each primitive type, and fields an accessor
+	 * built from method handles cannot write
+	 */
+	static public class Primitives {
+		static public int		shared;
+		public boolean			z;
+		public char				c;
+		public double			d;
+		public float			f;
+		public int				i;
+		public long				j;
+		public short			s;
+		public Integer			boxed;
+		public String			str;
+		private int				hidden;
+		public final int		fixed	= 1;
+	}
+
+	/**
+	 * Get an accessible field of {@link Primitives}
+	 *
+	 * @param name
+	 *           The name of the field
+	 * @return The field
+	 */
+	static private Field field(String name) throws NoSuchFieldException {
+		Field ret = Primitives.class.getDeclaredField(name);
+		ret.setAccessible(true);
+		return ret;
+	}
+
+	/**
+	 * Set each field of a bean through its typed methods, and read it back
+	 * through both the typed and the boxed methods
+	 *
+	 * @param factory
+	 *           The factory of the accessors
+	 */
+	static private void assertPrimitives(FieldAccessor.Factory factory) throws Exception {
+		Primitives bean = new Primitives();
+		FieldAccessor z = factory.create(FieldAccessorTest.field("z"));
+		z.setBoolean(bean, true);
+		assertTrue(bean.z);
+		assertTrue(z.getBoolean(bean));
+		assertEquals(Boolean.TRUE, z.get(bean));
+		FieldAccessor c = factory.create(FieldAccessorTest.field("c"));
+		c.setChar(bean, '\u00e9');
+		assertEquals('\u00e9', bean.c);
+		assertEquals('\u00e9', c.getChar(bean));
+		assertEquals(Character.valueOf('\u00e9'), c.get(bean));
+		FieldAccessor d = factory.create(FieldAccessorTest.field("d"));
+		d.setDouble(bean, 0.1);
+		assertEquals(0.1, bean.d, 0);
+		assertEquals(0.1, d.getDouble(bean), 0);
+		assertEquals(Double.valueOf(0.1), d.get(bean));
+		FieldAccessor f = factory.create(FieldAccessorTest.field("f"));
+		f.setFloat(bean, 0.1f);
+		assertEquals(0.1f, bean.f, 0);
+		assertEquals(0.1f, f.getFloat(bean), 0);
+		assertEquals(Float.valueOf(0.1f), f.get(bean));
+		FieldAccessor i = factory.create(FieldAccessorTest.field("i"));
+		i.setInt(bean, Integer.MIN_VALUE);
+		assertEquals(Integer.MIN_VALUE, bean.i);
+		assertEquals(Integer.MIN_VALUE, i.getInt(bean));
+		assertEquals(Integer.valueOf(Integer.MIN_VALUE), i.get(bean));
+		FieldAccessor j = factory.create(FieldAccessorTest.field("j"));
+		j.setLong(bean, Long.MAX_VALUE);
+		assertEquals(Long.MAX_VALUE, bean.j);
+		assertEquals(Long.MAX_VALUE, j.getLong(bean));
+		assertEquals(Long.valueOf(Long.MAX_VALUE), j.get(bean));
+		FieldAccessor s = factory.create(FieldAccessorTest.field("s"));
+		s.setShort(bean, (short) -7);
+		assertEquals(-7, bean.s);
+		assertEquals(-7, s.getShort(bean));
+		assertEquals(Short.valueOf((short) -7), s.get(bean));
+
+		i.set(bean, Integer.valueOf(5));
+		assertEquals(5, bean.i);
+		d.set(bean, Double.valueOf(2.5));
+		assertEquals(2.5, d.getDouble(bean), 0);
+		z.set(bean, Boolean.FALSE);
+		assertEquals(false, z.getBoolean(bean));
+	}
+
+	/**
+	 * Reset the accessor factory
+	 */
+	@After
+	public void tearDown() {
+		BeanDescriptor.setAccessorFactory(null);
+	}
+
+	/**
+	 * Each primitive is written and read through a method handle accessor
+	 */
+	@Test
+	public void testMethodHandlePrimitives() throws Exception {
+		FieldAccessorTest.assertPrimitives(FieldAccessor.METHOD_HANDLES);
+	}
+
+	/**
+	 * Each primitive is written and read through a reflection accessor
+	 */
+	@Test
+	public void testReflectionPrimitives() throws Exception {
+		FieldAccessorTest.assertPrimitives(FieldAccessor.REFLECTION);
+	}
+
+	/**
+	 * Object fields are read and written through both the boxed and the typed
+	 * methods, and private fields are accessed
+	 */
+	@Test
+	public void testObjectFields() throws Exception {
+		for (FieldAccessor.Factory factory : new FieldAccessor.Factory[] { FieldAccessor.METHOD_HANDLES,
+				FieldAccessor.REFLECTION }) {
+			Primitives bean = new Primitives();
+			FieldAccessor boxed = factory.create(FieldAccessorTest.field("boxed"));
+			boxed.setInt(bean, 3);
+			assertEquals(Integer.valueOf(3), bean.boxed);
+			assertEquals(3, boxed.getInt(bean));
+			assertEquals(3L, boxed.getLong(bean));
+			boxed.set(bean, null);
+			assertEquals(null, boxed.get(bean));
+			FieldAccessor str = factory.create(FieldAccessorTest.field("str"));
+			str.set(bean, "text");
+			assertEquals("text", str.get(bean));
+			FieldAccessor hidden = factory.create(FieldAccessorTest.field("hidden"));
+			hidden.setInt(bean, 9);
+			assertEquals(9, bean.hidden);
+			assertEquals(Integer.valueOf(9), hidden.get(bean));
+		}
+	}
+
+	/**
+	 * Static and final fields get a reflection accessor, which still reads and
+	 * writes them
+	 */
+	@Test
+	public void testFallback() throws Exception {
+		FieldAccessor shared = FieldAccessor.METHOD_HANDLES.create(FieldAccessorTest.field("shared"));
+		assertSame(ReflectionFieldAccessor.class, shared.getClass());
+		shared.setInt(null, 11);
+		assertEquals(11, Primitives.shared);
+		assertEquals(11, shared.getInt(null));
+		FieldAccessor fixed = FieldAccessor.METHOD_HANDLES.create(FieldAccessorTest.field("fixed"));
+		assertSame(ReflectionFieldAccessor.class, fixed.getClass());
+		assertEquals(1, fixed.getInt(new Primitives()));
+		assertSame(MethodHandleFieldAccessor.class, FieldAccessor.METHOD_HANDLES.create(FieldAccessorTest.field("i"))
+				.getClass());
+	}
+
+	/**
+	 * Both kinds of accessor reject a null or a value of the wrong type for a
+	 * primitive field
+	 */
+	@Test
+	public void testInvalidValues() throws Exception {
+		for (FieldAccessor.Factory factory : new FieldAccessor.Factory[] { FieldAccessor.METHOD_HANDLES,
+				FieldAccessor.REFLECTION }) {
+			FieldAccessor i = factory.create(FieldAccessorTest.field("i"));
+			Primitives bean = new Primitives();
+			for (Object value : new Object[] { null, "1" }) {
+				try {
+					i.set(bean, value);
+					fail("Set an int field to " + value);
+				} catch (IllegalArgumentException e) {
+					// Expected
+				}
+			}
+			assertEquals(0, bean.i);
+		}
+	}
+
+	/**
+	 * The accessors of every field of a bean read the same values either way,
+	 * and a value written by one is read by the other
+	 */
+	@Test
+	public void testDifferential() throws Exception {
+		JsonTestSupport.Order order = JsonTestSupport.order();
+		JsonTestSupport.Order copy = new JsonTestSupport.Order();
+		for (BeanDescriptor.Property property : BeanDescriptor.forClass(JsonTestSupport.Order.class).getFields()) {
+			FieldAccessor handles = FieldAccessor.METHOD_HANDLES.create(property.getField());
+			FieldAccessor reflection = FieldAccessor.REFLECTION.create(property.getField());
+			assertEquals(property.getName(), reflection.get(order), handles.get(order));
+			assertEquals(property.getName(), reflection.get(order), property.getAccessor().get(order));
+			handles.set(copy, reflection.get(order));
+			assertEquals(property.getName(), handles.get(order), reflection.get(copy));
+		}
+		assertEquals(JsonValueObject.createObjectFromBean(order).toString(),
+				JsonValueObject.createObjectFromBean(copy).toString());
+	}
+
+	/**
+	 * The factory can be changed, and is reset to the default by setting null
+	 */
+	@Test
+	public void testFactory() throws Exception {
+		assertSame(FieldAccessor.METHOD_HANDLES, BeanDescriptor.getAccessorFactory());
+		BeanDescriptor.setAccessorFactory(FieldAccessor.REFLECTION);
+		assertSame(FieldAccessor.REFLECTION, BeanDescriptor.getAccessorFactory());
+		BeanDescriptor.setAccessorFactory(null);
+		assertSame(FieldAccessor.METHOD_HANDLES, BeanDescriptor.getAccessorFactory());
+	}
+}
@@ -0,0 +1,157 @@
+package com.pearcevps.json;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests of the UTF-8 {@link JsonByteOutput}
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonByteOutputTest {
+
+	/**
+	 * Build a random string of ASCII, multibyte characters, surrogate pairs and
+	 * unpaired surrogates
+	 *
+	 * @param random
+	 *           The source of randomness
+	 * @param length
+	 *           The most characters in the string
+	 * @return The string
+	 */
+	static private String randomString(Random random, int length) {
+		StringBuilder ret = new StringBuilder();
+		int count = random.nextInt(length);
+		for (int i = 0; i < count; i++) {
+			switch (random.nextInt(6)) {
+			case 0:
+			case 1:
+			case 2:
+				ret.append((char) random.nextInt(0x80));
+				break;
+			case 3:
+				ret.append((char) (0x80 + random.nextInt(0xd800 - 0x80)));
+				break;
+			case 4:
+				ret.appendCodePoint(0x10000 + random.nextInt(0x100000));
+				break;
+			default:
+				ret.append((char) (0xd800 + random.nextInt(0x800)));
+				break;
+			}
+		}
+		return ret.toString();
+	}
+
+	/**
+	 * Check that an output holds the UTF-8 encoding of a string, by each way
+	 * of reading it
+	 *
+	 * @param expected
+	 *           The string
+	 * @param out
+	 *           The output
+	 */
+	static private void assertOutput(String expected, JsonByteOutput out) throws Exception {
+		byte[] bytes = expected.getBytes(StandardCharsets.UTF_8);
+		assertArrayEquals(bytes, out.toByteArray());
+		assertEquals(bytes.length, out.size());
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		out.writeTo(stream);
+		assertArrayEquals(bytes, stream.toByteArray());
+		assertEquals(new String(bytes, StandardCharsets.UTF_8), out.toString());
+	}
+
+	/**
+	 * Text appended in pieces of any size is encoded as String.getBytes encodes
+	 * it, including surrogate pairs split between appends and across chunks
+	 */
+	@Test
+	public void testEncoding() throws Exception {
+		Random random = new Random(6);
+		try (JsonByteOutput out = new JsonByteOutput()) {
+			for (int n = 0; n < 300; n++) {
+				String text = JsonByteOutputTest.randomString(random, 3 * JsonByteOutput.CHUNK_SIZE);
+				out.reset();
+				int i = 0;
+				while (i < text.length()) {
+					int end = Math.min(text.length(), i + random.nextInt(40));
+					switch (random.nextInt(3)) {
+					case 0:
+						out.append(text.charAt(i));
+						end = i + 1;
+						break;
+					case 1:
+						out.append(text.substring(i, end));
+						break;
+					default:
+						out.append(text, i, end);
+						break;
+					}
+					i = end;
+				}
+				JsonByteOutputTest.assertOutput(text, out);
+			}
+		}
+	}
+
+	/**
+	 * A writer over the output writes the UTF-8 encoding of the printed value
+	 */
+	@Test
+	public void testWriter() throws Exception {
+		String[] documents = new String[JsonTestSupport.DOCUMENTS.length + 1];
+		System.arraycopy(JsonTestSupport.DOCUMENTS, 0, documents, 0, JsonTestSupport.DOCUMENTS.length);
+		documents[documents.length - 1] = JsonTestSupport.records(2000);
+		for (String json : documents) {
+			JsonValue value = JsonParser.parse(json);
+			try (JsonByteOutput out = new JsonByteOutput()) {
+				value.writeTo(new JsonWriter(out));
+				JsonValue printed = JsonParser.parse(value.toString());
+				JsonTestSupport.assertSameValue(printed, JsonParser.parse(out.toString()));
+				JsonTestSupport.assertSameValue(printed, JsonByteParser.parse(out.toByteArray(), 0, out.size()));
+				JsonByteOutputTest.assertOutput(value.toString(), out);
+			}
+		}
+		try (JsonByteOutput out = new JsonByteOutput()) {
+			JsonValueObject.serializeBean(JsonTestSupport.order(), new JsonWriter(out));
+			JsonByteOutputTest.assertOutput(JsonValueObject.createObjectFromBean(JsonTestSupport.order()).toString(),
+					out);
+		}
+	}
+
+	/**
+	 * An output can be reset or closed and written again, and the chunks it
+	 * gave back are reused without their old bytes showing through
+	 */
+	@Test
+	public void testReuse() throws Exception {
+		String large = JsonTestSupport.records(1000);
+		String small = "{\"a\":\"\u00e9\"}";
+		JsonByteOutput out = new JsonByteOutput();
+		JsonByteOutputTest.assertOutput("", out);
+		out.append(large);
+		JsonByteOutputTest.assertOutput(large, out);
+		out.reset();
+		JsonByteOutputTest.assertOutput("", out);
+		out.append(small);
+		JsonByteOutputTest.assertOutput(small, out);
+		out.close();
+		JsonByteOutputTest.assertOutput("", out);
+		out.append(large).append(small);
+		JsonByteOutputTest.assertOutput(large + small, out);
+		out.close();
+		try (JsonByteOutput other = new JsonByteOutput()) {
+			other.append(small);
+			JsonByteOutputTest.assertOutput(small, other);
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package com.pearcevps.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Tests of the UTF-8 {@link JsonByteParser}
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonByteParserTest {
+
+	/**
+	 * Get the bytes of a document with other bytes around it
+	 *
+	 * @param json
+	 *           The document
+	 * @return The bytes, with the document from index 3
+	 */
+	static private byte[] padded(String json) {
+		byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+		byte[] ret = new byte[bytes.length + 6];
+		ret[0] = '[';
+		ret[1] = '"';
+		ret[2] = (byte) 0xff;
+		System.arraycopy(bytes, 0, ret, 3, bytes.length);
+		ret[ret.length - 3] = ']';
+		ret[ret.length - 2] = '}';
+		ret[ret.length - 1] = (byte) 0xff;
+		return ret;
+	}
+
+	/**
+	 * Each document is parsed from a range of an array as the tree the reference
+	 * parser builds
+	 */
+	@Test
+	public void testArray() throws Exception {
+		for (String json : JsonTestSupport.DOCUMENTS) {
+			byte[] bytes = JsonByteParserTest.padded(json);
+			JsonTestSupport.assertSameValue(JsonParser.parse(json), JsonByteParser.parse(bytes, 3, bytes.length - 6));
+		}
+		String json = JsonTestSupport.records(1000);
+		byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+		JsonTestSupport.assertSameValue(JsonParser.parse(json), JsonValue.getJsonValueFromBytes(bytes, 0, bytes.length));
+	}
+
+	/**
+	 * Each document is parsed from heap and direct buffers, leaving their
+	 * positions unchanged
+	 */
+	@Test
+	public void testBuffer() throws Exception {
+		for (String json : JsonTestSupport.DOCUMENTS) {
+			byte[] bytes = JsonByteParserTest.padded(json);
+			ByteBuffer heap = ByteBuffer.wrap(bytes, 3, bytes.length - 6);
+			JsonTestSupport.assertSameValue(JsonParser.parse(json), JsonByteParser.parse(heap));
+			assertEquals(3, heap.position());
+			ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+			direct.put(bytes).position(3).limit(bytes.length - 3);
+			JsonTestSupport.assertSameValue(JsonParser.parse(json), JsonValue.getJsonValueFromBuffer(direct));
+			assertEquals(3, direct.position());
+		}
+	}
+
+	/**
+	 * Every invalid document is rejected
+	 */
+	@Test
+	public void testInvalid() {
+		for (String json : JsonTestSupport.INVALID) {
+			byte[] bytes = JsonByteParserTest.padded(json);
+			try {
+				JsonByteParser.parse(bytes, 3, bytes.length - 6);
+				fail("Parsed invalid JSON " + json);
+			} catch (JsonException e) {
+				// Expected
+			}
+		}
+	}
+
+	/**
+	 * Malformed UTF-8 in a string is replaced as it is when the bytes are
+	 * decoded to a string first
+	 */
+	@Test
+	public void testMalformed() throws Exception {
+		byte[][] malformed = { { '"', (byte) 0xc3, '(', '"' }, { '"', 'a', (byte) 0xe4, (byte) 0xb8, '"' },
+				{ '"', (byte) 0x80, '"' }, { '"', (byte) 0xf8, (byte) 0x88, (byte) 0x80, (byte) 0x80, '"' } };
+		for (byte[] bytes : malformed) {
+			JsonTestSupport.assertSameValue(JsonParser.parse(new String(bytes, StandardCharsets.UTF_8)),
+					JsonByteParser.parse(bytes, 0, bytes.length));
+		}
+	}
+
+	/**
+	 * Multi-byte characters are decoded, in names and values
+	 */
+	@Test
+	public void testMultiByte() throws Exception {
+		String text = "\u00e9\u4e2d\ud83d\ude00";
+		byte[] bytes = ("{\"" + text + "\":\"" + text + "\"}").getBytes(StandardCharsets.UTF_8);
+		JsonValueObject object = (JsonValueObject) JsonByteParser.parse(bytes, 0, bytes.length);
+		assertEquals(text, object.getMembers().get(0).getName().getJavaString());
+		assertEquals(text, ((JsonValueString) object.get(text)).getJavaStringValue());
+	}
+}
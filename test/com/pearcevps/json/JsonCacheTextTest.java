@@ -0,0 +1,322 @@
+package com.pearcevps.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Tests of the cached compact text of objects and arrays, which must never be
+ * written once anything in the object or array has changed
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonCacheTextTest {
+
+	/**
+	 * Turn caching on or off for every object and array in a tree
+	 *
+	 * @param value
+	 *           The root of the tree
+	 * @param cacheText
+	 *           true to cache the text
+	 */
+	static private void setCacheText(JsonValue value, boolean cacheText) {
+		if (value instanceof JsonValueObject) {
+			((JsonValueObject) value).setCacheText(cacheText);
+			for (JsonPair pair : ((JsonValueObject) value).getMembers()) {
+				JsonCacheTextTest.setCacheText(pair.getValue(), cacheText);
+			}
+		} else if (value instanceof JsonValueArray) {
+			((JsonValueArray) value).setCacheText(cacheText);
+			for (JsonValue element : ((JsonValueArray) value).getElements()) {
+				JsonCacheTextTest.setCacheText(element, cacheText);
+			}
+		}
+	}
+
+	/**
+	 * Check that a tree with caching on prints as it does with caching off,
+	 * with and without null values, and leave its text cached
+	 *
+	 * @param value
+	 *           The root of the tree
+	 * @return The text
+	 */
+	static private String assertFresh(JsonValue value) {
+		String cached = value.toString(new WriteContext(true));
+		String cachedNoNulls = value.toString(new WriteContext(false));
+		JsonCacheTextTest.setCacheText(value, false);
+		String expected = JsonWriter.toString(value, new WriteContext(true));
+		String expectedNoNulls = JsonWriter.toString(value, new WriteContext(false));
+		JsonCacheTextTest.setCacheText(value, true);
+		assertEquals(expected, cached);
+		assertEquals(expectedNoNulls, cachedNoNulls);
+		assertEquals(expected, value.toString(new WriteContext(true)));
+		assertEquals(expectedNoNulls, value.toString(new WriteContext(false)));
+		return expected;
+	}
+
+	/**
+	 * Parse a document with caching on throughout, and print it once to cache
+	 * its text
+	 *
+	 * @param json
+	 *           The document
+	 * @return The root of the tree
+	 */
+	static private JsonValue cached(String json) throws JsonException {
+		JsonValue ret = JsonParser.parse(json);
+		JsonCacheTextTest.setCacheText(ret, true);
+		JsonCacheTextTest.assertFresh(ret);
+		return ret;
+	}
+
+	/**
+	 * Caching is off unless asked for, and printing is the same either way
+	 */
+	@Test
+	public void testOffByDefault() throws Exception {
+		assertFalse(new JsonValueObject().isCacheText());
+		assertFalse(new JsonValueArray().isCacheText());
+		for (String json : JsonTestSupport.DOCUMENTS) {
+			JsonValue value = JsonParser.parse(json);
+			if (value instanceof JsonValueObject) {
+				assertFalse(((JsonValueObject) value).isCacheText());
+			} else if (value instanceof JsonValueArray) {
+				assertFalse(((JsonValueArray) value).isCacheText());
+			}
+			String expected = value.toString();
+			JsonCacheTextTest.setCacheText(value, true);
+			assertEquals(expected, JsonCacheTextTest.assertFresh(value));
+		}
+	}
+
+	/**
+	 * Changes to an object's members through the list it returns are seen
+	 */
+	@Test
+	public void testMemberList() throws Exception {
+		JsonValueObject object = (JsonValueObject) JsonCacheTextTest.cached("{\"a\":1,\"b\":2,\"c\":3,\"d\":null}");
+		List<JsonPair> members = object.getMembers();
+		members.add(new JsonPair(new JsonString("e"), new JsonValueNumberLong(5)));
+		assertTrue(JsonCacheTextTest.assertFresh(object).contains("\"e\": 5"));
+		members.remove(0);
+		assertFalse(JsonCacheTextTest.assertFresh(object).contains("\"a\""));
+		members.set(0, new JsonPair(new JsonString("B"), new JsonValueNumberLong(20)));
+		assertTrue(JsonCacheTextTest.assertFresh(object).contains("\"B\": 20"));
+		Iterator<JsonPair> iterator = members.iterator();
+		iterator.next();
+		iterator.remove();
+		assertFalse(JsonCacheTextTest.assertFresh(object).contains("\"B\""));
+		members.subList(0, 1).clear();
+		assertFalse(JsonCacheTextTest.assertFresh(object).contains("\"c\""));
+		members.add(0, new JsonPair(new JsonString("f"), new JsonValueNull()));
+		JsonCacheTextTest.assertFresh(object);
+		members.clear();
+		assertEquals("{ }", JsonCacheTextTest.assertFresh(object));
+	}
+
+	/**
+	 * Changes to an array's elements through the list it returns are seen
+	 */
+	@Test
+	public void testElementList() throws Exception {
+		JsonValueArray array = (JsonValueArray) JsonCacheTextTest.cached("[1,2,3,[4],{\"x\":5}]");
+		List<JsonValue> elements = array.getElements();
+		elements.add(new JsonValueString("s"));
+		assertTrue(JsonCacheTextTest.assertFresh(array).contains("\"s\""));
+		elements.remove(0);
+		elements.set(0, new JsonValueNumberLong(20));
+		assertTrue(JsonCacheTextTest.assertFresh(array).startsWith("[ 20, 3"));
+		Iterator<JsonValue> iterator = elements.iterator();
+		iterator.next();
+		iterator.remove();
+		JsonCacheTextTest.assertFresh(array);
+		elements.subList(0, 2).clear();
+		JsonCacheTextTest.assertFresh(array);
+		elements.add(new JsonValueTrue());
+		JsonCacheTextTest.assertFresh(array);
+	}
+
+	/**
+	 * Changes to a pair, a name or a leaf deep in the tree are seen by every
+	 * cached object and array above it
+	 */
+	@Test
+	public void testNestedChanges() throws Exception {
+		JsonValueObject root = (JsonValueObject) JsonCacheTextTest
+				.cached("{\"a\":{\"b\":[{\"c\":\"x\",\"n\":1,\"d\":1.5}]},\"e\":[[\"y\"]]}");
+		JsonValueObject inner = (JsonValueObject) ((JsonValueArray) ((JsonValueObject) root.get("a")).get("b")).get(0);
+		JsonPair pair = inner.getMembers().get(0);
+
+		pair.setName(new JsonString("C"));
+		assertTrue(JsonCacheTextTest.assertFresh(root).contains("\"C\": \"x\""));
+		pair.getName().setStr("renamed");
+		assertTrue(JsonCacheTextTest.assertFresh(root).contains("\"renamed\": \"x\""));
+		((JsonValueString) pair.getValue()).setJsonValue(new JsonString("changed"));
+		assertTrue(JsonCacheTextTest.assertFresh(root).contains("\"changed\""));
+		pair.setValue(new JsonValueNull());
+		JsonCacheTextTest.assertFresh(root);
+		((JsonValueNumberLong) inner.get("n")).setValue(42);
+		assertTrue(JsonCacheTextTest.assertFresh(root).contains("\"n\": 42"));
+		((JsonValueNumberDouble) inner.get("d")).setValue(2.5);
+		assertTrue(JsonCacheTextTest.assertFresh(root).contains("\"d\": 2.5"));
+		inner.addPair(new JsonPair(new JsonString("added"), new JsonValueFalse()));
+		JsonCacheTextTest.assertFresh(root);
+		JsonValueArray deep = (JsonValueArray) ((JsonValueArray) root.get("e")).get(0);
+		deep.addElement(new JsonValueString("z"));
+		assertTrue(JsonCacheTextTest.assertFresh(root).contains("[ [ \"y\", \"z\" ] ]"));
+	}
+
+	/**
+	 * A subtree held by two cached parents is seen changed by both
+	 */
+	@Test
+	public void testSharedSubtree() throws Exception {
+		JsonValueObject shared = (JsonValueObject) JsonParser.parse("{\"v\":1,\"list\":[1]}");
+		JsonValueObject first = new JsonValueObject();
+		first.addPair(new JsonPair(new JsonString("shared"), shared));
+		JsonValueArray second = new JsonValueArray();
+		second.addElement(shared);
+		JsonCacheTextTest.setCacheText(first, true);
+		JsonCacheTextTest.setCacheText(second, true);
+		String firstText = JsonCacheTextTest.assertFresh(first);
+		String secondText = JsonCacheTextTest.assertFresh(second);
+
+		((JsonValueNumberLong) shared.get("v")).setValue(2);
+		assertNotEquals(firstText, JsonCacheTextTest.assertFresh(first));
+		assertNotEquals(secondText, JsonCacheTextTest.assertFresh(second));
+		((JsonValueArray) shared.get("list")).getElements().add(new JsonValueNumberLong(3));
+		assertTrue(JsonCacheTextTest.assertFresh(second).contains("[ 1, 3 ]"));
+		assertTrue(JsonCacheTextTest.assertFresh(first).contains("[ 1, 3 ]"));
+	}
+
+	/**
+	 * A change is only counted by the objects and arrays that hold it, so the
+	 * cached text of another tree, or of another branch of the same tree, is
+	 * kept
+	 */
+	@Test
+	public void testUnrelatedTextKept() throws Exception {
+		JsonValueObject root = (JsonValueObject) JsonCacheTextTest.cached("{\"a\":{\"n\":1},\"b\":[{\"m\":2}]}");
+		JsonValueObject other = (JsonValueObject) JsonCacheTextTest.cached("{\"x\":[1,2,3]}");
+		JsonValueObject a = (JsonValueObject) root.get("a");
+		JsonValueArray b = (JsonValueArray) root.get("b");
+		WriteContext context = new WriteContext(true);
+		String otherText = other.toString(context);
+		String bText = b.toString(context);
+		String rootText = root.toString(context);
+
+		((JsonValueNumberLong) a.get("n")).setValue(10);
+		assertSame(otherText, other.toString(context));
+		assertSame(bText, b.toString(context));
+		assertNotEquals(rootText, root.toString(context));
+		assertTrue(JsonCacheTextTest.assertFresh(root).contains("\"n\": 10"));
+		assertSame(otherText, other.toString(context));
+	}
+
+	/**
+	 * A member or element taken out of a cached object or array, in any of
+	 * the ways it can be, no longer forgets the text of its old parent when it
+	 * changes
+	 */
+	@Test
+	public void testRemovedValueUnlinked() throws Exception {
+		JsonValueObject object = (JsonValueObject) JsonCacheTextTest
+				.cached("{\"a\":{\"n\":1},\"b\":{\"n\":2},\"c\":{\"n\":3},\"d\":{\"n\":4},\"s\":\"x\"}");
+		WriteContext context = new WriteContext(true);
+		List<JsonValue> removed = new ArrayList<JsonValue>();
+		List<JsonPair> members = object.getMembers();
+		removed.add(members.remove(0).getValue());
+		removed.add(members.set(0, new JsonPair(new JsonString("B"), new JsonValueNull())).getValue());
+		JsonPair pair = members.get(1);
+		removed.add(pair.getValue());
+		pair.setValue(new JsonValueTrue());
+		Iterator<JsonPair> iterator = members.iterator();
+		iterator.next();
+		iterator.next();
+		removed.add(iterator.next().getValue());
+		iterator.remove();
+		JsonValueString string = (JsonValueString) object.get("s");
+		JsonString oldString = string.getJsonStringValue();
+		string.setJsonValue(new JsonString("y"));
+		JsonCacheTextTest.assertFresh(object);
+		String text = object.toString(context);
+
+		for (JsonValue value : removed) {
+			((JsonValueNumberLong) ((JsonValueObject) value).get("n")).setValue(100);
+			assertSame(text, object.toString(context));
+		}
+		oldString.setStr("z");
+		assertSame(text, object.toString(context));
+		pair.setName(new JsonString("renamed"));
+		assertTrue(JsonCacheTextTest.assertFresh(object).contains("\"renamed\": true"));
+
+		JsonValueArray array = (JsonValueArray) JsonCacheTextTest.cached("[[1],[2],[3]]");
+		JsonValue element = array.getElements().get(1);
+		array.getElements().clear();
+		text = array.toString(context);
+		((JsonValueArray) element).addElement(new JsonValueNumberLong(5));
+		assertSame(text, array.toString(context));
+		assertEquals("[ ]", JsonCacheTextTest.assertFresh(array));
+	}
+
+	/**
+	 * Text written while another thread changes the tree is never kept once
+	 * the change is made, so every read sees at least the last change made
+	 * before it
+	 */
+	@Test
+	public void testConcurrentChanges() throws Exception {
+		final JsonValueObject root = (JsonValueObject) JsonCacheTextTest.cached("{\"a\":{\"b\":[{\"n\":0}]},\"c\":1}");
+		final JsonValueNumberLong leaf = (JsonValueNumberLong) ((JsonValueObject) ((JsonValueArray) ((JsonValueObject) root
+				.get("a")).get("b")).get(0)).get("n");
+		final int changes = 20000;
+		final AtomicLong written = new AtomicLong();
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		List<Thread> threads = new ArrayList<Thread>();
+		threads.add(new Thread(() -> {
+			for (int i = 1; i <= changes; i++) {
+				leaf.setValue(i);
+				written.set(i);
+			}
+		}));
+		for (int t = 0; t < 3; t++) {
+			threads.add(new Thread(() -> {
+				try {
+					WriteContext context = new WriteContext(true);
+					while (written.get() < changes) {
+						long before = written.get();
+						String text = root.toString(context);
+						int start = text.indexOf("\"n\": ") + 5;
+						long seen = Long.parseLong(text.substring(start, text.indexOf(' ', start)));
+						assertTrue("Read " + seen + " after " + before + " was written", seen >= before);
+					}
+				} catch (Throwable e) {
+					failure.compareAndSet(null, e);
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		if (failure.get() != null) {
+			throw new AssertionError(failure.get());
+		}
+		assertTrue(JsonCacheTextTest.assertFresh(root).contains("\"n\": " + changes));
+	}
+}
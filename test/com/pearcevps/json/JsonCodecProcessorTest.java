@@ -0,0 +1,406 @@
+package com.pearcevps.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.URLClassLoader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests of the codecs generated by {@link JsonCodecProcessor}. The beans are
+ * compiled with the processor when the tests start, and their generated codecs
+ * are checked against the reflective path and the compiled codecs.
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonCodecProcessorTest {
+
+	/**
+	 * The sources compiled with the processor, as pairs of path and text
+	 */
+	static private final String[]						SOURCES		= {
+			"gen/Item.java",
+			"package gen;\n"
+					+ "import java.net.URI;\n"
+					+ "import java.util.List;\n"
+					+ "import com.pearcevps.json.*;\n"
+					+ "public class Item {\n"
+					+ "	@Json_Property public String name;\n"
+					+ "	@Json_Property int count;\n"
+					+ "	@Json_Property private double price;\n"
+					+ "	@Json_Property protected boolean active;\n"
+					+ "	@Json_Property char grade;\n"
+					+ "	@Json_Property short rank;\n"
+					+ "	@Json_Property long id;\n"
+					+ "	@Json_Property float ratio;\n"
+					+ "	@Json_Property Integer boxed;\n"
+					+ "	@Json_Property Double cost;\n"
+					+ "	@Json_Property Character initial;\n"
+					+ "	@Json_Property URI link;\n"
+					+ "	@Json_Property List<String> tags;\n"
+					+ "	@Json_Property @Json_ListValuesAreBeans List<Item> children;\n"
+					+ "	@Json_Property Item parent;\n"
+					+ "	@Json_PropertyRequired String key;\n"
+					+ "	public static class Nested { @Json_Property public String label; }\n"
+					+ "	public class Inner { @Json_Property String label; }\n"
+					+ "}\n",
+			"gen/Special.java",
+			"package gen;\n"
+					+ "import com.pearcevps.json.*;\n"
+					+ "public class Special extends Item {\n"
+					+ "	@Json_Property String name;\n"
+					+ "	@Json_Property int extra;\n"
+					+ "}\n",
+			"gen/Derived.java",
+			"package gen;\n"
+					+ "import com.pearcevps.json.*;\n"
+					+ "public class Derived extends other.Base {\n"
+					+ "	@Json_Property String own;\n"
+					+ "}\n",
+			"other/Base.java",
+			"package other;\n"
+					+ "import com.pearcevps.json.*;\n"
+					+ "public class Base {\n"
+					+ "	@Json_Property protected String inherited;\n"
+					+ "	@Json_Property public long number;\n"
+					+ "}\n",
+			"gen/Skipped.java",
+			"package gen;\n"
+					+ "import java.util.List;\n"
+					+ "import java.util.Map;\n"
+					+ "import com.pearcevps.json.*;\n"
+					+ "public class Skipped {\n"
+					+ "	public static class WithMap { @Json_Property Map<String, String> map; }\n"
+					+ "	public static class Colliding { @Json_Property String name; @Json_Property String Name; }\n"
+					+ "	public static class Generic<T> { @Json_Property String name; }\n"
+					+ "	public abstract static class Abstract { @Json_Property String name; }\n"
+					+ "	private static class Hidden { @Json_Property String name; }\n"
+					+ "	public static class Ignoring {\n"
+					+ "		@Json_Property String name;\n"
+					+ "		@Json_IgnoreFieldsInThisList List<String> ignore;\n"
+					+ "	}\n"
+					+ "}\n" };
+
+	/**
+	 * The notes the processor printed
+	 */
+	static private final List<String>				notes			= new ArrayList<String>();
+	/**
+	 * The directory the sources are compiled in, or null
+	 */
+	static private Path									directory;
+	/**
+	 * The loader of the compiled classes, or null
+	 */
+	static private URLClassLoader						loader;
+
+	/**
+	 * Compile the sources with the processor, or skip the tests if there is no
+	 * compiler
+	 */
+	@BeforeClass
+	static public void compile() throws Exception {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		assumeNotNull(compiler);
+		JsonCodecProcessorTest.directory = Files.createTempDirectory("codecs");
+		Path sources = Files.createDirectories(JsonCodecProcessorTest.directory.resolve("src"));
+		Path classes = Files.createDirectories(JsonCodecProcessorTest.directory.resolve("classes"));
+		List<File> files = new ArrayList<File>();
+		for (int i = 0; i < JsonCodecProcessorTest.SOURCES.length; i += 2) {
+			Path file = sources.resolve(JsonCodecProcessorTest.SOURCES[i]);
+			Files.createDirectories(file.getParent());
+			Files.write(file, JsonCodecProcessorTest.SOURCES[i + 1].getBytes(StandardCharsets.UTF_8));
+			files.add(file.toFile());
+		}
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+		try (StandardJavaFileManager manager = compiler.getStandardFileManager(diagnostics, null,
+				StandardCharsets.UTF_8)) {
+			JavaCompiler.CompilationTask task = compiler.getTask(null, manager, diagnostics,
+					Arrays.asList("-classpath", System.getProperty("java.class.path"), "-d", classes.toString(), "-s",
+							sources.toString()),
+					null, manager.getJavaFileObjectsFromFiles(files));
+			task.setProcessors(Collections.singletonList(new JsonCodecProcessor()));
+			boolean compiled = task.call();
+			for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+				if (diagnostic.getKind() == Diagnostic.Kind.NOTE) {
+					JsonCodecProcessorTest.notes.add(diagnostic.getMessage(null));
+				}
+			}
+			assertTrue(diagnostics.getDiagnostics().toString(), compiled);
+		}
+		JsonCodecProcessorTest.loader = new URLClassLoader(new URL[] { classes.toUri().toURL() },
+				JsonCodecProcessorTest.class.getClassLoader());
+	}
+
+	/**
+	 * Remove the compiled classes
+	 */
+	@AfterClass
+	static public void cleanUp() throws IOException {
+		if (JsonCodecProcessorTest.loader != null) {
+			JsonCodecProcessorTest.loader.close();
+		}
+		if (JsonCodecProcessorTest.directory != null) {
+			try (Stream<Path> paths = Files.walk(JsonCodecProcessorTest.directory)) {
+				for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+					Files.delete(path);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Load a compiled class
+	 *
+	 * @param name
+	 *           The binary name of the class
+	 * @return The class
+	 */
+	static private Class<?> load(String name) throws ClassNotFoundException {
+		return Class.forName(name, true, JsonCodecProcessorTest.loader);
+	}
+
+	/**
+	 * Build a bean with random values in its bound fields
+	 *
+	 * @param beanClass
+	 *           The class of the bean
+	 * @param random
+	 *           The source of randomness
+	 * @param depth
+	 *           How many more levels of nested beans to build
+	 * @param beanLists
+	 *           true to fill lists of beans, which the reflective path can
+	 *           only read when the bean class is visible to this library's
+	 *           class loader
+	 * @return The bean
+	 */
+	static private Object random(Class<?> beanClass, Random random, int depth, boolean beanLists)
+			throws Exception {
+		Object ret = beanClass.getDeclaredConstructor().newInstance();
+		for (BeanDescriptor.Property property : BeanDescriptor.forClass(beanClass).getProperties()) {
+			FieldAccessor accessor = property.getAccessor();
+			boolean none = !property.isPrimitive() && !property.isRequired() && (random.nextInt(4) == 0);
+			switch (property.getKind()) {
+			case BOOLEAN:
+				accessor.set(ret, none ? null : Boolean.valueOf(random.nextBoolean()));
+				break;
+			case CHARACTER:
+				accessor.set(ret, none ? null : Character.valueOf("aZ\"\u00e9\n".charAt(random.nextInt(5))));
+				break;
+			case DOUBLE:
+				accessor.set(ret, none ? null : Double.valueOf(random.nextDouble() * random.nextInt(100000)));
+				break;
+			case FLOAT:
+				accessor.set(ret, none ? null : Float.valueOf(random.nextFloat()));
+				break;
+			case INTEGER:
+				accessor.set(ret, none ? null : Integer.valueOf(random.nextInt()));
+				break;
+			case LONG:
+				accessor.set(ret, none ? null : Long.valueOf(random.nextLong()));
+				break;
+			case SHORT:
+				accessor.set(ret, none ? null : Short.valueOf((short) random.nextInt()));
+				break;
+			case STRING:
+				accessor.set(ret, none ? null : ("s" + random.nextInt(100) + " \"\u4e2d\"\t"));
+				break;
+			case URI:
+				accessor.set(ret, none ? null : new URI("http://example.com/" + random.nextInt(100)));
+				break;
+			case LIST:
+				if (none) {
+					accessor.set(ret, null);
+				} else if (property.getElementKind() == BeanDescriptor.Kind.STRING) {
+					accessor.set(ret, Arrays.asList("a", "b" + random.nextInt(10)));
+				} else if (beanLists && (depth > 0)) {
+					accessor.set(ret, Arrays.asList(JsonCodecProcessorTest.random(beanClass, random, depth - 1, true),
+							JsonCodecProcessorTest.random(beanClass, random, depth - 1, true)));
+				}
+				break;
+			case BEAN:
+				if (!none && (depth > 0)) {
+					accessor.set(ret,
+							JsonCodecProcessorTest.random(property.getField().getType(), random, depth - 1, beanLists));
+				}
+				break;
+			default:
+				break;
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Serialize a bean straight to a string
+	 *
+	 * @param bean
+	 *           The bean
+	 * @param context
+	 *           The options of the serialization
+	 * @return The JSON text
+	 */
+	static private String serialize(Object bean, WriteContext context) throws Exception {
+		StringWriter out = new StringWriter();
+		JsonWriter writer = new JsonWriter(out, context);
+		JsonValueObject.serializeBean(bean, writer);
+		writer.flush();
+		return out.toString();
+	}
+
+	/**
+	 * A codec is generated for each concrete class with bound fields, named
+	 * after the class, and found by the registry
+	 */
+	@Test
+	public void testGenerated() throws Exception {
+		String[] beans = { "gen.Item", "gen.Item$Nested", "gen.Special", "gen.Derived", "other.Base" };
+		String[] codecs = { "gen.ItemJsonCodec", "gen.Item_NestedJsonCodec", "gen.SpecialJsonCodec",
+				"gen.DerivedJsonCodec", "other.BaseJsonCodec" };
+		for (int i = 0; i < beans.length; i++) {
+			assertEquals(codecs[i], JsonCodecRegistry.getGeneratedCodecName(beans[i]));
+			Class<?> beanClass = JsonCodecProcessorTest.load(beans[i]);
+			JsonCodec<?> codec = JsonCodecRegistry.getCodec(beanClass);
+			assertNotNull(beans[i], codec);
+			assertEquals(codecs[i], codec.getClass().getName());
+			assertEquals(beanClass, codec.getBeanClass());
+		}
+		assertFalse(JsonCodecRegistry.isCompileCodecs());
+	}
+
+	/**
+	 * Classes the generated code cannot bind get a note saying why, and no
+	 * codec
+	 */
+	@Test
+	public void testSkipped() throws Exception {
+		String[] beans = { "gen.Item.Inner", "gen.Skipped.WithMap", "gen.Skipped.Colliding", "gen.Skipped.Generic",
+				"gen.Skipped.Abstract", "gen.Skipped.Hidden", "gen.Skipped.Ignoring" };
+		String[] reasons = { "it is a non-static inner class", "it has a Map field or an ignore list",
+				"its fields name and Name differ only in case", "it is generic", "it is not a concrete class",
+				"it is not visible in its package", "it has a Map field or an ignore list" };
+		for (int i = 0; i < beans.length; i++) {
+			String prefix = "No JSON codec generated for " + beans[i] + " as " + reasons[i];
+			boolean found = false;
+			for (String note : JsonCodecProcessorTest.notes) {
+				found |= note.startsWith(prefix);
+			}
+			assertTrue(prefix + " in " + JsonCodecProcessorTest.notes, found);
+			String binaryName = beans[i].replace("Skipped.", "Skipped$").replace("Item.", "Item$");
+			try {
+				JsonCodecProcessorTest.load(JsonCodecRegistry.getGeneratedCodecName(binaryName));
+				assertTrue("Generated a codec for " + beans[i], false);
+			} catch (ClassNotFoundException e) {
+				// Expected
+			}
+		}
+		assertEquals(beans.length, JsonCodecProcessorTest.notes.size());
+	}
+
+	/**
+	 * Random beans are written by their generated codecs as the tree prints
+	 * them, with and without null values, and their text is read by the
+	 * generated codecs into the beans the compiled codecs read
+	 */
+	@Test
+	public void testDifferential() throws Exception {
+		Random random = new Random(24);
+		Class<?>[] classes = { JsonCodecProcessorTest.load("gen.Item"), JsonCodecProcessorTest.load("gen.Special"),
+				JsonCodecProcessorTest.load("gen.Derived") };
+		for (int n = 0; n < 300; n++) {
+			Class<?> beanClass = classes[n % classes.length];
+			Object bean = JsonCodecProcessorTest.random(beanClass, random, 2, true);
+			for (boolean printNull : new boolean[] { true, false }) {
+				WriteContext context = new WriteContext(printNull);
+				String expected = JsonValueObject.createObjectFromBean(bean, context).toString(context);
+				String generated = JsonCodecProcessorTest.serialize(bean, context);
+				assertEquals(expected, generated);
+				JsonTestSupport.assertSameValue(JsonParser.parse(expected), JsonParser.parse(generated));
+			}
+
+			////////////////////
+			// Special has a name field of its own and of Item, which are both
+			// written, and both set from the last, so it does not round trip
+			String text = JsonValueObject.createObjectFromBean(JsonCodecProcessorTest.random(beanClass, random, 2, false))
+					.toString();
+			String read = JsonValueObject.createObjectFromBean(JsonValueObject.deserializeJsonStringToAnObject(text,
+					beanClass.getDeclaredConstructor().newInstance())).toString();
+			if (beanClass != classes[1]) {
+				assertEquals(text, read);
+			}
+			for (Class<?> c : classes) {
+				JsonCodecRegistry.register(CompiledBeanCodec.compile(c));
+			}
+			try {
+				Object compiled = JsonValueObject.deserializeJsonStringToAnObject(text,
+						beanClass.getDeclaredConstructor().newInstance());
+				assertEquals(read, JsonValueObject.createObjectFromBean(compiled).toString());
+			} finally {
+				for (Class<?> c : classes) {
+					JsonCodecRegistry.unregister(c);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Pair names are matched ignoring case, values of unexpected types are
+	 * bound as the reflective path binds them, and a field declared in a class
+	 * and its superclass is set in both
+	 */
+	@Test
+	public void testRead() throws Exception {
+		Class<?> special = JsonCodecProcessorTest.load("gen.Special");
+		String text = "{\"NAME\":\"n\",\"Count\":\"12\",\"price\":3,\"active\":true,\"extra\":-4,\"boxed\":null,"
+				+ "\"key\":\"k\",\"unknown\":{\"a\":[1]}}";
+		Object generated = JsonValueObject.deserializeJsonStringToAnObject(text,
+				special.getDeclaredConstructor().newInstance());
+		JsonCodecRegistry.register(CompiledBeanCodec.compile(special));
+		Object compiled;
+		try {
+			compiled = JsonValueObject.deserializeJsonStringToAnObject(text,
+					special.getDeclaredConstructor().newInstance());
+		} finally {
+			JsonCodecRegistry.unregister(special);
+		}
+		assertEquals(JsonValueObject.createObjectFromBean(compiled).toString(),
+				JsonValueObject.createObjectFromBean(generated).toString());
+		BeanDescriptor descriptor = BeanDescriptor.forClass(special);
+		for (BeanDescriptor.Property property : descriptor.getFieldsNamed("name")) {
+			assertEquals("n", property.getAccessor().get(generated));
+		}
+		assertEquals(2, descriptor.getFieldsNamed("name").size());
+		assertEquals(Integer.valueOf(-4), descriptor.getFieldsNamed("extra").get(0).getAccessor().get(generated));
+		assertEquals(Boolean.TRUE, descriptor.getFieldsNamed("active").get(0).getAccessor().get(generated));
+	}
+}
@@ -0,0 +1,311 @@
+package com.pearcevps.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests that the codecs compiled by the {@link JsonCodecRegistry} bind beans
+ * exactly as the reflective path does
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonCompiledCodecTest {
+
+	/**
+	 * A bean with a field of every kind a compiled codec handles itself, and
+	 * lists and a nested bean that it hands to the reflective path. It is
+	 * private so that no codec is generated for it.
+	 */
+	static private class Flat {
+		@Json_Property
+		boolean						z;
+		@Json_Property
+		char							c;
+		@Json_Property
+		short							s;
+		@Json_Property
+		int							i;
+		@Json_Property
+		long							j;
+		@Json_Property
+		float							f;
+		@Json_Property
+		double						d;
+		@Json_Property
+		Boolean						zb;
+		@Json_Property
+		Character					cb;
+		@Json_Property
+		Short							sb;
+		@Json_Property
+		Integer						ib;
+		@Json_Property
+		Long							jb;
+		@Json_Property
+		Float							fb;
+		@Json_Property
+		Double						db;
+		@Json_Property
+		String						str;
+		@Json_Property
+		URI							uri;
+		@Json_Property
+		List<String>				tags;
+		@Json_Property
+		@Json_ListValuesAreBeans
+		List<JsonTestSupport.Line>	lines;
+		@Json_Property
+		JsonTestSupport.Line		line;
+		@Json_PropertyRequired
+		String						key;
+	}
+
+	/**
+	 * A codec registered by hand, which writes only the sku of a line
+	 */
+	static private class SkuCodec implements JsonCodec<JsonTestSupport.Line> {
+		@Override
+		public Class<JsonTestSupport.Line> getBeanClass() {
+			return JsonTestSupport.Line.class;
+		}
+
+		@Override
+		public void readFields(JsonTestSupport.Line bean, List<JsonPair> pairs) throws JsonException {
+			for (JsonPair pair : pairs) {
+				if (pair.getName().getJavaString().equals("sku")) {
+					bean.sku = ((JsonValueString) pair.getValue()).getJavaStringValue() + "!";
+				}
+			}
+		}
+
+		@Override
+		public void writeFields(JsonTestSupport.Line bean, JsonWriter writer) throws IOException {
+			writer.name("sku").value(bean.sku);
+		}
+	}
+
+	/**
+	 * The characters random strings are built from
+	 */
+	static private final String	CHARS	= "abcXYZ019 \"\\/\n\t\u00e9\u4e2d";
+
+	/**
+	 * Build a random string, or null
+	 *
+	 * @param random
+	 *           The source of randomness
+	 * @return The string
+	 */
+	static private String randomString(Random random) {
+		int length = random.nextInt(8) - 1;
+		if (length < 0) {
+			return null;
+		}
+		StringBuilder ret = new StringBuilder();
+		for (int n = 0; n < length; n++) {
+			ret.append(JsonCompiledCodecTest.CHARS.charAt(random.nextInt(JsonCompiledCodecTest.CHARS.length())));
+		}
+		return ret.toString();
+	}
+
+	/**
+	 * Build a bean with random values, with some fields left null
+	 *
+	 * @param random
+	 *           The source of randomness
+	 * @return The bean
+	 */
+	static private Flat randomFlat(Random random) throws Exception {
+		Flat ret = new Flat();
+		ret.z = random.nextBoolean();
+		ret.c = JsonCompiledCodecTest.CHARS.charAt(random.nextInt(JsonCompiledCodecTest.CHARS.length()));
+		ret.s = (short) random.nextInt();
+		ret.i = random.nextInt();
+		ret.j = random.nextLong();
+		ret.f = random.nextFloat() * random.nextInt(1000);
+		ret.d = random.nextDouble() * Math.pow(10, random.nextInt(40) - 20);
+		if (random.nextBoolean()) {
+			ret.zb = Boolean.valueOf(random.nextBoolean());
+			ret.cb = Character.valueOf(ret.c);
+			ret.sb = Short.valueOf((short) random.nextInt(1000));
+			ret.ib = Integer.valueOf(random.nextInt());
+			ret.jb = Long.valueOf(random.nextLong());
+			ret.fb = Float.valueOf(random.nextFloat());
+			ret.db = Double.valueOf(random.nextDouble());
+			ret.uri = new URI("http://example.com/" + random.nextInt(100));
+			ret.tags = Arrays.asList(JsonCompiledCodecTest.randomString(random), "t");
+			JsonTestSupport.Line first = JsonTestSupport.line("A", random.nextInt(10), null, null);
+			ret.lines = Arrays.asList(first, JsonTestSupport.line("B", 2, random.nextDouble(), first));
+			ret.line = JsonTestSupport.line(JsonCompiledCodecTest.randomString(random), 1, 0.5, null);
+		}
+		ret.str = JsonCompiledCodecTest.randomString(random);
+		ret.key = "k" + random.nextInt(100);
+		return ret;
+	}
+
+	/**
+	 * Serialize a bean straight to a string
+	 *
+	 * @param bean
+	 *           The bean
+	 * @param context
+	 *           The options of the serialization
+	 * @return The JSON text
+	 */
+	static private String serialize(Object bean, WriteContext context) throws Exception {
+		StringWriter out = new StringWriter();
+		JsonWriter writer = new JsonWriter(out, context);
+		JsonValueObject.serializeBean(bean, writer);
+		writer.flush();
+		return out.toString();
+	}
+
+	/**
+	 * Turn compiled codecs and debugging off and remove registered codecs
+	 */
+	@After
+	public void tearDown() {
+		JsonValue.debug = false;
+		JsonCodecRegistry.setCompileCodecs(false);
+		JsonCodecRegistry.unregister(JsonTestSupport.Line.class);
+	}
+
+	/**
+	 * Classes are only compiled when compiled codecs are turned on, and not at
+	 * all if they have a bound Map field or an ignore list
+	 */
+	@Test
+	public void testCompiled() throws Exception {
+		assertFalse(JsonCodecRegistry.isCompileCodecs());
+		assertNull(JsonCodecRegistry.getCodec(Flat.class));
+		JsonCodecRegistry.setCompileCodecs(true);
+		assertTrue(JsonCodecRegistry.isCompileCodecs());
+		JsonCodec<Flat> codec = JsonCodecRegistry.getCodec(Flat.class);
+		assertTrue(codec instanceof CompiledBeanCodec);
+		assertSame(Flat.class, codec.getBeanClass());
+		assertSame(codec, JsonCodecRegistry.getCodec(Flat.class));
+		assertNull(CompiledBeanCodec.compile(JsonTestSupport.Order.class));
+		assertNull(CompiledBeanCodec.compile(BeanDescriptorTest.Private.class));
+		JsonCodecRegistry.setCompileCodecs(false);
+		assertNull(JsonCodecRegistry.getCodec(Flat.class));
+	}
+
+	/**
+	 * Random beans are written by their compiled codec as the reflective path
+	 * writes them, with and without null values, and as the tree prints them
+	 */
+	@Test
+	public void testWriteDifferential() throws Exception {
+		Random random = new Random(23);
+		for (int n = 0; n < 500; n++) {
+			Object bean = ((n % 10) == 0) ? JsonTestSupport.order() : JsonCompiledCodecTest.randomFlat(random);
+			for (boolean printNull : new boolean[] { true, false }) {
+				WriteContext context = new WriteContext(printNull);
+				String expected = JsonValueObject.createObjectFromBean(bean, context).toString(context);
+				String reflective = JsonCompiledCodecTest.serialize(bean, context);
+				JsonCodecRegistry.setCompileCodecs(true);
+				String compiled = JsonCompiledCodecTest.serialize(bean, context);
+				JsonCodecRegistry.setCompileCodecs(false);
+				assertEquals(expected, reflective);
+				assertEquals(expected, compiled);
+				JsonTestSupport.assertSameValue(JsonParser.parse(expected), JsonParser.parse(compiled));
+			}
+		}
+	}
+
+	/**
+	 * The text of random beans is read by their compiled codec into the same
+	 * bean the reflective path reads, including values of unexpected types,
+	 * whether or not debugging is on
+	 */
+	@Test
+	public void testReadDifferential() throws Exception {
+		for (boolean debug : new boolean[] { false, true }) {
+			JsonValue.debug = debug;
+			this.readDifferential();
+		}
+	}
+
+	/**
+	 * Read random beans by their compiled codec and the reflective path, and
+	 * check that they are the same
+	 */
+	private void readDifferential() throws Exception {
+		Random random = new Random(24);
+		List<String> texts = new ArrayList<String>();
+		for (int n = 0; n < 500; n++) {
+			texts.add(JsonValueObject.createObjectFromBean(JsonCompiledCodecTest.randomFlat(random)).toString());
+		}
+		texts.add("{\"Z\":true,\"S\":7,\"I\":\"12\",\"J\":1.5,\"D\":3,\"ZB\":\"true\",\"STR\":\"\",\"key\":\"k\"}");
+		texts.add("{\"i\":null,\"ib\":null,\"str\":null,\"z\":false,\"c\":\"q\",\"cb\":\"\",\"unknown\":[1],"
+				+ "\"KEY\":\"k\"}");
+		for (String text : texts) {
+			Flat reflective = (Flat) JsonValueObject.deserializeJsonStringToAnObject(text, new Flat());
+			JsonCodecRegistry.setCompileCodecs(true);
+			Flat compiled = (Flat) JsonValueObject.deserializeJsonStringToAnObject(text, new Flat());
+			JsonCodecRegistry.setCompileCodecs(false);
+			assertEquals(text, JsonValueObject.createObjectFromBean(reflective).toString(),
+					JsonValueObject.createObjectFromBean(compiled).toString());
+		}
+	}
+
+	/**
+	 * A required field without a value is rejected by the compiled codec with
+	 * the message of the reflective path
+	 */
+	@Test
+	public void testRequired() throws Exception {
+		Flat bean = JsonCompiledCodecTest.randomFlat(new Random(25));
+		bean.key = null;
+		String expected = null;
+		for (boolean compileCodecs : new boolean[] { false, true }) {
+			JsonCodecRegistry.setCompileCodecs(compileCodecs);
+			try {
+				JsonCompiledCodecTest.serialize(bean, new WriteContext());
+				fail("Serialized a bean without a required field");
+			} catch (JsonException e) {
+				if (expected == null) {
+					expected = e.getMessage();
+				}
+				assertEquals(expected, e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * A registered codec is used in place of the reflective path for its
+	 * class, also when the bean is nested, until it is removed
+	 */
+	@Test
+	public void testRegistered() throws Exception {
+		JsonTestSupport.Line line = JsonTestSupport.line("A", 3, 1.5, null);
+		JsonTestSupport.Order order = new JsonTestSupport.Order();
+		order.first = line;
+		JsonCodecRegistry.register(new SkuCodec());
+		assertEquals("{ \"sku\": \"A\" }", JsonCompiledCodecTest.serialize(line, new WriteContext()));
+		assertTrue(JsonCompiledCodecTest.serialize(order, new WriteContext()).contains("\"first\": { \"sku\": \"A\" }"));
+		JsonTestSupport.Line read = (JsonTestSupport.Line) JsonValueObject
+				.deserializeJsonStringToAnObject("{\"sku\":\"B\",\"quantity\":4}", new JsonTestSupport.Line());
+		assertEquals("B!", read.sku);
+		assertEquals(0, read.quantity);
+		JsonCodecRegistry.unregister(JsonTestSupport.Line.class);
+		assertEquals(JsonValueObject.createObjectFromBean(line).toString(),
+				JsonCompiledCodecTest.serialize(line, new WriteContext()));
+	}
+}
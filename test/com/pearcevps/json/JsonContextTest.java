@@ -0,0 +1,210 @@
+package com.pearcevps.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests of the per call {@link ParseContext} and {@link WriteContext}
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonContextTest {
+
+	/**
+	 * A bean that can hold itself
+	 */
+	static public class Node {
+		@Json_Property
+		public String	name;
+		@Json_Property
+		public Node		next;
+	}
+
+	/**
+	 * The global print null setting before each test
+	 */
+	private final boolean printNull = JsonValueObject.isPrintNull();
+
+	@After
+	public void tearDown() {
+		JsonValueObject.setPrintNull(this.printNull);
+	}
+
+	/**
+	 * Build a chain of nodes
+	 *
+	 * @param names
+	 *           The name of each node
+	 * @return The first node
+	 */
+	static private Node chain(String... names) {
+		Node first = null;
+		for (int i = names.length - 1; i >= 0; i--) {
+			Node node = new Node();
+			node.name = names[i];
+			node.next = first;
+			first = node;
+		}
+		return first;
+	}
+
+	/**
+	 * Documents nested more deeply than the maximum depth are rejected by the
+	 * string and byte parsers, and the depth is back to zero after a parse
+	 */
+	@Test
+	public void testParseDepth() throws Exception {
+		String json = "{\"a\":[[1],{\"b\":[]}]}";
+		ParseContext context = new ParseContext(4);
+		JsonTestSupport.assertSameValue(JsonParser.parse(json), JsonParser.parse(json, context));
+		assertEquals(0, context.getDepth());
+		JsonTreeBuilder builder = new JsonTreeBuilder();
+		JsonByteParser.parse(ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8)), builder, context);
+		JsonTestSupport.assertSameValue(JsonParser.parse(json), builder.getResult());
+		assertEquals(0, context.getDepth());
+
+		context.setMaxDepth(3);
+		try {
+			JsonParser.parse(json, context);
+			fail("Parsed JSON deeper than the maximum depth");
+		} catch (JsonException e) {
+			assertEquals("JSON nested more deeply than the maximum depth of 3 at position 15", e.getMessage());
+		}
+		try {
+			JsonByteParser.parse(ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8)), new JsonTreeBuilder(),
+					new ParseContext(2));
+			fail("Parsed JSON deeper than the maximum depth");
+		} catch (JsonException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("JSON nested more deeply than the maximum depth of 2"));
+		}
+		JsonTestSupport.assertSameValue(JsonParser.parse(json), JsonParser.parse(json, new ParseContext()));
+		try {
+			new ParseContext(-1);
+			fail("Created a context with a negative depth");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+	/**
+	 * Each write context prints null values as it was told, whatever the global
+	 * setting, and a new context takes the global setting
+	 */
+	@Test
+	public void testPrintNull() throws Exception {
+		JsonValue value = JsonParser.parse("{\"a\":null,\"b\":1}");
+		JsonValueObject.setPrintNull(false);
+		assertEquals("{ \"a\": null, \"b\": 1 }", value.toString(new WriteContext(true)));
+		assertEquals("{ \"b\": 1 }", value.toString(new WriteContext()));
+		assertEquals("{ \"b\": 1 }", value.toString());
+		JsonValueObject.setPrintNull(true);
+		assertEquals("{ \"b\": 1 }", value.toString(new WriteContext(false)));
+		assertEquals("{ \"a\": null, \"b\": 1 }", value.toString(new WriteContext()));
+		assertEquals("{ \"a\": null, \"b\": 1 }", value.toString());
+	}
+
+	/**
+	 * A self referencing bean is cut off at its field recursion limit, however
+	 * the limit is given
+	 */
+	@Test
+	public void testFieldRecursionLimits() throws Exception {
+		Node loop = new Node();
+		loop.name = "loop";
+		loop.next = loop;
+		WriteContext context = new WriteContext();
+		context.setFieldRecursionLimit("next", 2);
+		assertEquals("{ \"name\": \"loop\", \"next\": { \"name\": \"loop\", \"next\": { \"name\": \"loop\" } } }",
+				JsonValueObject.createObjectFromBean(loop, context).toString());
+		Map<String, Integer> limits = new HashMap<String, Integer>();
+		limits.put("next", 1);
+		assertEquals("{ \"name\": \"loop\", \"next\": { \"name\": \"loop\" } }",
+				JsonValueObject.createObjectFromBean(loop, limits).toString());
+		assertEquals("{ \"name\": \"x\", \"next\": { \"name\": \"y\" } }",
+				JsonValueObject.createObjectFromBean(JsonContextTest.chain("x", "y", "z"), limits).toString());
+	}
+
+	/**
+	 * Beans nested more deeply than the maximum depth are rejected
+	 */
+	@Test
+	public void testWriteDepth() throws Exception {
+		Node chain = JsonContextTest.chain("x", "y", "z");
+		WriteContext context = new WriteContext();
+		context.setMaxDepth(3);
+		assertEquals("{ \"name\": \"x\", \"next\": { \"name\": \"y\", \"next\": { \"name\": \"z\" } } }",
+				JsonValueObject.createObjectFromBean(chain, context).toString());
+		assertEquals(0, context.getDepth());
+		context.setMaxDepth(2);
+		try {
+			JsonValueObject.createObjectFromBean(chain, context);
+			fail("Serialized a bean deeper than the maximum depth");
+		} catch (JsonException e) {
+			assertEquals("Bean " + Node.class.getName() + " is nested more deeply than the maximum depth of 2",
+					e.getMessage());
+		}
+		try {
+			context.setMaxDepth(-1);
+			fail("Set a negative depth");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+	/**
+	 * Parses and serializations with different contexts can run at the same
+	 * time
+	 */
+	@Test
+	public void testConcurrent() throws Exception {
+		String deep = "[[[[[1]]]]]";
+		Node loop = new Node();
+		loop.name = "loop";
+		loop.next = loop;
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			Future<?>[] futures = new Future<?>[4];
+			for (int t = 0; t < futures.length; t++) {
+				int limit = t + 1;
+				futures[t] = executor.submit(() -> {
+					String expected = "{ \"name\": \"loop\" }";
+					for (int i = 0; i < limit; i++) {
+						expected = "{ \"name\": \"loop\", \"next\": " + expected + " }";
+					}
+					for (int n = 0; n < 2000; n++) {
+						WriteContext context = new WriteContext();
+						context.setFieldRecursionLimit("next", limit);
+						assertEquals(expected, JsonValueObject.createObjectFromBean(loop, context).toString());
+						try {
+							JsonParser.parse(deep, new ParseContext(limit));
+							fail("Parsed JSON deeper than the maximum depth");
+						} catch (JsonException e) {
+							// Expected
+						}
+						assertEquals(deep, JsonParser.parse(deep, new ParseContext(limit + 4)).toString()
+								.replace(" ", ""));
+					}
+					return null;
+				});
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package com.pearcevps.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Tests that deeply nested documents are parsed without running out of stack
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonDeepNestingTest {
+
+	/**
+	 * Far deeper than a recursive parser can go on a default thread stack
+	 */
+	static private final int DEPTH = 200000;
+
+	/**
+	 * Build a document of arrays and objects nested alternately around a number
+	 *
+	 * @param depth
+	 *           The number of arrays and objects
+	 * @param close
+	 *           Are the arrays and objects closed?
+	 * @return The document
+	 */
+	static private String nested(int depth, boolean close) {
+		StringBuilder ret = new StringBuilder();
+		for (int i = 0; i < depth; i++) {
+			ret.append(((i % 2) == 0) ? "[" : "{\"a\":");
+		}
+		ret.append('1');
+		for (int i = depth - 1; close && (i >= 0); i--) {
+			ret.append(((i % 2) == 0) ? ']' : '}');
+		}
+		return ret.toString();
+	}
+
+	/**
+	 * Walk down a tree built from {@link #nested(int, boolean)}, without
+	 * recursing
+	 *
+	 * @param value
+	 *           The root of the tree
+	 * @param depth
+	 *           The number of arrays and objects
+	 */
+	static private void assertNested(JsonValue value, int depth) {
+		for (int i = 0; i < depth; i++) {
+			if ((i % 2) == 0) {
+				JsonValueArray array = (JsonValueArray) value;
+				assertEquals(1, array.size());
+				value = array.get(0);
+			} else {
+				JsonValueObject object = (JsonValueObject) value;
+				assertEquals(1, object.size());
+				value = object.get("a");
+			}
+		}
+		assertEquals(Long.valueOf(1), ((JsonValueNumberLong) value).getValue());
+	}
+
+	/**
+	 * The string parser builds the whole tree
+	 */
+	@Test
+	public void testParser() throws Exception {
+		JsonDeepNestingTest.assertNested(JsonParser.parse(JsonDeepNestingTest.nested(JsonDeepNestingTest.DEPTH, true)),
+				JsonDeepNestingTest.DEPTH);
+	}
+
+	/**
+	 * The byte parser builds the whole tree, and passes every event to a
+	 * handler
+	 */
+	@Test
+	public void testByteParser() throws Exception {
+		byte[] bytes = JsonDeepNestingTest.nested(JsonDeepNestingTest.DEPTH, true).getBytes(StandardCharsets.UTF_8);
+		JsonDeepNestingTest.assertNested(JsonByteParser.parse(bytes, 0, bytes.length), JsonDeepNestingTest.DEPTH);
+		JsonTreeBuilder builder = new JsonTreeBuilder();
+		JsonByteParser.parse(ByteBuffer.wrap(bytes), builder);
+		JsonDeepNestingTest.assertNested(builder.getResult(), JsonDeepNestingTest.DEPTH);
+	}
+
+	/**
+	 * The lazy parser skips over a deeply nested member
+	 */
+	@Test
+	public void testLazy() throws Exception {
+		String json = "{\"deep\":" + JsonDeepNestingTest.nested(JsonDeepNestingTest.DEPTH, true) + ",\"last\":2}";
+		JsonValueObject object = (JsonValueObject) JsonParser.parseLazy(json);
+		assertEquals(2, object.size());
+		assertEquals(Long.valueOf(2), ((JsonValueNumberLong) object.get("last")).getValue());
+		assertEquals(1, ((JsonValueArray) object.get("deep")).size());
+	}
+
+	/**
+	 * A deep document that is never closed, or is deeper than the maximum
+	 * depth, is rejected with a JsonException
+	 */
+	@Test
+	public void testInvalid() throws Exception {
+		String open = JsonDeepNestingTest.nested(JsonDeepNestingTest.DEPTH, false);
+		try {
+			JsonParser.parse(open);
+			fail("Parsed an unclosed document");
+		} catch (JsonException e) {
+			// Expected
+		}
+		byte[] bytes = open.getBytes(StandardCharsets.UTF_8);
+		try {
+			JsonByteParser.parse(bytes, 0, bytes.length);
+			fail("Parsed an unclosed document");
+		} catch (JsonException e) {
+			// Expected
+		}
+		String json = JsonDeepNestingTest.nested(JsonDeepNestingTest.DEPTH, true);
+		try {
+			JsonParser.parse(json, new ParseContext(JsonDeepNestingTest.DEPTH - 1));
+			fail("Parsed JSON deeper than the maximum depth");
+		} catch (JsonException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("JSON nested more deeply than the maximum depth"));
+		}
+		JsonDeepNestingTest.assertNested(JsonParser.parse(json, new ParseContext(JsonDeepNestingTest.DEPTH)),
+				JsonDeepNestingTest.DEPTH);
+	}
+}
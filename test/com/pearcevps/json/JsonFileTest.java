@@ -0,0 +1,150 @@
+package com.pearcevps.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests of the memory mapped {@link JsonFile}
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonFileTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Write a document to a new file
+	 *
+	 * @param json
+	 *           The document
+	 * @return The file
+	 * @throws IOException
+	 */
+	private Path write(String json) throws IOException {
+		File file = this.folder.newFile();
+		return Files.write(file.toPath(), json.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Each document is parsed from a file as the tree the reference parser
+	 * builds
+	 */
+	@Test
+	public void testDocuments() throws Exception {
+		for (String json : JsonTestSupport.DOCUMENTS) {
+			try (JsonFile file = JsonFile.map(this.write(json))) {
+				JsonTestSupport.assertSameValue(JsonParser.parse(json), file.parse());
+			}
+		}
+	}
+
+	/**
+	 * An array larger than the segment size is parsed element by element, with
+	 * elements and numbers falling across the ends of segments
+	 */
+	@Test
+	public void testSegments() throws Exception {
+		String json = JsonTestSupport.records(300);
+		Path path = this.write(json);
+		List<JsonValue> expected = ((JsonValueArray) JsonParser.parse(json)).getElements();
+		for (int segmentSize = 200; segmentSize < 240; segmentSize++) {
+			try (JsonFile file = JsonFile.map(path, segmentSize)) {
+				JsonTestSupport.assertSameValue(new JsonValueArray(expected), file.parse());
+			}
+			try (JsonFile file = JsonFile.map(path, segmentSize)) {
+				for (JsonValue element : expected) {
+					JsonTestSupport.assertSameValue(element, file.nextElement());
+				}
+				assertNull(file.nextElement());
+			}
+		}
+		String numbers = "[1234567890123,-98765.4321e-3,12345678901234567890123,7]";
+		path = this.write(numbers);
+		for (int segmentSize = 24; segmentSize < numbers.length(); segmentSize++) {
+			try (JsonFile file = JsonFile.map(path, segmentSize)) {
+				JsonTestSupport.assertSameValue(JsonParser.parse(numbers), file.parse());
+			}
+		}
+	}
+
+	/**
+	 * An object, array or string that ends exactly at the end of a segment is
+	 * complete, and is not mapped again as if it had been cut short
+	 */
+	@Test
+	public void testElementFillsSegment() throws Exception {
+		String[] elements = { "{\"a\":\"12345678\"}", "[\"123456789012\"]", "\"12345678901234\"" };
+		for (String element : elements) {
+			assertEquals(16, element.length());
+			String json = "[" + element + ",2]";
+			Path path = this.write(json);
+			try (JsonFile file = JsonFile.map(path, 16)) {
+				JsonTestSupport.assertSameValue(JsonParser.parse(json), file.parse());
+			}
+			try (JsonFile file = JsonFile.map(path, 16)) {
+				JsonTestSupport.assertSameValue(JsonParser.parse(element), file.nextElement());
+				assertEquals("2", file.nextElement().toString());
+				assertNull(file.nextElement());
+			}
+		}
+	}
+
+	/**
+	 * A byte order mark and white space around the array are skipped
+	 */
+	@Test
+	public void testByteOrderMark() throws Exception {
+		byte[] json = "\r\n [ {\"a\":1} , 2 ] \n".getBytes(StandardCharsets.UTF_8);
+		byte[] bytes = new byte[json.length + 3];
+		bytes[0] = (byte) 0xef;
+		bytes[1] = (byte) 0xbb;
+		bytes[2] = (byte) 0xbf;
+		System.arraycopy(json, 0, bytes, 3, json.length);
+		Path path = Files.write(this.folder.newFile().toPath(), bytes);
+		try (JsonFile file = JsonFile.map(path, 16)) {
+			assertEquals("{ \"a\": 1 }", file.nextElement().toString());
+			assertEquals("2", file.nextElement().toString());
+			assertNull(file.nextElement());
+			assertEquals(bytes.length, file.size());
+		}
+	}
+
+	/**
+	 * Invalid files and elements larger than a segment are rejected
+	 */
+	@Test
+	public void testInvalid() throws Exception {
+		for (String json : JsonTestSupport.INVALID) {
+			try (JsonFile file = JsonFile.map(this.write(json))) {
+				file.parse();
+				fail("Parsed invalid JSON " + json);
+			} catch (JsonException e) {
+				// Expected
+			}
+		}
+		String[] invalid = { "[1,2", "[1 2]", "[1,]", "{\"a\":[1,2,3,4,5,6,7,8,9,10,11,12]}",
+				"[\"a string longer than the segment\"]" };
+		for (String json : invalid) {
+			try (JsonFile file = JsonFile.map(this.write(json), 16)) {
+				file.parse();
+				fail("Parsed invalid JSON " + json);
+			} catch (JsonException e) {
+				// Expected
+			}
+		}
+	}
+}
@@ -0,0 +1,176 @@
+package com.pearcevps.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+/**
+ * Tests of the streaming {@link JsonFormatter}
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonFormatterTest {
+
+	/**
+	 * A reader that returns a few characters at a time, so strings and
+	 * literals are split between reads
+	 */
+	static private class ChunkedReader extends Reader {
+		private final Reader	in;
+		private final int		chunk;
+
+		ChunkedReader(String text, int chunk) {
+			super();
+			this.in = new StringReader(text);
+			this.chunk = chunk;
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.in.close();
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException {
+			return this.in.read(cbuf, off, Math.min(len, this.chunk));
+		}
+	}
+
+	/**
+	 * Pretty print a value with a writer
+	 *
+	 * @param value
+	 *           The value
+	 * @return The JSON text
+	 */
+	static private String pretty(JsonValue value) throws IOException {
+		StringBuilder out = new StringBuilder();
+		JsonWriter writer = new JsonWriter(out);
+		writer.setIndent(JsonWriter.DEFAULT_INDENT);
+		value.writeTo(writer);
+		return out.toString();
+	}
+
+	/**
+	 * Reformatting printed text gives the layout a pretty printing writer gives
+	 * the value, and the same value
+	 */
+	@Test
+	public void testPrettyPrint() throws Exception {
+		JsonFormatter formatter = new JsonFormatter(JsonWriter.DEFAULT_INDENT, "\n");
+		for (String json : JsonTestSupport.DOCUMENTS) {
+			JsonValue value = JsonParser.parse(json);
+			String expected = JsonFormatterTest.pretty(value);
+			assertEquals(expected, formatter.format(value.toString()));
+			assertEquals(expected, JsonValueObject.jsonPrettyPrint(value.toString(), 0));
+			if (value instanceof JsonValueObject) {
+				assertEquals(expected, ((JsonValueObject) value).prettyPrint());
+			}
+			JsonTestSupport.assertSameValue(JsonParser.parse(json), JsonParser.parse(formatter.format(json)));
+		}
+	}
+
+	/**
+	 * Minified text has no whitespace outside strings, and is the same value
+	 */
+	@Test
+	public void testMinify() throws Exception {
+		String[] documents = new String[JsonTestSupport.DOCUMENTS.length + 1];
+		System.arraycopy(JsonTestSupport.DOCUMENTS, 0, documents, 0, JsonTestSupport.DOCUMENTS.length);
+		documents[documents.length - 1] = JsonTestSupport.records(300);
+		for (String json : documents) {
+			String minified = JsonFormatter.minify(json);
+			JsonTestSupport.assertSameValue(JsonParser.parse(json), JsonParser.parse(minified));
+			assertEquals(minified, JsonFormatter.minify(minified));
+			JsonValue value = JsonParser.parse(json);
+			assertEquals(JsonFormatter.minify(value.toString()), JsonFormatter.minify(JsonFormatterTest.pretty(value)));
+		}
+		assertEquals("{\"a\":[1,2,{}],\"b\":\" x , y \"}",
+				JsonFormatter.minify(" { \"a\" : [ 1 ,\n2 , { } ] ,\t\"b\" : \" x , y \" } "));
+	}
+
+	/**
+	 * Values that follow another value without a separator are rejected
+	 * rather than run together, e.g. [1 2] is not minified to [12]
+	 */
+	@Test
+	public void testAdjacentValues() throws Exception {
+		String[] json = { "[1 2]", "[true false]", "{\"a\":1 \"b\":2}", "\"a\"\"b\"", "[1 \"a\"]", "[{} {}]",
+				"[\"a\" 1]", "[[] []]", "{\"a\" \"b\"}" };
+		int[] positions = { 3, 6, 7, 3, 3, 4, 5, 4, 5 };
+		for (int i = 0; i < json.length; i++) {
+			for (String indent : new String[] { null, JsonWriter.DEFAULT_INDENT }) {
+				try {
+					new JsonFormatter(indent, "\n").format(json[i]);
+					fail("Formatted " + json[i]);
+				} catch (JsonException e) {
+					assertEquals(json[i], "Expected ',' or ':' before the value at position " + positions[i],
+							e.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Unbalanced nesting and unterminated strings are rejected, and are
+	 * returned unchanged by jsonPrettyPrint, which never throws
+	 */
+	@Test
+	public void testInvalid() throws Exception {
+		for (String json : new String[] { "{", "[", "]", "{]", "[}", "[1]]", "\"abc", "[\"a\\\"]" }) {
+			try {
+				JsonFormatter.minify(json);
+				fail("Formatted " + json);
+			} catch (JsonException e) {
+				// Expected
+			}
+			assertEquals(json, JsonValueObject.jsonPrettyPrint(json, 0));
+		}
+	}
+
+	/**
+	 * Text read a few characters at a time is formatted as the whole text is
+	 */
+	@Test
+	public void testStreaming() throws Exception {
+		String json = JsonTestSupport.records(500);
+		for (String indent : new String[] { null, JsonWriter.DEFAULT_INDENT, "\t" }) {
+			JsonFormatter formatter = new JsonFormatter(indent, "\r\n");
+			String expected = formatter.format(json);
+			for (int chunk : new int[] { 1, 3, 17, 8192 }) {
+				StringWriter out = new StringWriter();
+				formatter.format(new ChunkedReader(json, chunk), out);
+				assertEquals(expected, out.toString());
+			}
+		}
+	}
+
+	/**
+	 * Setting a level indents every line after the first by that many more
+	 * levels
+	 */
+	@Test
+	public void testLevel() throws Exception {
+		String json = "{\"a\":[1,{\"b\":2}],\"c\":{}}";
+		JsonFormatter formatter = new JsonFormatter(JsonWriter.DEFAULT_INDENT, "\n");
+		String expected = formatter.format(json);
+		formatter.setLevel(2);
+		assertEquals(2, formatter.getLevel());
+		String indented = expected.replace("\n", "\n" + JsonWriter.DEFAULT_INDENT + JsonWriter.DEFAULT_INDENT);
+		assertEquals(indented, formatter.format(json));
+		assertEquals(indented, JsonValueObject.jsonPrettyPrint(json, 2));
+		try {
+			formatter.setLevel(-1);
+			fail("Set a negative level");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+}
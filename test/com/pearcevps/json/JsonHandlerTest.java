@@ -0,0 +1,170 @@
+package com.pearcevps.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests of the {@link JsonHandler} events pushed by the parsers, and of the
+ * {@link JsonTreeBuilder}
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonHandlerTest {
+
+	/**
+	 * A handler that records its events as text
+	 */
+	static private class Recorder implements JsonHandler {
+		final List<String> events = new ArrayList<String>();
+
+		@Override
+		public void endArray() {
+			this.events.add("]");
+		}
+
+		@Override
+		public void endObject() {
+			this.events.add("}");
+		}
+
+		@Override
+		public void name(String name) {
+			this.events.add("name " + name);
+		}
+
+		@Override
+		public void nullValue() {
+			this.events.add("null");
+		}
+
+		@Override
+		public void startArray() {
+			this.events.add("[");
+		}
+
+		@Override
+		public void startObject() {
+			this.events.add("{");
+		}
+
+		@Override
+		public void value(BigDecimal value) {
+			this.events.add("decimal " + value);
+		}
+
+		@Override
+		public void value(BigInteger value) {
+			this.events.add("integer " + value);
+		}
+
+		@Override
+		public void value(boolean value) {
+			this.events.add("boolean " + value);
+		}
+
+		@Override
+		public void value(double value) {
+			this.events.add("double " + value);
+		}
+
+		@Override
+		public void value(long value) {
+			this.events.add("long " + value);
+		}
+
+		@Override
+		public void value(String value) {
+			this.events.add("string " + value);
+		}
+	}
+
+	/**
+	 * The string, byte and pull parsers push the same events for each document
+	 */
+	@Test
+	public void testSameEvents() throws Exception {
+		for (String json : JsonTestSupport.DOCUMENTS) {
+			Recorder expected = new Recorder();
+			JsonParser.parse(json, expected);
+			Recorder bytes = new Recorder();
+			byte[] utf8 = json.getBytes(StandardCharsets.UTF_8);
+			JsonByteParser.parse(utf8, 0, utf8.length, bytes);
+			assertEquals(json, expected.events, bytes.events);
+			Recorder pull = new Recorder();
+			new JsonReader(new StringReader(json)).readValue(pull);
+			assertEquals(json, expected.events, pull.events);
+		}
+	}
+
+	/**
+	 * The events of a document, in order
+	 */
+	@Test
+	public void testEvents() throws Exception {
+		Recorder recorder = new Recorder();
+		JsonParser.parse("{\"a\":[1,2.5,\"s\",true,null],\"b\":{},\"c\":123456789012345678901}", recorder);
+		List<String> expected = new ArrayList<String>();
+		for (String event : new String[] { "{", "name a", "[", "long 1", "double 2.5", "string s", "boolean true",
+				"null", "]", "name b", "{", "}", "name c", "integer 123456789012345678901", "}" }) {
+			expected.add(event);
+		}
+		assertEquals(expected, recorder.events);
+	}
+
+	/**
+	 * An exception thrown by a handler stops the parse
+	 */
+	@Test
+	public void testHandlerException() throws Exception {
+		Recorder recorder = new Recorder() {
+			@Override
+			public void value(long value) {
+				super.value(value);
+				if (value == 2) {
+					throw new IllegalStateException("stop");
+				}
+			}
+		};
+		try {
+			JsonParser.parse("[1,2,3]", recorder);
+			fail("Handler exception not thrown");
+		} catch (IllegalStateException e) {
+			assertEquals("stop", e.getMessage());
+		}
+		assertEquals(3, recorder.events.size());
+	}
+
+	/**
+	 * A tree builder can be reset and used again, and can add to an existing
+	 * object
+	 */
+	@Test
+	public void testTreeBuilder() throws Exception {
+		JsonTreeBuilder builder = new JsonTreeBuilder();
+		JsonParser.parse("[1,2]", builder);
+		assertEquals("[ 1, 2 ]", builder.getResult().toString());
+		builder.reset();
+		JsonParser.parse("{\"a\":true}", builder);
+		assertEquals("{ \"a\": true }", builder.getResult().toString());
+
+		JsonValueObject target = new JsonValueObject();
+		target.addPair(new JsonPair(new JsonString("first"), new JsonValueNumberLong(1L)));
+		JsonParser.parseObject("{\"second\":2,\"third\":{\"x\":3}}", target);
+		assertEquals("{ \"first\": 1, \"second\": 2, \"third\": { \"x\": 3 } }", target.toString());
+		builder = new JsonTreeBuilder(target);
+		JsonParser.parse("{\"fourth\":4}", builder);
+		assertSame(target, builder.getResult());
+		assertEquals(4, target.size());
+	}
+}
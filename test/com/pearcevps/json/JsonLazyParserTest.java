@@ -0,0 +1,99 @@
+package com.pearcevps.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+/**
+ * Tests of the lazy objects and arrays built by
+ * {@link JsonParser#parseLazy(String)}
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonLazyParserTest {
+
+	/**
+	 * Each document is parsed lazily as the tree the reference parser builds
+	 */
+	@Test
+	public void testDocuments() throws Exception {
+		for (String json : JsonTestSupport.DOCUMENTS) {
+			JsonTestSupport.assertSameValue(JsonParser.parse(json), JsonValue.getLazyJsonValueFromString(json));
+		}
+		String json = JsonTestSupport.records(200);
+		JsonTestSupport.assertSameValue(JsonParser.parse(json), JsonParser.parseLazy(json));
+	}
+
+	/**
+	 * A lazy value prints the same as the tree before any member is read
+	 */
+	@Test
+	public void testPrintUnread() throws Exception {
+		for (String json : JsonTestSupport.DOCUMENTS) {
+			assertEquals(JsonParser.parse(json).toString(), JsonParser.parseLazy(json).toString());
+		}
+	}
+
+	/**
+	 * Members are read by name and index without reading the others
+	 */
+	@Test
+	public void testRandomAccess() throws Exception {
+		String json = "{\"a\\\"b\":1,\"list\":[10,{\"x\":\"y\"},[true]],\"skip\":{\"deep\":[1,2,3]},\"last\":null}";
+		JsonValueObject object = (JsonValueObject) JsonParser.parseLazy(json);
+		assertEquals(4, object.size());
+		assertEquals(Long.valueOf(1), ((JsonValueNumberLong) object.get("a\"b")).getValue());
+		JsonValueArray list = (JsonValueArray) object.get("list");
+		assertEquals(3, list.size());
+		assertEquals("y", ((JsonValueString) ((JsonValueObject) list.get(1)).get("x")).getJavaStringValue());
+		assertTrue(((JsonValueArray) list.get(2)).get(0) instanceof JsonValueTrue);
+		assertTrue(object.get("last") instanceof JsonValueNull);
+		assertNull(object.get("missing"));
+		assertEquals(JsonParser.parse(json).toString(), object.toString());
+	}
+
+	/**
+	 * The whole input is checked when it is indexed, so reading a member later
+	 * cannot fail
+	 */
+	@Test
+	public void testInvalid() {
+		for (String json : JsonTestSupport.INVALID) {
+			try {
+				JsonParser.parseLazy(json);
+				fail("Parsed invalid JSON " + json);
+			} catch (JsonException e) {
+				// Expected
+			}
+		}
+		for (String json : new String[] { "{\"a\":1,\"b\":[1,2}", "{\"a\":{\"b\":tru}}", "[1,[2,[3,]]]" }) {
+			try {
+				JsonParser.parseLazy(json);
+				fail("Parsed invalid JSON " + json);
+			} catch (JsonException e) {
+				// Expected
+			}
+		}
+	}
+
+	/**
+	 * Changing the members of a lazy object replaces the indexed members
+	 */
+	@Test
+	public void testChange() throws Exception {
+		JsonValueObject object = (JsonValueObject) JsonParser.parseLazy("{\"a\":1,\"b\":2}");
+		object.getMembers().remove(0);
+		assertEquals("{ \"b\": 2 }", object.toString());
+		object.setMembers(new ArrayList<JsonPair>());
+		assertEquals(0, object.size());
+		JsonValueArray array = (JsonValueArray) JsonParser.parseLazy("[1,2,3]");
+		array.addElement(new JsonValueNumberLong(4L));
+		assertEquals("[ 1, 2, 3, 4 ]", array.toString());
+	}
+}
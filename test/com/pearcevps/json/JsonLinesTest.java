@@ -0,0 +1,234 @@
+package com.pearcevps.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests of the {@link JsonLinesReader}, {@link JsonLinesWriter} and
+ * {@link JsonLinesProcessor}
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonLinesTest {
+
+	/**
+	 * A record bound from a line
+	 */
+	static public class Event {
+		@Json_Property
+		public long		id;
+		@Json_Property
+		public String	name;
+	}
+
+	/**
+	 * A bean that cannot be created without arguments
+	 */
+	static public class NoDefault {
+		@Json_Property
+		public long id;
+
+		public NoDefault(long id) {
+			this.id = id;
+		}
+	}
+
+	/**
+	 * The pool the processor tests parse on
+	 */
+	private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+	@After
+	public void tearDown() {
+		this.executor.shutdownNow();
+	}
+
+	/**
+	 * Build the lines of a number of events, with blank lines between some
+	 *
+	 * @param count
+	 *           The number of events
+	 * @return The lines
+	 */
+	static private String events(int count) {
+		StringBuilder ret = new StringBuilder();
+		for (int i = 1; i <= count; i++) {
+			ret.append("{\"id\":").append(i).append(",\"name\":\"event ").append(i).append("\"}\n");
+			if ((i % 10) == 0) {
+				ret.append("  \n");
+			}
+		}
+		return ret.toString();
+	}
+
+	/**
+	 * Each document is written as one line and read back as the tree the
+	 * reference parser builds from its printed text
+	 */
+	@Test
+	public void testRoundTrip() throws Exception {
+		StringWriter out = new StringWriter();
+		JsonLinesWriter writer = new JsonLinesWriter(out);
+		for (String json : JsonTestSupport.DOCUMENTS) {
+			writer.write(JsonParser.parse(json));
+		}
+		writer.writeLine("[1,2]");
+		writer.flush();
+		assertEquals(JsonTestSupport.DOCUMENTS.length + 1, writer.getCount());
+
+		JsonLinesReader reader = new JsonLinesReader(new StringReader(out.toString()));
+		for (String json : JsonTestSupport.DOCUMENTS) {
+			JsonTestSupport.assertSameValue(JsonParser.parse(JsonParser.parse(json).toString()), reader.next());
+		}
+		assertEquals("[1,2]", reader.nextLine());
+		assertNull(reader.next());
+		assertEquals(JsonTestSupport.DOCUMENTS.length + 1, reader.getLineNumber());
+		reader.close();
+	}
+
+	/**
+	 * Beans are written and read back, and blank lines are skipped but counted
+	 */
+	@Test
+	public void testBeans() throws Exception {
+		StringWriter out = new StringWriter();
+		JsonLinesWriter writer = new JsonLinesWriter(out);
+		Event event = new Event();
+		event.id = 7;
+		event.name = "seven\nlines";
+		writer.writeBean(event);
+		writer.writeLine("");
+		writer.writeBean(event);
+		writer.close();
+
+		JsonLinesReader reader = new JsonLinesReader(new StringReader(out.toString()));
+		Event read = reader.nextBean(Event.class);
+		assertEquals(7, read.id);
+		assertEquals("seven\nlines", read.name);
+		assertEquals(1, reader.getLineNumber());
+		reader.nextBean(Event.class);
+		assertEquals(3, reader.getLineNumber());
+		assertNull(reader.nextBean(Event.class));
+	}
+
+	/**
+	 * Invalid lines and beans that cannot be created are reported with their
+	 * line numbers
+	 */
+	@Test
+	public void testInvalid() throws Exception {
+		JsonLinesReader reader = new JsonLinesReader(new StringReader("{\"id\":1}\n\n{\"id\":}\n[1]\n{\"id\":3}\n"));
+		reader.next();
+		try {
+			reader.next();
+			fail("Read an invalid line");
+		} catch (JsonException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Invalid JSON on line 3: "));
+		}
+		try {
+			reader.nextBean(Event.class);
+			fail("Bound an array to a bean");
+		} catch (JsonException e) {
+			assertEquals("Line 4 is not a JSON object", e.getMessage());
+		}
+		try {
+			reader.nextBean(NoDefault.class);
+			fail("Created a bean without a default constructor");
+		} catch (JsonException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Cannot create a \"" + NoDefault.class.getName()
+					+ "\" for line 5: "));
+		}
+		try {
+			new JsonLinesWriter(new StringWriter()).writeLine("{\n}");
+			fail("Wrote a line break");
+		} catch (JsonException e) {
+			// Expected
+		}
+	}
+
+	/**
+	 * An ordered processor passes every record to the sink in line order
+	 */
+	@Test
+	public void testOrdered() throws Exception {
+		List<Long> ids = new ArrayList<Long>();
+		List<Long> lines = new ArrayList<Long>();
+		JsonLinesProcessor<Event> processor = new JsonLinesProcessor<Event>(JsonLinesProcessor.beans(Event.class),
+				this.executor, 8, true);
+		long count = processor.process(new JsonLinesReader(new StringReader(JsonLinesTest.events(1000))),
+				(event, line) -> {
+					ids.add(event.id);
+					lines.add(line);
+				});
+		assertEquals(1000, count);
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(i + 1, ids.get(i).longValue());
+			assertEquals((i + 1) + (i / 10), lines.get(i).longValue());
+		}
+	}
+
+	/**
+	 * An unordered processor passes every record to the sink once
+	 */
+	@Test
+	public void testUnordered() throws Exception {
+		String events = JsonLinesTest.events(1000);
+		List<String> expected = new ArrayList<String>();
+		JsonLinesReader reader = new JsonLinesReader(new StringReader(events));
+		JsonValue value;
+		while ((value = reader.next()) != null) {
+			expected.add(value.toString());
+		}
+		List<String> actual = new ArrayList<String>();
+		JsonLinesProcessor<JsonValue> processor = new JsonLinesProcessor<JsonValue>(JsonLinesProcessor.values(),
+				this.executor, 16, false);
+		assertEquals(1000, processor.process(new JsonLinesReader(new StringReader(events)),
+				(record, line) -> actual.add(record.toString())));
+		Collections.sort(expected);
+		Collections.sort(actual);
+		assertEquals(expected, actual);
+	}
+
+	/**
+	 * A line that cannot be parsed, or a failing sink, stops the processor
+	 */
+	@Test
+	public void testFailure() throws Exception {
+		for (boolean ordered : new boolean[] { true, false }) {
+			JsonLinesProcessor<JsonValue> processor = new JsonLinesProcessor<JsonValue>(JsonLinesProcessor.values(),
+					this.executor, 4, ordered);
+			try {
+				processor.process(new JsonLinesReader(new StringReader(JsonLinesTest.events(50) + "{bad}\n")),
+						(record, line) -> {
+						});
+				fail("Processed an invalid line");
+			} catch (JsonException e) {
+				assertTrue(e.getMessage(), e.getMessage().startsWith("Invalid JSON on line 56: "));
+			}
+			try {
+				processor.process(new JsonLinesReader(new StringReader(JsonLinesTest.events(50))), (record, line) -> {
+					if (line == 12) {
+						throw new IllegalStateException("stop");
+					}
+				});
+				fail("Sink failure not thrown");
+			} catch (JsonException e) {
+				assertEquals("JSON Lines sink failed on line 12: stop", e.getMessage());
+			}
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package com.pearcevps.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests of the shortest round trip {@link JsonNumberFormat}
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonNumberFormatTest {
+
+	/**
+	 * Check that a double is written as a decimal that parses back to it, is
+	 * no longer than Double.toString writes it, and has the same layout
+	 *
+	 * @param value
+	 *           The double
+	 */
+	static private void assertDouble(double value) {
+		String text = JsonNumberFormat.toString(value);
+		String expected = Double.toString(value);
+		assertEquals(expected, Double.doubleToLongBits(value), Double.doubleToLongBits(Double.parseDouble(text)));
+		assertTrue(expected + " " + text, text.length() <= expected.length());
+		assertEquals(expected + " " + text, expected.indexOf('E') >= 0, text.indexOf('E') >= 0);
+		assertEquals(expected + " " + text, expected.startsWith("-"), text.startsWith("-"));
+		char[] buffer = new char[JsonNumberFormat.MAX_LENGTH + 3];
+		int length = JsonNumberFormat.format(value, buffer, 3);
+		assertEquals(text, new String(buffer, 3, length - 3));
+	}
+
+	/**
+	 * Check that a float is written as a decimal that parses back to it, and
+	 * is no longer than Float.toString writes it
+	 *
+	 * @param value
+	 *           The float
+	 */
+	static private void assertFloat(float value) {
+		String text = JsonNumberFormat.toString(value);
+		String expected = Float.toString(value);
+		assertEquals(expected, Float.floatToIntBits(value), Float.floatToIntBits(Float.parseFloat(text)));
+		assertTrue(expected + " " + text, text.length() <= expected.length());
+		assertEquals(expected + " " + text, expected.indexOf('E') >= 0, text.indexOf('E') >= 0);
+	}
+
+	/**
+	 * Doubles of random bit patterns, and random magnitudes, round trip
+	 */
+	@Test
+	public void testRandomDoubles() {
+		Random random = new Random(7);
+		for (int i = 0; i < 500000; i++) {
+			double value = Double.longBitsToDouble(random.nextLong());
+			if (!Double.isNaN(value) && !Double.isInfinite(value)) {
+				JsonNumberFormatTest.assertDouble(value);
+			}
+		}
+		for (int i = 0; i < 200000; i++) {
+			JsonNumberFormatTest.assertDouble(random.nextDouble() * Math.pow(10, random.nextInt(40) - 20));
+			JsonNumberFormatTest.assertDouble(random.nextInt(100000) / 100.0);
+		}
+	}
+
+	/**
+	 * Floats of random bit patterns round trip at float precision
+	 */
+	@Test
+	public void testRandomFloats() {
+		Random random = new Random(8);
+		for (int i = 0; i < 500000; i++) {
+			float value = Float.intBitsToFloat(random.nextInt());
+			if (!Float.isNaN(value) && !Float.isInfinite(value)) {
+				JsonNumberFormatTest.assertFloat(value);
+			}
+		}
+	}
+
+	/**
+	 * The boundaries of each layout and range, and values that
+	 * Double.toString writes with more digits than they need
+	 */
+	@Test
+	public void testCases() {
+		String[] doubles = { "0.0", "-0.0", "1.0", "0.1", "0.001", "9.99E-4", "9999999.0", "1.0E7", "123.456",
+				"-2.5E-10", "1.7976931348623157E308", "4.9E-324", "2.2250738585072014E-308", "0.002",
+				"9.223372036854776E18", "2.0E23", "1.0E23", "8.41E21", "2.82879384806159E17", "5.684341886080802E-14" };
+		for (String d : doubles) {
+			assertEquals(d, JsonNumberFormat.toString(Double.parseDouble(d)));
+		}
+		assertEquals("NaN", JsonNumberFormat.toString(Double.NaN));
+		assertEquals("Infinity", JsonNumberFormat.toString(Double.POSITIVE_INFINITY));
+		assertEquals("-Infinity", JsonNumberFormat.toString(Double.NEGATIVE_INFINITY));
+		assertEquals("0.1", JsonNumberFormat.toString(0.1f));
+		assertEquals("1.4E-45", JsonNumberFormat.toString(Float.MIN_VALUE));
+		assertEquals("3.4028235E38", JsonNumberFormat.toString(Float.MAX_VALUE));
+		assertEquals("1.0E7", JsonNumberFormat.toString(1.0e7f));
+		assertEquals("0.001", JsonNumberFormat.toString(0.001f));
+	}
+
+	/**
+	 * Numbers are written by the writer and the tree as the formatter writes
+	 * them, and floats keep their own precision
+	 */
+	@Test
+	public void testWriting() throws Exception {
+		StringBuilder out = new StringBuilder();
+		new JsonWriter(out).beginArray().value(0.1).value(0.1f).value(1e-5).value(2.5e20).endArray();
+		assertEquals("[ 0.1, 0.1, 1.0E-5, 2.5E20 ]", out.toString());
+		assertEquals("{ \"f\": 0.1 }",
+				new JsonValueObject(Collections.singletonList(JsonPair.createPairFloat("f", 0.1f))).toString());
+		JsonTestSupport.Order order = JsonTestSupport.order();
+		assertTrue(JsonValueObject.createObjectFromBean(order).toString().contains("\"discount\": 0.1,"));
+	}
+}
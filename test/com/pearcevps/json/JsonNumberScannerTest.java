@@ -0,0 +1,195 @@
+package com.pearcevps.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+/**
+ * Tests of the {@link JsonNumberScanner} and the number checks built on it
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonNumberScannerTest {
+
+	/**
+	 * The number grammar of RFC 8259
+	 */
+	static private final Pattern	RFC_8259			= Pattern.compile("-?(0|[1-9][0-9]*)(\\.[0-9]+)?([eE][+-]?[0-9]+)?");
+	/**
+	 * Integers with leading zeros, which the library has always accepted
+	 */
+	static private final Pattern	LEGACY_INTEGER	= Pattern.compile("-?[0-9]+");
+	/**
+	 * The pattern the baseline isJsonLong matched
+	 */
+	static private final Pattern	BASELINE_LONG	= Pattern.compile("(-?)(\\p{Digit}*)");
+
+	/**
+	 * Call a function with every string of up to a length over an alphabet
+	 *
+	 * @param alphabet
+	 *           The characters of the strings
+	 * @param length
+	 *           The longest string
+	 * @param check
+	 *           The function
+	 */
+	static private void forAllStrings(String alphabet, int length, Consumer<String> check) {
+		char[] chars = new char[length];
+		int[] digits = new int[length];
+		for (int size = 0; size <= length; size++) {
+			Arrays.fill(digits, 0);
+			while (true) {
+				for (int i = 0; i < size; i++) {
+					chars[i] = alphabet.charAt(digits[i]);
+				}
+				check.accept(new String(chars, 0, size));
+				int i = 0;
+				while ((i < size) && (++digits[i] == alphabet.length())) {
+					digits[i++] = 0;
+				}
+				if (i == size) {
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * The scanner accepts exactly the RFC 8259 grammar plus integers with
+	 * leading zeros, so e.g. +1, .5, 1. and -.5 are rejected
+	 */
+	@Test
+	public void testGrammar() {
+		JsonNumberScanner scanner = new JsonNumberScanner();
+		JsonNumberScannerTest.forAllStrings("01-+.eE", 6, s -> {
+			boolean expected = JsonNumberScannerTest.RFC_8259.matcher(s).matches()
+					|| JsonNumberScannerTest.LEGACY_INTEGER.matcher(s).matches();
+			assertEquals(s, expected, scanner.scan(s, 0, s.length()) != JsonNumberScanner.Kind.INVALID);
+			assertEquals(s, expected, JsonNumberScanner.isNumber(s));
+		});
+		for (String s : new String[] { "+1", ".5", "1.", "-.5", "-", "1e", "1e+", "01.5", "00e1", "1.5.5", "1ee1",
+				"--1", "0x10", "1 ", " 1", "Infinity", "NaN" }) {
+			assertFalse(s, JsonNumberScanner.isNumber(s));
+		}
+	}
+
+	/**
+	 * isJsonLong still matches what the baseline pattern matched, and
+	 * isJsonDouble matches RFC 8259 numbers with a fraction or exponent
+	 */
+	@Test
+	public void testValueChecks() {
+		JsonNumberScannerTest.forAllStrings("09-+.eE", 6, s -> {
+			assertEquals(s, JsonNumberScannerTest.BASELINE_LONG.matcher(s).matches(), JsonValueNumberLong.isJsonLong(s));
+			assertEquals(s, JsonNumberScannerTest.RFC_8259.matcher(s).matches()
+					&& !JsonNumberScannerTest.LEGACY_INTEGER.matcher(s).matches(), JsonValueNumberDouble.isJsonDouble(s));
+		});
+	}
+
+	/**
+	 * Integers are scanned as longs, or BigIntegers when they do not fit
+	 */
+	@Test
+	public void testIntegers() {
+		JsonNumberScanner scanner = new JsonNumberScanner();
+		String[] longs = { "0", "-0", "7", "-7", "007", "9223372036854775807", "-9223372036854775808",
+				"100000000000000000" };
+		for (String s : longs) {
+			assertEquals(s, JsonNumberScanner.Kind.LONG, scanner.scan(s, 0, s.length()));
+			assertEquals(s, Long.parseLong(s), scanner.getLong());
+		}
+		String[] bigs = { "9223372036854775808", "-9223372036854775809", "123456789012345678901234567890" };
+		for (String s : bigs) {
+			assertEquals(s, JsonNumberScanner.Kind.BIG_INTEGER, scanner.scan(s, 0, s.length()));
+			assertEquals(s, new BigInteger(s), scanner.getBigInteger());
+		}
+		Random random = new Random(1);
+		for (int i = 0; i < 100000; i++) {
+			long value = random.nextLong() >> random.nextInt(64);
+			String s = Long.toString(value);
+			assertEquals(s, JsonNumberScanner.Kind.LONG, scanner.scan("[" + s + "]", 1, s.length() + 1));
+			assertEquals(s, value, scanner.getLong());
+		}
+	}
+
+	/**
+	 * Decimals are scanned to the nearest double, as Double.parseDouble gives,
+	 * or BigDecimals outside the range of a double
+	 */
+	@Test
+	public void testDecimals() {
+		JsonNumberScanner scanner = new JsonNumberScanner();
+		Random random = new Random(2);
+		for (int i = 0; i < 200000; i++) {
+			StringBuilder s = new StringBuilder();
+			if (random.nextBoolean()) {
+				s.append('-');
+			}
+			int digits = 1 + random.nextInt(20);
+			s.append(1 + random.nextInt(9));
+			for (int d = 1; d < digits; d++) {
+				s.append(random.nextInt(10));
+			}
+			int point = 1 + random.nextInt(digits);
+			if (point < digits) {
+				s.insert(s.length() - (digits - point), '.');
+			}
+			if ((point == digits) || random.nextBoolean()) {
+				s.append(random.nextBoolean() ? 'e' : 'E').append(random.nextInt(60) - 30);
+			}
+			String number = s.toString();
+			assertEquals(number, JsonNumberScanner.Kind.DOUBLE, scanner.scan(number, 0, number.length()));
+			assertEquals(number, Double.doubleToLongBits(Double.parseDouble(number)),
+					Double.doubleToLongBits(scanner.getDouble()));
+		}
+		for (int i = 0; i < 100000; i++) {
+			double value = Double.longBitsToDouble(random.nextLong());
+			if (Double.isNaN(value) || Double.isInfinite(value)) {
+				continue;
+			}
+			String number = Double.toString(value);
+			assertEquals(number, JsonNumberScanner.Kind.DOUBLE, scanner.scan(number, 0, number.length()));
+			assertEquals(number, value, scanner.getDouble(), 0);
+		}
+		for (String s : new String[] { "1e400", "-1e400", "1e-400", "1.5e309" }) {
+			assertEquals(s, JsonNumberScanner.Kind.BIG_DECIMAL, scanner.scan(s, 0, s.length()));
+			assertEquals(s, new BigDecimal(s), scanner.getBigDecimal());
+		}
+		for (String s : new String[] { "1.7976931348623157e308", "4.9e-324", "0.0", "-0.0", "0e0" }) {
+			assertEquals(s, JsonNumberScanner.Kind.DOUBLE, scanner.scan(s, 0, s.length()));
+			assertEquals(s, Double.parseDouble(s), scanner.getDouble(), 0);
+		}
+	}
+
+	/**
+	 * The parsers reject the numbers the scanner rejects
+	 */
+	@Test
+	public void testParsers() {
+		for (String s : new String[] { "+1", ".5", "1.", "-.5", "01.5", "-01e2" }) {
+			try {
+				JsonParser.parse("[" + s + "]");
+				fail("Parsed " + s);
+			} catch (JsonException e) {
+				// Expected
+			}
+			try {
+				JsonTape.parse("[" + s + "]");
+				fail("Parsed " + s);
+			} catch (JsonException e) {
+				// Expected
+			}
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package com.pearcevps.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests of the fork join {@link JsonParallelParser}
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonParallelParserTest {
+
+	/**
+	 * The pool the tests parse on
+	 */
+	private final ForkJoinPool pool = new ForkJoinPool(4);
+
+	@After
+	public void tearDown() {
+		this.pool.shutdown();
+	}
+
+	/**
+	 * Each array is parsed in chunks of many sizes as the tree the reference
+	 * parser builds
+	 */
+	@Test
+	public void testArrays() throws Exception {
+		int[] chunkSizes = { 1, 7, 64, 4096, JsonParallelParser.DEFAULT_CHUNK_SIZE };
+		for (String json : JsonTestSupport.DOCUMENTS) {
+			if (!(JsonParser.parse(json) instanceof JsonValueArray)) {
+				continue;
+			}
+			for (int chunkSize : chunkSizes) {
+				JsonTestSupport.assertSameValue(JsonParser.parse(json),
+						new JsonParallelParser(this.pool, chunkSize).parse(json));
+			}
+		}
+		String json = JsonTestSupport.records(3000);
+		for (int chunkSize : chunkSizes) {
+			JsonTestSupport.assertSameValue(JsonParser.parse(json),
+					new JsonParallelParser(this.pool, chunkSize).parse(json));
+		}
+		JsonTestSupport.assertSameValue(JsonParser.parse(json), JsonParallelParser.parseArray(json));
+		JsonTestSupport.assertSameValue(JsonParser.parse(json),
+				new JsonValueArray(JsonValueArray.getValuesFromArrayInParallel(json)));
+	}
+
+	/**
+	 * Invalid documents, documents that are not arrays, and arrays with an
+	 * invalid element in any chunk are rejected with a JsonException
+	 */
+	@Test
+	public void testInvalid() {
+		for (String json : JsonTestSupport.INVALID) {
+			try {
+				new JsonParallelParser(this.pool, 8).parse(json);
+				fail("Parsed invalid JSON " + json);
+			} catch (JsonException e) {
+				// Expected
+			}
+		}
+		for (String json : new String[] { "{\"a\":[1,2]}", "\"[1,2]\"", "42" }) {
+			try {
+				new JsonParallelParser(this.pool, 8).parse(json);
+				fail("Parsed a non-array " + json);
+			} catch (JsonException e) {
+				// Expected
+			}
+		}
+		String records = JsonTestSupport.records(1000);
+		int middle = records.indexOf("{\"id\":700,");
+		String[] bad = { "{\"id\":tru,", "{\"id\":,", "{id:1," };
+		int[] offsets = { 6, 6, 1 };
+		for (int i = 0; i < bad.length; i++) {
+			String json = records.substring(0, middle) + bad[i] + records.substring(middle + "{\"id\":700,".length());
+			try {
+				new JsonParallelParser(this.pool, 256).parse(json);
+				fail("Parsed invalid JSON " + bad[i]);
+			} catch (JsonException e) {
+				assertTrue(e.getMessage(), e.getMessage().endsWith("at position " + (middle + offsets[i])));
+			}
+		}
+	}
+
+	/**
+	 * A missing element is reported with the message and position the
+	 * reference parser gives, wherever the chunks of the array end
+	 */
+	@Test
+	public void testMissingElement() throws Exception {
+		for (String json : new String[] { "[1,,2]", "[,1]", "[1,2,]", "[1, ,2]", "[ , ]", "[1,2, ]", "[[1],,[2]]" }) {
+			String expected = null;
+			try {
+				JsonParser.parse(json);
+				fail("Parsed invalid JSON " + json);
+			} catch (JsonException e) {
+				expected = e.getMessage();
+			}
+			assertTrue(expected, expected.startsWith("Expected a JSON value"));
+			for (int chunkSize = 1; chunkSize <= json.length(); chunkSize++) {
+				try {
+					new JsonParallelParser(this.pool, chunkSize).parse(json);
+					fail("Parsed invalid JSON " + json);
+				} catch (JsonException e) {
+					assertEquals(json + " in chunks of " + chunkSize, expected, e.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * A parser cannot be created without a pool or with an empty chunk
+	 */
+	@Test
+	public void testArguments() {
+		try {
+			new JsonParallelParser(null, 1);
+			fail("Created a parser without a pool");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+		try {
+			new JsonParallelParser(this.pool, 0);
+			fail("Created a parser with an empty chunk");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package com.pearcevps.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests of {@link JsonParser}, the reference parser the other engines are
+ * tested against
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonParserTest {
+
+	/**
+	 * A bean bound from a JSON string
+	 */
+	static public class Item {
+		@Json_Property
+		public String			name;
+		@Json_Property
+		public long				id;
+		@Json_Property
+		public double			price;
+		@Json_Property
+		public boolean			active;
+		@Json_Property
+		public List<String>	tags;
+	}
+
+	/**
+	 * The printed text of parsed documents, as the baseline printed it
+	 */
+	@Test
+	public void testPrintedText() throws Exception {
+		assertEquals("{ \"a\": 1 }", JsonParser.parse("{\"a\":1}").toString());
+		assertEquals("[ 1, -1, 0.5, 2500.0, 9223372036854775808 ]",
+				JsonParser.parse("[1,-1,0.5,2.5e+3,9223372036854775808]").toString());
+		assertEquals("{ \"a\": [ true, false, null ], \"b\": \"x\" }",
+				JsonParser.parse(" {\"a\" : [true, false, null],\n\"b\":\"x\"} ").toString());
+		assertEquals("[ \"quote \\u0022 tab \\u0009\" ]", JsonParser.parse("[\"quote \\\" tab \\t\"]").toString());
+		assertEquals("{ \"a\": null }", JsonParser.parse("{\"a\":{}}").toString());
+	}
+
+	/**
+	 * The class of each scalar value
+	 */
+	@Test
+	public void testScalars() throws Exception {
+		assertTrue(JsonParser.parse("\"s\"") instanceof JsonValueString);
+		assertTrue(JsonParser.parse("42") instanceof JsonValueNumberLong);
+		assertTrue(JsonParser.parse("-1.5") instanceof JsonValueNumberDouble);
+		assertTrue(JsonParser.parse("9223372036854775808") instanceof JsonValueNumberBigInteger);
+		assertTrue(JsonParser.parse("true") instanceof JsonValueTrue);
+		assertTrue(JsonParser.parse("false") instanceof JsonValueFalse);
+		assertTrue(JsonParser.parse("null") instanceof JsonValueNull);
+		assertEquals("s", ((JsonValueString) JsonParser.parse(" \"s\" ")).getJavaStringValue());
+		assertEquals(Long.valueOf(42), ((JsonValueNumberLong) JsonParser.parse("42")).getValue());
+	}
+
+	/**
+	 * Every invalid document is rejected
+	 */
+	@Test
+	public void testInvalid() {
+		for (String json : JsonTestSupport.INVALID) {
+			try {
+				JsonParser.parse(json);
+				fail("Parsed invalid JSON " + json);
+			} catch (JsonException e) {
+				// Expected
+			}
+		}
+	}
+
+	/**
+	 * A parse error gives the position of the problem
+	 */
+	@Test
+	public void testErrorPosition() {
+		try {
+			JsonParser.parse("[1 2]");
+			fail("Parsed invalid JSON");
+		} catch (JsonException e) {
+			assertTrue(e.getMessage(), e.getMessage().endsWith("at position 3"));
+		}
+	}
+
+	/**
+	 * The entry points the baseline parsed through build the same trees
+	 */
+	@Test
+	public void testEntryPoints() throws Exception {
+		for (String json : JsonTestSupport.DOCUMENTS) {
+			JsonValue expected = JsonParser.parse(json);
+			JsonTestSupport.assertSameValue(expected, JsonValue.getJsonValueFromString(json));
+			if (expected instanceof JsonValueArray) {
+				List<JsonValue> values = JsonValueArray.getValuesFromArray(json);
+				JsonTestSupport.assertSameValue(expected, new JsonValueArray(values));
+			}
+		}
+		assertNull(JsonValue.getJsonValueFromString(null));
+	}
+
+	/**
+	 * A JSON string is bound to a bean
+	 */
+	@Test
+	public void testDeserializeToBean() throws Exception {
+		Item item = new Item();
+		JsonValueObject.deserializeJsonStringToAnObject(
+				"{\"name\":\"Widget\",\"id\":7,\"price\":1.25,\"active\":true,\"tags\":[\"a\",\"b\"],\"other\":1}", item);
+		assertEquals("Widget", item.name);
+		assertEquals(7, item.id);
+		assertEquals(1.25, item.price, 0);
+		assertTrue(item.active);
+		assertEquals(2, item.tags.size());
+		assertEquals("b", item.tags.get(1));
+	}
+}
@@ -0,0 +1,137 @@
+package com.pearcevps.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Tests of the {@link JsonReader} pull parser
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonReaderTest {
+
+	/**
+	 * Read a whole document as a tree, checking that nothing follows it
+	 *
+	 * @param reader
+	 *           The reader
+	 * @return The value
+	 * @throws IOException
+	 * @throws JsonException
+	 */
+	static private JsonValue readDocument(JsonReader reader) throws IOException, JsonException {
+		JsonValue ret = JsonValue.readTree(reader);
+		assertEquals(JsonToken.END_DOCUMENT, reader.peek());
+		return ret;
+	}
+
+	/**
+	 * Each document is read as the tree the reference parser builds, from
+	 * characters and from UTF-8 bytes
+	 */
+	@Test
+	public void testDocuments() throws Exception {
+		for (String json : JsonTestSupport.DOCUMENTS) {
+			JsonValue expected = JsonParser.parse(json);
+			JsonTestSupport.assertSameValue(expected, JsonReaderTest.readDocument(new JsonReader(new StringReader(json))));
+			JsonTestSupport.assertSameValue(expected, JsonReaderTest
+					.readDocument(new JsonReader(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)))));
+		}
+	}
+
+	/**
+	 * Tokens that span a refill of a small buffer are read whole
+	 */
+	@Test
+	public void testSmallBuffer() throws Exception {
+		String json = JsonTestSupport.records(500);
+		JsonTestSupport.assertSameValue(JsonParser.parse(json),
+				JsonReaderTest.readDocument(new JsonReader(new StringReader(json), 16)));
+		for (String document : JsonTestSupport.DOCUMENTS) {
+			JsonTestSupport.assertSameValue(JsonParser.parse(document),
+					JsonReaderTest.readDocument(new JsonReader(new StringReader(document), 16)));
+		}
+	}
+
+	/**
+	 * Every invalid document is rejected
+	 */
+	@Test
+	public void testInvalid() throws Exception {
+		for (String json : JsonTestSupport.INVALID) {
+			try {
+				JsonReaderTest.readDocument(new JsonReader(new StringReader(json)));
+				fail("Read invalid JSON " + json);
+			} catch (JsonException e) {
+				// Expected
+			}
+		}
+	}
+
+	/**
+	 * A document is read token by token, skipping a nested value
+	 */
+	@Test
+	public void testPull() throws Exception {
+		JsonReader reader = new JsonReader(new StringReader(
+				"{\"id\":12,\"name\":\"a\\nb\",\"skip\":{\"x\":[1,{\"y\":2}]},\"price\":2.5,\"ok\":true,\"none\":null,"
+						+ "\"list\":[1,2]}"));
+		reader.beginObject();
+		assertEquals("id", reader.nextName());
+		assertEquals(12, reader.nextLong());
+		assertEquals("name", reader.nextName());
+		assertEquals("a\nb", reader.nextString());
+		assertEquals("skip", reader.nextName());
+		reader.skipValue();
+		assertEquals("price", reader.nextName());
+		assertEquals(JsonToken.NUMBER, reader.peek());
+		assertEquals(2.5, reader.nextDouble(), 0);
+		assertEquals("ok", reader.nextName());
+		assertTrue(reader.nextBoolean());
+		assertEquals("none", reader.nextName());
+		reader.nextNull();
+		assertEquals("list", reader.nextName());
+		reader.beginArray();
+		assertTrue(reader.hasNext());
+		assertEquals(1, reader.nextLong());
+		assertEquals(2, reader.nextLong());
+		assertFalse(reader.hasNext());
+		reader.endArray();
+		assertFalse(reader.hasNext());
+		reader.endObject();
+		assertEquals(JsonToken.END_DOCUMENT, reader.peek());
+		reader.close();
+	}
+
+	/**
+	 * Consuming a token of the wrong type fails
+	 */
+	@Test
+	public void testWrongToken() throws Exception {
+		JsonReader reader = new JsonReader(new StringReader("[1.5,\"s\"]"));
+		reader.beginArray();
+		try {
+			reader.nextLong();
+			fail("Read a double as a long");
+		} catch (JsonException e) {
+			// Expected
+		}
+		assertEquals(1.5, reader.nextDouble(), 0);
+		try {
+			reader.beginObject();
+			fail("Read a string as an object");
+		} catch (JsonException e) {
+			// Expected
+		}
+	}
+}
@@ -0,0 +1,139 @@
+package com.pearcevps.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+/**
+ * Tests that {@link JsonValueObject#serializeBean(Object, JsonWriter)} writes
+ * what printing {@link JsonValueObject#createObjectFromBean(Object)} does
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonSerializeBeanTest {
+
+	/**
+	 * A bean with a required field
+	 */
+	static public class Required {
+		@Json_Property
+		public String	name;
+		@Json_PropertyRequired
+		public String	value;
+	}
+
+	/**
+	 * Serialize a bean straight to a string
+	 *
+	 * @param bean
+	 *           The bean
+	 * @param context
+	 *           The options of the serialization
+	 * @return The JSON text
+	 */
+	static private String serialize(Object bean, WriteContext context) throws Exception {
+		StringWriter out = new StringWriter();
+		JsonWriter writer = new JsonWriter(out, context);
+		JsonValueObject.serializeBean(bean, writer);
+		writer.flush();
+		return out.toString();
+	}
+
+	/**
+	 * The bean is written as the tree prints, with and without null values.
+	 * Short escapes are only written by the direct path, as the strings of the
+	 * tree are already escaped, so with them the bean is the same value.
+	 */
+	@Test
+	public void testSameAsTree() throws Exception {
+		Object[] beans = { JsonTestSupport.order(), new JsonTestSupport.Order(),
+				JsonTestSupport.line("A", 1, null, null) };
+		for (Object bean : beans) {
+			for (boolean printNull : new boolean[] { true, false }) {
+				for (boolean shortEscapes : new boolean[] { true, false }) {
+					WriteContext context = new WriteContext(printNull);
+					context.setShortEscapes(shortEscapes);
+					String expected = JsonValueObject.createObjectFromBean(bean, context).toString(context);
+					String actual = JsonSerializeBeanTest.serialize(bean, context);
+					if (shortEscapes) {
+						JsonTestSupport.assertSameValue(JsonParser.parse(expected), JsonParser.parse(actual));
+					} else {
+						assertEquals(expected, actual);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Field recursion limits and the maximum depth apply as they do to the tree
+	 */
+	@Test
+	public void testLimits() throws Exception {
+		JsonTestSupport.Line line = JsonTestSupport.line("A", 1, null, null);
+		line.parent = line;
+		for (int limit = 0; limit < 4; limit++) {
+			WriteContext context = new WriteContext();
+			context.setFieldRecursionLimit("parent", limit);
+			String expected = JsonValueObject.createObjectFromBean(line, context).toString();
+			assertEquals(expected, JsonSerializeBeanTest.serialize(line, context));
+		}
+		WriteContext context = new WriteContext();
+		context.setMaxDepth(2);
+		JsonTestSupport.Order order = JsonTestSupport.order();
+		String expected = null;
+		try {
+			JsonValueObject.createObjectFromBean(order, context);
+			fail("Serialized a bean deeper than the maximum depth");
+		} catch (JsonException e) {
+			expected = e.getMessage();
+		}
+		try {
+			JsonSerializeBeanTest.serialize(order, context);
+			fail("Serialized a bean deeper than the maximum depth");
+		} catch (JsonException e) {
+			assertEquals(expected, e.getMessage());
+		}
+	}
+
+	/**
+	 * A missing required field fails in the same way
+	 */
+	@Test
+	public void testRequired() throws Exception {
+		Required bean = new Required();
+		bean.name = "n";
+		String expected = null;
+		try {
+			JsonValueObject.createObjectFromBean(bean);
+			fail("Serialized a bean without a required field");
+		} catch (JsonException e) {
+			expected = e.getMessage();
+		}
+		try {
+			JsonSerializeBeanTest.serialize(bean, new WriteContext());
+			fail("Serialized a bean without a required field");
+		} catch (JsonException e) {
+			assertEquals(expected, e.getMessage());
+		}
+		bean.value = "v";
+		assertEquals(JsonValueObject.createObjectFromBean(bean).toString(),
+				JsonSerializeBeanTest.serialize(bean, new WriteContext()));
+	}
+
+	/**
+	 * A JSON Lines writer writes a bean as the tree prints
+	 */
+	@Test
+	public void testLines() throws Exception {
+		StringWriter out = new StringWriter();
+		JsonLinesWriter writer = new JsonLinesWriter(out);
+		writer.writeBean(JsonTestSupport.order());
+		writer.flush();
+		assertEquals(JsonValueObject.createObjectFromBean(JsonTestSupport.order()).toString() + "\n", out.toString());
+	}
+}
@@ -0,0 +1,242 @@
+package com.pearcevps.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * Tests of the escaping and unescaping of {@link JsonString}
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonStringTest {
+
+	/**
+	 * Escape a string as the baseline did, with &#92;uXXXX escapes for quotes,
+	 * backslashes, apostrophes and the control characters that have short
+	 * escapes, and for the other control characters, which it left unescaped
+	 *
+	 * @param value
+	 *           The Java string
+	 * @return The escaped string
+	 */
+	static private String expectedEscape(String value) {
+		StringBuilder ret = new StringBuilder();
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if ((c < 0x20) || (c == '"') || (c == '\\') || (c == '\'')) {
+				ret.append(String.format("\\u%04X", (int) c));
+			} else {
+				ret.append(c);
+			}
+		}
+		return ret.toString();
+	}
+
+	/**
+	 * Build a random string, mostly of the characters that need escapes
+	 *
+	 * @param random
+	 *           The source of randomness
+	 * @return The string
+	 */
+	static private String randomString(Random random) {
+		StringBuilder ret = new StringBuilder();
+		int length = random.nextInt(20);
+		for (int i = 0; i < length; i++) {
+			switch (random.nextInt(3)) {
+			case 0:
+				ret.append((char) random.nextInt(0x80));
+				break;
+			case 1:
+				ret.append("\"\\'\b\f\n\r\t/".charAt(random.nextInt(9)));
+				break;
+			default:
+				ret.append((char) random.nextInt(0x10000));
+				break;
+			}
+		}
+		return ret.toString();
+	}
+
+	/**
+	 * Each escape is decoded, and anything not recognised is copied unchanged
+	 */
+	@Test
+	public void testUnescape() {
+		String[][] cases = { { "", "" }, { "plain", "plain" }, { "\\\"", "\"" }, { "\\\\", "\\" }, { "\\/", "/" },
+				{ "\\b\\f\\n\\r\\t", "\b\f\n\r\t" }, { "\\u0041\\u00e9\\u00E9", "A\u00e9\u00e9" },
+				{ "\\ud83d\\ude00", "\ud83d\ude00" }, { "a\\u0022b\\u005Cc", "a\"b\\c" }, { "\\x", "\\x" },
+				{ "\\u12", "\\u12" }, { "\\u12g4", "\\u12g4" }, { "end\\", "end\\" }, { "\\\\u0041", "\\u0041" },
+				{ "\\u0000", "\u0000" } };
+		for (String[] c : cases) {
+			assertEquals(c[0], c[1], JsonString.getJavaStringFromJsonString(c[0]));
+		}
+		String plain = "no escapes here";
+		assertSame(plain, JsonString.getJavaStringFromJsonString(plain));
+		assertNull(JsonString.getJavaStringFromJsonString(null));
+	}
+
+	/**
+	 * Random sequences of text and escapes are decoded as they were built
+	 */
+	@Test
+	public void testUnescapeRandom() {
+		String simple = "\"\\/bfnrt";
+		String decoded = "\"\\/\b\f\n\r\t";
+		Random random = new Random(3);
+		for (int n = 0; n < 20000; n++) {
+			StringBuilder json = new StringBuilder();
+			StringBuilder expected = new StringBuilder();
+			int parts = random.nextInt(12);
+			for (int p = 0; p < parts; p++) {
+				switch (random.nextInt(4)) {
+				case 0:
+					char c = (char) (' ' + random.nextInt(0x7f - ' '));
+					if (c != '\\') {
+						json.append(c);
+						expected.append(c);
+					}
+					break;
+				case 1:
+					int e = random.nextInt(simple.length());
+					json.append('\\').append(simple.charAt(e));
+					expected.append(decoded.charAt(e));
+					break;
+				case 2:
+					char u = (char) random.nextInt(0x10000);
+					json.append(String.format(random.nextBoolean() ? "\\u%04x" : "\\u%04X", (int) u));
+					expected.append(u);
+					break;
+				default:
+					json.append("\\q");
+					expected.append("\\q");
+					break;
+				}
+			}
+			assertEquals(json.toString(), expected.toString(),
+					JsonString.getJavaStringFromJsonString(json.toString()));
+		}
+	}
+
+	/**
+	 * Names and values with escapes are decoded by every parser
+	 */
+	@Test
+	public void testParsers() throws Exception {
+		String json = "{\"k\\u0065y\\n\":\"v\\u00e9\\\\\\\"\\ud83d\\ude00\"}";
+		for (JsonValue value : new JsonValue[] { JsonParser.parse(json), JsonParser.parseLazy(json),
+				JsonTape.parse(json).getRoot() }) {
+			JsonPair pair = ((JsonValueObject) value).getMembers().get(0);
+			assertEquals("key\n", pair.getName().getJavaString());
+			assertEquals("v\u00e9\\\"\ud83d\ude00", ((JsonValueString) pair.getValue()).getJavaStringValue());
+		}
+	}
+
+	/**
+	 * Strings are escaped with the baseline's escapes, and control characters
+	 * are always escaped
+	 */
+	@Test
+	public void testEscape() throws Exception {
+		Random random = new Random(4);
+		for (int n = 0; n < 20000; n++) {
+			String value = JsonStringTest.randomString(random);
+			String expected = JsonStringTest.expectedEscape(value);
+			assertEquals(expected, JsonString.escape(value));
+			assertEquals(expected, new JsonString(value).getJsonStr());
+			StringBuilder out = new StringBuilder();
+			JsonString.escape(value, out);
+			assertEquals(expected, out.toString());
+			assertEquals(value, JsonString.getJavaStringFromJsonString(expected));
+		}
+		String plain = "nothing to escape \u00e9";
+		assertSame(plain, JsonString.escape(plain));
+	}
+
+	/**
+	 * Short escapes are written where JSON has them, and decode to the same
+	 * string
+	 */
+	@Test
+	public void testShortEscapes() throws Exception {
+		StringBuilder out = new StringBuilder();
+		JsonString.escape("\"\\'\b\f\n\r\t\u0001/", true, out);
+		assertEquals("\\\"\\\\\\u0027\\b\\f\\n\\r\\t\\u0001/", out.toString());
+		Random random = new Random(5);
+		for (int n = 0; n < 20000; n++) {
+			String value = JsonStringTest.randomString(random);
+			out.setLength(0);
+			JsonString.escape(value, true, out);
+			assertEquals(value, JsonString.getJavaStringFromJsonString(out.toString()));
+		}
+	}
+
+	/**
+	 * Write an object of one pair
+	 *
+	 * @param name
+	 *           The name of the pair
+	 * @param value
+	 *           The value of the pair
+	 * @param shortEscapes
+	 *           Are short escapes written?
+	 * @return The JSON text
+	 * @throws IOException
+	 */
+	static private String write(String name, String value, boolean shortEscapes) throws IOException {
+		WriteContext context = new WriteContext();
+		context.setShortEscapes(shortEscapes);
+		StringWriter out = new StringWriter();
+		new JsonWriter(out, context).beginObject().name(name).value(value).endObject().flush();
+		return out.toString();
+	}
+
+	/**
+	 * Short escapes are chosen by each write, so writes with and without them
+	 * can run at the same time. The strings of a parsed value keep their
+	 * escapes.
+	 */
+	@Test
+	public void testShortEscapesPerContext() throws Exception {
+		String longText = JsonStringTest.write("a\nb", "q\"t\t", false);
+		String shortText = JsonStringTest.write("a\nb", "q\"t\t", true);
+		assertEquals("{ \"a\\u000Ab\": \"q\\u0022t\\u0009\" }", longText);
+		assertEquals("{ \"a\\nb\": \"q\\\"t\\t\" }", shortText);
+		JsonTestSupport.assertSameValue(JsonParser.parse(longText), JsonParser.parse(shortText));
+
+		WriteContext shortContext = new WriteContext();
+		shortContext.setShortEscapes(true);
+		assertEquals(longText, JsonParser.parse(shortText).toString(shortContext));
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<?>[] futures = new Future<?>[2];
+			for (int t = 0; t < futures.length; t++) {
+				boolean shortEscapes = t == 0;
+				futures[t] = executor.submit(() -> {
+					for (int n = 0; n < 5000; n++) {
+						assertEquals(shortEscapes ? shortText : longText,
+								JsonStringTest.write("a\nb", "q\"t\t", shortEscapes));
+					}
+					return null;
+				});
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package com.pearcevps.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests of the {@link JsonStructuralIndex} and {@link JsonTape}
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonTapeTest {
+
+	/**
+	 * Each document is parsed onto a tape as the tree the reference parser
+	 * builds
+	 */
+	@Test
+	public void testDocuments() throws Exception {
+		for (String json : JsonTestSupport.DOCUMENTS) {
+			JsonTestSupport.assertSameValue(JsonParser.parse(json), JsonValue.getTapeJsonValueFromString(json));
+		}
+		String json = JsonTestSupport.records(500);
+		JsonTestSupport.assertSameValue(JsonParser.parse(json), JsonTape.parse(json).getRoot());
+		for (String scalar : new String[] { "\"s\"", "42", "-1.5", "123456789012345678901", "true", "false",
+				"null" }) {
+			JsonTestSupport.assertSameValue(JsonParser.parse(scalar), JsonTape.parse(scalar).getRoot());
+		}
+	}
+
+	/**
+	 * The structural index holds the position of every structural character
+	 * and literal outside strings, and of the quotes of each string, the
+	 * closing quote complemented if the string has escapes
+	 */
+	@Test
+	public void testStructuralIndex() throws Exception {
+		String json = "{\"a,b\":[1, \"]\\\"}\" ,{}, true],\"c\":\"{:}\"}";
+		List<Integer> expected = new ArrayList<Integer>();
+		boolean inLiteral = false;
+		for (int i = 0; i < json.length(); i++) {
+			char c = json.charAt(i);
+			if (c == '"') {
+				expected.add(i);
+				boolean escaped = false;
+				for (i++; json.charAt(i) != '"'; i++) {
+					if (json.charAt(i) == '\\') {
+						escaped = true;
+						i++;
+					}
+				}
+				expected.add(escaped ? ~i : i);
+				inLiteral = false;
+			} else if ("{}[],:".indexOf(c) >= 0) {
+				expected.add(i);
+				inLiteral = false;
+			} else if (c == ' ') {
+				inLiteral = false;
+			} else if (!inLiteral) {
+				expected.add(i);
+				inLiteral = true;
+			}
+		}
+		JsonStructuralIndex index = JsonStructuralIndex.build(json);
+		List<Integer> actual = new ArrayList<Integer>();
+		for (int i = 0; i < index.size(); i++) {
+			actual.add(index.getPosition(i));
+		}
+		assertEquals(json, index.getInput());
+		assertEquals(expected, actual);
+		JsonTestSupport.assertSameValue(JsonParser.parse(json), JsonTape.parse(index).getRoot());
+	}
+
+	/**
+	 * Empty objects are parsed wherever they appear, and a stray '}' or ','
+	 * in an object is rejected
+	 */
+	@Test
+	public void testEmptyObjects() throws Exception {
+		for (String json : new String[] { "{}", "{ }", "[{},{ },{\"a\":{}}]", "{\"a\":{},\"b\":[{}]}" }) {
+			JsonTestSupport.assertSameValue(JsonParser.parse(json), JsonTape.parse(json).getRoot());
+		}
+		for (String json : new String[] { "{,}", "{\"a\":1,}", "{\"a\":}", "{\"a\"}", "{}}", "[{]" }) {
+			try {
+				JsonTape.parse(json);
+				fail("Parsed invalid JSON " + json);
+			} catch (JsonException e) {
+				// Expected
+			}
+		}
+	}
+
+	/**
+	 * Every invalid document is rejected
+	 */
+	@Test
+	public void testInvalid() {
+		for (String json : JsonTestSupport.INVALID) {
+			try {
+				JsonTape.parse(json);
+				fail("Parsed invalid JSON " + json);
+			} catch (JsonException e) {
+				// Expected
+			}
+		}
+	}
+}
@@ -0,0 +1,279 @@
+package com.pearcevps.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Documents and assertions shared by the tests. Each parsing engine is tested
+ * by parsing the documents of {@link #DOCUMENTS} and checking that the result
+ * is the same tree that {@link JsonParser#parse(String)} builds.
+ *
+ * @author andrewpearce
+ *
+ */
+final class JsonTestSupport {
+
+	/**
+	 * A bean held by {@link Order}, which can hold another line
+	 */
+	static public class Line {
+		@Json_Property
+		public String	sku;
+		@Json_Property
+		public int		quantity;
+		@Json_Property
+		public Double	price;
+		@Json_Property
+		public Line		parent;
+	}
+
+	/**
+	 * The superclass of {@link Order}
+	 */
+	static public class Base {
+		@Json_Property
+		public long id;
+	}
+
+	/**
+	 * A bean with a field of every kind the binder supports
+	 */
+	static public class Order extends Base {
+		@Json_Property
+		public String					name;
+		@Json_Property
+		public boolean					paid;
+		@Json_Property
+		public char						grade;
+		@Json_Property
+		public short					priority;
+		@Json_Property
+		public float					discount;
+		@Json_Property
+		public double					total;
+		@Json_Property
+		public Integer					count;
+		@Json_Property
+		public Long						ref;
+		@Json_Property
+		public Boolean					gift;
+		@Json_Property
+		public URI						link;
+		@Json_Property
+		public String					note;
+		@Json_Property
+		public List<String>			tags;
+		@Json_Property
+		public List<Integer>			codes;
+		@Json_Property
+		@Json_ListValuesAreBeans
+		public List<Line>				lines;
+		@Json_Property
+		public Line						first;
+		@Json_Property
+		public Map<String, String>	extra;
+		public String					ignored;
+	}
+
+	/**
+	 * Documents covering every kind of value, escapes, non-ASCII text, the
+	 * number ranges and white space
+	 */
+	static final String[]	DOCUMENTS	= {
+			"{}",
+			"[]",
+			"{\"a\":1}",
+			"[1]",
+			"{\"name\":\"Widget\",\"id\":12345,\"price\":19.99,\"tags\":[\"a\",\"b\",\"c\"],\"active\":true,"
+					+ "\"deleted\":false,\"owner\":null,\"dims\":{\"w\":1.5,\"h\":-2,\"d\":0},\"empty\":{},\"none\":[]}",
+			"{\"esc\":\"quote \\\" backslash \\\\ slash \\/ controls \\b\\f\\n\\r\\t\","
+					+ "\"unicode\":\"\\u00e9\\u4e2d\\ud83d\\ude00\",\"raw\":\"\u00e9\u4e2d\ud83d\ude00\"}",
+			"[0,-0,1,-1,9223372036854775807,-9223372036854775808,9223372036854775808,"
+					+ "123456789012345678901234567890,0.5,-0.5,1e10,1E-10,2.5e+3,1.7976931348623157e308,"
+					+ "4.9e-324,12345678901234567890.123456789]",
+			"[[[[[[[[[[{\"a\":[{\"b\":[]}]}]]]]]]]]]]",
+			" \t\n\r{ \"a\" : [ 1 , 2 ] , \"b\" : { } , \"c\" : \"\" } \n",
+			"{\"a\":1,\"a\":2}",
+			"{\"\\u0061\\\"b\":[true,false,null,{\"x\":[]}]}",
+			"[\"\",\" \",\"{}\",\"[]\",\",\",\":\",\"\\\"\"]" };
+
+	/**
+	 * Documents that are not valid JSON, including documents with white space
+	 * other than the four characters JSON allows
+	 */
+	static final String[]	INVALID		= {
+			"",
+			" ",
+			"{",
+			"[",
+			"{\"a\"}",
+			"{\"a\":}",
+			"{\"a\" 1}",
+			"{\"a\":1,}",
+			"[1,]",
+			"[1 2]",
+			"{a:1}",
+			"[\"unterminated]",
+			"[tru]",
+			"[1]]",
+			"{\"a\":1}}",
+			"[1] [2]",
+			"[+1]",
+			"[.5]",
+			"[1.]",
+			"[-.5]",
+			"[1e]",
+			"[--1]",
+			"[1,\f2]",
+			"{\"a\":\u000b1}",
+			"\u00a0[1]",
+			"[1\u2003]",
+			"{\"a\"\u001c:1}" };
+
+	/**
+	 * Check that two JSON values are the same tree, i.e. have the same classes,
+	 * member names, element order and scalar values, and print the same
+	 *
+	 * @param expected
+	 *           The value built by {@link JsonParser#parse(String)}
+	 * @param actual
+	 *           The value built by the engine under test
+	 */
+	static void assertSameValue(JsonValue expected, JsonValue actual) {
+		JsonTestSupport.assertSameValue("$", expected, actual);
+		assertEquals(expected.toString(), actual.toString());
+	}
+
+	/**
+	 * Check that two JSON values at a path of a document are the same tree
+	 *
+	 * @param path
+	 *           The path of the values, for the failure message
+	 * @param expected
+	 *           The expected value
+	 * @param actual
+	 *           The actual value
+	 */
+	static private void assertSameValue(String path, JsonValue expected, JsonValue actual) {
+		assertNotNull(path, actual);
+		assertEquals(path, expected.getClass(), actual.getClass());
+		if (expected instanceof JsonValueObject) {
+			List<JsonPair> expectedMembers = ((JsonValueObject) expected).getMembers();
+			List<JsonPair> actualMembers = ((JsonValueObject) actual).getMembers();
+			assertEquals(path, expectedMembers.size(), actualMembers.size());
+			for (int i = 0; i < expectedMembers.size(); i++) {
+				String name = expectedMembers.get(i).getName().getJavaString();
+				assertEquals(path, name, actualMembers.get(i).getName().getJavaString());
+				JsonTestSupport.assertSameValue(path + "." + name, expectedMembers.get(i).getValue(),
+						actualMembers.get(i).getValue());
+			}
+		} else if (expected instanceof JsonValueArray) {
+			List<JsonValue> expectedElements = ((JsonValueArray) expected).getElements();
+			List<JsonValue> actualElements = ((JsonValueArray) actual).getElements();
+			assertEquals(path, expectedElements.size(), actualElements.size());
+			for (int i = 0; i < expectedElements.size(); i++) {
+				JsonTestSupport.assertSameValue(path + "[" + i + "]", expectedElements.get(i), actualElements.get(i));
+			}
+		} else if (expected instanceof JsonValueString) {
+			assertEquals(path, ((JsonValueString) expected).getJavaStringValue(),
+					((JsonValueString) actual).getJavaStringValue());
+		} else if (expected instanceof JsonValueNumberLong) {
+			assertEquals(path, ((JsonValueNumberLong) expected).getValue(), ((JsonValueNumberLong) actual).getValue());
+		} else if (expected instanceof JsonValueNumberDouble) {
+			assertEquals(path, ((JsonValueNumberDouble) expected).getValue(),
+					((JsonValueNumberDouble) actual).getValue());
+		} else if (expected instanceof JsonValueNumberBigInteger) {
+			assertEquals(path, ((JsonValueNumberBigInteger) expected).getValue(),
+					((JsonValueNumberBigInteger) actual).getValue());
+		} else if (expected instanceof JsonValueNumberBigDecimal) {
+			assertEquals(path, ((JsonValueNumberBigDecimal) expected).getValue(),
+					((JsonValueNumberBigDecimal) actual).getValue());
+		}
+	}
+
+	/**
+	 * Build a line
+	 *
+	 * @param sku
+	 *           The SKU of the line
+	 * @param quantity
+	 *           The quantity
+	 * @param price
+	 *           The price, or null
+	 * @param parent
+	 *           The line this line belongs to, or null
+	 * @return The line
+	 */
+	static Line line(String sku, int quantity, Double price, Line parent) {
+		Line ret = new Line();
+		ret.sku = sku;
+		ret.quantity = quantity;
+		ret.price = price;
+		ret.parent = parent;
+		return ret;
+	}
+
+	/**
+	 * Build an order with every field set, apart from some nulls
+	 *
+	 * @return The order
+	 */
+	static Order order() {
+		Order ret = new Order();
+		ret.id = 7;
+		ret.name = "Order \"7\"\n\u00e9";
+		ret.paid = true;
+		ret.grade = 'B';
+		ret.priority = 3;
+		ret.discount = 0.1f;
+		ret.total = 1234.5;
+		ret.count = 2;
+		ret.gift = Boolean.FALSE;
+		try {
+			ret.link = new URI("http://example.com/a?b=c");
+		} catch (URISyntaxException e) {
+			throw new IllegalStateException(e);
+		}
+		ret.tags = Arrays.asList("x", "y\u00e9");
+		ret.codes = Arrays.asList(1, 2, 3);
+		Line first = JsonTestSupport.line("A", 1, 9.99, null);
+		ret.lines = Arrays.asList(first, JsonTestSupport.line("B", 2, null, first));
+		ret.first = first;
+		ret.extra = new TreeMap<String, String>();
+		ret.extra.put("k1", "v1");
+		ret.extra.put("k2", "v2");
+		ret.ignored = "ignored";
+		return ret;
+	}
+
+	/**
+	 * Build a large array of records, as a test of the engines that split
+	 * their input
+	 *
+	 * @param count
+	 *           The number of records
+	 * @return The JSON array
+	 */
+	static String records(int count) {
+		StringBuilder ret = new StringBuilder("[");
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				ret.append(',');
+			}
+			ret.append("{\"id\":").append(i).append(",\"name\":\"item ").append(i).append(" \\\"q\\\" [x]\",\"price\":")
+					.append(i * 0.25).append(",\"tags\":[\"t").append(i % 7).append("\",{\"n\":null}],\"ok\":")
+					.append((i % 2) == 0).append('}');
+		}
+		return ret.append(']').toString();
+	}
+
+	private JsonTestSupport() {
+	}
+}
@@ -0,0 +1,182 @@
+package com.pearcevps.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests that {@link JsonValueObject#deserializeJsonObjectToAnObject} binds a
+ * parsed tree into the bean that
+ * {@link JsonValueObject#deserializeJsonStringToAnObject(String, Object)}
+ * binds its text into
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonTreeBindingTest {
+
+	/**
+	 * A bean whose unmatched pairs are bound into a map of beans
+	 */
+	static public class Catalog {
+		@Json_Property
+		@Json_MapValuesAreBeans
+		public Map<String, JsonTestSupport.Line>	items;
+		@Json_Property
+		public JsonTestSupport.Line					main;
+	}
+
+	/**
+	 * Documents with nested beans, lists of beans, empty objects and arrays,
+	 * null members and unmatched pairs
+	 */
+	static private final String[]	ORDERS	= {
+			"{\"first\":{},\"lines\":[{},{\"sku\":\"A\",\"parent\":{\"sku\":\"P\",\"parent\":{}}}],\"name\":\"n\"}",
+			"{\"first\":{\"sku\":null,\"quantity\":2,\"parent\":null},\"tags\":[],\"codes\":[1,null],\"x\":\"y\"}",
+			"{\"first\":{\"sku\":\"S\",\"price\":null,\"parent\":{\"sku\":\"\\u00e9\\n\",\"quantity\":3}}}",
+			"{\"ID\":4,\"First\":{\"SKU\":\"s\"},\"lines\":[{\"parent\":{\"parent\":{\"parent\":{\"sku\":\"deep\"}}}}]}" };
+
+	/**
+	 * The print null setting before each test
+	 */
+	private final boolean				printNull	= JsonValueObject.isPrintNull();
+
+	/**
+	 * Restore the print null setting and turn compiled codecs off
+	 */
+	@After
+	public void tearDown() {
+		JsonValueObject.setPrintNull(this.printNull);
+		JsonCodecRegistry.setCompileCodecs(false);
+	}
+
+	/**
+	 * Print a bean with null values
+	 *
+	 * @param bean
+	 *           The bean
+	 * @return The JSON text
+	 */
+	static private String print(Object bean) throws Exception {
+		WriteContext context = new WriteContext(true);
+		return JsonValueObject.createObjectFromBean(bean, context).toString(context);
+	}
+
+	/**
+	 * Check that an object parsed from text by each engine is bound into the
+	 * bean the text is bound into, and is not changed by binding
+	 *
+	 * @param text
+	 *           The JSON object
+	 * @param beanClass
+	 *           The class of bean to bind
+	 */
+	static private void assertSameBean(String text, Class<?> beanClass) throws Exception {
+		String expected = JsonTreeBindingTest
+				.print(JsonValueObject.deserializeJsonStringToAnObject(text, beanClass.newInstance()));
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		JsonValue[] parsed = { JsonParser.parse(text), JsonParser.parseLazy(text),
+				JsonByteParser.parse(bytes, 0, bytes.length) };
+		for (JsonValue value : parsed) {
+			String before = value.toString();
+			Object bean = JsonValueObject.deserializeJsonObjectToAnObject((JsonValueObject) value,
+					beanClass.newInstance());
+			assertEquals(text, expected, JsonTreeBindingTest.print(bean));
+			assertEquals(text, before, value.toString());
+		}
+	}
+
+	/**
+	 * Parsed trees are bound as their text is, with and without null values
+	 * printed, and through compiled codecs
+	 */
+	@Test
+	public void testSameAsText() throws Exception {
+		String[] orders = Arrays.copyOf(JsonTreeBindingTest.ORDERS, JsonTreeBindingTest.ORDERS.length + 2);
+		orders[orders.length - 2] = JsonValueObject.createObjectFromBean(JsonTestSupport.order()).toString();
+		orders[orders.length - 1] = "{}";
+		for (boolean compileCodecs : new boolean[] { false, true }) {
+			JsonCodecRegistry.setCompileCodecs(compileCodecs);
+			for (boolean printNull : new boolean[] { true, false }) {
+				JsonValueObject.setPrintNull(printNull);
+				for (String text : orders) {
+					JsonTreeBindingTest.assertSameBean(text, JsonTestSupport.Order.class);
+				}
+				JsonTreeBindingTest.assertSameBean(
+						"{\"a\":{\"sku\":\"A\",\"parent\":{\"sku\":\"B\",\"parent\":{}}},\"e\":{},"
+								+ "\"n\":{\"price\":null,\"quantity\":5},\"main\":{\"sku\":null}}",
+						Catalog.class);
+			}
+		}
+	}
+
+	/**
+	 * The members of the object are bound as parsed, and nested objects as
+	 * they were when each level was printed and parsed again, so an empty
+	 * object is an empty bean at the top level and null below it
+	 */
+	@Test
+	public void testNested() throws Exception {
+		for (boolean printNull : new boolean[] { true, false }) {
+			JsonValueObject.setPrintNull(printNull);
+			JsonTestSupport.Order order = (JsonTestSupport.Order) JsonValueObject.deserializeJsonObjectToAnObject(
+					(JsonValueObject) JsonParser.parse(JsonTreeBindingTest.ORDERS[0]), new JsonTestSupport.Order());
+			assertEquals("n", order.name);
+			assertNotNull(order.first);
+			assertNull(order.first.sku);
+			assertEquals(2, order.lines.size());
+			assertNull(order.lines.get(0).sku);
+			assertEquals("A", order.lines.get(1).sku);
+			assertEquals("P", order.lines.get(1).parent.sku);
+			assertNull(order.lines.get(1).parent.parent);
+
+			order = (JsonTestSupport.Order) JsonValueObject.deserializeJsonObjectToAnObject(
+					(JsonValueObject) JsonParser.parse(JsonTreeBindingTest.ORDERS[1]), new JsonTestSupport.Order());
+			assertEquals(2, order.first.quantity);
+			assertNull(order.first.parent);
+			assertTrue(order.tags.isEmpty());
+			assertEquals(Arrays.asList(1), order.codes);
+			assertEquals("y", order.extra.get("x"));
+
+			order = (JsonTestSupport.Order) JsonValueObject.deserializeJsonObjectToAnObject(
+					(JsonValueObject) JsonParser.parse(JsonTreeBindingTest.ORDERS[3]), new JsonTestSupport.Order());
+			assertEquals(4, order.id);
+			assertEquals("s", order.first.sku);
+			assertEquals("deep", order.lines.get(0).parent.parent.parent.sku);
+
+			Catalog catalog = (Catalog) JsonValueObject.deserializeJsonObjectToAnObject(
+					(JsonValueObject) JsonParser.parse("{\"a\":{\"sku\":\"A\",\"parent\":{\"sku\":\"B\"}},\"e\":{}}"),
+					new Catalog());
+			assertEquals(Arrays.asList("a", "e"), Arrays.asList(new TreeMap<String, Object>(catalog.items).keySet()
+					.toArray()));
+			assertEquals("B", catalog.items.get("a").parent.sku);
+			assertNull(catalog.items.get("e").sku);
+		}
+		assertNull(JsonValueObject.deserializeJsonObjectToAnObject(new JsonValueObject(), null));
+	}
+
+	/**
+	 * Binding an object whose text is cached leaves the text cached and
+	 * unchanged
+	 */
+	@Test
+	public void testCachedText() throws Exception {
+		JsonValueObject object = (JsonValueObject) JsonParser.parse(JsonTreeBindingTest.ORDERS[2]);
+		object.setCacheText(true);
+		String text = object.toString();
+		JsonTestSupport.Order order = (JsonTestSupport.Order) JsonValueObject.deserializeJsonObjectToAnObject(object,
+				new JsonTestSupport.Order());
+		assertEquals("\u00e9\n", order.first.parent.sku);
+		assertTrue(object.isCacheText());
+		assertEquals(text, object.toString());
+	}
+}
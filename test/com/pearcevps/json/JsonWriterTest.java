@@ -0,0 +1,136 @@
+package com.pearcevps.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Tests of the streaming {@link JsonWriter}
+ *
+ * @author andrewpearce
+ *
+ */
+public class JsonWriterTest {
+
+	/**
+	 * Each value writes the same text as it prints, to every kind of output
+	 */
+	@Test
+	public void testWriteTo() throws Exception {
+		String[] documents = new String[JsonTestSupport.DOCUMENTS.length + 1];
+		System.arraycopy(JsonTestSupport.DOCUMENTS, 0, documents, 0, JsonTestSupport.DOCUMENTS.length);
+		documents[documents.length - 1] = JsonTestSupport.records(500);
+		for (String json : documents) {
+			JsonValue value = JsonParser.parse(json);
+			String expected = value.toString();
+
+			StringBuilder builder = new StringBuilder();
+			value.writeTo(new JsonWriter(builder));
+			assertEquals(expected, builder.toString());
+
+			StringWriter writer = new StringWriter();
+			JsonWriter jsonWriter = new JsonWriter(writer);
+			value.writeTo(jsonWriter);
+			jsonWriter.flush();
+			assertEquals(expected, writer.toString());
+
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			jsonWriter = new JsonWriter(bytes);
+			value.writeTo(jsonWriter);
+			jsonWriter.close();
+			assertEquals(expected, new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+
+			JsonTestSupport.assertSameValue(JsonParser.parse(expected), JsonParser.parse(builder.toString()));
+		}
+	}
+
+	/**
+	 * A document written a token at a time has the layout of a printed value
+	 */
+	@Test
+	public void testTokens() throws Exception {
+		StringWriter out = new StringWriter();
+		JsonWriter writer = new JsonWriter(out);
+		writer.beginObject();
+		writer.name("s").value("caf\u00e9 \"q\"");
+		writer.name("l").value(-42L);
+		writer.name("d").value(1.5);
+		writer.name("f").value(0.1f);
+		writer.name("bi").value(new BigInteger("123456789012345678901234567890"));
+		writer.name("bd").value(new BigDecimal("1e400"));
+		writer.name("t").value(true);
+		writer.name("n").nullValue();
+		writer.name("a").beginArray().value(1L).beginArray().endArray().beginObject().endObject().rawValue("[2]")
+				.endArray();
+		writer.name("e").beginObject().endObject();
+		writer.endObject();
+		writer.flush();
+		assertEquals("{ \"s\": \"caf\u00e9 \\u0022q\\u0022\", \"l\": -42, \"d\": 1.5, \"f\": 0.1, "
+				+ "\"bi\": 123456789012345678901234567890, \"bd\": 1E+400, \"t\": true, \"n\": null, "
+				+ "\"a\": [ 1, [ ], { }, [2] ], \"e\": { } }", out.toString());
+		JsonParser.parse(out.toString());
+	}
+
+	/**
+	 * A writer with an indent pretty prints as an object does
+	 */
+	@Test
+	public void testIndent() throws Exception {
+		for (String json : JsonTestSupport.DOCUMENTS) {
+			JsonValue value = JsonParser.parse(json);
+			if (!(value instanceof JsonValueObject)) {
+				continue;
+			}
+			StringBuilder out = new StringBuilder();
+			JsonWriter writer = new JsonWriter(out);
+			writer.setIndent(JsonWriter.DEFAULT_INDENT);
+			value.writeTo(writer);
+			assertEquals(((JsonValueObject) value).prettyPrint(), out.toString());
+			JsonTestSupport.assertSameValue(JsonParser.parse(value.toString()), JsonParser.parse(out.toString()));
+		}
+	}
+
+	/**
+	 * Tokens written out of order are rejected
+	 */
+	@Test
+	public void testOutOfOrder() throws Exception {
+		try {
+			new JsonWriter(new StringBuilder()).beginArray().name("a");
+			fail("Wrote a name in an array");
+		} catch (IllegalStateException e) {
+			// Expected
+		}
+		try {
+			new JsonWriter(new StringBuilder()).beginObject().value(1L);
+			fail("Wrote an object value without a name");
+		} catch (IllegalStateException e) {
+			// Expected
+		}
+		try {
+			new JsonWriter(new StringBuilder()).beginObject().endArray();
+			fail("Closed an object as an array");
+		} catch (IllegalStateException e) {
+			// Expected
+		}
+		try {
+			new JsonWriter(new StringBuilder()).beginObject().name("a").endObject();
+			fail("Closed an object after a name");
+		} catch (IllegalStateException e) {
+			// Expected
+		}
+		try {
+			new JsonWriter(new StringBuilder()).endObject();
+			fail("Closed an object that was not open");
+		} catch (IllegalStateException e) {
+			// Expected
+		}
+	}
+}